@@ -0,0 +1,125 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * 带流控的扫描回调。<br>
+ * RPC线程把结果放进有界缓冲区，缓冲的行数达到maxBufferedRows时suspend()暂停扫描，不再向RegionServer请求数据；
+ * 调用方用take()取数据，缓冲区降到一半以下时resume()继续扫描。处理慢的调用方不会让客户端内存无限增长，也不占用额外的线程。<br>
+ * 提前结束时调用close()，扫描在下一次回调时终止。
+ *
+ * @version 1.0
+ */
+class BufferedScanConsumer implements AdvancedScanResultConsumer {
+
+    private final int                maxBufferedRows;
+
+    private final ArrayDeque<Result> queue    = new ArrayDeque<>();
+
+    private ScanResumer              resumer  = null;
+
+    private boolean                  finished = false;
+
+    private boolean                  closed   = false;
+
+    private Throwable                error    = null;
+
+    BufferedScanConsumer(int maxBufferedRows){
+        this.maxBufferedRows = Math.max(1, maxBufferedRows);
+    }
+
+    @Override
+    public synchronized void onNext(Result[] results, ScanController controller) {
+        if (closed) {
+            controller.terminate();
+            return;
+        }
+        for (Result rs : results) {
+            queue.add(rs);
+        }
+        if (queue.size() >= maxBufferedRows) {
+            resumer = controller.suspend();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onHeartbeat(ScanController controller) {
+        if (closed) {
+            controller.terminate();
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable e) {
+        error = e;
+        finished = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * 取下一行，没有数据时等待，扫描结束返回null
+     *
+     * @return
+     * @throws IOException 扫描失败
+     */
+    public Result take() throws IOException {
+        Result rs;
+        ScanResumer toResume = null;
+        synchronized (this) {
+            while (queue.isEmpty()) {
+                if (error != null) {
+                    throw error instanceof IOException ? (IOException) error : new IOException(error);
+                }
+                if (finished) {
+                    return null;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for scan results");
+                }
+            }
+            rs = queue.poll();
+            if (resumer != null && queue.size() <= maxBufferedRows / 2) {
+                toResume = resumer;
+                resumer = null;
+            }
+        }
+        // resume可能在当前线程里直接触发下一次onNext，放在锁外调用
+        if (toResume != null) {
+            toResume.resume();
+        }
+        return rs;
+    }
+
+    /**
+     * 放弃剩余的数据并终止扫描
+     */
+    public void close() {
+        ScanResumer toResume;
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+            toResume = resumer;
+            resumer = null;
+            notifyAll();
+        }
+        if (toResume != null) {
+            toResume.resume();
+        }
+    }
+
+}
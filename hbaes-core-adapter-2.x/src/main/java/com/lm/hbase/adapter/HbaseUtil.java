@@ -0,0 +1,963 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.NamespaceDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncAdmin;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.io.compress.Compression.Algorithm;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.ColumnFamilyParam.ColumnFamilyFieldEnum;
+import com.lm.hbase.adapter.entity.ClusterProfile;
+import com.lm.hbase.adapter.entity.ColumnarPage;
+import com.lm.hbase.adapter.entity.HBasePageModel;
+import com.lm.hbase.adapter.entity.HbaseQualifier;
+import com.lm.hbase.adapter.entity.QualifierValue;
+
+/**
+ * HBase 2.x驱动。<br>
+ * 对外的方法与1.x驱动保持一致，GUI按集群版本加载对应的jar即可；内部全部基于AsyncConnection/AsyncTable/AsyncAdmin实现，
+ * 同步方法等待异步结果返回。需要并发发起多个请求时使用xxxAsync方法，返回的CompletableFuture在HBase客户端的RPC线程中完成，
+ * 回调里不要做耗时操作。
+ */
+public class HbaseUtil {
+
+    /** exportScan最多缓冲的页数，超过后暂停扫描直到handler处理完 */
+    private static final int            EXPORT_BUFFER_PAGES = 2;
+
+    private static final ClusterProfile DEFAULT_PROFILE     = ClusterProfile.of(ClusterProfile.DEFAULT_NAME);
+
+    public static void init(String zkPort, String zkQuorum, String hbaseMaster, String znodeParent) throws IOException {
+        init(new ClusterProfile(ClusterProfile.DEFAULT_NAME, zkPort, zkQuorum, hbaseMaster, znodeParent));
+    }
+
+    /**
+     * 注册并连接一个集群，同名集群已存在时替换并关闭旧连接
+     *
+     * @param profile
+     * @throws IOException
+     */
+    public static void init(ClusterProfile profile) throws IOException {
+        ConnectionRegistry.register(profile);
+    }
+
+    /**
+     * 使用现成的配置注册集群，例如HBaseTestingUtility启动的mini-cluster的配置
+     *
+     * @param profile
+     * @param configuration
+     * @throws IOException
+     */
+    public static void init(ClusterProfile profile, Configuration configuration) throws IOException {
+        ConnectionRegistry.register(profile, configuration);
+    }
+
+    /**
+     * 获取阻塞的Connection，供仍然使用同步API的调用方使用
+     *
+     * @return
+     * @throws Exception
+     */
+    public static Connection getConn() throws Exception {
+        return getConn(DEFAULT_PROFILE);
+    }
+
+    public static Connection getConn(ClusterProfile profile) throws Exception {
+        return ConnectionRegistry.getConnection(profile);
+    }
+
+    public static AsyncConnection getAsyncConn() throws Exception {
+        return getAsyncConn(DEFAULT_PROFILE);
+    }
+
+    public static AsyncConnection getAsyncConn(ClusterProfile profile) throws Exception {
+        return ConnectionRegistry.getAsyncConnection(profile);
+    }
+
+    public static void close() throws IOException {
+        ConnectionRegistry.closeAll();
+    }
+
+    public static void close(ClusterProfile profile) throws IOException {
+        ConnectionRegistry.close(profile);
+    }
+
+    /**
+     * 等待异步操作完成，失败时抛出原始异常
+     */
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 创建表。提供更加高级的功能创建hbase表。
+     *
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(String tableName, byte[][] splitKeys, byte[] startKey, byte[] endKey, int numRegions,
+                                   ColumnFamilyParam... columnFamilys) throws Exception {
+        createTable(DEFAULT_PROFILE, tableName, splitKeys, startKey, endKey, numRegions, columnFamilys);
+    }
+
+    /**
+     * 创建表。提供更加高级的功能创建hbase表。
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(ClusterProfile profile, String tableName, byte[][] splitKeys, byte[] startKey,
+                                   byte[] endKey, int numRegions,
+                                   ColumnFamilyParam... columnFamilys) throws Exception {
+        AsyncAdmin admin = getAsyncConn(profile).getAdmin();
+        TableName hbaseTableName = TableName.valueOf(tableName);
+
+        if (join(admin.tableExists(hbaseTableName))) {
+            throw new Exception(tableName + " is exist");
+        }
+        TableDescriptorBuilder tableBuilder = TableDescriptorBuilder.newBuilder(hbaseTableName);
+        for (ColumnFamilyParam item : columnFamilys) {
+
+            Object familyName = item.get(ColumnFamilyFieldEnum.COLUMN_FAMILY_NAME);
+            if (familyName == null) {
+                throw new Exception("COLUMN_FAMILY_NAME is null");
+            }
+            ColumnFamilyDescriptorBuilder columnBuilder = ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes(familyName.toString()));
+            columnBuilder.setCompressionType(Algorithm.SNAPPY);
+            applyColumnFamilyParam(columnBuilder, item);
+
+            tableBuilder.setColumnFamily(columnBuilder.build());
+
+        }
+        TableDescriptor tableDescriptor = tableBuilder.build();
+        if (splitKeys != null) {
+            join(admin.createTable(tableDescriptor, splitKeys));
+        } else if (startKey != null && endKey != null && numRegions > 0) {
+            join(admin.createTable(tableDescriptor, startKey, endKey, numRegions));
+        } else {
+            join(admin.createTable(tableDescriptor));
+        }
+    }
+
+    /**
+     * 在线修改已有列族的属性，只修改param中设置了的属性，其余属性保持不变
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param param 列族属性，COLUMN_FAMILY_NAME必填
+     */
+    public static void modifyColumn(ClusterProfile profile, String tableName, ColumnFamilyParam param) throws Exception {
+        Object familyName = param.get(ColumnFamilyFieldEnum.COLUMN_FAMILY_NAME);
+        if (familyName == null) {
+            throw new Exception("COLUMN_FAMILY_NAME is null");
+        }
+        AsyncAdmin admin = getAsyncConn(profile).getAdmin();
+        TableName hbaseTableName = TableName.valueOf(tableName);
+        TableDescriptor tableDescriptor = join(admin.getDescriptor(hbaseTableName));
+        ColumnFamilyDescriptor columnDescriptor = tableDescriptor.getColumnFamily(Bytes.toBytes(familyName.toString()));
+        if (columnDescriptor == null) {
+            throw new Exception(tableName + " has no column family " + familyName);
+        }
+        ColumnFamilyDescriptorBuilder columnBuilder = ColumnFamilyDescriptorBuilder.newBuilder(columnDescriptor);
+        applyColumnFamilyParam(columnBuilder, param);
+        join(admin.modifyColumnFamily(hbaseTableName, columnBuilder.build()));
+    }
+
+    /**
+     * 把param中设置了的属性写入列族描述
+     */
+    private static void applyColumnFamilyParam(ColumnFamilyDescriptorBuilder columnBuilder, ColumnFamilyParam param) {
+        Object timeToLive = param.get(ColumnFamilyFieldEnum.TIME_TO_LIVE);
+        if (timeToLive != null) {
+            columnBuilder.setTimeToLive(Integer.parseInt(timeToLive.toString()));
+        }
+
+        Object maxVersion = param.get(ColumnFamilyFieldEnum.MAX_VERSION);
+        if (maxVersion != null) {
+            columnBuilder.setMaxVersions(Integer.parseInt(maxVersion.toString()));
+        }
+
+        Object compression = param.get(ColumnFamilyFieldEnum.COMPRESSION);
+        if (compression != null) {
+            columnBuilder.setCompressionType(compression instanceof Algorithm ? (Algorithm) compression
+                                                                              : Algorithm.valueOf(compression.toString().toUpperCase()));
+        }
+
+        Object encoding = param.get(ColumnFamilyFieldEnum.DATA_BLOCK_ENCODING);
+        if (encoding != null) {
+            columnBuilder.setDataBlockEncoding(encoding instanceof DataBlockEncoding ? (DataBlockEncoding) encoding
+                                                                                     : DataBlockEncoding.valueOf(encoding.toString().toUpperCase()));
+        }
+
+        Object bloomFilter = param.get(ColumnFamilyFieldEnum.BLOOM_FILTER);
+        if (bloomFilter != null) {
+            columnBuilder.setBloomFilterType(bloomFilter instanceof BloomType ? (BloomType) bloomFilter
+                                                                              : BloomType.valueOf(bloomFilter.toString().toUpperCase()));
+        }
+
+        Object blockSize = param.get(ColumnFamilyFieldEnum.BLOCKSIZE);
+        if (blockSize != null) {
+            columnBuilder.setBlocksize(Integer.parseInt(blockSize.toString()));
+        }
+
+        Object inMemory = param.get(ColumnFamilyFieldEnum.IN_MEMORY);
+        if (inMemory != null) {
+            columnBuilder.setInMemory(Boolean.parseBoolean(inMemory.toString()));
+        }
+
+        Object blockCache = param.get(ColumnFamilyFieldEnum.BLOCKCACHE);
+        if (blockCache != null) {
+            columnBuilder.setBlockCacheEnabled(Boolean.parseBoolean(blockCache.toString()));
+        }
+
+        Object cacheDataOnWrite = param.get(ColumnFamilyFieldEnum.CACHE_DATA_ON_WRITE);
+        if (cacheDataOnWrite != null) {
+            columnBuilder.setCacheDataOnWrite(Boolean.parseBoolean(cacheDataOnWrite.toString()));
+        }
+    }
+
+    /**
+     * 创建表
+     *
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(String tableName, String... columnFamilys) throws Exception {
+        createTable(DEFAULT_PROFILE, tableName, columnFamilys);
+    }
+
+    /**
+     * 创建表
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(ClusterProfile profile, String tableName, String... columnFamilys) throws Exception {
+        AsyncAdmin admin = getAsyncConn(profile).getAdmin();
+        TableName hbaseTableName = TableName.valueOf(tableName);
+
+        if (join(admin.tableExists(hbaseTableName))) {
+            throw new Exception(tableName + " is exist");
+        }
+        TableDescriptorBuilder tableBuilder = TableDescriptorBuilder.newBuilder(hbaseTableName);
+        for (String columnFamily : columnFamilys) {
+            tableBuilder.setColumnFamily(ColumnFamilyDescriptorBuilder.of(columnFamily));
+        }
+        join(admin.createTable(tableBuilder.build()));
+    }
+
+    /**
+     * 插入数据
+     *
+     * @param tableName 表名
+     * @param columns 请仔细查看ColumnFamily对象的用法
+     */
+    public static void insertData(TableName tableName, String rowKey, ColumnFamily... columns) throws Exception {
+        insertData(DEFAULT_PROFILE, tableName, rowKey, columns);
+    }
+
+    /**
+     * 插入数据
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columns 请仔细查看ColumnFamily对象的用法
+     */
+    public static void insertData(ClusterProfile profile, TableName tableName, String rowKey,
+                                  ColumnFamily... columns) throws Exception {
+        insertData(profile, tableName, Bytes.toBytes(rowKey), columns);
+    }
+
+    /**
+     * 插入数据，行键按原始字节写入
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param columns 列值，优先写入QualifierValue中的原始值
+     */
+    public static void insertData(ClusterProfile profile, TableName tableName, byte[] rowKey,
+                                  ColumnFamily... columns) throws Exception {
+        Put put = new Put(rowKey);
+        for (ColumnFamily columnFamily : columns) {
+            addColumns(put, columnFamily);
+        }
+        join(getAsyncConn(profile).getTable(tableName).put(put));
+    }
+
+    /**
+     * 批量插入数据
+     *
+     * @param tableName
+     * @param rowList
+     */
+    public static void batchInsertData(TableName tableName, List<Row> rowList) throws Exception {
+        batchInsertData(DEFAULT_PROFILE, tableName, rowList);
+    }
+
+    /**
+     * 批量插入数据
+     *
+     * @param profile 集群
+     * @param tableName
+     * @param rowList
+     */
+    public static void batchInsertData(ClusterProfile profile, TableName tableName,
+                                       List<Row> rowList) throws Exception {
+        join(batchInsertDataAsync(profile, tableName, rowList));
+    }
+
+    /**
+     * 异步批量插入数据。AsyncTable按RegionServer拆分并行提交，所有行写入成功后future完成
+     *
+     * @param profile 集群
+     * @param tableName
+     * @param rowList
+     * @return
+     */
+    public static CompletableFuture<Void> batchInsertDataAsync(ClusterProfile profile, TableName tableName,
+                                                               List<Row> rowList) throws Exception {
+        List<Put> puts = new ArrayList<>(rowList.size());
+        for (Row row : rowList) {// 行
+            puts.add(toPut(row));
+        }
+        return getAsyncConn(profile).getTable(tableName).putAll(puts);
+    }
+
+    /**
+     * 把Row转换成Put，行键、列族、列名和值都直接使用原始字节，不经过字符串转换
+     *
+     * @param row
+     * @return
+     */
+    static Put toPut(Row row) {
+        Put put = new Put(row.getRowKeyBytes());
+        for (ColumnFamily columnFamily : row.getColumnFamilys().values()) {// 列族
+            addColumns(put, columnFamily);
+        }
+        return put;
+    }
+
+    /**
+     * 把列族下的所有列加入Put。直接遍历列，不使用(只能遍历一次的)游标
+     */
+    private static void addColumns(Put put, ColumnFamily columnFamily) {
+        byte[] family = columnFamily.getFamilyNameBytes();
+        for (Map.Entry<byte[], QualifierValue> column : columnFamily.getColumns().entrySet()) {// 列
+            byte[] qualifier = column.getKey() == null ? HConstants.EMPTY_BYTE_ARRAY : column.getKey();
+            put.addColumn(family, qualifier, ColumnFamily.valueBytes(column.getValue()));
+        }
+    }
+
+    static String getDisplayValue(String type, byte[] b) {
+        return ValueCodec.toDisplayValue(type, b);
+    }
+
+    public static HBasePageModel scanResultByPageFilter(String tableName, byte[] startRowKey, byte[] endRowKey,
+                                                        List<Object> filtersObj, int maxVersions,
+                                                        HBasePageModel pageModel, boolean firstPage,
+                                                        Map<String, String> typeMapping) throws Exception {
+        return scanResultByPageFilter(DEFAULT_PROFILE, tableName, startRowKey, endRowKey, filtersObj, maxVersions,
+                                      pageModel, firstPage, typeMapping);
+    }
+
+    public static HBasePageModel scanResultByPageFilter(ClusterProfile profile, String tableName, byte[] startRowKey,
+                                                        byte[] endRowKey, List<Object> filtersObj, int maxVersions,
+                                                        HBasePageModel pageModel, boolean firstPage,
+                                                        Map<String, String> typeMapping) throws Exception {
+        return join(scanResultByPageFilterAsync(profile, tableName, startRowKey, endRowKey, filtersObj, maxVersions,
+                                                pageModel, firstPage, typeMapping));
+    }
+
+    /**
+     * 异步分页查询，分页游标的变化和scanResultByPageFilter一致。<br>
+     * 翻页时从上一页的末行开始扫描(不包含该行)，扫描器读满一页后立即终止，不再向RegionServer请求后续数据。
+     *
+     * @return 填充好本页数据的pageModel
+     */
+    public static CompletableFuture<HBasePageModel> scanResultByPageFilterAsync(ClusterProfile profile,
+                                                                                String tableName,
+                                                                                byte[] startRowKey,
+                                                                                final byte[] endRowKey,
+                                                                                List<Object> filtersObj,
+                                                                                int maxVersions,
+                                                                                HBasePageModel pageModel,
+                                                                                final boolean firstPage,
+                                                                                final Map<String, String> typeMapping) throws Exception {
+        FilterList filterList = toFilterList(filtersObj);
+
+        final HBasePageModel model = pageModel == null ? new HBasePageModel(10, tableName) : pageModel;
+        model.initStartTime();
+        model.initEndTime();
+        if (tableName == null) {
+            return CompletableFuture.completedFuture(model);
+        }
+        final AsyncTable<AdvancedScanResultConsumer> table = getAsyncConn(profile).getTable(TableName.valueOf(tableName));
+
+        if (model.getPageStartRowKey() == null && startRowKey != null) {
+            model.setPageStartRowKey(startRowKey);
+        }
+
+        final Scan scan = new Scan();
+        scan.setCaching(100);
+        scan.setConsistency(model.getConsistency());
+        if (model.getMinStamp() != 0 && model.getMaxStamp() != 0) {
+            scan.setTimeRange(model.getMinStamp(), model.getMaxStamp());
+        }
+
+        if (model.getPageEndRowKey() != null) {
+            scan.withStopRow(model.getPageEndRowKey());
+        } else if (endRowKey != null) {
+            scan.withStopRow(endRowKey);
+        }
+        if (filterList != null) {
+            scan.setFilter(filterList);
+        }
+        if (maxVersions == Integer.MAX_VALUE) {
+            scan.readAllVersions();
+        } else if (maxVersions > 0) {
+            scan.readVersions(maxVersions);
+        }
+        // 默认只检索数据的最新版本
+        scan.setLimit(model.getPageSize());
+
+        CompletableFuture<byte[]> pageStart;
+        if (model.getPageStartRowKey() != null) {
+            pageStart = CompletableFuture.completedFuture(model.getPageStartRowKey());
+        } else {
+            pageStart = selectFirstResultRowAsync(table, filterList, model.getConsistency()).thenApply(new Function<Result, byte[]>() {
+
+                @Override
+                public byte[] apply(Result firstResult) {
+                    return firstResult == null || firstResult.isEmpty() ? null : firstResult.getRow();
+                }
+            });
+        }
+
+        return pageStart.thenCompose(new Function<byte[], CompletionStage<HBasePageModel>>() {
+
+            @Override
+            public CompletionStage<HBasePageModel> apply(byte[] startRow) {
+                if (startRow == null) {
+                    return CompletableFuture.completedFuture(model);
+                }
+                // 第一页包含起始行；之后的页从上一页的末行开始，不包含该行
+                boolean inclusive = firstPage || model.getPageStartRowKey() == null;
+                model.setPageStartRowKey(startRow);
+                scan.withStartRow(startRow, inclusive);
+                PageScanConsumer consumer = new PageScanConsumer(model.getPageSize());
+                table.scan(scan, consumer);
+                return consumer.future().thenApply(new Function<List<Result>, HBasePageModel>() {
+
+                    @Override
+                    public HBasePageModel apply(List<Result> resultList) {
+                        return fillPage(model, resultList, endRowKey, typeMapping);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 把本页的结果写入分页模型，并把游标移到本页末行
+     */
+    private static HBasePageModel fillPage(HBasePageModel pageModel, List<Result> resultList, byte[] endRowKey,
+                                           Map<String, String> typeMapping) {
+        byte[] pageEndRowKey = null;
+        for (Result rs : resultList) {
+            if (rs.isEmpty()) {
+                continue;
+            }
+            pageEndRowKey = rs.getRow();
+            if (pageModel.isColumnar()) {
+                pageModel.getWritableColumnarPage().add(rs, typeMapping);
+            } else {
+                pageModel.addRow(toRow(rs, typeMapping));
+            }
+        }
+
+        int pageIndex = pageModel.getPageIndex() + 1;
+        pageModel.setPageIndex(pageIndex);
+        if (pageEndRowKey != null) {
+            pageModel.setPageStartRowKey(pageEndRowKey);
+            pageModel.setPageEndRowKey(endRowKey);
+        }
+        pageModel.initEndTime();
+        pageModel.printTimeInfo();
+        return pageModel;
+    }
+
+    private static FilterList toFilterList(List<Object> filtersObj) throws Exception {
+        if (filtersObj != null && filtersObj.size() > 0) {
+            List<Filter> realFilters = FilterFactory.filterConvert(filtersObj);
+            if (realFilters != null && realFilters.size() > 0) {
+                return new FilterList(realFilters);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 大范围扫描或导出。<br>
+     * 每读满batchRows行组成一个列式页交给handler处理，handler返回后页数据立即清空，数据区在整个扫描过程中复用；扫描结束(包括异常)时释放数据区。<br>
+     * 扫描带流控：客户端最多缓冲EXPORT_BUFFER_PAGES页数据，handler处理不过来时暂停扫描，处理完后继续，读取多GB数据时内存占用保持平稳。
+     *
+     * @param profile 集群
+     * @param tableName 表名
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @param batchRows 每页行数
+     * @param offHeap 是否使用堆外内存
+     * @param typeMapping 列类型映射
+     * @param handler 页处理回调，回调返回后页数据失效，不能保留引用
+     * @return 读取的总行数
+     * @throws Exception
+     */
+    public static long exportScan(ClusterProfile profile, String tableName, byte[] startRowKey, byte[] endRowKey,
+                                  List<Object> filtersObj, int batchRows, boolean offHeap,
+                                  Map<String, String> typeMapping, PageHandler handler) throws Exception {
+        Scan scan = new Scan();
+        if (startRowKey != null) {
+            scan.withStartRow(startRowKey);
+        }
+        if (endRowKey != null) {
+            scan.withStopRow(endRowKey);
+        }
+        FilterList filterList = toFilterList(filtersObj);
+        if (filterList != null) {
+            scan.setFilter(filterList);
+        }
+        scan.setCaching(batchRows);
+        scan.setCacheBlocks(false);
+
+        BufferedScanConsumer consumer = new BufferedScanConsumer(batchRows * EXPORT_BUFFER_PAGES);
+        ColumnarPage page = new ColumnarPage(offHeap ? new OffHeapByteArena() : new HeapByteArena());
+        long total = 0;
+        try {
+            getAsyncConn(profile).getTable(TableName.valueOf(tableName)).scan(scan, consumer);
+            Result rs;
+            while ((rs = consumer.take()) != null) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                page.add(rs, typeMapping);
+                if (page.getRowCount() >= batchRows) {
+                    handler.handle(page);
+                    total += page.getRowCount();
+                    page.clear();
+                }
+            }
+            if (page.getRowCount() > 0) {
+                handler.handle(page);
+                total += page.getRowCount();
+            }
+        } finally {
+            consumer.close();
+            page.release();
+        }
+        return total;
+    }
+
+    /**
+     * exportScan的页处理回调
+     */
+    public static interface PageHandler {
+
+        void handle(ColumnarPage page) throws Exception;
+    }
+
+    /**
+     * 把Result组装成Row，typeMapping的key为【列族.列名】，value为数据类型
+     *
+     * @param rs
+     * @param typeMapping
+     * @return
+     */
+    static Row toRow(Result rs, Map<String, String> typeMapping) {
+        Row row = new Row(rs.getRow());
+        row.setStale(rs.isStale());
+        for (Cell c : rs.rawCells()) {
+            byte[] family = CellUtil.cloneFamily(c);
+            byte[] qualifier = CellUtil.cloneQualifier(c);
+            byte[] value = CellUtil.cloneValue(c);
+            String type = typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                                       + Bytes.toString(qualifier));
+            row.add(family, qualifier, new QualifierValue(qualifier, value, getDisplayValue(type, value), type));
+        }
+        return row;
+    }
+
+    /**
+     * 检索指定表的第一行记录。<br>
+     * （如果在创建表时为此表指定了非默认的命名空间，则需拼写上命名空间名称，格式为【namespace:tablename】）。
+     *
+     * @param tableName 表名称(*)。
+     * @param filterList 过滤器集合，可以为null。
+     * @return
+     */
+    public static Result selectFirstResultRow(TableName tableName, FilterList filterList) throws Exception {
+        return selectFirstResultRow(DEFAULT_PROFILE, tableName, filterList);
+    }
+
+    /**
+     * 检索指定表的第一行记录。<br>
+     * （如果在创建表时为此表指定了非默认的命名空间，则需拼写上命名空间名称，格式为【namespace:tablename】）。
+     *
+     * @param profile 集群
+     * @param tableName 表名称(*)。
+     * @param filterList 过滤器集合，可以为null。
+     * @return
+     */
+    public static Result selectFirstResultRow(ClusterProfile profile, TableName tableName,
+                                              FilterList filterList) throws Exception {
+        if (tableName == null) return null;
+        return join(selectFirstResultRowAsync(getAsyncConn(profile).getTable(tableName), filterList,
+                                              Consistency.STRONG));
+    }
+
+    private static CompletableFuture<Result> selectFirstResultRowAsync(AsyncTable<?> table, FilterList filterList,
+                                                                       Consistency consistency) {
+        Scan scan = new Scan();
+        scan.setConsistency(consistency);
+        scan.setOneRowLimit();
+        if (filterList != null) {
+            scan.setFilter(filterList);
+        }
+        return table.scanAll(scan).thenApply(new Function<List<Result>, Result>() {
+
+            @Override
+            public Result apply(List<Result> results) {
+                return results.isEmpty() ? null : results.get(0);
+            }
+        });
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(String tablename, String... rowkey) throws Exception {
+        deleteRow(DEFAULT_PROFILE, tablename, rowkey);
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param profile 集群
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(ClusterProfile profile, String tablename, String... rowkey) throws Exception {
+        byte[][] rowKeys = new byte[rowkey.length][];
+        for (int i = 0; i < rowkey.length; i++) {
+            rowKeys[i] = Bytes.toBytes(rowkey[i]);
+        }
+        deleteRow(profile, tablename, rowKeys);
+    }
+
+    /**
+     * 按原始行键删除数据
+     *
+     * @param profile 集群
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(ClusterProfile profile, String tablename, byte[]... rowkey) throws Exception {
+        join(deleteRowAsync(profile, tablename, rowkey));
+    }
+
+    /**
+     * 异步按原始行键删除数据，所有行删除成功后future完成
+     *
+     * @param profile 集群
+     * @param tablename
+     * @param rowkey
+     * @return
+     */
+    public static CompletableFuture<Void> deleteRowAsync(ClusterProfile profile, String tablename,
+                                                         byte[]... rowkey) throws Exception {
+        List<Delete> list = new ArrayList<Delete>(rowkey.length);
+        for (byte[] item : rowkey) {
+            list.add(new Delete(item));
+        }
+        return getAsyncConn(profile).getTable(TableName.valueOf(tablename)).deleteAll(list);
+    }
+
+    /**
+     * 列出所有表名称
+     *
+     * @return
+     */
+    public static String[] getListTableNames() throws Exception {
+        return getListTableNames(DEFAULT_PROFILE);
+    }
+
+    /**
+     * 列出所有表名称
+     *
+     * @return
+     */
+    public static String[] getListTableNames(ClusterProfile profile) throws Exception {
+        List<TableName> tables = join(getAsyncConn(profile).getAdmin().listTableNames());
+
+        String[] result = new String[tables.size()];
+        for (int i = 0; i < tables.size(); i++) {
+            result[i] = tables.get(i).getNameAsString();
+        }
+        return result;
+    }
+
+    /**
+     * 删除表
+     *
+     * @param tablename
+     * @throws IOException
+     */
+    public static void dropTable(String tablename) throws Exception {
+        dropTable(DEFAULT_PROFILE, tablename);
+    }
+
+    /**
+     * 删除表
+     *
+     * @param profile 集群
+     * @param tablename
+     */
+    public static void dropTable(ClusterProfile profile, String tablename) throws Exception {
+        TableName hbaseTableName = TableName.valueOf(tablename);
+        AsyncAdmin admin = getAsyncConn(profile).getAdmin();
+        join(admin.disableTable(hbaseTableName));
+        join(admin.deleteTable(hbaseTableName));
+    }
+
+    /**
+     * 清空表
+     *
+     * @param tablename
+     * @param preserveSplits
+     */
+    public static void truncateTable(String tablename, boolean preserveSplits) throws Exception {
+        truncateTable(DEFAULT_PROFILE, tablename, preserveSplits);
+    }
+
+    /**
+     * 清空表
+     *
+     * @param profile 集群
+     * @param tablename
+     * @param preserveSplits
+     */
+    public static void truncateTable(ClusterProfile profile, String tablename,
+                                     boolean preserveSplits) throws Exception {
+        TableName hbaseTableName = TableName.valueOf(tablename);
+        AsyncAdmin admin = getAsyncConn(profile).getAdmin();
+        join(admin.disableTable(hbaseTableName));
+        join(admin.truncateTable(hbaseTableName, preserveSplits));
+        // 2.x的truncate完成后表已经是启用状态
+        if (join(admin.isTableDisabled(hbaseTableName))) {
+            join(admin.enableTable(hbaseTableName));
+        }
+    }
+
+    /**
+     * 获取表结构
+     *
+     * @param tablename
+     * @return
+     */
+    public static TableDescriptor getDescribe(TableName tablename) throws Exception {
+        return getDescribe(DEFAULT_PROFILE, tablename);
+    }
+
+    /**
+     * 获取表结构。2.x返回TableDescriptor，列族通过getColumnFamilies()读取
+     *
+     * @param profile 集群
+     * @param tablename
+     * @return
+     */
+    public static TableDescriptor getDescribe(ClusterProfile profile, TableName tablename) throws Exception {
+        return join(getAsyncConn(profile).getAdmin().getDescriptor(tablename));
+    }
+
+    public static List<HbaseQualifier> getTableQualifiers(String tableName) throws Exception {
+        return getTableQualifiers(DEFAULT_PROFILE, tableName);
+    }
+
+    public static List<HbaseQualifier> getTableQualifiers(ClusterProfile profile, String tableName) throws Exception {
+        HBasePageModel dataModel = new HBasePageModel(1, tableName);
+        dataModel = HbaseUtil.scanResultByPageFilter(profile, tableName, null, null, null, Integer.MAX_VALUE,
+                                                     dataModel, true, null);
+
+        List<HbaseQualifier> result = new ArrayList<>();
+
+        for (int i = 0; i < dataModel.getRowList().size(); i++) {
+            Row row = dataModel.getRowList().get(i);
+            Set<Map.Entry<byte[], ColumnFamily>> columnSet = row.getColumnFamilys().entrySet();// 所有列族
+            for (Iterator<Entry<byte[], ColumnFamily>> iterator = columnSet.iterator(); iterator.hasNext();) {
+                Entry<byte[], ColumnFamily> entry = iterator.next();// 某个列族的所有列
+                for (Entry<byte[], QualifierValue> column : entry.getValue().getColumns().entrySet()) {
+                    result.add(new HbaseQualifier(entry.getKey(), column.getKey(), "string"));
+                }
+
+            }
+        }
+
+        return result;
+
+    }
+
+    public static String getClusterStatus() throws Exception {
+        return getClusterStatus(DEFAULT_PROFILE);
+    }
+
+    public static String getClusterStatus(ClusterProfile profile) throws Exception {
+        return join(getAsyncConn(profile).getAdmin().getClusterMetrics()).toString();
+    }
+
+    /**
+     * 计算表数据总数
+     *
+     * @param tablename
+     * @return
+     */
+    public static long rowCount(String tableName) throws Exception {
+        return rowCount(DEFAULT_PROFILE, tableName);
+    }
+
+    /**
+     * 计算表数据总数
+     *
+     * @param profile 集群
+     * @param tablename
+     * @return
+     */
+    public static long rowCount(ClusterProfile profile, String tableName) throws Exception {
+        return join(rowCountAsync(profile, tableName));
+    }
+
+    /**
+     * 异步计算表数据总数。每行只传输第一个cell，计数在RPC线程中完成，不经过客户端缓冲
+     *
+     * @param profile 集群
+     * @param tableName
+     * @return
+     */
+    public static CompletableFuture<Long> rowCountAsync(ClusterProfile profile, String tableName) throws Exception {
+        Scan scan = new Scan();
+        scan.setFilter(new FirstKeyOnlyFilter());
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        getAsyncConn(profile).getTable(TableName.valueOf(tableName)).scan(scan, new AdvancedScanResultConsumer() {
+
+            // 同一个扫描的回调是串行的
+            private long rowCount = 0;
+
+            @Override
+            public void onNext(Result[] results, ScanController controller) {
+                rowCount += results.length;
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(rowCount);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 获取所有的namespace
+     *
+     * @return
+     * @throws Exception
+     */
+    public static Vector<String> listNameSpace() throws Exception {
+        return listNameSpace(DEFAULT_PROFILE);
+    }
+
+    /**
+     * 获取所有的namespace
+     *
+     * @param profile 集群
+     * @return
+     * @throws Exception
+     */
+    public static Vector<String> listNameSpace(ClusterProfile profile) throws Exception {
+        Vector<String> result = new Vector<>();
+        for (NamespaceDescriptor item : join(getAsyncConn(profile).getAdmin().listNamespaceDescriptors())) {
+            result.add(item.getName());
+        }
+        return result;
+    }
+
+    public static void createNameSpace(String name) throws Exception {
+        createNameSpace(DEFAULT_PROFILE, name);
+    }
+
+    public static void createNameSpace(ClusterProfile profile, String name) throws Exception {
+        join(getAsyncConn(profile).getAdmin().createNamespace(NamespaceDescriptor.create(name).build()));
+    }
+
+    public static void deleteNameSpace(String name) throws Exception {
+        deleteNameSpace(DEFAULT_PROFILE, name);
+    }
+
+    public static void deleteNameSpace(ClusterProfile profile, String name) throws Exception {
+        join(getAsyncConn(profile).getAdmin().deleteNamespace(name));
+    }
+
+}
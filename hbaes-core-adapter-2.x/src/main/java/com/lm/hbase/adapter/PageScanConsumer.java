@@ -0,0 +1,60 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * 读取一页数据的扫描回调：收集到limit行后立即终止扫描，不再向RegionServer请求后续数据。<br>
+ * 回调在HBase客户端的RPC线程中执行，这里只做收集，不阻塞。
+ *
+ * @version 1.0
+ */
+class PageScanConsumer implements AdvancedScanResultConsumer {
+
+    private final int                             limit;
+
+    private final List<Result>                    results = new ArrayList<>();
+
+    private final CompletableFuture<List<Result>> future  = new CompletableFuture<>();
+
+    PageScanConsumer(int limit){
+        this.limit = limit;
+    }
+
+    /**
+     * 扫描结束后完成，结果最多limit行
+     *
+     * @return
+     */
+    CompletableFuture<List<Result>> future() {
+        return future;
+    }
+
+    @Override
+    public void onNext(Result[] rows, ScanController controller) {
+        for (Result rs : rows) {
+            if (results.size() >= limit) {
+                break;
+            }
+            results.add(rs);
+        }
+        if (results.size() >= limit) {
+            controller.terminate();
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        future.completeExceptionally(error);
+    }
+
+    @Override
+    public void onComplete() {
+        future.complete(results);
+    }
+
+}
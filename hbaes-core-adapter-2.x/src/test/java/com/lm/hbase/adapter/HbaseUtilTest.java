@@ -0,0 +1,82 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.entity.ClusterProfile;
+import com.lm.hbase.adapter.entity.HBasePageModel;
+
+/**
+ * 在mini-cluster上检查2.x驱动的建表、批量写入、分页查询和计数
+ */
+public class HbaseUtilTest {
+
+    private static final HBaseTestingUtility UTIL      = new HBaseTestingUtility();
+
+    private static final ClusterProfile      PROFILE   = ClusterProfile.of("mini-cluster");
+
+    private static final String              TABLE     = "hbase_util_test";
+
+    private static final byte[]              FAMILY    = Bytes.toBytes("f");
+
+    private static final int                 ROW_COUNT = 1000;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        UTIL.startMiniCluster();
+        HbaseUtil.init(PROFILE, UTIL.getConfiguration());
+        HbaseUtil.createTable(PROFILE, TABLE, "f");
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = new Row(String.format("row-%04d", i));
+            row.put(FAMILY, Bytes.toBytes("a"), "string", "value-" + i);
+            row.put(FAMILY, Bytes.toBytes("b"), "int", String.valueOf(i));
+            rows.add(row);
+        }
+        HbaseUtil.batchInsertData(PROFILE, TableName.valueOf(TABLE), rows);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        HbaseUtil.close(PROFILE);
+        UTIL.shutdownMiniCluster();
+    }
+
+    @Test
+    public void describeReturnsTableDescriptor() throws Exception {
+        TableDescriptor descriptor = HbaseUtil.getDescribe(PROFILE, TableName.valueOf(TABLE));
+        assertTrue(descriptor.hasColumnFamily(FAMILY));
+    }
+
+    @Test
+    public void rowCountMatchesInsertedRows() throws Exception {
+        assertEquals(ROW_COUNT, HbaseUtil.rowCount(PROFILE, TABLE));
+    }
+
+    @Test
+    public void pagesFollowTheCursor() throws Exception {
+        HBasePageModel page = new HBasePageModel(300, TABLE);
+        page = HbaseUtil.scanResultByPageFilter(PROFILE, TABLE, Bytes.toBytes("row-0100"), null, null, 1, page, true,
+                                                null);
+        assertEquals(300, page.getRowList().size());
+        assertEquals("row-0100", page.getRowList().get(0).getRowKey());
+        assertEquals("row-0399", page.getRowList().get(299).getRowKey());
+
+        page.clearRows();
+        page = HbaseUtil.scanResultByPageFilter(PROFILE, TABLE, null, null, null, 1, page, false, null);
+        assertEquals(300, page.getRowList().size());
+        assertEquals("row-0400", page.getRowList().get(0).getRowKey());
+    }
+
+}
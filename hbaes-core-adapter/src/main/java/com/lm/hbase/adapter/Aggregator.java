@@ -0,0 +1,392 @@
+package com.lm.hbase.adapter;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.coprocessor.AggregationClient;
+import org.apache.hadoop.hbase.client.coprocessor.LongColumnInterpreter;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+import com.lm.hbase.adapter.entity.AggregateResult;
+
+/**
+ * 按region并行的计数和数值聚合。<br>
+ * 过滤条件和scanResultByPageFilter一致(FilterFactory的格式)。加盐的表起止行键是逻辑行键，按桶换算成物理范围，行键前缀过滤同样换算到桶内。计数只传输key(KeyOnlyFilter，没有过滤条件时再加FirstKeyOnlyFilter)；
+ * 数值聚合只读取目标列，值按类型直接解码成double累加，不组装Row也不转换成展示字符串，各region的结果最后合并。<br>
+ * 注意：过滤条件引用了其他列(例如SingleColumnValueFilter)时不能只读取目标列，这时读取整行但只解码目标列。<br>
+ * 表加载了AggregateImplementation协处理器并且setUseCoprocessor(true)时，计数直接由RegionServer计算，只返回每个region的行数。
+ * 数值聚合始终在客户端一次扫描完成：协处理器的sum/min/max各自要完整扫描一遍，比一次扫描读取目标列更慢。
+ *
+ * @version 1.0
+ */
+public class Aggregator {
+
+    public static final String AGGREGATE_COPROCESSOR = "org.apache.hadoop.hbase.coprocessor.AggregateImplementation";
+
+    private final Connection   connection;
+    private final TableName    tableName;
+    private int                parallelism           = 8;
+    private boolean            useCoprocessor        = false;
+    private Configuration      configuration         = null;
+
+    public Aggregator(Connection connection, TableName tableName){
+        this.connection = connection;
+        this.tableName = tableName;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 表加载了AggregateImplementation协处理器时计数是否使用，需要同时设置configuration
+     * 
+     * @param useCoprocessor
+     * @param configuration 集群配置，一般用ConnectionRegistry.getConfiguration(profile)
+     */
+    public void setUseCoprocessor(boolean useCoprocessor, Configuration configuration) {
+        this.useCoprocessor = useCoprocessor;
+        this.configuration = configuration;
+    }
+
+    /**
+     * 统计满足条件的行数
+     * 
+     * @param startRow 起始行，为null时从表头开始
+     * @param stopRow 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @return
+     * @throws Exception
+     */
+    public AggregateResult count(byte[] startRow, byte[] stopRow, final List<Object> filtersObj) throws Exception {
+        return new OperationHandle<AggregateResult>("count " + tableName).execute(countTask(startRow, stopRow,
+                                                                                         filtersObj));
+    }
+
+    /**
+     * 在后台统计满足条件的行数，进度按region计算，取消时关闭正在读取的扫描器
+     * 
+     * @param startRow 起始行，为null时从表头开始
+     * @param stopRow 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @return
+     */
+    public OperationHandle<AggregateResult> countAsync(byte[] startRow, byte[] stopRow, List<Object> filtersObj) {
+        return OperationHandle.submit("count " + tableName, countTask(startRow, stopRow, filtersObj));
+    }
+
+    private OperationHandle.Task<AggregateResult> countTask(final byte[] startRow, final byte[] stopRow,
+                                                            final List<Object> filtersObj) {
+        return new OperationHandle.Task<AggregateResult>() {
+
+            @Override
+            public AggregateResult run(OperationHandle<AggregateResult> handle) throws Exception {
+                if (useCoprocessor && configuration != null && hasCoprocessor()) {
+                    return countByCoprocessor(startRow, stopRow, filtersObj, handle);
+                }
+                return Aggregator.this.run(startRow, stopRow, filtersObj, null, null, null, handle);
+            }
+        };
+    }
+
+    /**
+     * 统计满足条件的行中某一列的count/sum/min/max/avg
+     * 
+     * @param startRow 起始行，为null时从表头开始
+     * @param stopRow 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致，string时按数字字符串解析
+     * @return
+     * @throws Exception
+     */
+    public AggregateResult aggregate(byte[] startRow, byte[] stopRow, List<Object> filtersObj, byte[] family,
+                                     byte[] qualifier, String type) throws Exception {
+        return new OperationHandle<AggregateResult>("aggregate " + tableName).execute(aggregateTask(startRow, stopRow,
+                                                                                                 filtersObj, family,
+                                                                                                 qualifier, type));
+    }
+
+    /**
+     * 在后台统计某一列的count/sum/min/max/avg，进度按region计算，取消时关闭正在读取的扫描器
+     * 
+     * @param startRow 起始行，为null时从表头开始
+     * @param stopRow 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型
+     * @return
+     */
+    public OperationHandle<AggregateResult> aggregateAsync(byte[] startRow, byte[] stopRow, List<Object> filtersObj,
+                                                           byte[] family, byte[] qualifier, String type) {
+        return OperationHandle.submit("aggregate " + tableName,
+                                      aggregateTask(startRow, stopRow, filtersObj, family, qualifier, type));
+    }
+
+    private OperationHandle.Task<AggregateResult> aggregateTask(final byte[] startRow, final byte[] stopRow,
+                                                                final List<Object> filtersObj, final byte[] family,
+                                                                final byte[] qualifier, final String type) {
+        return new OperationHandle.Task<AggregateResult>() {
+
+            @Override
+            public AggregateResult run(OperationHandle<AggregateResult> handle) throws Exception {
+                return Aggregator.this.run(startRow, stopRow, filtersObj, family, qualifier, type, handle);
+            }
+        };
+    }
+
+    private AggregateResult run(byte[] startRow, byte[] stopRow, final List<Object> filtersObj, final byte[] family,
+                                final byte[] qualifier, final String type,
+                                final OperationHandle<?> handle) throws Exception {
+        long start = System.currentTimeMillis();
+        final RowKeyCodec codec = RowKeyCodecs.get(connection, tableName);
+        // 每个桶按region切分的物理范围，过滤器要按所在的桶换算
+        List<List<Pair<byte[], byte[]>>> bucketRanges = new ArrayList<>();
+        int rangeCount = 0;
+        for (int bucket = 0; bucket < codec.getBucketCount(); bucket++) {
+            List<Pair<byte[], byte[]>> ranges = HbaseUtil.bucketRanges(connection, tableName, codec, bucket,
+                                                                       startRow == null ? new byte[0] : startRow,
+                                                                       stopRow == null ? new byte[0] : stopRow);
+            bucketRanges.add(ranges);
+            rangeCount += ranges.size();
+        }
+        AggregateResult result = new AggregateResult();
+        result.setRegionCount(rangeCount);
+        handle.setRegionCount(rangeCount);
+        if (rangeCount == 0) {
+            return result;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, rangeCount)),
+                                                                new DaemonThreadFactory("hbase-aggregator"));
+        try {
+            List<Future<Accumulator>> futures = new ArrayList<>();
+            for (int bucket = 0; bucket < bucketRanges.size(); bucket++) {
+                final int rangeBucket = bucket;
+                for (final Pair<byte[], byte[]> range : bucketRanges.get(bucket)) {
+                    futures.add(executor.submit(new Callable<Accumulator>() {
+
+                        @Override
+                        public Accumulator call() throws Exception {
+                            Accumulator accumulator = scanRange(range.getFirst(), range.getSecond(), filtersObj,
+                                                                family, qualifier, type, codec, rangeBucket, handle);
+                            handle.regionDone();
+                            return accumulator;
+                        }
+                    }));
+                }
+            }
+            Accumulator total = new Accumulator();
+            for (Future<Accumulator> future : futures) {
+                total.merge(future.get());
+            }
+            total.fill(result);
+        } finally {
+            executor.shutdownNow();
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private Accumulator scanRange(byte[] from, byte[] to, List<Object> filtersObj, byte[] family, byte[] qualifier,
+                                  String type, RowKeyCodec codec, int bucket,
+                                  OperationHandle<?> handle) throws Exception {
+        Scan scan = new Scan(from, to);
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        // 过滤器有状态，每个region单独转换一份
+        List<Filter> filters = null;
+        if (filtersObj != null && !filtersObj.isEmpty()) {
+            filters = FilterFactory.filterConvert(filtersObj);
+        }
+        boolean filtered = filters != null && !filters.isEmpty();
+        FilterList filterList = new FilterList();
+        if (filtered) {
+            for (Filter filter : filters) {
+                filterList.addFilter(RowKeyCodecs.toBucket(filter, codec, bucket));
+            }
+        }
+        boolean countOnly = family == null;
+        if (countOnly) {
+            if (!filtered) {
+                filterList.addFilter(new FirstKeyOnlyFilter());
+            }
+            filterList.addFilter(new KeyOnlyFilter());
+        } else if (!filtered) {
+            scan.addColumn(family, qualifier);
+        }
+        // 空的FilterList和指定列一起使用时RegionServer不返回任何行，只在有过滤器时设置
+        if (!filterList.getFilters().isEmpty()) {
+            scan.setFilter(filterList);
+        }
+
+        Accumulator accumulator = new Accumulator();
+        Table table = connection.getTable(tableName);
+        ThrottledScanner scanner = null;
+        try {
+            scanner = new ThrottledScanner(handle.track(table.getScanner(scan)),
+                                           ThrottleManager.get(countOnly ? Operation.COUNT : Operation.SCAN,
+                                                               tableName.getNameAsString()),
+                                           scan.getCaching());
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                accumulator.rows++;
+                if (countOnly) {
+                    continue;
+                }
+                Cell c = rs.getColumnLatestCell(family, qualifier);
+                if (c == null) {
+                    continue;
+                }
+                try {
+                    accumulator.add(ValueCodec.toDouble(type, c.getValueArray(), c.getValueOffset(),
+                                                        c.getValueLength()));
+                } catch (IllegalArgumentException e) {
+                    accumulator.invalid++;
+                }
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            table.close();
+        }
+        return accumulator;
+    }
+
+    private boolean hasCoprocessor() throws Exception {
+        Table table = connection.getTable(tableName);
+        try {
+            return table.getTableDescriptor().hasCoprocessor(AGGREGATE_COPROCESSOR);
+        } finally {
+            table.close();
+        }
+    }
+
+    /**
+     * 由协处理器计数，每个region在RegionServer上扫描一遍，只返回行数。加盐的表每个桶单独计数再相加
+     */
+    private AggregateResult countByCoprocessor(byte[] startRow, byte[] stopRow, List<Object> filtersObj,
+                                               OperationHandle<?> handle) throws Exception {
+        long start = System.currentTimeMillis();
+        RowKeyCodec codec = RowKeyCodecs.get(connection, tableName);
+        AggregateResult result = new AggregateResult();
+        result.setCoprocessor(true);
+        AggregationClient client = new AggregationClient(configuration);
+        Table table = connection.getTable(tableName);
+        try {
+            long total = 0;
+            for (int bucket = 0; bucket < codec.getBucketCount(); bucket++) {
+                handle.checkCancelled();
+                long count = client.rowCount(table, new LongColumnInterpreter(),
+                                             coprocessorScan(startRow, stopRow, filtersObj, codec, bucket));
+                total += count;
+                handle.addRows(count, 0);
+            }
+            result.setRowCount(total);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new Exception("count by coprocessor failed: " + tableName, e);
+        } finally {
+            table.close();
+            client.close();
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 协处理器计数用的Scan：逻辑范围和行键前缀过滤换算到第bucket个桶
+     */
+    private Scan coprocessorScan(byte[] startRow, byte[] stopRow, List<Object> filtersObj, RowKeyCodec codec,
+                                 int bucket) {
+        Scan scan = new Scan();
+        scan.setStartRow(codec.toBucket(bucket, startRow == null ? new byte[0] : startRow));
+        if (stopRow != null && stopRow.length > 0) {
+            scan.setStopRow(codec.toBucket(bucket, stopRow));
+        } else {
+            scan.setStopRow(codec.bucketEnd(bucket));
+        }
+        FilterList filterList = new FilterList();
+        if (filtersObj != null && !filtersObj.isEmpty()) {
+            List<Filter> filters = FilterFactory.filterConvert(filtersObj);
+            if (filters != null) {
+                for (Filter filter : filters) {
+                    filterList.addFilter(RowKeyCodecs.toBucket(filter, codec, bucket));
+                }
+            }
+        }
+        if (filterList.getFilters().isEmpty()) {
+            filterList.addFilter(new FirstKeyOnlyFilter());
+        }
+        scan.setFilter(filterList);
+        return scan;
+    }
+
+    /**
+     * 单个region的累加器
+     */
+    private static class Accumulator {
+
+        private long   rows    = 0;
+        private long   values  = 0;
+        private double sum     = 0;
+        private double min     = Double.POSITIVE_INFINITY;
+        private double max     = Double.NEGATIVE_INFINITY;
+        private long   invalid = 0;
+
+        void add(double value) {
+            values++;
+            sum += value;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        void merge(Accumulator other) {
+            rows += other.rows;
+            values += other.values;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            invalid += other.invalid;
+        }
+
+        void fill(AggregateResult result) {
+            result.setRowCount(rows);
+            result.setValueCount(values);
+            result.setSum(sum);
+            result.setInvalidValues(invalid);
+            if (values > 0) {
+                result.setMin(min);
+                result.setMax(max);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Pair;
+
+/**
+ * 按时间戳增量拉取表的变更。<br>
+ * 每次轮询按region并行扫描时间范围[watermark - overlap, now - lag)内写入的cell，HBase会根据HFile的时间范围元数据跳过完全不相关的文件，
+ * 不需要重新扫描整个范围。<br>
+ * lag：只读取lag毫秒之前写入的数据，给正在进行中的写入留出时间；<br>
+ * overlap：每次从上一次水位线往前多读overlap毫秒，兜住客户端指定了较早时间戳的迟到写入。<br>
+ * 重叠窗口内的行会重复推送(至少一次语义)。所有region都推送成功后才推进水位线并写入检查点文件，程序重启后从检查点继续。
+ *
+ * @version 1.0
+ */
+public class ChangeFeedTailer implements Closeable {
+
+    public static final long              DEFAULT_POLL_INTERVAL = 5000;
+
+    public static final long              DEFAULT_LAG           = 2000;
+
+    public static final long              DEFAULT_OVERLAP       = 10000;
+
+    private static final String           WATERMARK_KEY         = "watermark";
+
+    private final Connection              connection;
+    private final TableName               tableName;
+    private final byte[]                  startRow;
+    private final byte[]                  stopRow;
+    private final File                    checkpointFile;
+    private final Map<String, String>     typeMapping;
+    private final ChangeListener          listener;
+
+    private long                          pollInterval          = DEFAULT_POLL_INTERVAL;
+    private long                          lag                   = DEFAULT_LAG;
+    private long                          overlap               = DEFAULT_OVERLAP;
+    private int                           parallelism           = 8;
+    private int                           batchSize             = 500;
+
+    private volatile long                 watermark;
+    private ScheduledExecutorService      scheduler;
+    private Closeable                     lease;
+
+    /**
+     * @param connection
+     * @param tableName 表名
+     * @param startRow 起始行(逻辑行键，加盐的表不带桶前缀)，为null时从表头开始
+     * @param stopRow 结束行(不包含)，为null时到表尾
+     * @param checkpointFile 检查点文件，为null时不持久化
+     * @param initialWatermark 没有检查点时的起始时间戳，一般传System.currentTimeMillis()只看新写入的数据
+     * @param typeMapping 列类型映射，和scanResultByPageFilter一致
+     * @param listener 变更回调
+     * @throws IOException
+     */
+    public ChangeFeedTailer(Connection connection, TableName tableName, byte[] startRow, byte[] stopRow,
+                            File checkpointFile, long initialWatermark, Map<String, String> typeMapping,
+                            ChangeListener listener) throws IOException{
+        this.connection = connection;
+        this.tableName = tableName;
+        this.startRow = startRow == null ? new byte[0] : startRow;
+        this.stopRow = stopRow == null ? new byte[0] : stopRow;
+        this.checkpointFile = checkpointFile;
+        this.typeMapping = typeMapping;
+        this.listener = listener;
+        this.watermark = loadCheckpoint(initialWatermark);
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public void setLag(long lag) {
+        this.lag = lag;
+    }
+
+    public void setOverlap(long overlap) {
+        this.overlap = overlap;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 当前水位线，水位线之前写入的数据都已经推送过
+     *
+     * @return
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * 开始后台定时轮询
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hbase-change-feed"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    pollOnce();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    listener.onError(e);
+                }
+            }
+        }, 0, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 执行一次增量拉取
+     *
+     * @return 本次推送的行数
+     * @throws Exception
+     */
+    public synchronized long pollOnce() throws Exception {
+        final long maxStamp = System.currentTimeMillis() - lag;
+        final long minStamp = Math.max(0, watermark - overlap);
+        if (maxStamp <= minStamp) {
+            return 0;
+        }
+
+        final RowKeyCodec codec = RowKeyCodecs.get(connection, tableName);
+        List<Pair<byte[], byte[]>> ranges = HbaseUtil.physicalRanges(connection, tableName, codec, startRow, stopRow);
+        ExecutorService limiter = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ranges.size())),
+                                                               new DaemonThreadFactory("hbase-change-feed-region"));
+        long total = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (final Pair<byte[], byte[]> range : ranges) {
+                futures.add(limiter.submit(new Callable<Long>() {
+
+                    @Override
+                    public Long call() throws Exception {
+                        return scanRange(range.getFirst(), range.getSecond(), minStamp, maxStamp, codec);
+                    }
+                }));
+            }
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+        } finally {
+            limiter.shutdownNow();
+        }
+
+        watermark = maxStamp;
+        saveCheckpoint();
+        return total;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (lease != null) {
+            try {
+                lease.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            lease = null;
+        }
+    }
+
+    /**
+     * 持有连接的租约，close时释放，运行期间连接不会被空闲回收
+     *
+     * @param lease
+     */
+    synchronized void holdLease(Closeable lease) {
+        this.lease = lease;
+    }
+
+    private long scanRange(byte[] from, byte[] to, long minStamp, long maxStamp,
+                           RowKeyCodec codec) throws Exception {
+        Scan scan = new Scan(from, to);
+        scan.setTimeRange(minStamp, maxStamp);
+        scan.setCaching(batchSize);
+        scan.setCacheBlocks(false);
+        long count = 0;
+        Table table = connection.getTable(tableName);
+        ResultScanner scanner = null;
+        try {
+            scanner = table.getScanner(scan);
+            List<Row> batch = new ArrayList<>();
+            for (Result rs : scanner) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                batch.add(HbaseUtil.toRow(RowKeyCodecs.decode(rs, codec), typeMapping));
+                if (batch.size() >= batchSize) {
+                    emit(batch, minStamp, maxStamp);
+                    count += batch.size();
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                emit(batch, minStamp, maxStamp);
+                count += batch.size();
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            table.close();
+        }
+        return count;
+    }
+
+    /**
+     * 回调串行执行，listener不需要考虑并发
+     */
+    private void emit(List<Row> rows, long minStamp, long maxStamp) throws Exception {
+        synchronized (listener) {
+            listener.onChanges(rows, minStamp, maxStamp);
+        }
+    }
+
+    private long loadCheckpoint(long initialWatermark) throws IOException {
+        if (checkpointFile == null || !checkpointFile.exists()) {
+            return initialWatermark;
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(checkpointFile);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        String value = properties.getProperty(WATERMARK_KEY);
+        return value == null ? initialWatermark : Long.parseLong(value);
+    }
+
+    private void saveCheckpoint() throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(WATERMARK_KEY, String.valueOf(watermark));
+        properties.setProperty("table", tableName.getNameAsString());
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            properties.store(out, "change feed checkpoint");
+        } finally {
+            out.close();
+        }
+        HbaseUtil.replaceFile(tmp, checkpointFile);
+    }
+
+    /**
+     * 变更回调
+     */
+    public static interface ChangeListener {
+
+        /**
+         * 推送一批变更行，行中只包含时间范围内写入的cell
+         *
+         * @param rows
+         * @param minStamp 本次时间范围起点(包含)
+         * @param maxStamp 本次时间范围终点(不包含)
+         * @throws Exception 抛出异常时本次轮询失败，水位线不推进，下次重新推送
+         */
+        void onChanges(List<Row> rows, long minStamp, long maxStamp) throws Exception;
+
+        /**
+         * 后台轮询失败
+         *
+         * @param e
+         */
+        void onError(Exception e);
+    }
+
+}
@@ -0,0 +1,353 @@
+package com.lm.hbase.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.hbase.ClusterStatus;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.ClusterStats;
+import com.lm.hbase.adapter.entity.RegionStats;
+import com.lm.hbase.adapter.entity.ServerStats;
+
+/**
+ * 集群状态采样器。<br>
+ * 定时读取ClusterStatus并转换成ClusterStats，用相邻两次采样的累计请求数之差计算每个RegionServer和region的每秒读写请求数。<br>
+ * 最近historySize次采样保存在环形缓冲区中，超出后丢弃最早的采样，内存占用有界。<br>
+ * BlockCache命中率不在ClusterStatus中，从RegionServer web端口的/jmx读取，获取失败时为-1，可以用setCollectBlockCache(false)关闭。
+ * 读取失败的RegionServer在10分钟内不再读取，失败原因每台只输出一次。
+ *
+ * @version 1.0
+ */
+public class ClusterStatsSampler implements Closeable {
+
+    public static final long                  DEFAULT_INTERVAL     = 10000;
+
+    public static final int                   DEFAULT_HISTORY_SIZE = 360;
+
+    private static final String               JMX_QUERY            = "/jmx?qry=Hadoop:service=HBase,name=RegionServer,sub=Server";
+
+    private static final Pattern              BLOCK_CACHE_HIT      = Pattern.compile("\"blockCacheCountHitPercent\"\\s*:\\s*([0-9.Ee+-]+)");
+
+    private static final int                  JMX_TIMEOUT          = 2000;
+
+    private static final long                 JMX_RETRY_INTERVAL   = 10 * 60 * 1000;
+
+    private final Connection                  connection;
+    private final long                        interval;
+    private final int                         historySize;
+    private final ArrayDeque<ClusterStats>    history;
+    private volatile boolean                  collectBlockCache    = true;
+    private ScheduledExecutorService          scheduler;
+    private Closeable                         lease;
+
+    /**
+     * 读取/jmx失败的RegionServer(host:port)和最近一次失败的时间
+     */
+    private final Map<String, Long>           jmxUnavailable       = new ConcurrentHashMap<>();
+
+    public ClusterStatsSampler(Connection connection){
+        this(connection, DEFAULT_INTERVAL, DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * @param connection
+     * @param interval 采样间隔(毫秒)
+     * @param historySize 保留的采样次数
+     */
+    public ClusterStatsSampler(Connection connection, long interval, int historySize){
+        this.connection = connection;
+        this.interval = interval;
+        this.historySize = Math.max(1, historySize);
+        this.history = new ArrayDeque<>(this.historySize);
+    }
+
+    public void setCollectBlockCache(boolean collectBlockCache) {
+        this.collectBlockCache = collectBlockCache;
+    }
+
+    /**
+     * 开始后台定时采样
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hbase-stats-sampler"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    sampleOnce();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即采样一次，结果计算速率后放入历史
+     *
+     * @return
+     * @throws IOException
+     */
+    public ClusterStats sampleOnce() throws IOException {
+        ClusterStatus status;
+        Admin admin = connection.getAdmin();
+        try {
+            status = admin.getClusterStatus();
+        } finally {
+            admin.close();
+        }
+        ClusterStats current = snapshot(status);
+        if (collectBlockCache) {
+            for (ServerStats server : current.getServers()) {
+                server.setBlockCacheHitRatio(fetchBlockCacheHitRatio(server.getHostname(), server.getInfoPort()));
+            }
+        }
+        synchronized (history) {
+            ClusterStats previous = history.peekLast();
+            if (previous != null) {
+                computeRates(previous, current);
+            }
+            if (history.size() >= historySize) {
+                history.pollFirst();
+            }
+            history.addLast(current);
+        }
+        return current;
+    }
+
+    /**
+     * 最近一次采样，还没有采样时返回null
+     *
+     * @return
+     */
+    public ClusterStats getLatest() {
+        synchronized (history) {
+            return history.peekLast();
+        }
+    }
+
+    /**
+     * 历史采样，按时间从早到晚
+     *
+     * @return
+     */
+    public List<ClusterStats> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (lease != null) {
+            try {
+                lease.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            lease = null;
+        }
+    }
+
+    /**
+     * 持有连接的租约，close时释放，运行期间连接不会被空闲回收
+     *
+     * @param lease
+     */
+    synchronized void holdLease(Closeable lease) {
+        this.lease = lease;
+    }
+
+    /**
+     * 把ClusterStatus转换成ClusterStats，速率均为0
+     *
+     * @param status
+     * @return
+     */
+    public static ClusterStats snapshot(ClusterStatus status) {
+        ClusterStats stats = new ClusterStats();
+        stats.setTimestamp(System.currentTimeMillis());
+        stats.setClusterId(status.getClusterId());
+        stats.setHbaseVersion(status.getHBaseVersion());
+        stats.setMaster(status.getMaster() == null ? null : status.getMaster().getServerName());
+        for (ServerName backup : status.getBackupMasters()) {
+            stats.getBackupMasters().add(backup.getServerName());
+        }
+        for (ServerName dead : status.getDeadServerNames()) {
+            stats.getDeadServers().add(dead.getServerName());
+        }
+        stats.setRegionsInTransition(status.getRegionsInTransition() == null ? 0 : status.getRegionsInTransition().size());
+        stats.setAverageLoad(status.getAverageLoad());
+        stats.setBalancerOn(status.isBalancerOn());
+        for (ServerName serverName : status.getServers()) {
+            ServerLoad load = status.getLoad(serverName);
+            if (load == null) {
+                continue;
+            }
+            ServerStats server = new ServerStats();
+            server.setServerName(serverName.getServerName());
+            server.setHostname(serverName.getHostname());
+            server.setPort(serverName.getPort());
+            server.setStartCode(serverName.getStartcode());
+            server.setInfoPort(load.getInfoServerPort());
+            server.setRegionCount(load.getNumberOfRegions());
+            server.setRequestsPerSecond(load.getRequestsPerSecond());
+            server.setTotalRequests(load.getTotalNumberOfRequests());
+            server.setReadRequests(load.getReadRequestsCount());
+            server.setWriteRequests(load.getWriteRequestsCount());
+            server.setUsedHeapMB(load.getUsedHeapMB());
+            server.setMaxHeapMB(load.getMaxHeapMB());
+            server.setStorefiles(load.getStorefiles());
+            server.setStorefileSizeMB(load.getStorefileSizeInMB());
+            server.setMemstoreSizeMB(load.getMemstoreSizeInMB());
+            server.setTotalCompactingKVs(load.getTotalCompactingKVs());
+            server.setCurrentCompactedKVs(load.getCurrentCompactedKVs());
+            for (RegionLoad regionLoad : load.getRegionsLoad().values()) {
+                server.getRegions().add(toRegionStats(serverName, regionLoad));
+            }
+            stats.getServers().add(server);
+        }
+        return stats;
+    }
+
+    private static RegionStats toRegionStats(ServerName serverName, RegionLoad load) {
+        RegionStats region = new RegionStats();
+        region.setRegionName(load.getNameAsString());
+        region.setServerName(serverName.getServerName());
+        try {
+            byte[][] parts = HRegionInfo.parseRegionName(load.getName());
+            region.setTableName(TableName.valueOf(parts[0]).getNameAsString());
+            region.setStartKey(parts[1]);
+        } catch (IOException e) {
+            // 无法解析的region名称只保留原始名称
+        }
+        region.setStores(load.getStores());
+        region.setStorefiles(load.getStorefiles());
+        region.setStorefileSizeMB(load.getStorefileSizeMB());
+        region.setMemstoreSizeMB(load.getMemStoreSizeMB());
+        region.setReadRequests(load.getReadRequestsCount());
+        region.setWriteRequests(load.getWriteRequestsCount());
+        region.setTotalCompactingKVs(load.getTotalCompactingKVs());
+        region.setCurrentCompactedKVs(load.getCurrentCompactedKVs());
+        region.setDataLocality(load.getDataLocality());
+        region.setLastMajorCompactionTs(load.getLastMajorCompactionTs());
+        return region;
+    }
+
+    /**
+     * 按serverName(包含startcode)和regionName匹配上一次采样计算速率。<br>
+     * RegionServer重启或region重新打开后计数器会清零，这时没有可比较的上一次值，速率记为0
+     */
+    static void computeRates(ClusterStats previous, ClusterStats current) {
+        long elapsed = current.getTimestamp() - previous.getTimestamp();
+        current.setInterval(elapsed);
+        if (elapsed <= 0) {
+            return;
+        }
+        double seconds = elapsed / 1000.0;
+        Map<String, ServerStats> servers = new HashMap<>();
+        Map<String, RegionStats> regions = new HashMap<>();
+        for (ServerStats server : previous.getServers()) {
+            servers.put(server.getServerName(), server);
+            for (RegionStats region : server.getRegions()) {
+                regions.put(region.getRegionName(), region);
+            }
+        }
+        for (ServerStats server : current.getServers()) {
+            ServerStats before = servers.get(server.getServerName());
+            if (before != null) {
+                server.setReadRate(rate(before.getReadRequests(), server.getReadRequests(), seconds));
+                server.setWriteRate(rate(before.getWriteRequests(), server.getWriteRequests(), seconds));
+            }
+            for (RegionStats region : server.getRegions()) {
+                RegionStats regionBefore = regions.get(region.getRegionName());
+                if (regionBefore != null) {
+                    region.setReadRate(rate(regionBefore.getReadRequests(), region.getReadRequests(), seconds));
+                    region.setWriteRate(rate(regionBefore.getWriteRequests(), region.getWriteRequests(), seconds));
+                }
+            }
+        }
+    }
+
+    private static double rate(long before, long after, double seconds) {
+        return after < before ? 0 : (after - before) / seconds;
+    }
+
+    private float fetchBlockCacheHitRatio(String host, int infoPort) {
+        if (infoPort <= 0) {
+            return -1;
+        }
+        String address = host + ":" + infoPort;
+        Long failedAt = jmxUnavailable.get(address);
+        if (failedAt != null && System.currentTimeMillis() - failedAt < JMX_RETRY_INTERVAL) {
+            return -1;
+        }
+        HttpURLConnection http = null;
+        try {
+            http = (HttpURLConnection) new URL("http://" + address + JMX_QUERY).openConnection();
+            http.setConnectTimeout(JMX_TIMEOUT);
+            http.setReadTimeout(JMX_TIMEOUT);
+            InputStream in = http.getInputStream();
+            String body;
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                body = Bytes.toString(out.toByteArray());
+            } finally {
+                in.close();
+            }
+            Matcher matcher = BLOCK_CACHE_HIT.matcher(body);
+            if (matcher.find()) {
+                jmxUnavailable.remove(address);
+                return Float.parseFloat(matcher.group(1)) / 100f;
+            }
+        } catch (Exception e) {
+            if (failedAt == null) {
+                System.out.println("读取BlockCache命中率失败：" + address + " " + e.getMessage());
+            }
+        } finally {
+            if (http != null) {
+                http.disconnect();
+            }
+        }
+        // 没有这项指标(例如版本不同)和读取失败一样处理，隔一段时间再试
+        jmxUnavailable.put(address, System.currentTimeMillis());
+        return -1;
+    }
+
+}
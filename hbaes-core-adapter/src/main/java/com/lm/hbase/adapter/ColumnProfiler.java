@@ -0,0 +1,293 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+import com.lm.hbase.adapter.entity.ColumnProfile;
+
+/**
+ * 列画像：不同值个数、高频值、分位数和直方图。<br>
+ * 按region并行扫描(或按行抽样)目标列，每个region把值放进固定大小的sketch：HyperLogLog统计基数，Space-Saving统计高频值，
+ * 数值类型再按ValueCodec解码后放进QuantileSketch，最后合并各region的sketch。内存占用和表大小无关。<br>
+ * 结果按【scope/表/列】缓存，带统计时间，调用方根据时间决定是否重新统计。
+ *
+ * @version 1.0
+ */
+public class ColumnProfiler {
+
+    public static final double[]                     DEFAULT_QUANTILES = { 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99 };
+
+    private static final Map<String, ColumnProfile> cache             = new ConcurrentHashMap<>();
+
+    private final Connection                         connection;
+    private final TableName                          tableName;
+    private String                                   cacheScope        = "default";
+    private int                                      parallelism       = 8;
+    private float                                    sampleChance      = 1.0f;
+    private int                                      precision         = HyperLogLog.DEFAULT_PRECISION;
+    private int                                      topCapacity       = SpaceSaving.DEFAULT_CAPACITY;
+    private int                                      topN              = 20;
+    private int                                      quantileK         = QuantileSketch.DEFAULT_K;
+    private int                                      histogramBuckets  = 20;
+
+    public ColumnProfiler(Connection connection, TableName tableName){
+        this.connection = connection;
+        this.tableName = tableName;
+    }
+
+    /**
+     * 缓存的作用域，连接多个集群时用集群名区分
+     * 
+     * @param cacheScope
+     */
+    public void setCacheScope(String cacheScope) {
+        this.cacheScope = cacheScope;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 行抽样比例，取值(0, 1]，1表示全表扫描
+     * 
+     * @param sampleChance
+     */
+    public void setSampleChance(float sampleChance) {
+        this.sampleChance = sampleChance;
+    }
+
+    /**
+     * HyperLogLog精度，寄存器个数为2^precision
+     * 
+     * @param precision
+     */
+    public void setPrecision(int precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * 高频值统计跟踪的值个数，越大越准
+     * 
+     * @param topCapacity
+     */
+    public void setTopCapacity(int topCapacity) {
+        this.topCapacity = topCapacity;
+    }
+
+    /**
+     * 返回的高频值个数
+     * 
+     * @param topN
+     */
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    public void setQuantileK(int quantileK) {
+        this.quantileK = quantileK;
+    }
+
+    public void setHistogramBuckets(int histogramBuckets) {
+        this.histogramBuckets = histogramBuckets;
+    }
+
+    /**
+     * 统计一列并更新缓存
+     * 
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致，数值类型才统计分位数和直方图
+     * @return
+     * @throws Exception
+     */
+    public ColumnProfile profile(final byte[] family, final byte[] qualifier, final String type) throws Exception {
+        long start = System.currentTimeMillis();
+        List<Pair<byte[], byte[]>> ranges = HbaseUtil.regionRanges(connection, tableName, new byte[0], new byte[0]);
+        final boolean numeric = ValueCodec.isNumeric(type);
+        RegionSketch total = new RegionSketch(numeric);
+        if (!ranges.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism,
+                                                                                          ranges.size())),
+                                                                    new DaemonThreadFactory("hbase-column-profiler"));
+            try {
+                List<Future<RegionSketch>> futures = new ArrayList<>();
+                for (final Pair<byte[], byte[]> range : ranges) {
+                    futures.add(executor.submit(new Callable<RegionSketch>() {
+
+                        @Override
+                        public RegionSketch call() throws Exception {
+                            return scanRange(range.getFirst(), range.getSecond(), family, qualifier, type, numeric);
+                        }
+                    }));
+                }
+                for (Future<RegionSketch> future : futures) {
+                    total.merge(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        ColumnProfile profile = new ColumnProfile(tableName.getNameAsString(), Bytes.toString(family),
+                                                  Bytes.toString(qualifier), type);
+        profile.setSampleChance(sampleChance);
+        profile.setRegionCount(ranges.size());
+        profile.setValueCount(total.values);
+        profile.setInvalidValues(total.invalid);
+        profile.setDistinctCount(total.hll.estimate());
+        profile.setDistinctError(total.hll.getStandardError());
+        for (SpaceSaving.Counter counter : total.top.top(topN)) {
+            profile.getTopValues().add(new ColumnProfile.ValueCount(ValueCodec.toDisplayValue(type, counter.getValue()),
+                                                                    counter.getCount(), counter.getError()));
+        }
+        profile.setNumeric(numeric);
+        if (numeric && total.quantiles.getCount() > 0) {
+            QuantileSketch quantiles = total.quantiles;
+            profile.setMin(quantiles.getMin());
+            profile.setMax(quantiles.getMax());
+            profile.setAvg(total.sum / quantiles.getCount());
+            for (double q : DEFAULT_QUANTILES) {
+                profile.getQuantiles().put(q, quantiles.getQuantile(q));
+            }
+            double[] bounds = new double[histogramBuckets + 1];
+            double width = (quantiles.getMax() - quantiles.getMin()) / histogramBuckets;
+            for (int i = 0; i <= histogramBuckets; i++) {
+                bounds[i] = quantiles.getMin() + width * i;
+            }
+            profile.setHistogram(bounds, quantiles.getHistogram(histogramBuckets));
+        }
+        profile.setElapsedMillis(System.currentTimeMillis() - start);
+        profile.setTimestamp(System.currentTimeMillis());
+        cache.put(cacheKey(cacheScope, tableName.getNameAsString(), family, qualifier), profile);
+        return profile;
+    }
+
+    /**
+     * 获取缓存的统计结果，没有时返回null
+     * 
+     * @param cacheScope 缓存作用域
+     * @param tableName 表名
+     * @param family 列族
+     * @param qualifier 列名
+     * @return
+     */
+    public static ColumnProfile getCached(String cacheScope, String tableName, byte[] family, byte[] qualifier) {
+        return cache.get(cacheKey(cacheScope, tableName, family, qualifier));
+    }
+
+    /**
+     * 清除一张表的缓存，tableName为null时清除全部
+     * 
+     * @param tableName
+     */
+    public static void invalidate(String tableName) {
+        if (tableName == null) {
+            cache.clear();
+            return;
+        }
+        for (ColumnProfile profile : new ArrayList<>(cache.values())) {
+            if (tableName.equals(profile.getTableName())) {
+                cache.values().remove(profile);
+            }
+        }
+    }
+
+    private RegionSketch scanRange(byte[] from, byte[] to, byte[] family, byte[] qualifier, String type,
+                                   boolean numeric) throws Exception {
+        Scan scan = new Scan(from, to);
+        scan.addColumn(family, qualifier);
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        if (sampleChance < 1.0f) {
+            scan.setFilter(new RandomRowFilter(sampleChance));
+        }
+        RegionSketch sketch = new RegionSketch(numeric);
+        Table table = connection.getTable(tableName);
+        ThrottledScanner scanner = null;
+        try {
+            scanner = new ThrottledScanner(table.getScanner(scan),
+                                           ThrottleManager.get(Operation.SCAN, tableName.getNameAsString()),
+                                           scan.getCaching());
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                Cell c = rs.getColumnLatestCell(family, qualifier);
+                if (c != null) {
+                    sketch.add(c.getValueArray(), c.getValueOffset(), c.getValueLength(), type);
+                }
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            table.close();
+        }
+        return sketch;
+    }
+
+    private static String cacheKey(String cacheScope, String tableName, byte[] family, byte[] qualifier) {
+        return cacheScope + "/" + tableName + "/" + Bytes.toStringBinary(family) + ":"
+               + Bytes.toStringBinary(qualifier);
+    }
+
+    /**
+     * 单个region的sketch
+     */
+    private class RegionSketch {
+
+        private final HyperLogLog    hll       = new HyperLogLog(precision);
+        private final SpaceSaving    top       = new SpaceSaving(topCapacity);
+        private final QuantileSketch quantiles;
+        private long                 values    = 0;
+        private long                 invalid   = 0;
+        private double               sum       = 0;
+
+        RegionSketch(boolean numeric){
+            this.quantiles = numeric ? new QuantileSketch(quantileK) : null;
+        }
+
+        void add(byte[] b, int offset, int length, String type) {
+            values++;
+            hll.add(b, offset, length);
+            top.add(b, offset, length);
+            if (quantiles != null) {
+                try {
+                    double value = ValueCodec.toDouble(type, b, offset, length);
+                    quantiles.add(value);
+                    sum += value;
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                }
+            }
+        }
+
+        void merge(RegionSketch other) {
+            values += other.values;
+            invalid += other.invalid;
+            sum += other.sum;
+            hll.merge(other.hll);
+            top.merge(other.top);
+            if (quantiles != null) {
+                quantiles.merge(other.quantiles);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.hadoop.hbase.client.Connection;
+
+/**
+ * 按连接缓存从集群读取的元数据(表的索引声明、行键编码、写入戳)，超过ttl毫秒后重新读取。<br>
+ * ConnectionRegistry关闭连接时调用purge清除这个连接的所有条目；调用方自己关闭的连接在下一次读取缓存时清除，
+ * 已经关闭的Connection不会被缓存一直引用。
+ *
+ * @version 1.0
+ */
+class ConnectionCache<K, V> {
+
+    /**
+     * 缓存没有命中或者已经过期时读取
+     */
+    static interface Loader<K, V> {
+
+        V load(Connection connection, K key) throws IOException;
+    }
+
+    private static final List<ConnectionCache<?, ?>>               caches  = new CopyOnWriteArrayList<>();
+
+    private final long                                             ttl;
+
+    private final ConcurrentHashMap<Connection, Map<K, Cached<V>>> entries = new ConcurrentHashMap<>();
+
+    ConnectionCache(long ttl){
+        this.ttl = ttl;
+        caches.add(this);
+    }
+
+    /**
+     * 读取缓存的值，没有或者已经过期时用loader重新读取
+     *
+     * @param connection
+     * @param key
+     * @param loader
+     * @return
+     * @throws IOException
+     */
+    V get(Connection connection, K key, Loader<K, V> loader) throws IOException {
+        Map<K, Cached<V>> values = entries.get(connection);
+        if (values == null) {
+            purgeClosed();
+            Map<K, Cached<V>> created = new ConcurrentHashMap<>();
+            values = entries.putIfAbsent(connection, created);
+            if (values == null) {
+                values = created;
+            }
+        }
+        Cached<V> cached = values.get(key);
+        if (cached == null || System.currentTimeMillis() - cached.loadTime > ttl) {
+            cached = new Cached<>(loader.load(connection, key));
+            values.put(key, cached);
+        }
+        return cached.value;
+    }
+
+    void invalidate(Connection connection, K key) {
+        Map<K, Cached<V>> values = entries.get(connection);
+        if (values != null) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * 清除所有缓存中这个连接的条目，连接关闭时调用
+     *
+     * @param connection
+     */
+    static void purge(Connection connection) {
+        for (ConnectionCache<?, ?> cache : caches) {
+            cache.entries.remove(connection);
+        }
+    }
+
+    private void purgeClosed() {
+        for (Iterator<Connection> iterator = entries.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().isClosed()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Cached<V> {
+
+        private final V    value;
+        private final long loadTime = System.currentTimeMillis();
+
+        Cached(V value){
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,301 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+
+import com.lm.hbase.adapter.entity.ClusterProfile;
+
+/**
+ * 多集群连接注册中心。<br>
+ * 按ClusterProfile的名称保存Connection，每个Connection连同它已经缓存的region位置信息一直保留，切换集群时不需要重新连接和预热。<br>
+ * 长时间没有使用的连接由后台线程关闭，下次使用时按注册时的配置重新建立。<br>
+ * 长时间持有连接的调用方(持续消费、后台采样、表复制、批量写入、导出)用acquire()取得租约，有租约的连接不会被空闲回收，
+ * 重新注册同名集群时旧连接也等最后一个租约释放后才关闭。
+ *
+ * @version 1.0
+ */
+public class ConnectionRegistry {
+
+    /** 默认空闲回收时间：30分钟 */
+    public static final long                            DEFAULT_IDLE_TIMEOUT = 30 * 60 * 1000L;
+
+    private static final Map<String, ConnectionHolder> holders              = new ConcurrentHashMap<>();
+
+    private static volatile long                        idleTimeout          = DEFAULT_IDLE_TIMEOUT;
+
+    private static ScheduledExecutorService             evictor              = null;
+
+    /**
+     * 注册一个集群并建立连接。同名profile已存在时旧连接不再分配给新的调用方，没有租约时立即关闭，否则在最后一个租约释放时关闭
+     *
+     * @param profile
+     * @throws IOException
+     */
+    public static void register(ClusterProfile profile) throws IOException {
+        ConnectionHolder holder = new ConnectionHolder(createConfiguration(profile));
+        holder.connect();
+        ConnectionHolder old = holders.put(profile.getName(), holder);
+        if (old != null) {
+            old.retire();
+        }
+        startEvictor();
+    }
+
+    /**
+     * 获取集群连接，连接已被空闲回收时重新建立
+     *
+     * @param profile
+     * @return
+     * @throws Exception
+     */
+    public static Connection getConnection(ClusterProfile profile) throws Exception {
+        ConnectionHolder holder = getHolder(profile);
+        return holder.connect();
+    }
+
+    /**
+     * 获取集群连接的租约。租约释放前连接不会被空闲回收，也不会因为重新注册而关闭；用完后必须close
+     *
+     * @param profile
+     * @return
+     * @throws Exception
+     */
+    public static Lease acquire(ClusterProfile profile) throws Exception {
+        ConnectionHolder holder = getHolder(profile);
+        return new Lease(holder, holder.acquire());
+    }
+
+    /**
+     * 获取集群连接使用的配置
+     *
+     * @param profile
+     * @return
+     * @throws Exception
+     */
+    public static Configuration getConfiguration(ClusterProfile profile) throws Exception {
+        return getHolder(profile).configuration;
+    }
+
+    public static boolean isRegistered(ClusterProfile profile) {
+        return holders.containsKey(profile.getName());
+    }
+
+    /**
+     * 列出所有已注册的集群名称
+     *
+     * @return
+     */
+    public static Set<String> listProfiles() {
+        return new TreeSet<>(holders.keySet());
+    }
+
+    /**
+     * 关闭并移除一个集群
+     *
+     * @param profile
+     */
+    public static void close(ClusterProfile profile) {
+        ConnectionHolder holder = holders.remove(profile.getName());
+        if (holder != null) {
+            holder.close();
+        }
+    }
+
+    /**
+     * 关闭所有集群连接
+     */
+    public static void closeAll() {
+        Iterator<Entry<String, ConnectionHolder>> iterator = holders.entrySet().iterator();
+        while (iterator.hasNext()) {
+            ConnectionHolder holder = iterator.next().getValue();
+            iterator.remove();
+            holder.close();
+        }
+        synchronized (ConnectionRegistry.class) {
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+        }
+    }
+
+    /**
+     * 设置空闲回收时间，小于等于0时不回收
+     *
+     * @param millis
+     */
+    public static void setIdleTimeout(long millis) {
+        idleTimeout = millis;
+    }
+
+    public static long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * 关闭超过空闲时间未使用的连接，配置仍然保留
+     */
+    static void evictIdle() {
+        long timeout = idleTimeout;
+        if (timeout <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ConnectionHolder holder : holders.values()) {
+            holder.disconnectIfIdle(now, timeout);
+        }
+    }
+
+    private static ConnectionHolder getHolder(ClusterProfile profile) throws Exception {
+        ConnectionHolder holder = holders.get(profile.getName());
+        if (holder == null) {
+            throw new Exception("HbaseUtil is not initialized: " + profile.getName());
+        }
+        return holder;
+    }
+
+    private static Configuration createConfiguration(ClusterProfile profile) {
+        Configuration configuration = HBaseConfiguration.create();
+        configuration.set("hbase.zookeeper.property.clientPort", profile.getZkPort());
+        configuration.set("hbase.zookeeper.quorum", profile.getZkQuorum());
+        configuration.set("hbase.master", profile.getHbaseMaster());
+        configuration.set("zookeeper.znode.parent", profile.getZnodeParent());
+        configuration.setInt("hbase.rpc.timeout", 50000);
+        configuration.setInt("hbase.client.operation.timeout", 10000);
+        configuration.setInt("hbase.client.scanner.timeout.period", 200000);
+        for (Entry<String, String> entry : profile.getProperties().entrySet()) {
+            configuration.set(entry.getKey(), entry.getValue());
+        }
+        return configuration;
+    }
+
+    private static synchronized void startEvictor() {
+        if (evictor != null) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hbase-connection-evictor"));
+        evictor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    evictIdle();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 连接租约，close后连接可以被空闲回收
+     */
+    public static class Lease implements Closeable {
+
+        private final ConnectionHolder holder;
+        private final Connection       connection;
+        private final AtomicBoolean    released = new AtomicBoolean();
+
+        private Lease(ConnectionHolder holder, Connection connection){
+            this.holder = holder;
+            this.connection = connection;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                holder.release();
+            }
+        }
+    }
+
+    private static class ConnectionHolder {
+
+        private final Configuration  configuration;
+        private Connection           connection;
+        private long                 lastAccess = System.currentTimeMillis();
+        private int                  leases     = 0;
+        private boolean              retired    = false;
+
+        ConnectionHolder(Configuration configuration){
+            this.configuration = configuration;
+        }
+
+        synchronized Connection connect() throws IOException {
+            lastAccess = System.currentTimeMillis();
+            if (connection == null || connection.isClosed()) {
+                connection = ConnectionFactory.createConnection(configuration);
+            }
+            return connection;
+        }
+
+        synchronized Connection acquire() throws IOException {
+            Connection result = connect();
+            leases++;
+            return result;
+        }
+
+        synchronized void release() {
+            leases--;
+            lastAccess = System.currentTimeMillis();
+            if (retired && leases <= 0) {
+                disconnect();
+            }
+        }
+
+        /**
+         * 没有租约并且超过空闲时间时关闭连接。判断和关闭在同一把锁内，不会和connect()/acquire()交错
+         */
+        synchronized void disconnectIfIdle(long now, long timeout) {
+            if (leases <= 0 && connection != null && now - lastAccess > timeout) {
+                disconnect();
+            }
+        }
+
+        /**
+         * 被同名的新注册替换：没有租约时立即关闭，否则等最后一个租约释放
+         */
+        synchronized void retire() {
+            retired = true;
+            if (leases <= 0) {
+                disconnect();
+            }
+        }
+
+        synchronized void disconnect() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                ConnectionCache.purge(connection);
+                connection = null;
+            }
+        }
+
+        void close() {
+            disconnect();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 按桶拆分扫描的数据来源。<br>
+ * 传入的Scan使用逻辑行键：每个桶按codec换算成一段物理行键范围，PrefixFilter的前缀同样换算到桶内，并用来收窄扫描范围；
+ * 各个桶的扫描在调用线程中按需读取并按逻辑行键归并，不额外创建线程，每个桶的RPC批量由Scan的caching决定；
+ * 返回的Result中行键已经还原成逻辑行键。<br>
+ * 所以分页的起止行键、下一页游标、首行查询都可以直接使用逻辑行键，和没有加盐的表完全一样。
+ *
+ * @version 1.0
+ */
+class FanOutScannerSource implements ScannerSource {
+
+    private final ScannerSource source;
+    private final RowKeyCodec   codec;
+
+    FanOutScannerSource(ScannerSource source, RowKeyCodec codec){
+        this.source = source;
+        this.codec = codec;
+    }
+
+    @Override
+    public ResultScanner getScanner(Scan scan) throws IOException {
+        byte[] start = scan.getStartRow();
+        byte[] stop = scan.getStopRow();
+        byte[] prefix = findPrefix(scan.getFilter());
+        if (prefix != null) {
+            if (Bytes.compareTo(start, prefix) < 0) {
+                start = prefix;
+            }
+            byte[] prefixEnd = SecondaryIndex.nextPrefix(prefix);
+            if (prefixEnd.length > 0 && (stop.length == 0 || Bytes.compareTo(prefixEnd, stop) < 0)) {
+                stop = prefixEnd;
+            }
+        }
+        List<Scan> scans = new ArrayList<>(codec.getBucketCount());
+        for (int bucket = 0; bucket < codec.getBucketCount(); bucket++) {
+            Scan bucketScan = new Scan(scan);
+            bucketScan.setStartRow(codec.toBucket(bucket, start));
+            bucketScan.setStopRow(stop.length == 0 ? codec.bucketEnd(bucket) : codec.toBucket(bucket, stop));
+            bucketScan.setFilter(RowKeyCodecs.toBucket(scan.getFilter(), codec, bucket));
+            scans.add(bucketScan);
+        }
+        return new MergedScanner(scans);
+    }
+
+    /**
+     * 必须满足的PrefixFilter前缀，用来收窄扫描范围
+     */
+    private static byte[] findPrefix(Filter filter) {
+        if (filter instanceof PrefixFilter) {
+            return ((PrefixFilter) filter).getPrefix();
+        }
+        if (filter instanceof FilterList && ((FilterList) filter).getOperator() == FilterList.Operator.MUST_PASS_ALL) {
+            for (Filter item : ((FilterList) filter).getFilters()) {
+                byte[] prefix = findPrefix(item);
+                if (prefix != null) {
+                    return prefix;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在调用线程中读取各个桶，按逻辑行键归并。第一次next()时打开所有桶的扫描
+     */
+    private class MergedScanner extends AbstractClientScanner {
+
+        private final List<Scan>          scans;
+        private final List<ResultScanner> scanners = new ArrayList<>();
+        private final PriorityQueue<Head> heads;
+        private boolean                   started  = false;
+        private boolean                   closed   = false;
+
+        MergedScanner(List<Scan> scans){
+            this.scans = scans;
+            this.heads = new PriorityQueue<>(scans.size(), new Comparator<Head>() {
+
+                @Override
+                public int compare(Head o1, Head o2) {
+                    return Bytes.compareTo(o1.result.getRow(), o2.result.getRow());
+                }
+            });
+        }
+
+        @Override
+        public Result next() throws IOException {
+            if (closed) {
+                return null;
+            }
+            if (!started) {
+                started = true;
+                for (int bucket = 0; bucket < scans.size(); bucket++) {
+                    scanners.add(source.getScanner(scans.get(bucket)));
+                    advance(bucket);
+                }
+            }
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            advance(head.bucket);
+            return head.result;
+        }
+
+        private void advance(int bucket) throws IOException {
+            Result rs;
+            while ((rs = scanners.get(bucket).next()) != null) {
+                if (!rs.isEmpty()) {
+                    heads.add(new Head(RowKeyCodecs.decode(rs, codec), bucket));
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            for (ResultScanner scanner : scanners) {
+                scanner.close();
+            }
+            scanners.clear();
+        }
+
+        @Override
+        public boolean renewLease() {
+            return true;
+        }
+    }
+
+    private static class Head {
+
+        private final Result result;
+        private final int    bucket;
+
+        Head(Result result, int bucket){
+            this.result = result;
+            this.bucket = bucket;
+        }
+    }
+
+}
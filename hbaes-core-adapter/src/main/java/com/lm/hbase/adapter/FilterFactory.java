@@ -1,6 +1,5 @@
 package com.lm.hbase.adapter;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,7 +22,7 @@ public class FilterFactory {
             if (item instanceof PrefixFilter) {
                 result.add((PrefixFilter) item);
             } else if (item instanceof SingleColumnValueFilter) {
-                result.add((PrefixFilter) item);
+                result.add((SingleColumnValueFilter) item);
             }
         }
         return result;
@@ -152,25 +151,7 @@ public class FilterFactory {
     private static byte[] convertValue(String filedType, String filedValue) {
 
         try {
-            switch (filedType.toLowerCase()) {
-                case "string":
-                    return Bytes.toBytes(filedValue);
-                case "int":
-                    return Bytes.toBytes(Integer.parseInt(filedValue));
-                case "short":
-                    return Bytes.toBytes(Short.parseShort(filedValue));
-                case "long":
-                    return Bytes.toBytes(Long.parseLong(filedValue));
-                case "float":
-                    return Bytes.toBytes(Float.parseFloat(filedValue));
-                case "double":
-                    return Bytes.toBytes(Double.parseDouble(filedValue));
-                case "bigdecimal":
-                    return Bytes.toBytes(new BigDecimal(filedValue));
-                default:
-                    return Bytes.toBytes(filedValue);
-            }
-
+            return ValueCodec.toBytes(filedType, filedValue);
         } catch (Exception e) {
             return Bytes.toBytes(filedValue);
         }
@@ -1,75 +1,150 @@
 package com.lm.hbase.adapter;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.Future;
 
-import org.apache.commons.lang.StringUtils;
-import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
-import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.NamespaceDescriptor;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
-import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Consistency;
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.ColumnPaginationFilter;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.io.compress.Compression.Algorithm;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
 
 import com.lm.hbase.adapter.ColumnFamilyParam.ColumnFamilyFieldEnum;
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+import com.lm.hbase.adapter.entity.AggregateResult;
+import com.lm.hbase.adapter.entity.CellVersion;
+import com.lm.hbase.adapter.entity.ClusterProfile;
+import com.lm.hbase.adapter.entity.ClusterStats;
+import com.lm.hbase.adapter.entity.ColumnProfile;
+import com.lm.hbase.adapter.entity.ColumnarPage;
+import com.lm.hbase.adapter.entity.CopyReport;
 import com.lm.hbase.adapter.entity.HBasePageModel;
 import com.lm.hbase.adapter.entity.HbaseQualifier;
+import com.lm.hbase.adapter.entity.HotspotReport;
 import com.lm.hbase.adapter.entity.QualifierValue;
+import com.lm.hbase.adapter.entity.WarmUpStatus;
 
 public class HbaseUtil {
 
-    private static Connection connection = null;
+    /** 宽行分页时单次RPC返回的最大字节数 */
+    private static final long           WIDE_ROW_MAX_RESULT_SIZE = 2 * 1024 * 1024;
+
+    /** 删除时每批的行数 */
+    private static final int            DELETE_BATCH_SIZE        = 1000;
+
+    private static final ClusterProfile DEFAULT_PROFILE          = ClusterProfile.of(ClusterProfile.DEFAULT_NAME);
+
+    private static volatile ResultCache resultCache              = null;
 
     public static void init(String zkPort, String zkQuorum, String hbaseMaster, String znodeParent) throws IOException {
-        System.out.println(zkQuorum);
+        init(new ClusterProfile(ClusterProfile.DEFAULT_NAME, zkPort, zkQuorum, hbaseMaster, znodeParent));
+    }
+
+    /**
+     * 注册并连接一个集群，同名集群已存在时替换并关闭旧连接
+     * 
+     * @param profile
+     * @throws IOException
+     */
+    public static void init(ClusterProfile profile) throws IOException {
+        System.out.println(profile.getZkQuorum());
         System.out.println("初始化Hbase链接...");
-        Configuration configuration = HBaseConfiguration.create();
-        configuration.set("hbase.zookeeper.property.clientPort", zkPort);
-        configuration.set("hbase.zookeeper.quorum", zkQuorum);
-        configuration.set("hbase.master", hbaseMaster);
-        configuration.set("zookeeper.znode.parent", znodeParent);
-        configuration.setInt("hbase.rpc.timeout", 50000);
-        configuration.setInt("hbase.client.operation.timeout", 10000);
-        configuration.setInt("hbase.client.scanner.timeout.period", 200000);
-        connection = ConnectionFactory.createConnection(configuration);
+        ConnectionRegistry.register(profile);
         System.out.println("Hbase初始化成功");
 
     }
 
-    public static Connection getConn() throws Exception {
-        if (connection == null) {
-            throw new Exception("HbaseUtil is not initialized");
+    /**
+     * 注册并连接一个集群，warmUp为true时在后台预热最近访问过的表(没有访问记录时预热listTableNames列出的表)
+     * 
+     * @param profile
+     * @param warmUp 是否预热
+     * @throws IOException
+     */
+    public static void init(ClusterProfile profile, boolean warmUp) throws IOException {
+        init(profile);
+        if (warmUp) {
+            RegionWarmer.warmUp(profile, null);
         }
-        return connection;
+    }
+
+    /**
+     * 在后台把表的region位置加载进客户端缓存，并预先连接RegionServer
+     * 
+     * @param profile 集群
+     * @param tableNames 需要预热的表，为null时预热最近访问过的表
+     * @return 预热进度
+     */
+    public static WarmUpStatus warmUp(ClusterProfile profile, Collection<String> tableNames) {
+        return RegionWarmer.warmUp(profile, tableNames);
+    }
+
+    /**
+     * 获取最近一次预热的进度，没有预热过时返回null
+     * 
+     * @param profile
+     * @return
+     */
+    public static WarmUpStatus getWarmUpStatus(ClusterProfile profile) {
+        return RegionWarmer.getStatus(profile);
+    }
+
+    public static Connection getConn() throws Exception {
+        return getConn(DEFAULT_PROFILE);
+    }
+
+    public static Connection getConn(ClusterProfile profile) throws Exception {
+        return ConnectionRegistry.getConnection(profile);
     }
 
     public static void close() throws IOException {
-        if (connection != null) {
-            connection.close();
-        }
+        ConnectionRegistry.closeAll();
+    }
+
+    public static void close(ClusterProfile profile) throws IOException {
+        ConnectionRegistry.close(profile);
+        RegionWarmer.forget(profile);
     }
 
     /**
@@ -80,9 +155,31 @@ public class HbaseUtil {
      */
     public static void createTable(String tableName, byte[][] splitKeys, byte[] startKey, byte[] endKey, int numRegions,
                                    ColumnFamilyParam... columnFamilys) throws Exception {
+        createTable(DEFAULT_PROFILE, tableName, splitKeys, startKey, endKey, numRegions, columnFamilys);
+    }
+
+    /**
+     * 创建表。提供更加高级的功能创建hbase表。
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(ClusterProfile profile, String tableName, byte[][] splitKeys, byte[] startKey,
+                                   byte[] endKey, int numRegions,
+                                   ColumnFamilyParam... columnFamilys) throws Exception {
+        createTable(profile, tableName, splitKeys, startKey, endKey, numRegions, null, columnFamilys);
+    }
+
+    /**
+     * 创建表，tableProperties写入表描述，和建表在同一次操作中完成
+     */
+    private static void createTable(ClusterProfile profile, String tableName, byte[][] splitKeys, byte[] startKey,
+                                    byte[] endKey, int numRegions, Map<String, String> tableProperties,
+                                    ColumnFamilyParam... columnFamilys) throws Exception {
         Admin hBaseAdmin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             hBaseAdmin = connection.getAdmin();
             TableName hbaseTableName = TableName.valueOf(tableName);
 
@@ -98,20 +195,16 @@ public class HbaseUtil {
                 }
                 HColumnDescriptor columnDescriptor = new HColumnDescriptor(familyName.toString());
                 columnDescriptor.setCompressionType(Algorithm.SNAPPY);
-
-                Object timeToLive = item.get(ColumnFamilyFieldEnum.TIME_TO_LIVE);
-                if (timeToLive != null) {
-                    columnDescriptor.setTimeToLive(Integer.parseInt(timeToLive.toString()));
-                }
-
-                Object maxVersion = item.get(ColumnFamilyFieldEnum.MAX_VERSION);
-                if (maxVersion != null) {
-                    columnDescriptor.setMaxVersions(Integer.parseInt(maxVersion.toString()));
-                }
+                applyColumnFamilyParam(columnDescriptor, item);
 
                 tableDescriptor.addFamily(columnDescriptor);
 
             }
+            if (tableProperties != null) {
+                for (Entry<String, String> entry : tableProperties.entrySet()) {
+                    tableDescriptor.setValue(entry.getKey(), entry.getValue());
+                }
+            }
             if (splitKeys != null) {
                 hBaseAdmin.createTable(tableDescriptor, splitKeys);
             } else if (startKey != null && endKey != null && numRegions > 0) {
@@ -130,6 +223,170 @@ public class HbaseUtil {
         }
     }
 
+    /**
+     * 在线修改已有列族的属性，只修改param中设置了的属性，其余属性保持不变
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param param 列族属性，COLUMN_FAMILY_NAME必填
+     */
+    public static void modifyColumn(ClusterProfile profile, String tableName, ColumnFamilyParam param) throws Exception {
+        Object familyName = param.get(ColumnFamilyFieldEnum.COLUMN_FAMILY_NAME);
+        if (familyName == null) {
+            throw new Exception("COLUMN_FAMILY_NAME is null");
+        }
+        Admin hBaseAdmin = null;
+        try {
+            Connection connection = getConn(profile);
+            hBaseAdmin = connection.getAdmin();
+            TableName hbaseTableName = TableName.valueOf(tableName);
+            HTableDescriptor tableDescriptor = hBaseAdmin.getTableDescriptor(hbaseTableName);
+            HColumnDescriptor columnDescriptor = tableDescriptor.getFamily(Bytes.toBytes(familyName.toString()));
+            if (columnDescriptor == null) {
+                throw new Exception(tableName + " has no column family " + familyName);
+            }
+            applyColumnFamilyParam(columnDescriptor, param);
+            hBaseAdmin.modifyColumn(hbaseTableName, columnDescriptor);
+            invalidateResultCache(tableName);
+        } finally {
+            if (hBaseAdmin != null) {
+                try {
+                    hBaseAdmin.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 把param中设置了的属性写入列族描述
+     */
+    private static void applyColumnFamilyParam(HColumnDescriptor columnDescriptor, ColumnFamilyParam param) {
+        Object timeToLive = param.get(ColumnFamilyFieldEnum.TIME_TO_LIVE);
+        if (timeToLive != null) {
+            columnDescriptor.setTimeToLive(Integer.parseInt(timeToLive.toString()));
+        }
+
+        Object maxVersion = param.get(ColumnFamilyFieldEnum.MAX_VERSION);
+        if (maxVersion != null) {
+            columnDescriptor.setMaxVersions(Integer.parseInt(maxVersion.toString()));
+        }
+
+        Object compression = param.get(ColumnFamilyFieldEnum.COMPRESSION);
+        if (compression != null) {
+            columnDescriptor.setCompressionType(compression instanceof Algorithm ? (Algorithm) compression
+                                                                                 : Algorithm.valueOf(compression.toString().toUpperCase()));
+        }
+
+        Object encoding = param.get(ColumnFamilyFieldEnum.DATA_BLOCK_ENCODING);
+        if (encoding != null) {
+            columnDescriptor.setDataBlockEncoding(encoding instanceof DataBlockEncoding ? (DataBlockEncoding) encoding
+                                                                                        : DataBlockEncoding.valueOf(encoding.toString().toUpperCase()));
+        }
+
+        Object bloomFilter = param.get(ColumnFamilyFieldEnum.BLOOM_FILTER);
+        if (bloomFilter != null) {
+            columnDescriptor.setBloomFilterType(bloomFilter instanceof BloomType ? (BloomType) bloomFilter
+                                                                                 : BloomType.valueOf(bloomFilter.toString().toUpperCase()));
+        }
+
+        Object blockSize = param.get(ColumnFamilyFieldEnum.BLOCKSIZE);
+        if (blockSize != null) {
+            columnDescriptor.setBlocksize(Integer.parseInt(blockSize.toString()));
+        }
+
+        Object inMemory = param.get(ColumnFamilyFieldEnum.IN_MEMORY);
+        if (inMemory != null) {
+            columnDescriptor.setInMemory(Boolean.parseBoolean(inMemory.toString()));
+        }
+
+        Object blockCache = param.get(ColumnFamilyFieldEnum.BLOCKCACHE);
+        if (blockCache != null) {
+            columnDescriptor.setBlockCacheEnabled(Boolean.parseBoolean(blockCache.toString()));
+        }
+
+        Object cacheDataOnWrite = param.get(ColumnFamilyFieldEnum.CACHE_DATA_ON_WRITE);
+        if (cacheDataOnWrite != null) {
+            columnDescriptor.setCacheDataOnWrite(Boolean.parseBoolean(cacheDataOnWrite.toString()));
+        }
+    }
+
+    /**
+     * 创建加盐的表：按桶号预分区，并在表描述中记录桶数。之后的写入、按行键查询、分页扫描都使用逻辑行键，
+     * 行键转换和按桶拆分扫描由adapter完成
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param buckets 桶数，2~256
+     * @param columnFamilys 列族
+     */
+    public static void createSaltedTable(ClusterProfile profile, String tableName, int buckets,
+                                         ColumnFamilyParam... columnFamilys) throws Exception {
+        SaltedRowKeyCodec codec = new SaltedRowKeyCodec(buckets);
+        // 桶数和建表一起写入表描述，其他客户端不会看到没有桶数的加盐表
+        createTable(profile, tableName, codec.getSplitKeys(), null, null, 0,
+                    Collections.singletonMap(RowKeyCodecs.SALT_PROPERTY, String.valueOf(buckets)), columnFamilys);
+        RowKeyCodecs.invalidate(getConn(profile), TableName.valueOf(tableName));
+    }
+
+    /**
+     * 按抽样分布预分区创建表
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param planner 抽样结果
+     * @param numRegions 目标region数
+     * @param columnFamilys 列族
+     */
+    public static void createTable(ClusterProfile profile, String tableName, SplitPlanner planner, int numRegions,
+                                   ColumnFamilyParam... columnFamilys) throws Exception {
+        byte[][] splitKeys = planner.splitPoints(numRegions);
+        createTable(profile, tableName, splitKeys.length > 0 ? splitKeys : null, null, null, 0, columnFamilys);
+    }
+
+    /**
+     * 按给定的分区点拆分已有的表，已经是region边界的分区点会跳过。split是异步执行的
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param splitPoints 分区点，一般由SplitPlanner计算
+     * @return 提交拆分的分区点数
+     */
+    public static int splitTable(ClusterProfile profile, String tableName, byte[][] splitPoints) throws Exception {
+        Admin admin = null;
+        RegionLocator locator = null;
+        try {
+            Connection connection = getConn(profile);
+            TableName hbaseTableName = TableName.valueOf(tableName);
+            admin = connection.getAdmin();
+            locator = connection.getRegionLocator(hbaseTableName);
+            Set<byte[]> boundaries = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+            boundaries.addAll(Arrays.asList(locator.getStartKeys()));
+            int count = 0;
+            for (byte[] point : splitPoints) {
+                if (point == null || point.length == 0 || boundaries.contains(point)) {
+                    continue;
+                }
+                admin.split(hbaseTableName, point);
+                boundaries.add(point);
+                count++;
+            }
+            return count;
+        } finally {
+            try {
+                if (locator != null) {
+                    locator.close();
+                }
+                if (admin != null) {
+                    admin.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * 创建表
      * 
@@ -137,9 +394,20 @@ public class HbaseUtil {
      * @param columnFamilys 列族
      */
     public static void createTable(String tableName, String... columnFamilys) throws Exception {
+        createTable(DEFAULT_PROFILE, tableName, columnFamilys);
+    }
+
+    /**
+     * 创建表
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columnFamilys 列族
+     */
+    public static void createTable(ClusterProfile profile, String tableName, String... columnFamilys) throws Exception {
         Admin hBaseAdmin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             hBaseAdmin = connection.getAdmin();
             TableName hbaseTableName = TableName.valueOf(tableName);
 
@@ -169,20 +437,42 @@ public class HbaseUtil {
      * @param columns 请仔细查看ColumnFamily对象的用法
      */
     public static void insertData(TableName tableName, String rowKey, ColumnFamily... columns) throws Exception {
+        insertData(DEFAULT_PROFILE, tableName, rowKey, columns);
+    }
+
+    /**
+     * 插入数据
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param columns 请仔细查看ColumnFamily对象的用法
+     */
+    public static void insertData(ClusterProfile profile, TableName tableName, String rowKey,
+                                  ColumnFamily... columns) throws Exception {
+        insertData(profile, tableName, Bytes.toBytes(rowKey), columns);
+    }
+
+    /**
+     * 插入数据，行键按原始字节写入
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param columns 列值，优先写入QualifierValue中的原始值
+     */
+    public static void insertData(ClusterProfile profile, TableName tableName, byte[] rowKey,
+                                  ColumnFamily... columns) throws Exception {
         Table table = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             table = connection.getTable(tableName);
-            Put put = new Put(rowKey.getBytes());
+            Put put = new Put(RowKeyCodecs.get(connection, tableName).encode(rowKey));
             for (ColumnFamily columnFamily : columns) {
-                while (columnFamily.hasNext() != -1) {
-                    Entry<String, QualifierColumn> entry = columnFamily.next();
-                    put.addColumn(columnFamily.getFamilyName().getBytes(), entry.getValue().getQualifier(),
-                                  entry.getValue().getV());
-                }
-
+                addColumns(put, columnFamily);
             }
+            IndexManager.writeIndexes(connection, tableName, Collections.singletonList(put));
             table.put(put);
+            invalidateResultCache(tableName.getNameAsString());
         } finally {
             try {
                 table.close();
@@ -199,28 +489,32 @@ public class HbaseUtil {
      * @param rowList
      */
     public static void batchInsertData(TableName tableName, List<Row> rowList) throws Exception {
+        batchInsertData(DEFAULT_PROFILE, tableName, rowList);
+    }
+
+    /**
+     * 批量插入数据
+     * 
+     * @param profile 集群
+     * @param tableName
+     * @param rowList
+     */
+    public static void batchInsertData(ClusterProfile profile, TableName tableName,
+                                       List<Row> rowList) throws Exception {
         Table table = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             table = connection.getTable(tableName);
 
-            List<org.apache.hadoop.hbase.client.Row> puts = new ArrayList<>();
+            List<Put> puts = new ArrayList<>();
             for (Row row : rowList) {// 行
-                Put put = new Put(row.getRowKey().getBytes());
-                Iterator<Map.Entry<byte[], ColumnFamily>> iterator = row.getColumnFamilys().entrySet().iterator();
-                while (iterator.hasNext()) {// 列族
-                    ColumnFamily columnFamily = iterator.next().getValue();
-                    while (columnFamily.hasNext() != -1) {// 列
-                        Entry<String, QualifierColumn> entry = columnFamily.next();
-                        put.addColumn(columnFamily.getFamilyName().getBytes(), entry.getValue().getQualifier(),
-                                      entry.getValue().getV());
-                    }
-
-                }
-                puts.add(put);
+                puts.add(toPut(row));
             }
+            puts = RowKeyCodecs.encode(puts, RowKeyCodecs.get(connection, tableName));
+            IndexManager.writeIndexes(connection, tableName, puts);
             Object[] results = new Object[puts.size()];
             table.batch(puts, results);
+            invalidateResultCache(tableName.getNameAsString());
 
         } finally {
             try {
@@ -231,146 +525,458 @@ public class HbaseUtil {
         }
     }
 
-    private static String getDisplayValue(String type, byte[] b) {
-        if (StringUtils.isEmpty(type)) {
-            return Bytes.toString(b);
-        }
+    /**
+     * 按RegionServer分区并行批量插入数据，适合大批量写入
+     * 
+     * @param tableName
+     * @param rowList
+     * @return 写入的行数
+     */
+    public static long parallelBatchInsertData(TableName tableName, List<Row> rowList) throws Exception {
+        return parallelBatchInsertData(DEFAULT_PROFILE, tableName, rowList);
+    }
 
-        try {
-            switch (type.trim().toLowerCase()) {
-                case "long":
-                    return String.valueOf(Bytes.toLong(b));
-                case "int":
-                    return String.valueOf(Bytes.toInt(b));
-                case "short":
-                    return String.valueOf(Bytes.toShort(b));
-                case "flout":
-                    return String.valueOf(Bytes.toFloat(b));
-                case "double":
-                    return String.valueOf(Bytes.toDouble(b));
-                case "bigdecimal":
-                    return String.valueOf(Bytes.toBigDecimal(b));
-                case "boolean":
-                    return String.valueOf(Bytes.toBoolean(b));
-
-                default:
-                    return Bytes.toString(b);
+    /**
+     * 按RegionServer分区并行批量插入数据，适合大批量写入。<br>
+     * 每台RegionServer有独立的写入队列和并发上限，热点RegionServer不会拖慢其他RegionServer的写入
+     * 
+     * @param profile 集群
+     * @param tableName
+     * @param rowList
+     * @return 写入的行数
+     */
+    public static long parallelBatchInsertData(ClusterProfile profile, TableName tableName,
+                                               List<Row> rowList) throws Exception {
+        return new OperationHandle<Long>("write " + tableName).execute(writeTask(profile, tableName, rowList));
+    }
+
+    /**
+     * 在后台按RegionServer分区并行批量插入数据。句柄上可以查看已写入的行数和吞吐量；
+     * 取消时放弃排队中的批次并中断在途的批次，已经发到RegionServer的批次可能仍会写入
+     * 
+     * @param profile 集群
+     * @param tableName
+     * @param rowList
+     * @return 句柄，get()返回写入的行数
+     */
+    public static OperationHandle<Long> parallelBatchInsertDataAsync(ClusterProfile profile, TableName tableName,
+                                                                     List<Row> rowList) {
+        return OperationHandle.submit("write " + tableName, writeTask(profile, tableName, rowList));
+    }
+
+    private static OperationHandle.Task<Long> writeTask(final ClusterProfile profile, final TableName tableName,
+                                                        final List<Row> rowList) {
+        return new OperationHandle.Task<Long>() {
+
+            @Override
+            public Long run(OperationHandle<Long> handle) throws Exception {
+                handle.setTotalRows(rowList.size());
+                ConnectionRegistry.Lease lease = ConnectionRegistry.acquire(profile);
+                ParallelWriter writer = new ParallelWriter(lease.getConnection(), tableName);
+                writer.setOperationHandle(handle);
+                handle.register(writer);
+                try {
+                    return writer.write(rowList);
+                } finally {
+                    writer.close();
+                    handle.unregister(writer);
+                    lease.close();
+                    invalidateResultCache(tableName.getNameAsString());
+                }
             }
+        };
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "DATA CONVERSION EXCEPTION";
+    /**
+     * 把Row转换成Put，行键、列族、列名和值都直接使用原始字节，不经过字符串转换
+     * 
+     * @param row
+     * @return
+     */
+    static Put toPut(Row row) {
+        Put put = new Put(row.getRowKeyBytes());
+        for (ColumnFamily columnFamily : row.getColumnFamilys().values()) {// 列族
+            addColumns(put, columnFamily);
+        }
+        return put;
+    }
+
+    /**
+     * 把列族下的所有列加入Put。直接遍历列，不使用(只能遍历一次的)游标
+     */
+    private static void addColumns(Put put, ColumnFamily columnFamily) {
+        byte[] family = columnFamily.getFamilyNameBytes();
+        for (Map.Entry<byte[], QualifierValue> column : columnFamily.getColumns().entrySet()) {// 列
+            byte[] qualifier = column.getKey() == null ? HConstants.EMPTY_BYTE_ARRAY : column.getKey();
+            put.addColumn(family, qualifier, ColumnFamily.valueBytes(column.getValue()));
         }
+    }
 
+    static String getDisplayValue(String type, byte[] b) {
+        return ValueCodec.toDisplayValue(type, b);
     }
 
     public static HBasePageModel scanResultByPageFilter(String tableName, byte[] startRowKey, byte[] endRowKey,
                                                         List<Object> filtersObj, int maxVersions,
                                                         HBasePageModel pageModel, boolean firstPage,
                                                         Map<String, String> typeMapping) throws Exception {
-        TableName habseTableName = TableName.valueOf(tableName);
-        FilterList filterList = null;
-        if (filtersObj != null && filtersObj.size() > 0) {
-            List<Filter> realFilters = FilterFactory.filterConvert(filtersObj);
-            if (realFilters != null && realFilters.size() > 0) {
-                filterList = new FilterList(realFilters);
+        return scanResultByPageFilter(DEFAULT_PROFILE, tableName, startRowKey, endRowKey, filtersObj, maxVersions,
+                                      pageModel, firstPage, typeMapping);
+    }
+
+    public static HBasePageModel scanResultByPageFilter(ClusterProfile profile, String tableName, byte[] startRowKey,
+                                                        byte[] endRowKey, List<Object> filtersObj, int maxVersions,
+                                                        HBasePageModel pageModel, boolean firstPage,
+                                                        Map<String, String> typeMapping) throws Exception {
+        return scanResultByPageFilter(profile, tableName, startRowKey, endRowKey, filtersObj, maxVersions, pageModel,
+                                      firstPage, typeMapping, null);
+    }
+
+    /**
+     * 在后台执行分页查询，参数和scanResultByPageFilter一致。页很大或者过滤条件很稀疏时，可以通过句柄查看已读取的行数或者取消查询，
+     * 取消时立即关闭扫描器
+     * 
+     * @return 句柄，get()返回填充好的pageModel
+     */
+    public static OperationHandle<HBasePageModel> scanResultByPageFilterAsync(final ClusterProfile profile,
+                                                                              final String tableName,
+                                                                              final byte[] startRowKey,
+                                                                              final byte[] endRowKey,
+                                                                              final List<Object> filtersObj,
+                                                                              final int maxVersions,
+                                                                              final HBasePageModel pageModel,
+                                                                              final boolean firstPage,
+                                                                              final Map<String, String> typeMapping) {
+        return OperationHandle.submit("scan " + tableName, new OperationHandle.Task<HBasePageModel>() {
+
+            @Override
+            public HBasePageModel run(OperationHandle<HBasePageModel> handle) throws Exception {
+                if (pageModel != null) {
+                    handle.setTotalRows(pageModel.getPageSize());
+                }
+                return scanResultByPageFilter(profile, tableName, startRowKey, endRowKey, filtersObj, maxVersions,
+                                              pageModel, firstPage, typeMapping, handle);
             }
-        }
+        });
+    }
 
-        if (pageModel == null) {
-            pageModel = new HBasePageModel(10, tableName);
-        }
-        if (maxVersions <= 0) {
-            // 默认只检索数据的最新版本
-            maxVersions = Integer.MIN_VALUE;
-        }
-        pageModel.initStartTime();
-        pageModel.initEndTime();
-        if (tableName == null) {
-            return pageModel;
-        }
+    /**
+     * 分页查询，handle不为null时跟踪打开的扫描器
+     */
+    private static HBasePageModel scanResultByPageFilter(ClusterProfile profile, String tableName,
+                                                         byte[] startRowKey, byte[] endRowKey,
+                                                         List<Object> filtersObj, int maxVersions,
+                                                         HBasePageModel pageModel, boolean firstPage,
+                                                         Map<String, String> typeMapping,
+                                                         OperationHandle<?> handle) throws Exception {
+        TableName habseTableName = TableName.valueOf(tableName);
+        RegionWarmer.touch(profile, tableName);
         Table table = null;
-        List<Result> resultList = new ArrayList<Result>();
-
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             table = connection.getTable(habseTableName);
-
-            if (pageModel.getPageStartRowKey() == null && startRowKey != null) {
-                pageModel.setPageStartRowKey(startRowKey);
+            ScannerSource source = codecSource(tableSource(table), RowKeyCodecs.get(connection, habseTableName));
+            if (handle != null) {
+                source = handle.track(source);
             }
-
-            if (pageModel.getPageStartRowKey() == null) {
-                Result firstResult = selectFirstResultRow(habseTableName, filterList);
-                if (firstResult == null || firstResult.isEmpty()) {
-                    return pageModel;
-                }
-                startRowKey = firstResult.getRow();
-                pageModel.setPageStartRowKey(startRowKey);
+            ResultCache cache = resultCache;
+            if (cache == null) {
+                return scanPage(source, tableName, startRowKey, endRowKey, filtersObj, maxVersions, pageModel,
+                                firstPage, typeMapping);
             }
-
-            Scan scan = new Scan();
-            scan.setCaching(100);
-            scan.setStartRow(pageModel.getPageStartRowKey());
-            if (pageModel.getMinStamp() != 0 && pageModel.getMaxStamp() != 0) {
-                scan.setTimeRange(pageModel.getMinStamp(), pageModel.getMaxStamp());
+            if (pageModel == null) {
+                pageModel = new HBasePageModel(10, tableName);
             }
-
-            if (pageModel.getPageEndRowKey() != null) {
-                scan.setStopRow(pageModel.getPageEndRowKey());
-            } else if (endRowKey != null) {
-                scan.setStopRow(endRowKey);
+            long tableStamp = cache.isCheckTableWrites() ? ResultCache.tableStamp(connection, habseTableName) : 0;
+            String key = ResultCache.fingerprint(profile.getName(), tableName, startRowKey, endRowKey,
+                                                 filtersObj == null ? null : FilterFactory.filterConvert(filtersObj),
+                                                 maxVersions, pageModel, firstPage);
+            ColumnarPage cached = cache.get(key, tableStamp, typeMapping);
+            if (cached != null) {
+                return applyCachedPage(pageModel, cached, endRowKey);
             }
-
-            PageFilter pageFilter = new PageFilter(firstPage ? pageModel.getPageSize() : (pageModel.getPageSize() + 1));// 第二页包含第一页的第一条数据，所以下一页要加+1
-            if (filterList != null) {
-                filterList.addFilter(pageFilter);
-                scan.setFilter(filterList);
-            } else {
-                scan.setFilter(pageFilter);
+            ColumnarPage capture = new ColumnarPage();
+            scanPage(source, tableName, startRowKey, endRowKey, filtersObj, maxVersions, pageModel, firstPage,
+                     typeMapping, capture);
+            if (capture.getRowCount() > 0) {
+                cache.put(key, tableName, tableStamp, capture);
+            }
+            return pageModel;
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            if (maxVersions == Integer.MAX_VALUE) {
-                scan.setMaxVersions();
-            } else if (maxVersions == Integer.MIN_VALUE) {
+        }
+    }
 
-            } else {
-                scan.setMaxVersions(maxVersions);
+    /**
+     * 用缓存的页填充分页模型，分页游标的变化和scanPage一致
+     */
+    private static HBasePageModel applyCachedPage(HBasePageModel pageModel, ColumnarPage cached, byte[] endRowKey) {
+        pageModel.initStartTime();
+        byte[] pageEndRowKey = cached.getRowKey(cached.getRowCount() - 1);
+        if (pageModel.isColumnar() && pageModel.getColumnarPage().getRowCount() == 0) {
+            pageModel.setColumnarPage(cached);
+        } else {
+            for (Row row : cached.asRowList()) {
+                pageModel.addRow(row);
             }
-            long s = System.currentTimeMillis();
-            ResultScanner scanner = table.getScanner(scan);
-            System.out.println("scan耗时：" + (System.currentTimeMillis() - s));
-            s = System.currentTimeMillis();
+            cached.release();
+        }
+        pageModel.setPageIndex(pageModel.getPageIndex() + 1);
+        pageModel.setPageStartRowKey(pageEndRowKey);
+        pageModel.setPageEndRowKey(endRowKey);
+        pageModel.initEndTime();
+        pageModel.printTimeInfo();
+        return pageModel;
+    }
+
+    /**
+     * 开启分页查询的本地结果缓存，之后scanResultByPageFilter先查缓存，没有命中时查询并写入缓存
+     * 
+     * @param dir 缓存目录，重启后继续使用目录中的缓存
+     * @param maxBytes 缓存文件总大小上限
+     * @param ttl 缓存有效期(毫秒)，小于等于0时只按表的写入失效
+     * @return
+     * @throws IOException
+     */
+    public static synchronized ResultCache enableResultCache(File dir, long maxBytes, long ttl) throws IOException {
+        disableResultCache();
+        resultCache = new ResultCache(dir, maxBytes, ttl);
+        return resultCache;
+    }
+
+    /**
+     * 关闭结果缓存，缓存文件保留在目录中
+     */
+    public static synchronized void disableResultCache() {
+        ResultCache cache = resultCache;
+        resultCache = null;
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 获取结果缓存，没有开启时返回null
+     * 
+     * @return
+     */
+    public static ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    private static void invalidateResultCache(String tableName) {
+        ResultCache cache = resultCache;
+        if (cache != null) {
+            cache.invalidateTable(tableName);
+        }
+    }
+
+    /**
+     * 把[startRow, stopRow)按region边界切分，空数组表示表头或表尾
+     */
+    static List<Pair<byte[], byte[]>> regionRanges(Connection connection, TableName tableName, byte[] startRow,
+                                                   byte[] stopRow) throws IOException {
+        List<Pair<byte[], byte[]>> result = new ArrayList<>();
+        RegionLocator locator = connection.getRegionLocator(tableName);
+        try {
+            Pair<byte[][], byte[][]> keys = locator.getStartEndKeys();
+            for (int i = 0; i < keys.getFirst().length; i++) {
+                byte[] regionStart = keys.getFirst()[i];
+                byte[] regionEnd = keys.getSecond()[i];
+                byte[] from = Bytes.compareTo(regionStart, startRow) > 0 ? regionStart : startRow;
+                byte[] to;
+                if (regionEnd.length == 0) {
+                    to = stopRow;
+                } else if (stopRow.length == 0) {
+                    to = regionEnd;
+                } else {
+                    to = Bytes.compareTo(regionEnd, stopRow) < 0 ? regionEnd : stopRow;
+                }
+                if (to.length == 0 || Bytes.compareTo(from, to) < 0) {
+                    result.add(new Pair<byte[], byte[]>(from, to));
+                }
+            }
+        } finally {
+            locator.close();
+        }
+        return result;
+    }
+
+    /**
+     * 把逻辑行键范围[startRow, stopRow)换算成第bucket个桶内的物理范围，再按region边界切分。没有加盐的表只有一个桶，就是原范围
+     */
+    static List<Pair<byte[], byte[]>> bucketRanges(Connection connection, TableName tableName, RowKeyCodec codec,
+                                                   int bucket, byte[] startRow, byte[] stopRow) throws IOException {
+        byte[] from = codec.toBucket(bucket, startRow);
+        byte[] to = stopRow.length == 0 ? codec.bucketEnd(bucket) : codec.toBucket(bucket, stopRow);
+        return regionRanges(connection, tableName, from, to);
+    }
+
+    /**
+     * 把逻辑行键范围换算成物理范围并按region切分，加盐的表每个桶各有一段
+     */
+    static List<Pair<byte[], byte[]>> physicalRanges(Connection connection, TableName tableName, RowKeyCodec codec,
+                                                     byte[] startRow, byte[] stopRow) throws IOException {
+        List<Pair<byte[], byte[]>> ranges = new ArrayList<>();
+        for (int bucket = 0; bucket < codec.getBucketCount(); bucket++) {
+            ranges.addAll(bucketRanges(connection, tableName, codec, bucket, startRow, stopRow));
+        }
+        return ranges;
+    }
+
+    /**
+     * 用写好的临时文件原子地替换目标文件，替换过程中崩溃时目标文件要么是旧内容要么是新内容。文件系统不支持原子移动时退化为普通的覆盖移动
+     * 
+     * @param tmp 临时文件，和目标文件在同一个目录
+     * @param target 目标文件
+     * @throws IOException
+     */
+    static void replaceFile(File tmp, File target) throws IOException {
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static ScannerSource tableSource(final Table table) {
+        return new ScannerSource() {
+
+            @Override
+            public ResultScanner getScanner(Scan scan) throws IOException {
+                return table.getScanner(scan);
+            }
+        };
+    }
+
+    /**
+     * 加盐的表按桶拆分扫描再归并，其余表直接使用source
+     */
+    static ScannerSource codecSource(ScannerSource source, RowKeyCodec codec) {
+        return codec.getBucketCount() > 1 ? new FanOutScannerSource(source, codec) : source;
+    }
+
+    /**
+     * 分页查询的实现，数据来源由source提供
+     */
+    static HBasePageModel scanPage(ScannerSource source, String tableName, byte[] startRowKey, byte[] endRowKey,
+                                   List<Object> filtersObj, int maxVersions, HBasePageModel pageModel,
+                                   boolean firstPage, Map<String, String> typeMapping) throws Exception {
+        return scanPage(source, tableName, startRowKey, endRowKey, filtersObj, maxVersions, pageModel, firstPage,
+                        typeMapping, null);
+    }
+
+    /**
+     * 分页查询的实现，capture不为null时本页的结果同时追加到capture中
+     */
+    private static HBasePageModel scanPage(ScannerSource source, String tableName, byte[] startRowKey,
+                                           byte[] endRowKey, List<Object> filtersObj, int maxVersions,
+                                           HBasePageModel pageModel, boolean firstPage,
+                                           Map<String, String> typeMapping, ColumnarPage capture) throws Exception {
+        FilterList filterList = null;
+        if (filtersObj != null && filtersObj.size() > 0) {
+            List<Filter> realFilters = FilterFactory.filterConvert(filtersObj);
+            if (realFilters != null && realFilters.size() > 0) {
+                filterList = new FilterList(realFilters);
+            }
+        }
+
+        if (pageModel == null) {
+            pageModel = new HBasePageModel(10, tableName);
+        }
+        if (maxVersions <= 0) {
+            // 默认只检索数据的最新版本
+            maxVersions = Integer.MIN_VALUE;
+        }
+        pageModel.initStartTime();
+        pageModel.initEndTime();
+        if (tableName == null) {
+            return pageModel;
+        }
+        List<Result> resultList = new ArrayList<Result>();
+
+        if (pageModel.getPageStartRowKey() == null && startRowKey != null) {
+            pageModel.setPageStartRowKey(startRowKey);
+        }
+
+        if (pageModel.getPageStartRowKey() == null) {
+            Result firstResult = selectFirstResultRow(source, filterList, pageModel.getConsistency());
+            if (firstResult == null || firstResult.isEmpty()) {
+                return pageModel;
+            }
+            startRowKey = firstResult.getRow();
+            pageModel.setPageStartRowKey(startRowKey);
+        }
+
+        Scan scan = new Scan();
+        scan.setCaching(100);
+        scan.setConsistency(pageModel.getConsistency());
+        scan.setStartRow(pageModel.getPageStartRowKey());
+        if (pageModel.getMinStamp() != 0 && pageModel.getMaxStamp() != 0) {
+            scan.setTimeRange(pageModel.getMinStamp(), pageModel.getMaxStamp());
+        }
+
+        if (pageModel.getPageEndRowKey() != null) {
+            scan.setStopRow(pageModel.getPageEndRowKey());
+        } else if (endRowKey != null) {
+            scan.setStopRow(endRowKey);
+        }
+
+        PageFilter pageFilter = new PageFilter(firstPage ? pageModel.getPageSize() : (pageModel.getPageSize() + 1));// 第二页包含第一页的第一条数据，所以下一页要加+1
+        if (filterList != null) {
+            filterList.addFilter(pageFilter);
+            scan.setFilter(filterList);
+        } else {
+            scan.setFilter(pageFilter);
+        }
+        if (maxVersions == Integer.MAX_VALUE) {
+            scan.setMaxVersions();
+        } else if (maxVersions == Integer.MIN_VALUE) {
+
+        } else {
+            scan.setMaxVersions(maxVersions);
+        }
+        long s = System.currentTimeMillis();
+        ThrottledScanner scanner = new ThrottledScanner(source.getScanner(scan),
+                                                        ThrottleManager.get(Operation.SCAN, tableName),
+                                                        scan.getCaching());
+        System.out.println("scan耗时：" + (System.currentTimeMillis() - s));
+        s = System.currentTimeMillis();
+        try {
             int index = 0;
-            for (Result rs : scanner.next(firstPage ? pageModel.getPageSize() : (pageModel.getPageSize() + 1))) {
+            int limit = firstPage ? pageModel.getPageSize() : (pageModel.getPageSize() + 1);
+            Result rs;
+            for (int read = 0; read < limit && (rs = scanner.next()) != null; read++) {
                 if (!firstPage && index == 0) {// 第二页包含第一页的第一条数据，所以这里要排除掉
                     index++;
                     continue;
                 }
                 if (!rs.isEmpty()) {
-                    Row row = new Row(Bytes.toString(rs.getRow()));
-                    for (Cell c : rs.rawCells()) {
-                        byte[] family = CellUtil.cloneFamily(c);
-                        byte[] qualifier = CellUtil.cloneQualifier(c);
-                        row.add(family, qualifier,
-                                new QualifierValue(qualifier,
-                                                   getDisplayValue((typeMapping == null ? null : typeMapping.get(Bytes.toString(family)
-                                                                                                                 + "."
-                                                                                                                 + Bytes.toString(qualifier))),
-                                                                   CellUtil.cloneValue(c))));
-                    }
                     resultList.add(rs);
-                    pageModel.addRow(row);
+                    ReplicaReadMetrics.record(tableName, pageModel.getConsistency(), rs);
+                    if (capture != null) {
+                        capture.add(rs, null);
+                    }
+                    if (pageModel.isColumnar()) {
+                        pageModel.getWritableColumnarPage().add(rs, typeMapping);
+                    } else {
+                        pageModel.addRow(toRow(rs, typeMapping));
+                    }
                 }
             }
-            scanner.close();
-            System.out.println("数据组装耗时：" + (System.currentTimeMillis() - s));
         } finally {
-            try {
-                table.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            scanner.close();
         }
+        System.out.println("数据组装耗时：" + (System.currentTimeMillis() - s));
 
         int pageIndex = pageModel.getPageIndex() + 1;
         pageModel.setPageIndex(pageIndex);
@@ -387,6 +993,249 @@ public class HbaseUtil {
 
     }
 
+    /**
+     * 宽行按列分页读取。<br>
+     * 使用Scan.setBatch、setAllowPartialResults和setMaxResultSize把一行按列切块传输，每次只读取pageModel.getColumnPageSize()列，
+     * 读满一页立即关闭扫描器，任意宽度的行客户端内存都是有界的。<br>
+     * 列游标保存在pageModel中，连续调用即可向后翻页，isColumnEnd()为true时表示已经读完，resetColumnCursor()回到第一列。
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param pageModel 分页模型，rowList中只保留本页数据
+     * @param typeMapping 列类型映射
+     * @return
+     * @throws Exception
+     */
+    public static HBasePageModel scanWideRow(ClusterProfile profile, String tableName, byte[] rowKey,
+                                             HBasePageModel pageModel,
+                                             Map<String, String> typeMapping) throws Exception {
+        pageModel.initStartTime();
+        pageModel.clearRows();
+        Table table = null;
+        try {
+            Connection connection = getConn(profile);
+            table = connection.getTable(TableName.valueOf(tableName));
+            byte[][] families = table.getTableDescriptor().getFamiliesKeys().toArray(new byte[0][]);
+            Arrays.sort(families, Bytes.BYTES_COMPARATOR);
+
+            int pageSize = pageModel.getColumnPageSize();
+            Row row = new Row(rowKey);
+            byte[] physicalRowKey = RowKeyCodecs.get(connection, TableName.valueOf(tableName)).encode(rowKey);
+            int count = 0;
+            byte[] nextFamily = null;
+            byte[] nextQualifier = null;
+            for (byte[] family : families) {
+                byte[] cursorFamily = pageModel.getColumnCursorFamily();
+                if (cursorFamily != null && Bytes.compareTo(family, cursorFamily) < 0) {
+                    continue;
+                }
+                byte[] startQualifier = cursorFamily != null
+                                        && Bytes.equals(family, cursorFamily) ? pageModel.getColumnCursorQualifier() : null;
+                Scan scan = new Scan(physicalRowKey, Bytes.add(physicalRowKey, new byte[] { 0 }));
+                scan.addFamily(family);
+                scan.setBatch(pageSize - count);
+                scan.setAllowPartialResults(true);
+                scan.setMaxResultSize(WIDE_ROW_MAX_RESULT_SIZE);
+                scan.setCaching(1);
+                if (startQualifier != null) {
+                    scan.setFilter(new ColumnRangeFilter(startQualifier, true, null, false));
+                }
+                ThrottledScanner scanner = new ThrottledScanner(table.getScanner(scan),
+                                                                ThrottleManager.get(Operation.SCAN, tableName),
+                                                                scan.getCaching());
+                try {
+                    Result rs;
+                    while (nextFamily == null && (rs = scanner.next()) != null) {
+                        for (Cell c : rs.rawCells()) {
+                            byte[] qualifier = CellUtil.cloneQualifier(c);
+                            if (count >= pageSize) {
+                                // 本页已满，下一页从这一列开始
+                                nextFamily = family;
+                                nextQualifier = qualifier;
+                                break;
+                            }
+                            String type = typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                                                       + Bytes.toString(qualifier));
+                            byte[] value = CellUtil.cloneValue(c);
+                            row.add(family, qualifier,
+                                    new QualifierValue(qualifier, value, getDisplayValue(type, value), type));
+                            count++;
+                        }
+                        if (count >= pageSize && nextFamily == null) {
+                            // 刚好读满，下一页从最后一列之后开始
+                            Cell last = rs.rawCells()[rs.rawCells().length - 1];
+                            nextFamily = family;
+                            nextQualifier = Bytes.add(CellUtil.cloneQualifier(last), new byte[] { 0 });
+                        }
+                    }
+                } finally {
+                    scanner.close();
+                }
+                if (nextFamily != null) {
+                    break;
+                }
+            }
+
+            if (count > 0) {
+                pageModel.addRow(row);
+            }
+            pageModel.setColumnPageIndex(pageModel.getColumnPageIndex() + 1);
+            pageModel.setColumnCursor(nextFamily, nextQualifier);
+            pageModel.setColumnEnd(nextFamily == null);
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        pageModel.initEndTime();
+        return pageModel;
+    }
+
+    /**
+     * 大范围扫描或导出。<br>
+     * 每读满batchRows行组成一个列式页交给handler处理，handler返回后页数据立即清空，数据区在整个扫描过程中复用；扫描结束(包括异常)时释放数据区。<br>
+     * offHeap为true时cell值只从Result复制一次到堆外内存，handler按需解码，读取多GB数据时堆内存占用保持平稳。
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件
+     * @param batchRows 每页行数
+     * @param offHeap 是否使用堆外内存
+     * @param typeMapping 列类型映射
+     * @param handler 页处理回调，回调返回后页数据失效，不能保留引用
+     * @return 读取的总行数
+     * @throws Exception
+     */
+    public static long exportScan(ClusterProfile profile, String tableName, byte[] startRowKey, byte[] endRowKey,
+                                  List<Object> filtersObj, int batchRows, boolean offHeap,
+                                  Map<String, String> typeMapping, PageHandler handler) throws Exception {
+        return exportScan(profile, tableName, startRowKey, endRowKey, filtersObj, batchRows, offHeap, typeMapping,
+                          handler, null);
+    }
+
+    /**
+     * 在后台执行exportScan，handler在后台线程中调用。取消时立即关闭扫描器，handler不会再收到新的页
+     * 
+     * @return 句柄，get()返回读取的总行数
+     */
+    public static OperationHandle<Long> exportScanAsync(final ClusterProfile profile, final String tableName,
+                                                        final byte[] startRowKey, final byte[] endRowKey,
+                                                        final List<Object> filtersObj, final int batchRows,
+                                                        final boolean offHeap,
+                                                        final Map<String, String> typeMapping,
+                                                        final PageHandler handler) {
+        return OperationHandle.submit("export " + tableName, new OperationHandle.Task<Long>() {
+
+            @Override
+            public Long run(OperationHandle<Long> handle) throws Exception {
+                return exportScan(profile, tableName, startRowKey, endRowKey, filtersObj, batchRows, offHeap,
+                                  typeMapping, handler, handle);
+            }
+        });
+    }
+
+    private static long exportScan(ClusterProfile profile, String tableName, byte[] startRowKey, byte[] endRowKey,
+                                   List<Object> filtersObj, int batchRows, boolean offHeap,
+                                   Map<String, String> typeMapping, PageHandler handler,
+                                   OperationHandle<?> handle) throws Exception {
+        Scan scan = new Scan();
+        if (startRowKey != null) {
+            scan.setStartRow(startRowKey);
+        }
+        if (endRowKey != null) {
+            scan.setStopRow(endRowKey);
+        }
+        if (filtersObj != null && filtersObj.size() > 0) {
+            List<Filter> realFilters = FilterFactory.filterConvert(filtersObj);
+            if (realFilters != null && realFilters.size() > 0) {
+                scan.setFilter(new FilterList(realFilters));
+            }
+        }
+        scan.setCaching(batchRows);
+        scan.setCacheBlocks(false);
+
+        ColumnarPage page = new ColumnarPage(offHeap ? new OffHeapByteArena() : new HeapByteArena());
+        long total = 0;
+        Table table = null;
+        ThrottledScanner scanner = null;
+        ConnectionRegistry.Lease lease = ConnectionRegistry.acquire(profile);
+        try {
+            Connection connection = lease.getConnection();
+            table = connection.getTable(TableName.valueOf(tableName));
+            ScannerSource source = codecSource(tableSource(table),
+                                               RowKeyCodecs.get(connection, TableName.valueOf(tableName)));
+            if (handle != null) {
+                source = handle.track(source);
+            }
+            scanner = new ThrottledScanner(source.getScanner(scan), ThrottleManager.get(Operation.EXPORT, tableName),
+                                           batchRows);
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                page.add(rs, typeMapping);
+                if (page.getRowCount() >= batchRows) {
+                    handler.handle(page);
+                    total += page.getRowCount();
+                    page.clear();
+                }
+            }
+            if (page.getRowCount() > 0) {
+                handler.handle(page);
+                total += page.getRowCount();
+            }
+        } finally {
+            page.release();
+            if (scanner != null) {
+                scanner.close();
+            }
+            try {
+                if (table != null) {
+                    table.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            lease.close();
+        }
+        return total;
+    }
+
+    /**
+     * exportScan的页处理回调
+     */
+    public static interface PageHandler {
+
+        void handle(ColumnarPage page) throws Exception;
+    }
+
+    /**
+     * 把Result组装成Row，typeMapping的key为【列族.列名】，value为数据类型
+     * 
+     * @param rs
+     * @param typeMapping
+     * @return
+     */
+    static Row toRow(Result rs, Map<String, String> typeMapping) {
+        Row row = new Row(rs.getRow());
+        row.setStale(rs.isStale());
+        for (Cell c : rs.rawCells()) {
+            byte[] family = CellUtil.cloneFamily(c);
+            byte[] qualifier = CellUtil.cloneQualifier(c);
+            byte[] value = CellUtil.cloneValue(c);
+            String type = typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                                       + Bytes.toString(qualifier));
+            row.add(family, qualifier, new QualifierValue(qualifier, value, getDisplayValue(type, value), type));
+        }
+        return row;
+    }
+
     /**
      * 检索指定表的第一行记录。<br>
      * （如果在创建表时为此表指定了非默认的命名空间，则需拼写上命名空间名称，格式为【namespace:tablename】）。
@@ -396,25 +1245,109 @@ public class HbaseUtil {
      * @return
      */
     public static Result selectFirstResultRow(TableName tableName, FilterList filterList) throws Exception {
+        return selectFirstResultRow(DEFAULT_PROFILE, tableName, filterList);
+    }
+
+    /**
+     * 检索指定表的第一行记录。<br>
+     * （如果在创建表时为此表指定了非默认的命名空间，则需拼写上命名空间名称，格式为【namespace:tablename】）。
+     * 
+     * @param profile 集群
+     * @param tableName 表名称(*)。
+     * @param filterList 过滤器集合，可以为null。
+     * @return
+     */
+    public static Result selectFirstResultRow(ClusterProfile profile, TableName tableName,
+                                              FilterList filterList) throws Exception {
         if (tableName == null) return null;
         Table table = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             table = connection.getTable(tableName);
-            Scan scan = new Scan();
-            if (filterList != null) {
-                scan.setFilter(filterList);
+            return selectFirstResultRow(codecSource(tableSource(table), RowKeyCodecs.get(connection, tableName)),
+                                        filterList);
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            ResultScanner scanner = table.getScanner(scan);
+        }
+    }
+
+    static Result selectFirstResultRow(ScannerSource source, FilterList filterList) throws Exception {
+        return selectFirstResultRow(source, filterList, Consistency.STRONG);
+    }
+
+    static Result selectFirstResultRow(ScannerSource source, FilterList filterList,
+                                       Consistency consistency) throws Exception {
+        Scan scan = new Scan();
+        scan.setConsistency(consistency);
+        if (filterList != null) {
+            scan.setFilter(filterList);
+        }
+        ResultScanner scanner = source.getScanner(scan);
+        try {
             Iterator<Result> iterator = scanner.iterator();
-            int index = 0;
             if (iterator.hasNext()) {
-                Result rs = iterator.next();
-                if (index == 0) {
-                    scanner.close();
-                    return rs;
+                return iterator.next();
+            }
+        } finally {
+            scanner.close();
+        }
+        return null;
+    }
+
+    /**
+     * 按行键查询一行，行不存在时返回null
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param consistency 读取一致性，TIMELINE时可能由region副本返回，Row.isStale()为true
+     * @param typeMapping 列类型映射
+     * @return
+     * @throws Exception
+     */
+    public static Row getRow(ClusterProfile profile, String tableName, byte[] rowKey, Consistency consistency,
+                             Map<String, String> typeMapping) throws Exception {
+        List<Row> rows = getRows(profile, tableName, Arrays.asList(rowKey), consistency, typeMapping);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * 按行键批量查询，一次RPC按RegionServer分组提交。返回的行按rowKeys的顺序排列，不存在的行不返回
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKeys 行键
+     * @param consistency 读取一致性，TIMELINE时可能由region副本返回，Row.isStale()为true
+     * @param typeMapping 列类型映射
+     * @return
+     * @throws Exception
+     */
+    public static List<Row> getRows(ClusterProfile profile, String tableName, List<byte[]> rowKeys,
+                                    Consistency consistency, Map<String, String> typeMapping) throws Exception {
+        Table table = null;
+        try {
+            Connection connection = getConn(profile);
+            table = connection.getTable(TableName.valueOf(tableName));
+            RowKeyCodec codec = RowKeyCodecs.get(connection, TableName.valueOf(tableName));
+            List<Get> gets = new ArrayList<>(rowKeys.size());
+            for (byte[] rowKey : rowKeys) {
+                Get get = new Get(codec.encode(rowKey));
+                get.setConsistency(consistency);
+                gets.add(get);
+            }
+            List<Row> result = new ArrayList<>();
+            for (Result rs : table.get(gets)) {
+                if (rs == null || rs.isEmpty()) {
+                    continue;
                 }
+                ReplicaReadMetrics.record(tableName, consistency, rs);
+                result.add(toRow(RowKeyCodecs.decode(rs, codec), typeMapping));
             }
+            return result;
         } finally {
             try {
                 table.close();
@@ -422,55 +1355,443 @@ public class HbaseUtil {
                 e.printStackTrace();
             }
         }
-        return null;
     }
 
-    /**
-     * 删除数据
-     * 
-     * @param tablename
-     * @param rowkey
-     */
-    public static void deleteRow(String tablename, String... rowkey) throws Exception {
-        Table table = null;
+    /**
+     * 删除数据
+     * 
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(String tablename, String... rowkey) throws Exception {
+        deleteRow(DEFAULT_PROFILE, tablename, rowkey);
+    }
+
+    /**
+     * 删除数据
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(ClusterProfile profile, String tablename, String... rowkey) throws Exception {
+        byte[][] rowKeys = new byte[rowkey.length][];
+        for (int i = 0; i < rowkey.length; i++) {
+            rowKeys[i] = Bytes.toBytes(rowkey[i]);
+        }
+        deleteRow(profile, tablename, rowKeys);
+    }
+
+    /**
+     * 按原始行键删除数据
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @param rowkey
+     */
+    public static void deleteRow(ClusterProfile profile, String tablename, byte[]... rowkey) throws Exception {
+        Table table = null;
+        try {
+            TableName hbaseTableName = TableName.valueOf(tablename);
+            Connection connection = getConn(profile);
+            table = connection.getTable(hbaseTableName);
+            Throttle throttle = ThrottleManager.get(Operation.DELETE, tablename);
+            RowKeyCodec codec = RowKeyCodecs.get(connection, hbaseTableName);
+            List<Delete> list = new ArrayList<Delete>();
+            for (byte[] item : rowkey) {
+                list.add(new Delete(codec.encode(item)));
+                if (list.size() >= DELETE_BATCH_SIZE) {
+                    delete(table, list, throttle);
+                    list = new ArrayList<Delete>();
+                }
+            }
+            if (!list.isEmpty()) {
+                delete(table, list, throttle);
+            }
+            invalidateResultCache(tablename);
+
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+    /**
+     * 按限速提交一批删除
+     */
+    private static void delete(Table table, List<Delete> list, Throttle throttle) throws Exception {
+        throttle.acquireRpc();
+        throttle.acquireRows(list.size());
+        long start = System.currentTimeMillis();
+        try {
+            table.delete(list);
+        } catch (IOException e) {
+            throttle.recordFailure(e);
+            throw e;
+        }
+        throttle.recordRpc(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 列出所有表名称
+     * 
+     * @return
+     */
+    public static String[] getListTableNames() throws Exception {
+        return getListTableNames(DEFAULT_PROFILE);
+    }
+
+    /**
+     * 列出所有表名称
+     * 
+     * @return
+     */
+    public static String[] getListTableNames(ClusterProfile profile) throws Exception {
+        Admin admin = null;
+        try {
+            Connection connection = getConn(profile);
+            admin = connection.getAdmin();
+            TableName[] tables = admin.listTableNames();
+
+            String[] result = new String[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                result[i] = tables[i].getNameAsString();
+            }
+            return result;
+        } finally {
+            try {
+                admin.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+    /**
+     * 删除表
+     * 
+     * @param tablename
+     * @throws IOException
+     */
+    public static void dropTable(String tablename) throws Exception {
+        dropTable(DEFAULT_PROFILE, tablename);
+    }
+
+    /**
+     * 删除表
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @throws IOException
+     */
+    public static void dropTable(ClusterProfile profile, String tablename) throws Exception {
+
+        Admin hBaseAdmin = null;
+        try {
+            TableName hbaseTableName = TableName.valueOf(tablename);
+            Connection connection = getConn(profile);
+            hBaseAdmin = connection.getAdmin();
+            hBaseAdmin.disableTable(hbaseTableName);
+            hBaseAdmin.deleteTable(hbaseTableName);
+            PageIndexBuilder.invalidate(profile.getName(), tablename);
+            invalidateResultCache(tablename);
+        } finally {
+            if (hBaseAdmin != null) {
+                try {
+                    hBaseAdmin.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空表
+     * 
+     * @param tablename
+     * @param preserveSplits
+     */
+    public static void truncateTable(String tablename, boolean preserveSplits) throws Exception {
+        truncateTable(DEFAULT_PROFILE, tablename, preserveSplits);
+    }
+
+    /**
+     * 清空表
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @param preserveSplits
+     */
+    public static void truncateTable(ClusterProfile profile, String tablename,
+                                     boolean preserveSplits) throws Exception {
+        new OperationHandle<Void>("truncate " + tablename).execute(truncateTask(profile, tablename, preserveSplits));
+    }
+
+    /**
+     * 在后台清空表。disable之后、truncate之前检查取消，此时取消会把表重新enable；truncate提交后由服务端执行完，取消只是不再等待
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @param preserveSplits
+     * @return
+     */
+    public static OperationHandle<Void> truncateTableAsync(ClusterProfile profile, String tablename,
+                                                           boolean preserveSplits) {
+        return OperationHandle.submit("truncate " + tablename, truncateTask(profile, tablename, preserveSplits));
+    }
+
+    private static OperationHandle.Task<Void> truncateTask(final ClusterProfile profile, final String tablename,
+                                                           final boolean preserveSplits) {
+        return new OperationHandle.Task<Void>() {
+
+            @Override
+            public Void run(OperationHandle<Void> handle) throws Exception {
+                Admin hBaseAdmin = null;
+                TableName hbaseTableName = TableName.valueOf(tablename);
+                boolean truncated = false;
+                try {
+                    Connection connection = getConn(profile);
+                    hBaseAdmin = connection.getAdmin();
+                    hBaseAdmin.disableTable(hbaseTableName);
+                    handle.checkCancelled();
+                    hBaseAdmin.truncateTable(hbaseTableName, preserveSplits);
+                    truncated = true;
+                    PageIndexBuilder.invalidate(profile.getName(), tablename);
+                    invalidateResultCache(tablename);
+                    if (hBaseAdmin.isTableDisabled(hbaseTableName)) {
+                        hBaseAdmin.enableTable(hbaseTableName);
+                    }
+                } finally {
+                    if (hBaseAdmin != null && !truncated) {
+                        // disable之后被取消或失败，表没有清空，恢复成可用状态；取消时先清除中断标记，否则enable也会被中断
+                        if (handle.isCancelled()) {
+                            Thread.interrupted();
+                        }
+                        try {
+                            if (hBaseAdmin.isTableDisabled(hbaseTableName)) {
+                                hBaseAdmin.enableTable(hbaseTableName);
+                            }
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    if (hBaseAdmin != null) {
+                        try {
+                            hBaseAdmin.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * 获取表结构
+     * 
+     * @param tablename
+     * @return
+     */
+    public static HTableDescriptor getDescribe(TableName tablename) throws Exception {
+        return getDescribe(DEFAULT_PROFILE, tablename);
+    }
+
+    /**
+     * 获取表结构
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @return
+     */
+    public static HTableDescriptor getDescribe(ClusterProfile profile, TableName tablename) throws Exception {
+        Table table = null;
+        try {
+            Connection connection = getConn(profile);
+            table = connection.getTable(tablename);
+            return table.getTableDescriptor();
+
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static List<HbaseQualifier> getTableQualifiers(String tableName) throws Exception {
+        return getTableQualifiers(DEFAULT_PROFILE, tableName);
+    }
+
+    public static List<HbaseQualifier> getTableQualifiers(ClusterProfile profile, String tableName) throws Exception {
+        HBasePageModel dataModel = new HBasePageModel(1, tableName);
+        dataModel = HbaseUtil.scanResultByPageFilter(profile, tableName, null, null, null, Integer.MAX_VALUE, dataModel,
+                                                     true, null);
+
+        List<HbaseQualifier> result = new ArrayList<>();
+
+        for (int i = 0; i < dataModel.getRowList().size(); i++) {
+            Row row = dataModel.getRowList().get(i);
+            Set<Map.Entry<byte[], ColumnFamily>> columnSet = row.getColumnFamilys().entrySet();// 所有列族
+            for (Iterator iterator = columnSet.iterator(); iterator.hasNext();) {
+                Entry<byte[], ColumnFamily> entry = (Entry<byte[], ColumnFamily>) iterator.next();// 某个列族的所有列
+                for (Entry<byte[], QualifierValue> column : entry.getValue().getColumns().entrySet()) {
+                    result.add(new HbaseQualifier(entry.getKey(), column.getKey(), "string"));
+                }
+
+            }
+        }
+
+        return result;
+
+    }
+
+    /**
+     * 分页查看一个单元格的历史版本，按时间戳从新到旧返回。<br>
+     * 每次只传输limit个版本；翻下一页时把本页最后一个版本的时间戳作为beforeStamp传入
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致
+     * @param minStamp 最早时间戳(包含)，0表示不限制
+     * @param beforeStamp 只返回早于此时间戳的版本，0表示从最新版本开始
+     * @param limit 每页版本数
+     * @return
+     * @throws Exception
+     */
+    public static List<CellVersion> getCellHistory(ClusterProfile profile, String tableName, byte[] rowKey,
+                                                   byte[] family, byte[] qualifier, String type, long minStamp,
+                                                   long beforeStamp, int limit) throws Exception {
+        Table table = null;
+        try {
+            Connection connection = getConn(profile);
+            table = connection.getTable(TableName.valueOf(tableName));
+            Get get = new Get(RowKeyCodecs.get(connection, TableName.valueOf(tableName)).encode(rowKey));
+            get.addColumn(family, qualifier);
+            get.setTimeRange(minStamp, beforeStamp > 0 ? beforeStamp : Long.MAX_VALUE);
+            get.setMaxVersions(limit);
+            List<CellVersion> result = new ArrayList<>();
+            for (Cell c : table.get(get).rawCells()) {
+                result.add(new CellVersion(family, qualifier, c.getTimestamp(),
+                                           getDisplayValue(type, CellUtil.cloneValue(c))));
+            }
+            return result;
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 分页查看一个列族下多个列的历史版本。<br>
+     * 先用ColumnPaginationFilter取出本页的列名(只传输key)，再只对这些列读取最多versionsPerColumn个版本。<br>
+     * 返回结果按列名排序，同一列内按时间戳从新到旧
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rowKey 行键
+     * @param family 列族
+     * @param columnOffset 列偏移量
+     * @param columnLimit 每页列数
+     * @param versionsPerColumn 每列最多返回的版本数
+     * @param minStamp 最早时间戳(包含)，0表示不限制
+     * @param maxStamp 最晚时间戳(不包含)，0表示不限制
+     * @param typeMapping 列类型映射
+     * @return
+     * @throws Exception
+     */
+    public static List<CellVersion> getFamilyHistory(ClusterProfile profile, String tableName, byte[] rowKey,
+                                                     byte[] family, int columnOffset, int columnLimit,
+                                                     int versionsPerColumn, long minStamp, long maxStamp,
+                                                     Map<String, String> typeMapping) throws Exception {
+        Table table = null;
+        try {
+            Connection connection = getConn(profile);
+            table = connection.getTable(TableName.valueOf(tableName));
+            long max = maxStamp > 0 ? maxStamp : Long.MAX_VALUE;
+            byte[] physicalRowKey = RowKeyCodecs.get(connection, TableName.valueOf(tableName)).encode(rowKey);
+
+            Get columnGet = new Get(physicalRowKey);
+            columnGet.addFamily(family);
+            columnGet.setTimeRange(minStamp, max);
+            columnGet.setFilter(new FilterList(new ColumnPaginationFilter(columnLimit, columnOffset),
+                                               new KeyOnlyFilter()));
+            Result columns = table.get(columnGet);
+            List<CellVersion> result = new ArrayList<>();
+            if (columns.isEmpty()) {
+                return result;
+            }
+
+            Get versionGet = new Get(physicalRowKey);
+            for (Cell c : columns.rawCells()) {
+                versionGet.addColumn(family, CellUtil.cloneQualifier(c));
+            }
+            versionGet.setTimeRange(minStamp, max);
+            versionGet.setMaxVersions(versionsPerColumn);
+            for (Cell c : table.get(versionGet).rawCells()) {
+                byte[] qualifier = CellUtil.cloneQualifier(c);
+                String type = typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                                           + Bytes.toString(qualifier));
+                result.add(new CellVersion(family, qualifier, c.getTimestamp(),
+                                           getDisplayValue(type, CellUtil.cloneValue(c))));
+            }
+            return result;
+        } finally {
+            try {
+                table.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static String getClusterStatus() throws Exception {
+        return getClusterStatus(DEFAULT_PROFILE);
+    }
+
+    public static String getClusterStatus(ClusterProfile profile) throws Exception {
+        Admin admin = null;
         try {
-            TableName hbaseTableName = TableName.valueOf(tablename);
-            Connection connection = getConn();
-            table = connection.getTable(hbaseTableName);
-            List<Delete> list = new ArrayList<Delete>();
-            for (String item : rowkey) {
-                list.add(new Delete(item.getBytes()));
-            }
-
-            table.delete(list);
+            Connection connection = getConn(profile);
+            admin = connection.getAdmin();
+            return admin.getClusterStatus().toString();
 
         } finally {
             try {
-                table.close();
+                admin.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
-
     }
 
     /**
-     * 列出所有表名称
+     * 获取集群状态的结构化数据，单次采样没有速率信息
      * 
+     * @param profile 集群
      * @return
+     * @throws Exception
      */
-    public static String[] getListTableNames() throws Exception {
+    public static ClusterStats getClusterStats(ClusterProfile profile) throws Exception {
         Admin admin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             admin = connection.getAdmin();
-            TableName[] tables = admin.listTableNames();
-
-            String[] result = new String[tables.length];
-            for (int i = 0; i < tables.length; i++) {
-                result[i] = tables[i].getNameAsString();
-            }
-            return result;
+            return ClusterStatsSampler.snapshot(admin.getClusterStatus());
         } finally {
             try {
                 admin.close();
@@ -478,150 +1799,453 @@ public class HbaseUtil {
                 e.printStackTrace();
             }
         }
+    }
+
+    /**
+     * 开始后台采样集群状态，不再需要时调用close停止
+     * 
+     * @param profile 集群
+     * @param interval 采样间隔(毫秒)
+     * @param historySize 保留的采样次数
+     * @return
+     * @throws Exception
+     */
+    public static ClusterStatsSampler startStatsSampler(ClusterProfile profile, long interval,
+                                                        int historySize) throws Exception {
+        ConnectionRegistry.Lease lease = ConnectionRegistry.acquire(profile);
+        ClusterStatsSampler sampler = new ClusterStatsSampler(lease.getConnection(), interval, historySize);
+        sampler.holdLease(lease);
+        sampler.start();
+        return sampler;
+    }
 
+    /**
+     * 分析表的读写热点，没有正在运行的采样器时会等待HotspotDetector.DEFAULT_RATE_WINDOW毫秒采样两次
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @return
+     * @throws Exception
+     */
+    public static HotspotReport analyzeHotspots(ClusterProfile profile, String tableName) throws Exception {
+        return new HotspotDetector(getConn(profile), TableName.valueOf(tableName)).analyze();
     }
 
     /**
-     * 删除表
+     * 计算表数据总数
      * 
      * @param tablename
-     * @throws IOException
+     * @return
      */
-    public static void dropTable(String tablename) throws Exception {
+    public static long rowCount(String tableName) throws Exception {
+        return rowCount(DEFAULT_PROFILE, tableName);
+    }
 
-        Admin hBaseAdmin = null;
-        try {
-            TableName hbaseTableName = TableName.valueOf(tablename);
-            Connection connection = getConn();
-            hBaseAdmin = connection.getAdmin();
-            hBaseAdmin.disableTable(hbaseTableName);
-            hBaseAdmin.deleteTable(hbaseTableName);
-        } finally {
-            if (hBaseAdmin != null) {
+    /**
+     * 计算表数据总数
+     * 
+     * @param profile 集群
+     * @param tablename
+     * @return
+     */
+    public static long rowCount(ClusterProfile profile, String tableName) throws Exception {
+        return new OperationHandle<Long>("rowCount " + tableName).execute(rowCountTask(profile, tableName));
+    }
+
+    /**
+     * 在后台计算表数据总数，按region依次扫描，句柄上可以查看已完成的region数和吞吐量，取消时立即关闭扫描器
+     * 
+     * @param profile 集群
+     * @param tableName
+     * @return
+     */
+    public static OperationHandle<Long> rowCountAsync(ClusterProfile profile, String tableName) {
+        return OperationHandle.submit("rowCount " + tableName, rowCountTask(profile, tableName));
+    }
+
+    private static OperationHandle.Task<Long> rowCountTask(final ClusterProfile profile, final String tableName) {
+        return new OperationHandle.Task<Long>() {
+
+            @Override
+            public Long run(OperationHandle<Long> handle) throws Exception {
+                Table table = null;
+                long rowCount = 0;
                 try {
-                    hBaseAdmin.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+                    TableName hbaseTableName = TableName.valueOf(tableName);
+                    Connection connection = getConn(profile);
+                    table = connection.getTable(hbaseTableName);
+                    List<Pair<byte[], byte[]>> ranges = regionRanges(connection, hbaseTableName,
+                                                                     HConstants.EMPTY_START_ROW,
+                                                                     HConstants.EMPTY_END_ROW);
+                    handle.setRegionCount(ranges.size());
+                    Throttle throttle = ThrottleManager.get(Operation.COUNT, tableName);
+                    for (Pair<byte[], byte[]> range : ranges) {
+                        Scan scan = new Scan(range.getFirst(), range.getSecond());
+                        scan.setFilter(new FirstKeyOnlyFilter());
+                        scan.setCaching(1000);
+                        scan.setCacheBlocks(false);
+                        ThrottledScanner resultScanner = new ThrottledScanner(handle.track(table.getScanner(scan)),
+                                                                              throttle, scan.getCaching());
+                        try {
+                            Result result;
+                            while ((result = resultScanner.next()) != null) {
+                                rowCount += result.size();
+                            }
+                        } finally {
+                            resultScanner.close();
+                        }
+                        handle.regionDone();
+                    }
+                } finally {
+                    try {
+                        if (table != null) {
+                            table.close();
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
                 }
+                return rowCount;
             }
-        }
+        };
     }
 
     /**
-     * 清空表
+     * 按region并行统计满足条件的行数，只传输行键。表加载了AggregateImplementation协处理器时由RegionServer计数
      * 
-     * @param tablename
-     * @param preserveSplits
+     * @param profile 集群
+     * @param tableName 表名
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件，和scanResultByPageFilter一致
+     * @return
+     * @throws Exception
      */
-    public static void truncateTable(String tablename, boolean preserveSplits) throws Exception {
+    public static AggregateResult countRows(ClusterProfile profile, String tableName, byte[] startRowKey,
+                                            byte[] endRowKey, List<Object> filtersObj) throws Exception {
+        Aggregator aggregator = new Aggregator(getConn(profile), TableName.valueOf(tableName));
+        aggregator.setUseCoprocessor(true, ConnectionRegistry.getConfiguration(profile));
+        return aggregator.count(startRowKey, endRowKey, filtersObj);
+    }
 
-        Admin hBaseAdmin = null;
-        try {
-            TableName hbaseTableName = TableName.valueOf(tablename);
-            Connection connection = getConn();
-            hBaseAdmin = connection.getAdmin();
-            hBaseAdmin.disableTable(hbaseTableName);
-            hBaseAdmin.truncateTable(hbaseTableName, preserveSplits);
-            hBaseAdmin.enableTable(hbaseTableName);
-        } finally {
-            if (hBaseAdmin != null) {
-                try {
-                    hBaseAdmin.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+    /**
+     * 按region并行统计满足条件的行中某一列的count/sum/min/max/avg，只读取目标列并直接按类型解码累加
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param filtersObj 过滤条件，和scanResultByPageFilter一致
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致
+     * @return
+     * @throws Exception
+     */
+    public static AggregateResult aggregate(ClusterProfile profile, String tableName, byte[] startRowKey,
+                                            byte[] endRowKey, List<Object> filtersObj, byte[] family,
+                                            byte[] qualifier, String type) throws Exception {
+        return new Aggregator(getConn(profile), TableName.valueOf(tableName)).aggregate(startRowKey, endRowKey,
+                                                                                       filtersObj, family,
+                                                                                       qualifier, type);
+    }
+
+    /**
+     * 统计列的不同值个数、高频值、分位数和直方图。maxAge毫秒内统计过的列直接返回缓存的结果
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致
+     * @param sampleChance 行抽样比例，1表示全表扫描
+     * @param maxAge 缓存有效期(毫秒)，小于等于0时总是重新统计
+     * @return
+     * @throws Exception
+     */
+    public static ColumnProfile profileColumn(ClusterProfile profile, String tableName, byte[] family,
+                                              byte[] qualifier, String type, float sampleChance,
+                                              long maxAge) throws Exception {
+        if (maxAge > 0) {
+            ColumnProfile cached = ColumnProfiler.getCached(profile.getName(), tableName, family, qualifier);
+            if (cached != null && System.currentTimeMillis() - cached.getTimestamp() < maxAge) {
+                return cached;
             }
         }
+        ColumnProfiler profiler = new ColumnProfiler(getConn(profile), TableName.valueOf(tableName));
+        profiler.setCacheScope(profile.getName());
+        profiler.setSampleChance(sampleChance);
+        return profiler.profile(family, qualifier, type);
     }
 
     /**
-     * 获取表结构
+     * 构建表的近似分页索引，用于跳到任意页或者任意比例的位置。maxAge毫秒内构建过的直接返回缓存的索引
      * 
-     * @param tablename
+     * @param profile 集群
+     * @param tableName 表名
+     * @param sampleChance 行抽样比例，1表示读取全部行键
+     * @param maxAge 缓存有效期(毫秒)，小于等于0时总是重新构建
      * @return
+     * @throws Exception
      */
-    public static HTableDescriptor getDescribe(TableName tablename) throws Exception {
-        Table table = null;
-        try {
-            Connection connection = getConn();
-            table = connection.getTable(tablename);
-            return table.getTableDescriptor();
-
-        } finally {
-            try {
-                table.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+    public static PageIndex buildPageIndex(ClusterProfile profile, String tableName, float sampleChance,
+                                           long maxAge) throws Exception {
+        if (maxAge > 0) {
+            PageIndex cached = PageIndexBuilder.getCached(profile.getName(), tableName);
+            if (cached != null && System.currentTimeMillis() - cached.getTimestamp() < maxAge) {
+                return cached;
             }
         }
+        return pageIndexBuilder(profile, tableName, sampleChance).build();
     }
 
-    public static List<HbaseQualifier> getTableQualifiers(String tableName) throws Exception {
-        HBasePageModel dataModel = new HBasePageModel(1, tableName);
-        dataModel = HbaseUtil.scanResultByPageFilter(tableName, null, null, null, Integer.MAX_VALUE, dataModel, true,
-                                                     null);
+    /**
+     * 在后台构建表的近似分页索引，构建完成前可以先用getPageIndex获取上一次的结果
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param sampleChance 行抽样比例，1表示读取全部行键
+     * @return
+     * @throws Exception
+     */
+    public static Future<PageIndex> buildPageIndexAsync(ClusterProfile profile, String tableName,
+                                                        float sampleChance) throws Exception {
+        return pageIndexBuilder(profile, tableName, sampleChance).buildAsync();
+    }
 
-        List<HbaseQualifier> result = new ArrayList<>();
+    /**
+     * 获取缓存的分页索引，没有构建过时返回null
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @return
+     */
+    public static PageIndex getPageIndex(ClusterProfile profile, String tableName) {
+        return PageIndexBuilder.getCached(profile.getName(), tableName);
+    }
 
-        for (int i = 0; i < dataModel.getRowList().size(); i++) {
-            Row row = dataModel.getRowList().get(i);
-            Set<Map.Entry<byte[], ColumnFamily>> columnSet = row.getColumnFamilys().entrySet();// 所有列族
-            for (Iterator iterator = columnSet.iterator(); iterator.hasNext();) {
-                Entry<byte[], ColumnFamily> entry = (Entry<byte[], ColumnFamily>) iterator.next();// 某个列族的所有列
-                for (Entry<byte[], QualifierValue> column : entry.getValue().getColumns().entrySet()) {
-                    result.add(new HbaseQualifier(entry.getKey(), column.getKey(), "string"));
-                }
+    private static PageIndexBuilder pageIndexBuilder(ClusterProfile profile, String tableName,
+                                                     float sampleChance) throws Exception {
+        PageIndexBuilder builder = new PageIndexBuilder(getConn(profile), TableName.valueOf(tableName));
+        builder.setCacheScope(profile.getName());
+        builder.setSampleChance(sampleChance);
+        return builder;
+    }
 
-            }
-        }
+    /**
+     * 在列上声明二级索引并补建已有数据的索引。之后通过insertData/batchInsertData/parallelBatchInsertData写入时自动维护索引。<br>
+     * 补建要等其他客户端刷新索引声明以后才开始，至少阻塞IndexManager.BUILD_DELAY
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致
+     * @param parallelism 补建索引的并行度
+     * @return
+     * @throws Exception
+     */
+    public static SecondaryIndex createIndex(ClusterProfile profile, String tableName, byte[] family, byte[] qualifier,
+                                             String type, int parallelism) throws Exception {
+        Connection connection = getConn(profile);
+        SecondaryIndex index = IndexManager.createIndex(connection, TableName.valueOf(tableName), family, qualifier,
+                                                        type);
+        IndexManager.buildIndex(connection, index, parallelism);
+        return index;
+    }
 
-        return result;
+    /**
+     * 删除二级索引和索引表
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param family 列族
+     * @param qualifier 列名
+     * @throws Exception
+     */
+    public static void dropIndex(ClusterProfile profile, String tableName, byte[] family,
+                                 byte[] qualifier) throws Exception {
+        IndexManager.dropIndex(getConn(profile), TableName.valueOf(tableName), family, qualifier);
+    }
+
+    /**
+     * 获取表上声明的二级索引
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @return
+     * @throws Exception
+     */
+    public static List<SecondaryIndex> listIndexes(ClusterProfile profile, String tableName) throws Exception {
+        return IndexManager.getIndexes(getConn(profile), TableName.valueOf(tableName));
+    }
 
+    /**
+     * 通过二级索引查询，操作符和FilterFactory.getCompareOpSimpleList一致(不支持≠)，值的格式和createSingleColumnValueFilter一致
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param family 列族
+     * @param qualifier 列名
+     * @param compareOpSimple 操作符
+     * @param value 比较值
+     * @param typeMapping 列类型映射
+     * @param limit 最多返回的行数
+     * @return
+     * @throws Exception 列上没有索引
+     */
+    public static List<Row> indexLookup(ClusterProfile profile, String tableName, byte[] family, byte[] qualifier,
+                                        String compareOpSimple, String value, Map<String, String> typeMapping,
+                                        int limit) throws Exception {
+        Connection connection = getConn(profile);
+        SecondaryIndex index = IndexManager.getIndex(connection, TableName.valueOf(tableName), family, qualifier);
+        if (index == null) {
+            throw new Exception(tableName + " has no index on " + Bytes.toString(family) + ":"
+                                + Bytes.toString(qualifier));
+        }
+        return IndexManager.lookup(connection, index, compareOpSimple, value, typeMapping, limit);
     }
 
-    public static String getClusterStatus() throws Exception {
-        Admin admin = null;
+    /**
+     * 增量拉取表的变更，返回已经开始后台轮询的ChangeFeedTailer，不再需要时调用close停止
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param checkpointFile 检查点文件，为null时不持久化，每次从当前时间开始
+     * @param typeMapping 列类型映射
+     * @param listener 变更回调
+     * @return
+     * @throws Exception
+     */
+    public static ChangeFeedTailer tailChanges(ClusterProfile profile, String tableName, byte[] startRowKey,
+                                               byte[] endRowKey, String checkpointFile,
+                                               Map<String, String> typeMapping,
+                                               ChangeFeedTailer.ChangeListener listener) throws Exception {
+        ConnectionRegistry.Lease lease = ConnectionRegistry.acquire(profile);
+        ChangeFeedTailer tailer;
         try {
-            Connection connection = getConn();
-            admin = connection.getAdmin();
-            return admin.getClusterStatus().toString();
+            tailer = new ChangeFeedTailer(lease.getConnection(), TableName.valueOf(tableName), startRowKey, endRowKey,
+                                          checkpointFile == null ? null : new File(checkpointFile),
+                                          System.currentTimeMillis(), typeMapping, listener);
+        } catch (Exception e) {
+            lease.close();
+            throw e;
+        }
+        tailer.holdLease(lease);
+        tailer.start();
+        return tailer;
+    }
 
-        } finally {
-            try {
-                admin.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * 复制表或表的一段范围到另一张表，目标表可以在另一个集群，目标表不存在时按源表结构创建
+     * 
+     * @param sourceProfile 源集群
+     * @param sourceTable 源表
+     * @param targetProfile 目标集群
+     * @param targetTable 目标表
+     * @param startRowKey 起始行，为null时从表头开始
+     * @param endRowKey 结束行(不包含)，为null时到表尾
+     * @param parallelism 并行度
+     * @param bytesPerSecond 读取速度上限(字节/秒)，小于等于0时不限速
+     * @param checkpointFile 检查点文件，为null时不记录进度
+     * @return
+     * @throws Exception
+     */
+    public static CopyReport copyTable(ClusterProfile sourceProfile, String sourceTable, ClusterProfile targetProfile,
+                                       String targetTable, byte[] startRowKey, byte[] endRowKey, int parallelism,
+                                       long bytesPerSecond, String checkpointFile) throws Exception {
+        OperationHandle.Task<CopyReport> task = copyTask(sourceProfile, sourceTable, targetProfile, targetTable,
+                                                         startRowKey, endRowKey, parallelism, bytesPerSecond,
+                                                         checkpointFile);
+        return new OperationHandle<CopyReport>("copy " + sourceTable + " -> " + targetTable).execute(task);
+    }
+
+    /**
+     * 在后台复制表，参数和copyTable一致。取消后已完成的范围保留在检查点文件中，可以用同一个检查点文件继续
+     * 
+     * @return
+     */
+    public static OperationHandle<CopyReport> copyTableAsync(ClusterProfile sourceProfile, String sourceTable,
+                                                             ClusterProfile targetProfile, String targetTable,
+                                                             byte[] startRowKey, byte[] endRowKey, int parallelism,
+                                                             long bytesPerSecond, String checkpointFile) {
+        return OperationHandle.submit("copy " + sourceTable + " -> " + targetTable,
+                                      copyTask(sourceProfile, sourceTable, targetProfile, targetTable, startRowKey,
+                                               endRowKey, parallelism, bytesPerSecond, checkpointFile));
+    }
+
+    /**
+     * 复制期间持有源集群和目标集群连接的租约，连接不会被空闲回收
+     */
+    private static OperationHandle.Task<CopyReport> copyTask(final ClusterProfile sourceProfile,
+                                                             final String sourceTable,
+                                                             final ClusterProfile targetProfile,
+                                                             final String targetTable, final byte[] startRowKey,
+                                                             final byte[] endRowKey, final int parallelism,
+                                                             final long bytesPerSecond, final String checkpointFile) {
+        return new OperationHandle.Task<CopyReport>() {
+
+            @Override
+            public CopyReport run(OperationHandle<CopyReport> handle) throws Exception {
+                ConnectionRegistry.Lease sourceLease = ConnectionRegistry.acquire(sourceProfile);
+                ConnectionRegistry.Lease targetLease = null;
+                try {
+                    targetLease = ConnectionRegistry.acquire(targetProfile);
+                    TableCopier copier = new TableCopier(sourceLease.getConnection(), TableName.valueOf(sourceTable),
+                                                         targetLease.getConnection(), TableName.valueOf(targetTable));
+                    copier.setRange(startRowKey, endRowKey);
+                    copier.setParallelism(parallelism);
+                    copier.setBytesPerSecond(bytesPerSecond);
+                    copier.setCheckpointFile(checkpointFile == null ? null : new File(checkpointFile));
+                    return copier.copy(handle);
+                } finally {
+                    if (targetLease != null) {
+                        targetLease.close();
+                    }
+                    sourceLease.close();
+                }
             }
-        }
+        };
     }
 
     /**
-     * 计算表数据总数
+     * 打开表的快照读取器，数据直接从HFile读取，不经过RegionServer。用完后必须close
      * 
-     * @param tablename
+     * @param profile 集群
+     * @param tableName 表名
+     * @param snapshotName 快照名称，已存在时复用，为null时自动创建
+     * @param rootDir 集群的hbase.rootdir，例如hdfs://namenode:8020/hbase
+     * @param restoreDir 快照恢复目录，必须和rootDir在同一个文件系统上，并且不能在rootDir下面
      * @return
+     * @throws Exception
      */
-    public static long rowCount(String tableName) throws Exception {
-        Table table = null;
-        long rowCount = 0;
+    public static SnapshotReader openSnapshotReader(ClusterProfile profile, String tableName, String snapshotName,
+                                                    String rootDir, String restoreDir) throws Exception {
+        return new SnapshotReader(ConnectionRegistry.getConfiguration(profile), getConn(profile),
+                                  TableName.valueOf(tableName), snapshotName, new Path(rootDir), new Path(restoreDir));
+    }
+
+    /**
+     * 基于快照按region并行计算表数据总数，不占用RegionServer的读资源。计算完成后删除本次创建的快照
+     * 
+     * @param profile 集群
+     * @param tableName 表名
+     * @param rootDir 集群的hbase.rootdir
+     * @param restoreDir 快照恢复目录
+     * @return
+     * @throws Exception
+     */
+    public static long snapshotRowCount(ClusterProfile profile, String tableName, String rootDir,
+                                        String restoreDir) throws Exception {
+        SnapshotReader reader = openSnapshotReader(profile, tableName, null, rootDir, restoreDir);
         try {
-            TableName hbaseTableName = TableName.valueOf(tableName);
-            Connection connection = getConn();
-            table = connection.getTable(hbaseTableName);
-            Scan scan = new Scan();
-            scan.setFilter(new FirstKeyOnlyFilter());
-            ResultScanner resultScanner = table.getScanner(scan);
-            for (Result result : resultScanner) {
-                rowCount += result.size();
-            }
+            reader.setDeleteSnapshotOnClose(true);
+            return reader.rowCount(SnapshotReader.DEFAULT_PARALLELISM);
         } finally {
-            try {
-                table.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            reader.close();
         }
-        return rowCount;
     }
 
     /**
@@ -631,10 +2255,20 @@ public class HbaseUtil {
      * @throws Exception
      */
     public static Vector<String> listNameSpace() throws Exception {
+        return listNameSpace(DEFAULT_PROFILE);
+    }
+
+    /**
+     * 获取所有的namespace
+     * 
+     * @return
+     * @throws Exception
+     */
+    public static Vector<String> listNameSpace(ClusterProfile profile) throws Exception {
         Vector<String> result = new Vector<>();
         Admin admin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             admin = connection.getAdmin();
             NamespaceDescriptor[] namespaces = admin.listNamespaceDescriptors();
             for (NamespaceDescriptor item : namespaces) {
@@ -651,9 +2285,13 @@ public class HbaseUtil {
     }
 
     public static void createNameSpace(String name) throws Exception {
+        createNameSpace(DEFAULT_PROFILE, name);
+    }
+
+    public static void createNameSpace(ClusterProfile profile, String name) throws Exception {
         Admin admin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             admin = connection.getAdmin();
             admin.createNamespace(NamespaceDescriptor.create(name).build());
         } finally {
@@ -666,9 +2304,13 @@ public class HbaseUtil {
     }
 
     public static void deleteNameSpace(String name) throws Exception {
+        deleteNameSpace(DEFAULT_PROFILE, name);
+    }
+
+    public static void deleteNameSpace(ClusterProfile profile, String name) throws Exception {
         Admin admin = null;
         try {
-            Connection connection = getConn();
+            Connection connection = getConn(profile);
             admin = connection.getAdmin();
             admin.deleteNamespace(name);
         } finally {
@@ -0,0 +1,332 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.ClusterStats;
+import com.lm.hbase.adapter.entity.HotspotReport;
+import com.lm.hbase.adapter.entity.HotspotReport.KeyRangeHeat;
+import com.lm.hbase.adapter.entity.HotspotReport.RegionHeat;
+import com.lm.hbase.adapter.entity.RegionStats;
+
+/**
+ * 表热点分析。<br>
+ * 1.用两次ClusterStatus采样之差计算表中每个region的读写速率，按速率排序并计算相对平均值的倍数；<br>
+ * 2.对速率最高的若干region用RandomRowFilter随机抽样行键(只传输key)，把region的键空间按行键前缀等分成buckets段统计抽样分布，
+ * region速率按各段抽样占比分摊，得到热点键范围和热力图数据。<br>
+ * recentWindow大于0时只抽样最近recentWindow毫秒内写入的行，抽样分布反映的是写入分布，单调递增行键造成的写热点会集中在最后几段；
+ * 为0时抽样全部数据，反映的是存量数据分布。
+ *
+ * @version 1.0
+ */
+public class HotspotDetector {
+
+    public static final long   DEFAULT_RATE_WINDOW   = 10000;
+
+    public static final long   DEFAULT_RECENT_WINDOW = 10 * 60 * 1000L;
+
+    private final Connection   connection;
+    private final TableName    tableName;
+    private ClusterStatsSampler sampler               = null;
+    private long               rateWindow            = DEFAULT_RATE_WINDOW;
+    private long               recentWindow          = DEFAULT_RECENT_WINDOW;
+    private int                topRegions            = 10;
+    private int                buckets               = 32;
+    private float              sampleChance          = 0.01f;
+    private int                minSamples            = 200;
+    private int                maxSamples            = 5000;
+    private int                topKeyRanges          = 20;
+
+    public HotspotDetector(Connection connection, TableName tableName){
+        this.connection = connection;
+        this.tableName = tableName;
+    }
+
+    /**
+     * 使用已经在运行的采样器的最近两次采样计算速率，不设置时分析过程中等待rateWindow毫秒自行采样
+     * 
+     * @param sampler
+     */
+    public void setSampler(ClusterStatsSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    public void setRateWindow(long rateWindow) {
+        this.rateWindow = rateWindow;
+    }
+
+    public void setRecentWindow(long recentWindow) {
+        this.recentWindow = recentWindow;
+    }
+
+    /**
+     * 抽样行键的region数，按速率从高到低选取
+     * 
+     * @param topRegions
+     */
+    public void setTopRegions(int topRegions) {
+        this.topRegions = topRegions;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * 初始抽样概率，抽样数不足minSamples时逐次放大10倍重试
+     * 
+     * @param sampleChance
+     */
+    public void setSampleChance(float sampleChance) {
+        this.sampleChance = sampleChance;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public void setMaxSamples(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    public void setTopKeyRanges(int topKeyRanges) {
+        this.topKeyRanges = topKeyRanges;
+    }
+
+    public HotspotReport analyze() throws Exception {
+        List<HRegionInfo> regionInfos = new ArrayList<>();
+        Map<String, String> servers = new HashMap<>();
+        RegionLocator locator = connection.getRegionLocator(tableName);
+        try {
+            for (HRegionLocation location : locator.getAllRegionLocations()) {
+                regionInfos.add(location.getRegionInfo());
+                servers.put(Bytes.toStringBinary(location.getRegionInfo().getRegionName()),
+                            location.getServerName() == null ? null : location.getServerName().getServerName());
+            }
+        } finally {
+            locator.close();
+        }
+        Collections.sort(regionInfos);
+
+        ClusterStats stats = rates();
+        Map<String, RegionStats> regionStats = new HashMap<>();
+        for (RegionStats region : stats.getRegions()) {
+            regionStats.put(region.getRegionName(), region);
+        }
+
+        HotspotReport report = new HotspotReport(tableName.getNameAsString());
+        report.setRateWindow(stats.getInterval());
+        report.setBuckets(buckets);
+        double total = 0;
+        for (HRegionInfo info : regionInfos) {
+            String name = Bytes.toStringBinary(info.getRegionName());
+            RegionHeat heat = new RegionHeat();
+            heat.setRegionName(name);
+            heat.setServerName(servers.get(name));
+            heat.setStartKey(info.getStartKey());
+            heat.setEndKey(info.getEndKey());
+            RegionStats load = regionStats.get(name);
+            if (load != null) {
+                heat.setReadRate(load.getReadRate());
+                heat.setWriteRate(load.getWriteRate());
+            }
+            total += heat.getRequestRate();
+            report.getHeatmapRows().add(heat);
+        }
+        report.setTotalRate(total);
+        double mean = regionInfos.isEmpty() ? 0 : total / regionInfos.size();
+        for (RegionHeat heat : report.getHeatmapRows()) {
+            heat.setShare(total > 0 ? heat.getRequestRate() / total : 0);
+            heat.setSkew(mean > 0 ? heat.getRequestRate() / mean : 0);
+        }
+        report.getRegions().addAll(report.getHeatmapRows());
+        Collections.sort(report.getRegions(), new Comparator<RegionHeat>() {
+
+            @Override
+            public int compare(RegionHeat o1, RegionHeat o2) {
+                return Double.compare(o2.getRequestRate(), o1.getRequestRate());
+            }
+        });
+
+        double[][] heatmap = new double[report.getHeatmapRows().size()][buckets];
+        List<RegionHeat> sampled = report.getRegions().subList(0, Math.min(topRegions, report.getRegions().size()));
+        for (int row = 0; row < report.getHeatmapRows().size(); row++) {
+            RegionHeat heat = report.getHeatmapRows().get(row);
+            if (!sampled.contains(heat) || heat.getRequestRate() <= 0) {
+                // 没有抽样的region速率平均分摊
+                for (int b = 0; b < buckets; b++) {
+                    heatmap[row][b] = heat.getRequestRate() / buckets;
+                }
+                continue;
+            }
+            List<byte[]> keys = sampleKeys(heat.getStartKey(), heat.getEndKey());
+            heat.setSamples(keys.size());
+            if (keys.isEmpty()) {
+                for (int b = 0; b < buckets; b++) {
+                    heatmap[row][b] = heat.getRequestRate() / buckets;
+                }
+                continue;
+            }
+            KeyRangeHeat[] ranges = histogram(heat, keys);
+            for (int b = 0; b < buckets; b++) {
+                if (ranges[b] != null) {
+                    heatmap[row][b] = ranges[b].getEstimatedRate();
+                    report.getHotKeyRanges().add(ranges[b]);
+                }
+            }
+        }
+        report.setHeatmap(heatmap);
+        Collections.sort(report.getHotKeyRanges(), new Comparator<KeyRangeHeat>() {
+
+            @Override
+            public int compare(KeyRangeHeat o1, KeyRangeHeat o2) {
+                return Double.compare(o2.getEstimatedRate(), o1.getEstimatedRate());
+            }
+        });
+        if (report.getHotKeyRanges().size() > topKeyRanges) {
+            report.getHotKeyRanges().subList(topKeyRanges, report.getHotKeyRanges().size()).clear();
+        }
+        return report;
+    }
+
+    /**
+     * 取两次采样计算速率
+     */
+    private ClusterStats rates() throws Exception {
+        if (sampler != null) {
+            List<ClusterStats> history = sampler.getHistory();
+            if (history.size() >= 2) {
+                return history.get(history.size() - 1);
+            }
+        }
+        ClusterStats first = snapshot();
+        Thread.sleep(rateWindow);
+        ClusterStats second = snapshot();
+        ClusterStatsSampler.computeRates(first, second);
+        return second;
+    }
+
+    private ClusterStats snapshot() throws IOException {
+        Admin admin = connection.getAdmin();
+        try {
+            return ClusterStatsSampler.snapshot(admin.getClusterStatus());
+        } finally {
+            admin.close();
+        }
+    }
+
+    /**
+     * 随机抽样region内的行键，抽样数不足时放大抽样概率重试
+     */
+    private List<byte[]> sampleKeys(byte[] startKey, byte[] endKey) throws IOException {
+        float chance = sampleChance;
+        List<byte[]> keys = new ArrayList<>();
+        Table table = connection.getTable(tableName);
+        try {
+            while (true) {
+                keys.clear();
+                Scan scan = new Scan(startKey, endKey);
+                scan.setFilter(new FilterList(new RandomRowFilter(chance), new FirstKeyOnlyFilter(),
+                                              new KeyOnlyFilter()));
+                scan.setCaching(1000);
+                scan.setCacheBlocks(false);
+                if (recentWindow > 0) {
+                    long now = System.currentTimeMillis();
+                    scan.setTimeRange(now - recentWindow, now);
+                }
+                ResultScanner scanner = table.getScanner(scan);
+                try {
+                    for (Result rs : scanner) {
+                        keys.add(rs.getRow());
+                        if (keys.size() >= maxSamples) {
+                            break;
+                        }
+                    }
+                } finally {
+                    scanner.close();
+                }
+                if (keys.size() >= minSamples || chance >= 1f) {
+                    return keys;
+                }
+                chance = Math.min(1f, chance * 10);
+            }
+        } finally {
+            table.close();
+        }
+    }
+
+    /**
+     * 按行键前缀在region键空间中的位置分段统计抽样数。<br>
+     * region没有起始或结束行键(第一个或最后一个region)时用抽样到的最小、最大行键作为边界
+     */
+    private KeyRangeHeat[] histogram(RegionHeat heat, List<byte[]> keys) {
+        Collections.sort(keys, Bytes.BYTES_COMPARATOR);
+        byte[] low = heat.getStartKey().length == 0 ? keys.get(0) : heat.getStartKey();
+        byte[] high = heat.getEndKey().length == 0 ? keys.get(keys.size() - 1) : heat.getEndKey();
+        int common = 0;
+        while (common < low.length && common < high.length && low[common] == high[common]) {
+            common++;
+        }
+        double lowValue = prefixValue(low, common);
+        double span = prefixValue(high, common) - lowValue;
+
+        KeyRangeHeat[] ranges = new KeyRangeHeat[buckets];
+        for (byte[] key : keys) {
+            int b = 0;
+            if (span > 0) {
+                double position = (prefixValue(key, common) - lowValue) / span;
+                b = (int) Math.min(buckets - 1, Math.max(0, Math.floor(position * buckets)));
+            }
+            KeyRangeHeat range = ranges[b];
+            if (range == null) {
+                range = new KeyRangeHeat();
+                range.setRegionName(heat.getRegionName());
+                range.setBucket(b);
+                range.setFirstKey(key);
+                ranges[b] = range;
+            }
+            range.setLastKey(key);
+            range.setSamples(range.getSamples() + 1);
+        }
+        for (KeyRangeHeat range : ranges) {
+            if (range != null) {
+                range.setEstimatedRate(heat.getRequestRate() * range.getSamples() / keys.size());
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * 取公共前缀之后的8个字节作为无符号数，不足8个字节补0
+     */
+    private static double prefixValue(byte[] key, int offset) {
+        double value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = offset + i < key.length ? key[offset + i] & 0xff : 0;
+            value = value * 256 + b;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.lm.hbase.adapter;
+
+/**
+ * 基数估计(HyperLogLog)。<br>
+ * 2^precision个寄存器，每个寄存器一个字节，precision为14时占用16KB，标准误差约1.04/sqrt(2^precision)=0.8%。<br>
+ * 相同precision的两个sketch可以合并，用于按region分别统计后汇总。非线程安全。
+ *
+ * @version 1.0
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int       precision;
+    private final byte[]    registers;
+
+    public HyperLogLog(){
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision 4~18
+     */
+    public HyperLogLog(int precision){
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(byte[] b) {
+        add(b, 0, b.length);
+    }
+
+    public void add(byte[] b, int offset, int length) {
+        long hash = hash64(b, offset, length);
+        int index = (int) (hash >>> (64 - precision));
+        // 剩余位中第一个1出现的位置，加一个哨兵位防止全0
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * 合并另一个sketch
+     *
+     * @param other
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("precision mismatch: " + precision + " vs " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * 估计的不同值个数
+     *
+     * @return
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // 小基数时用线性计数修正
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 标准误差
+     *
+     * @return
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * FNV-1a 64位哈希，再用MurmurHash3的fmix64打散高位
+     */
+    static long hash64(byte[] b, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= b[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
@@ -0,0 +1,493 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+
+/**
+ * 客户端维护的二级索引。<br>
+ * 索引声明保存在数据表描述的属性里(gui.index.列族:列名 = 类型|索引表|声明时间)，所有客户端都能看到；每个连接缓存一份，一分钟刷新一次。<br>
+ * 写入：insertData/batchInsertData/ParallelWriter写数据前先写索引行。加盐的表索引中保存物理行键。
+ * 新声明的索引其他客户端最长要CACHE_TTL后才能看到，这期间它们写入的行没有索引行，buildIndex会等到声明时间之后BUILD_DELAY再扫描，
+ * 把这些行补上，所以补建完成后索引只会比数据多，不会漏(重试时间超过BUILD_DELAY的写入除外)。
+ * 列值被修改或者行被删除后旧的索引行不会删除，查询时回表校验当前值，和索引不一致的行直接跳过。<br>
+ * 查询：等值和范围条件转换成索引表上的一段行键扫描，再按批multi-get回表。<br>
+ * 已有数据用buildIndex按region并行补建索引。
+ *
+ * @version 1.0
+ */
+public class IndexManager {
+
+    public static final String                                                   INDEX_PROPERTY_PREFIX = "gui.index.";
+
+    public static final long                                                     CACHE_TTL             = 60 * 1000;
+
+    /** 声明索引后等待所有客户端刷新声明的时间，比CACHE_TTL多留出正在进行的写入完成的时间 */
+    public static final long                                                     BUILD_DELAY           = CACHE_TTL + 10 * 1000;
+
+    public static final int                                                      GET_BATCH_SIZE        = 100;
+
+    private static final ConnectionCache<TableName, List<SecondaryIndex>>        cache                 = new ConnectionCache<>(CACHE_TTL);
+
+    /**
+     * 声明索引并创建索引表，已有的数据需要再调用buildIndex补建
+     *
+     * @param connection
+     * @param dataTable 数据表
+     * @param family 列族
+     * @param qualifier 列名
+     * @param type 数据类型，和typeMapping的取值一致
+     * @return
+     * @throws Exception
+     */
+    public static SecondaryIndex createIndex(Connection connection, TableName dataTable, byte[] family,
+                                             byte[] qualifier, String type) throws Exception {
+        SecondaryIndex index = new SecondaryIndex(dataTable, family, qualifier, type);
+        Admin admin = connection.getAdmin();
+        try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(dataTable);
+            if (descriptor.getFamily(family) == null) {
+                throw new Exception(dataTable + " has no column family " + Bytes.toString(family));
+            }
+            if (!admin.tableExists(index.getIndexTable())) {
+                HTableDescriptor indexDescriptor = new HTableDescriptor(index.getIndexTable());
+                HColumnDescriptor columnDescriptor = new HColumnDescriptor(SecondaryIndex.INDEX_FAMILY);
+                // 索引行键前缀高度重复，差分编码可以大幅减少块大小
+                columnDescriptor.setDataBlockEncoding(DataBlockEncoding.FAST_DIFF);
+                columnDescriptor.setMaxVersions(1);
+                indexDescriptor.addFamily(columnDescriptor);
+                admin.createTable(indexDescriptor);
+            }
+            descriptor.setValue(propertyKey(family, qualifier), index.getType() + "|"
+                                                                + index.getIndexTable().getNameAsString() + "|"
+                                                                + System.currentTimeMillis());
+            admin.modifyTable(dataTable, descriptor);
+        } finally {
+            admin.close();
+        }
+        invalidate(connection, dataTable);
+        return index;
+    }
+
+    /**
+     * 删除索引声明和索引表
+     *
+     * @param connection
+     * @param dataTable
+     * @param family
+     * @param qualifier
+     * @throws Exception
+     */
+    public static void dropIndex(Connection connection, TableName dataTable, byte[] family,
+                                 byte[] qualifier) throws Exception {
+        SecondaryIndex index = getIndex(connection, dataTable, family, qualifier);
+        if (index == null) {
+            throw new Exception(dataTable + " has no index on " + Bytes.toString(family) + ":"
+                                + Bytes.toString(qualifier));
+        }
+        Admin admin = connection.getAdmin();
+        try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(dataTable);
+            descriptor.remove(propertyKey(family, qualifier));
+            admin.modifyTable(dataTable, descriptor);
+            if (admin.tableExists(index.getIndexTable())) {
+                if (admin.isTableEnabled(index.getIndexTable())) {
+                    admin.disableTable(index.getIndexTable());
+                }
+                admin.deleteTable(index.getIndexTable());
+            }
+        } finally {
+            admin.close();
+        }
+        invalidate(connection, dataTable);
+    }
+
+    /**
+     * 获取表上声明的索引
+     *
+     * @param connection
+     * @param dataTable
+     * @return
+     * @throws IOException
+     */
+    public static List<SecondaryIndex> getIndexes(Connection connection, TableName dataTable) throws IOException {
+        return cache.get(connection, dataTable, new ConnectionCache.Loader<TableName, List<SecondaryIndex>>() {
+
+            @Override
+            public List<SecondaryIndex> load(Connection connection, TableName dataTable) throws IOException {
+                return loadIndexes(connection, dataTable);
+            }
+        });
+    }
+
+    /**
+     * 获取某一列上的索引，没有时返回null
+     *
+     * @param connection
+     * @param dataTable
+     * @param family
+     * @param qualifier
+     * @return
+     * @throws IOException
+     */
+    public static SecondaryIndex getIndex(Connection connection, TableName dataTable, byte[] family,
+                                          byte[] qualifier) throws IOException {
+        for (SecondaryIndex index : getIndexes(connection, dataTable)) {
+            if (Bytes.equals(index.getFamily(), family) && Bytes.equals(index.getQualifier(), qualifier)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 清除索引声明的缓存
+     *
+     * @param connection
+     * @param dataTable
+     */
+    public static void invalidate(Connection connection, TableName dataTable) {
+        cache.invalidate(connection, dataTable);
+    }
+
+    /**
+     * 为即将写入数据表的Put写索引行，需要在写数据之前调用。表上没有索引时直接返回
+     *
+     * @param connection
+     * @param dataTable
+     * @param puts
+     * @return 写入的索引行数
+     * @throws IOException
+     */
+    public static long writeIndexes(Connection connection, TableName dataTable,
+                                    Collection<Put> puts) throws IOException {
+        List<SecondaryIndex> indexes = getIndexes(connection, dataTable);
+        if (indexes.isEmpty()) {
+            return 0;
+        }
+        long count = 0;
+        for (SecondaryIndex index : indexes) {
+            List<Put> indexPuts = new ArrayList<>();
+            for (Put put : puts) {
+                List<Cell> cells = put.get(index.getFamily(), index.getQualifier());
+                if (cells.isEmpty()) {
+                    continue;
+                }
+                Cell c = cells.get(cells.size() - 1);
+                byte[] indexRow = index.indexRow(c.getValueArray(), c.getValueOffset(), c.getValueLength(),
+                                                 put.getRow());
+                if (indexRow != null) {
+                    indexPuts.add(indexPut(indexRow));
+                }
+            }
+            if (indexPuts.isEmpty()) {
+                continue;
+            }
+            Table table = connection.getTable(index.getIndexTable());
+            try {
+                table.put(indexPuts);
+            } finally {
+                table.close();
+            }
+            count += indexPuts.size();
+        }
+        return count;
+    }
+
+    /**
+     * 按region并行扫描数据表，为已有数据补建索引。索引声明不到BUILD_DELAY时先等待，让其他客户端声明可见之前写入的行也被补建
+     *
+     * @param connection
+     * @param index
+     * @param parallelism 并行度
+     * @return 写入的索引行数
+     * @throws Exception
+     */
+    public static long buildIndex(final Connection connection, final SecondaryIndex index,
+                                  int parallelism) throws Exception {
+        long wait = declaredAt(connection, index) + BUILD_DELAY - System.currentTimeMillis();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+        List<Pair<byte[], byte[]>> ranges = HbaseUtil.regionRanges(connection, index.getDataTable(), new byte[0],
+                                                                   new byte[0]);
+        if (ranges.isEmpty()) {
+            return 0;
+        }
+        final AtomicLong count = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ranges.size())),
+                                                                new DaemonThreadFactory("hbase-index-builder"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final Pair<byte[], byte[]> range : ranges) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        count.addAndGet(buildRange(connection, index, range.getFirst(), range.getSecond()));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return count.get();
+    }
+
+    /**
+     * 按比较条件查询，操作符和FilterFactory.getCompareOpSimpleList一致，不支持≠
+     *
+     * @param connection
+     * @param index
+     * @param compareOpSimple 操作符
+     * @param value 展示值
+     * @param typeMapping 列类型映射，用于组装Row
+     * @param limit 最多返回的行数
+     * @return
+     * @throws Exception
+     */
+    public static List<Row> lookup(Connection connection, SecondaryIndex index, String compareOpSimple, String value,
+                                   Map<String, String> typeMapping, int limit) throws Exception {
+        switch (compareOpSimple) {
+            case "=":
+                return lookup(connection, index, value, true, value, true, typeMapping, limit);
+            case ">":
+                return lookup(connection, index, value, false, null, false, typeMapping, limit);
+            case "≥":
+                return lookup(connection, index, value, true, null, false, typeMapping, limit);
+            case "<":
+                return lookup(connection, index, null, false, value, false, typeMapping, limit);
+            case "≤":
+                return lookup(connection, index, null, false, value, true, typeMapping, limit);
+            default:
+                throw new Exception("compare operator " + compareOpSimple + " can not use index");
+        }
+    }
+
+    /**
+     * 按范围查询，结果按列值从小到大排列
+     *
+     * @param connection
+     * @param index
+     * @param lower 下界，为null时不限
+     * @param lowerInclusive 是否包含下界
+     * @param upper 上界，为null时不限
+     * @param upperInclusive 是否包含上界
+     * @param typeMapping 列类型映射，用于组装Row
+     * @param limit 最多返回的行数
+     * @return
+     * @throws Exception
+     */
+    public static List<Row> lookup(Connection connection, SecondaryIndex index, String lower, boolean lowerInclusive,
+                                   String upper, boolean upperInclusive, Map<String, String> typeMapping,
+                                   int limit) throws Exception {
+        byte[] startRow = HConstants.EMPTY_START_ROW;
+        byte[] stopRow = HConstants.EMPTY_END_ROW;
+        if (lower != null) {
+            byte[] encoded = index.encodeDisplay(lower);
+            startRow = lowerInclusive ? encoded : SecondaryIndex.nextPrefix(encoded);
+        }
+        if (upper != null) {
+            byte[] encoded = index.encodeDisplay(upper);
+            stopRow = upperInclusive ? SecondaryIndex.nextPrefix(encoded) : encoded;
+        }
+
+        List<Row> result = new ArrayList<>();
+        Table indexTable = connection.getTable(index.getIndexTable());
+        Table dataTable = connection.getTable(index.getDataTable());
+        RowKeyCodec codec = RowKeyCodecs.get(connection, index.getDataTable());
+        ResultScanner scanner = null;
+        try {
+            Scan scan = new Scan(startRow, stopRow);
+            scan.setCaching(Math.min(Math.max(limit, 1), 1000));
+            scanner = indexTable.getScanner(scan);
+            // 同一行可能有多条索引(旧值没有删除)，保留索引中的编码值用于回表校验。
+            // 只有校验通过的行才记为已返回，旧索引排在前面时不能让它挡住后面的当前索引
+            Set<String> verified = new HashSet<>();
+            List<Pair<byte[], byte[]>> batch = new ArrayList<>();
+            for (Result rs : scanner) {
+                byte[] indexRow = rs.getRow();
+                int encodedLength = SecondaryIndex.encodedLength(indexRow);
+                byte[] dataRow = Bytes.copy(indexRow, encodedLength, indexRow.length - encodedLength);
+                if (verified.contains(Bytes.toStringBinary(dataRow))) {
+                    continue;
+                }
+                batch.add(new Pair<>(Bytes.copy(indexRow, 0, encodedLength), dataRow));
+                if (batch.size() >= GET_BATCH_SIZE) {
+                    fetch(dataTable, index, codec, batch, typeMapping, result, limit, verified);
+                    batch.clear();
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            if (!batch.isEmpty() && result.size() < limit) {
+                fetch(dataTable, index, codec, batch, typeMapping, result, limit, verified);
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            indexTable.close();
+            dataTable.close();
+        }
+        return result;
+    }
+
+    /**
+     * 批量回表，跳过当前值已经和索引不一致的行，校验通过的行记入verified
+     */
+    private static void fetch(Table dataTable, SecondaryIndex index, RowKeyCodec codec,
+                              List<Pair<byte[], byte[]>> batch, Map<String, String> typeMapping, List<Row> result,
+                              int limit, Set<String> verified) throws IOException {
+        List<Get> gets = new ArrayList<>(batch.size());
+        for (Pair<byte[], byte[]> item : batch) {
+            gets.add(new Get(item.getSecond()));
+        }
+        Result[] results = dataTable.get(gets);
+        for (int i = 0; i < results.length && result.size() < limit; i++) {
+            Result rs = results[i];
+            if (rs == null || rs.isEmpty()) {
+                continue;
+            }
+            Cell c = rs.getColumnLatestCell(index.getFamily(), index.getQualifier());
+            if (c == null) {
+                continue;
+            }
+            byte[] current = index.encodeStored(c.getValueArray(), c.getValueOffset(), c.getValueLength());
+            if (current == null || !Bytes.equals(current, batch.get(i).getFirst())) {
+                continue;
+            }
+            if (!verified.add(Bytes.toStringBinary(batch.get(i).getSecond()))) {
+                continue;
+            }
+            result.add(HbaseUtil.toRow(RowKeyCodecs.decode(rs, codec), typeMapping));
+        }
+    }
+
+    private static long buildRange(Connection connection, SecondaryIndex index, byte[] from,
+                                   byte[] to) throws Exception {
+        Scan scan = new Scan(from, to);
+        scan.addColumn(index.getFamily(), index.getQualifier());
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        long count = 0;
+        Table table = connection.getTable(index.getDataTable());
+        BufferedMutator mutator = connection.getBufferedMutator(index.getIndexTable());
+        ThrottledScanner scanner = null;
+        try {
+            scanner = new ThrottledScanner(table.getScanner(scan),
+                                           ThrottleManager.get(Operation.SCAN,
+                                                               index.getDataTable().getNameAsString()),
+                                           scan.getCaching());
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                Cell c = rs.getColumnLatestCell(index.getFamily(), index.getQualifier());
+                if (c == null) {
+                    continue;
+                }
+                byte[] indexRow = index.indexRow(c.getValueArray(), c.getValueOffset(), c.getValueLength(),
+                                                 rs.getRow());
+                if (indexRow != null) {
+                    mutator.mutate(indexPut(indexRow));
+                    count++;
+                }
+            }
+            mutator.flush();
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            mutator.close();
+            table.close();
+        }
+        return count;
+    }
+
+    private static Put indexPut(byte[] indexRow) {
+        Put put = new Put(indexRow);
+        put.addColumn(SecondaryIndex.INDEX_FAMILY, SecondaryIndex.INDEX_QUALIFIER, HConstants.EMPTY_BYTE_ARRAY);
+        return put;
+    }
+
+    private static List<SecondaryIndex> loadIndexes(Connection connection, TableName dataTable) throws IOException {
+        List<SecondaryIndex> result = new ArrayList<>();
+        Admin admin = connection.getAdmin();
+        try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(dataTable);
+            for (Map.Entry<ImmutableBytesWritable, ImmutableBytesWritable> entry : descriptor.getValues().entrySet()) {
+                String key = Bytes.toString(entry.getKey().get());
+                if (!key.startsWith(INDEX_PROPERTY_PREFIX)) {
+                    continue;
+                }
+                String column = key.substring(INDEX_PROPERTY_PREFIX.length());
+                int split = column.indexOf(':');
+                String[] value = Bytes.toString(entry.getValue().get()).split("\\|");
+                if (split < 0 || value.length < 2) {
+                    continue;
+                }
+                result.add(new SecondaryIndex(dataTable, Bytes.toBytes(column.substring(0, split)),
+                                              Bytes.toBytes(column.substring(split + 1)), value[0],
+                                              TableName.valueOf(value[1])));
+            }
+        } finally {
+            admin.close();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 直接从表描述读取索引的声明时间，不经过缓存。没有记录声明时间时返回0
+     */
+    private static long declaredAt(Connection connection, SecondaryIndex index) throws IOException {
+        Admin admin = connection.getAdmin();
+        try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(index.getDataTable());
+            String property = descriptor.getValue(propertyKey(index.getFamily(), index.getQualifier()));
+            String[] value = property == null ? new String[0] : property.split("\\|");
+            return value.length < 3 ? 0 : Long.parseLong(value[2]);
+        } finally {
+            admin.close();
+        }
+    }
+
+    private static String propertyKey(byte[] family, byte[] qualifier) {
+        return INDEX_PROPERTY_PREFIX + Bytes.toString(family) + ":" + Bytes.toString(qualifier);
+    }
+
+}
@@ -0,0 +1,472 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 长时间运行的操作(全表计数、大范围扫描、清空表、批量写入)的句柄。<br>
+ * 提供进度(行数、字节数、已完成/总region数)、耗时和吞吐量，调用方可以轮询，也可以用get()等待结果。<br>
+ * cancel()立即关闭操作打开的扫描器和写入器并中断执行线程，RegionServer上的scanner随之释放，不用等到scanner租约超时。
+ * 已经提交到服务端的请求(例如truncate的procedure、在途的写入批次)无法撤回，取消只保证不再发出新的请求。
+ *
+ * @version 1.0
+ */
+public class OperationHandle<T> implements Future<T> {
+
+    public static enum State {
+                              RUNNING, SUCCEEDED, FAILED, CANCELLED;
+    }
+
+    /**
+     * 句柄执行的操作，进度和需要在取消时关闭的资源通过handle登记
+     */
+    static interface Task<T> {
+
+        T run(OperationHandle<T> handle) throws Exception;
+    }
+
+    private static final ExecutorService executor    = Executors.newCachedThreadPool(new DaemonThreadFactory(
+                                                                                                             "hbase-operation"));
+
+    private final String                 name;
+    private final AtomicReference<State> state       = new AtomicReference<>(State.RUNNING);
+    private Thread                       runner      = null;
+    private final Set<Closeable>         resources   = new LinkedHashSet<>();
+    private final AtomicLong             rows        = new AtomicLong();
+    private final AtomicLong             bytes       = new AtomicLong();
+    private volatile long                totalRows   = 0;
+    private volatile int                 regionCount = 0;
+    private final AtomicInteger          regionsDone = new AtomicInteger();
+    private volatile T                   result      = null;
+    private volatile Throwable           error       = null;
+    private final long                   startTime   = System.currentTimeMillis();
+    private volatile long                endTime     = 0;
+    private final CountDownLatch         finishLatch = new CountDownLatch(1);
+
+    OperationHandle(String name){
+        this.name = name;
+    }
+
+    /**
+     * 在后台线程中执行操作
+     *
+     * @param name 操作说明，用于日志和toString
+     * @param task
+     * @return
+     */
+    static <T> OperationHandle<T> submit(String name, final Task<T> task) {
+        final OperationHandle<T> handle = new OperationHandle<>(name);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    handle.execute(task);
+                } catch (Exception e) {
+                    if (!handle.isCancelled()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * 在当前线程中执行操作并返回结果，同步接口使用
+     *
+     * @param task
+     * @return
+     * @throws Exception 操作失败；取消时抛出CancellationException
+     */
+    T execute(Task<T> task) throws Exception {
+        synchronized (this) {
+            runner = Thread.currentThread();
+        }
+        try {
+            checkCancelled();
+            T value = task.run(this);
+            result = value;
+            if (!finish(State.SUCCEEDED, null)) {
+                throw cancellation();
+            }
+            return value;
+        } catch (Exception e) {
+            if (isCancelled()) {
+                throw e instanceof CancellationException ? e : cancellation();
+            }
+            finish(State.FAILED, e);
+            throw e;
+        } catch (Error e) {
+            finish(State.FAILED, e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                runner = null;
+                // 取消时中断过执行线程，线程池复用线程前清除中断标记
+                if (isCancelled()) {
+                    Thread.interrupted();
+                }
+            }
+            closeResources();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 取消操作：状态立即变为CANCELLED，等待结果的get()随即抛出CancellationException；然后关闭登记的扫描器和写入器，中断执行线程。
+     * 操作已经结束时返回false
+     *
+     * @param mayInterruptIfRunning 是否中断执行线程；为false时只关闭资源，执行线程在下一次检查时退出
+     * @return
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!finish(State.CANCELLED, null)) {
+            return false;
+        }
+        closeResources();
+        if (mayInterruptIfRunning) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取消操作并中断执行线程
+     *
+     * @return
+     */
+    public boolean cancel() {
+        return cancel(true);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state.get() == State.CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state.get() != State.RUNNING;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        finishLatch.await();
+        return report();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!finishLatch.await(timeout, unit)) {
+            throw new TimeoutException(name + " is still running");
+        }
+        return report();
+    }
+
+    /**
+     * 等待操作结束
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否在超时前结束
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finishLatch.await(timeout, unit);
+    }
+
+    private T report() throws ExecutionException {
+        if (state.get() == State.CANCELLED) {
+            throw cancellation();
+        }
+        if (state.get() == State.FAILED) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 预计处理的总行数，未知时为0
+     *
+     * @return
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public int getRegionsDone() {
+        return regionsDone.get();
+    }
+
+    /**
+     * 完成比例(0~1)：知道总行数时按行数计算，否则按region计算，都不知道时返回-1
+     *
+     * @return
+     */
+    public double getProgress() {
+        if (state.get() == State.SUCCEEDED) {
+            return 1;
+        }
+        if (totalRows > 0) {
+            return Math.min(1, (double) rows.get() / totalRows);
+        }
+        if (regionCount > 0) {
+            return Math.min(1, (double) regionsDone.get() / regionCount);
+        }
+        return -1;
+    }
+
+    /**
+     * 耗时（毫秒），未结束时返回已经耗费的时间
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    public double getRowsPerSecond() {
+        return rows.get() * 1000d / Math.max(1, getElapsedMillis());
+    }
+
+    public double getBytesPerSecond() {
+        return bytes.get() * 1000d / Math.max(1, getElapsedMillis());
+    }
+
+    void addRows(long count, long size) {
+        rows.addAndGet(count);
+        bytes.addAndGet(size);
+    }
+
+    void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    void setRegionCount(int regionCount) {
+        this.regionCount = regionCount;
+    }
+
+    void regionDone() {
+        regionsDone.incrementAndGet();
+    }
+
+    /**
+     * 已经取消时抛出异常，操作在每一批数据之间调用
+     *
+     * @throws InterruptedIOException
+     */
+    void checkCancelled() throws InterruptedIOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException(name + " cancelled");
+        }
+    }
+
+    /**
+     * 登记取消时需要立即关闭的资源；已经取消时直接关闭
+     *
+     * @param resource
+     */
+    void register(Closeable resource) {
+        synchronized (resources) {
+            if (!isCancelled()) {
+                resources.add(resource);
+                return;
+            }
+        }
+        closeQuietly(resource);
+    }
+
+    void unregister(Closeable resource) {
+        synchronized (resources) {
+            resources.remove(resource);
+        }
+    }
+
+    /**
+     * 包装扫描器：每读一行累加进度，取消时关闭扫描器
+     *
+     * @param scanner
+     * @return
+     */
+    ResultScanner track(ResultScanner scanner) {
+        TrackedScanner tracked = new TrackedScanner(scanner);
+        register(tracked);
+        return tracked;
+    }
+
+    /**
+     * 包装数据来源，打开的每个扫描器都被跟踪
+     *
+     * @param source
+     * @return
+     */
+    ScannerSource track(final ScannerSource source) {
+        return new ScannerSource() {
+
+            @Override
+            public ResultScanner getScanner(Scan scan) throws IOException {
+                checkCancelled();
+                return track(source.getScanner(scan));
+            }
+        };
+    }
+
+    private void closeResources() {
+        List<Closeable> toClose;
+        synchronized (resources) {
+            toClose = new ArrayList<>(resources);
+            resources.clear();
+        }
+        for (Closeable resource : toClose) {
+            closeQuietly(resource);
+        }
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private CancellationException cancellation() {
+        return new CancellationException(name + " cancelled");
+    }
+
+    /**
+     * 从RUNNING切换到结束状态并唤醒等待的线程，只有第一次调用生效
+     *
+     * @return 是否由这次调用结束了操作
+     */
+    private boolean finish(State state, Throwable error) {
+        synchronized (resources) {
+            if (!this.state.compareAndSet(State.RUNNING, state)) {
+                return false;
+            }
+        }
+        this.error = error;
+        this.endTime = System.currentTimeMillis();
+        finishLatch.countDown();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + state.get() + " rows:" + rows.get() + (totalRows > 0 ? "/" + totalRows : "") + " bytes:"
+               + bytes.get() + " regions:" + regionsDone.get() + "/" + regionCount + " " + getElapsedMillis()
+               + "ms " + (long) getRowsPerSecond() + "rows/s";
+    }
+
+    /**
+     * 被跟踪的扫描器。取消时由取消线程关闭，RegionServer上的scanner立即释放；执行线程之后的next()返回取消异常
+     */
+    private class TrackedScanner extends AbstractClientScanner {
+
+        private final ResultScanner scanner;
+        private volatile boolean    closed = false;
+        private byte[]              lastRow;
+
+        TrackedScanner(ResultScanner scanner){
+            this.scanner = scanner;
+        }
+
+        @Override
+        public Result next() throws IOException {
+            checkCancelled();
+            if (closed) {
+                return null;
+            }
+            Result rs;
+            try {
+                rs = scanner.next();
+            } catch (IOException e) {
+                // 取消时关闭扫描器会让正在进行的next()失败，按取消处理
+                checkCancelled();
+                throw e;
+            }
+            if (rs != null) {
+                long size = 0;
+                for (Cell c : rs.rawCells()) {
+                    size += CellUtil.estimatedSerializedSizeOf(c);
+                }
+                // 设置了batch时一行会分成多个Result返回，行键变化时才算一行
+                boolean newRow = lastRow == null || !Bytes.equals(lastRow, rs.getRow());
+                lastRow = rs.getRow();
+                addRows(newRow ? 1 : 0, size);
+            }
+            return rs;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            unregister(this);
+            scanner.close();
+        }
+
+        @Override
+        public boolean renewLease() {
+            return scanner instanceof AbstractClientScanner ? ((AbstractClientScanner) scanner).renewLease() : true;
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.lm.hbase.adapter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.HBasePageModel;
+
+/**
+ * 近似分页索引：按行键排序的抽样行键，以及每个行键之前估计的行数。<br>
+ * 由PageIndexBuilder构建。跳页时用行数找到之前最近的抽样行键，从这个行键开始扫描一页，只需要一次seek。<br>
+ * 行数和页码都是估计值，抽样比例越高越准；索引统计的是表中全部行，不考虑分页查询的过滤条件。
+ *
+ * @version 1.0
+ */
+public class PageIndex implements Serializable {
+
+    private static final long serialVersionUID = 4915738842079061373L;
+
+    private final String      tableName;
+    /** 逻辑行键，升序 */
+    private final byte[][]    keys;
+    /** keys[i]之前估计的行数，非递减 */
+    private final long[]      offsets;
+    private final long        estimatedRowCount;
+    private final float       sampleChance;
+    private final int         regionCount;
+    private final long        timestamp        = System.currentTimeMillis();
+    private long              elapsedMillis;
+
+    PageIndex(String tableName, byte[][] keys, long[] offsets, long estimatedRowCount, float sampleChance,
+              int regionCount){
+        this.tableName = tableName;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.estimatedRowCount = estimatedRowCount;
+        this.sampleChance = sampleChance;
+        this.regionCount = regionCount;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 估计的总行数
+     *
+     * @return
+     */
+    public long getEstimatedRowCount() {
+        return estimatedRowCount;
+    }
+
+    /**
+     * 估计的总页数
+     *
+     * @param pageSize
+     * @return
+     */
+    public int getEstimatedPageCount(int pageSize) {
+        long pages = (estimatedRowCount + pageSize - 1) / pageSize;
+        return (int) Math.min(Integer.MAX_VALUE, pages);
+    }
+
+    /**
+     * 索引中的行键个数
+     *
+     * @return
+     */
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    public float getSampleChance() {
+        return sampleChance;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * 构建完成的时间
+     *
+     * @return
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 第rowOffset行(从0开始)之前最近的抽样行键，从这个行键开始扫描即可到达该位置附近。返回null时表示从表头开始
+     *
+     * @param rowOffset
+     * @return
+     */
+    public byte[] getSeekKey(long rowOffset) {
+        int low = 0;
+        int high = offsets.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] <= rowOffset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? null : keys[found];
+    }
+
+    /**
+     * 估计行键之前的行数
+     *
+     * @param rowKey 逻辑行键
+     * @return
+     */
+    public long getRowOffset(byte[] rowKey) {
+        int index = Arrays.binarySearch(keys, rowKey, Bytes.BYTES_COMPARATOR);
+        if (index >= 0) {
+            return offsets[index];
+        }
+        int insertion = -index - 1;
+        long lower = insertion == 0 ? 0 : offsets[insertion - 1];
+        long upper = insertion == keys.length ? estimatedRowCount : offsets[insertion];
+        return lower + (upper - lower) / 2;
+    }
+
+    /**
+     * 估计行键所在的页码(从1开始)
+     *
+     * @param rowKey 逻辑行键
+     * @param pageSize
+     * @return
+     */
+    public int getPageNumber(byte[] rowKey, int pageSize) {
+        return (int) Math.min(Integer.MAX_VALUE, getRowOffset(rowKey) / pageSize + 1);
+    }
+
+    /**
+     * 把分页模型定位到第pageNumber页(从1开始，超出范围时取最近的页)，同时把估计的总页数写入pageCount。<br>
+     * 之后以firstPage=true调用scanResultByPageFilter读取该页
+     *
+     * @param pageModel
+     * @param pageNumber
+     */
+    public void positionAtPage(HBasePageModel pageModel, int pageNumber) {
+        int pageCount = getEstimatedPageCount(pageModel.getPageSize());
+        int page = Math.max(1, Math.min(pageNumber, Math.max(1, pageCount)));
+        position(pageModel, getSeekKey((long) (page - 1) * pageModel.getPageSize()), page, pageCount);
+    }
+
+    /**
+     * 把分页模型定位到表中fraction比例(0到1)的位置
+     *
+     * @param pageModel
+     * @param fraction
+     */
+    public void positionAtFraction(HBasePageModel pageModel, double fraction) {
+        int pageCount = getEstimatedPageCount(pageModel.getPageSize());
+        double f = Math.max(0, Math.min(1, fraction));
+        positionAtPage(pageModel, (int) Math.min(pageCount, (long) (f * pageCount) + 1));
+    }
+
+    /**
+     * 把分页模型定位到行键，页码按索引估计
+     *
+     * @param pageModel
+     * @param rowKey 逻辑行键
+     */
+    public void positionAtKey(HBasePageModel pageModel, byte[] rowKey) {
+        position(pageModel, rowKey, getPageNumber(rowKey, pageModel.getPageSize()),
+                 getEstimatedPageCount(pageModel.getPageSize()));
+    }
+
+    private void position(HBasePageModel pageModel, byte[] seekKey, int page, int pageCount) {
+        pageModel.clearRows();
+        pageModel.setPageStartRowKey(seekKey);
+        // scanPage读取后会把页码加1
+        pageModel.setPageIndex(page - 1);
+        pageModel.setPageCount(pageCount);
+        pageModel.setPageCountEstimated(true);
+    }
+
+    @Override
+    public String toString() {
+        return "PageIndex[" + tableName + " rows:~" + estimatedRowCount + " keys:" + keys.length + " regions:"
+               + regionCount + " sampleChance:" + sampleChance + "]";
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+
+/**
+ * 构建PageIndex。<br>
+ * 按region并行做只传输行键的抽样扫描(RandomRowFilter + FirstKeyOnlyFilter + KeyOnlyFilter)，每个抽样行键代表1/sampleChance行；
+ * 单个region的抽样超过上限时按步长减半保留，每个行键代表的行数随之加倍，内存和表大小无关。<br>
+ * 所有抽样按逻辑行键排序后累加得到每个行键之前的行数；行键没有加盐时，region的起始行键也作为定位点加入索引。<br>
+ * 结果按【scope/表】缓存，buildAsync在后台构建，同一张表同时只有一个构建任务。
+ *
+ * @version 1.0
+ */
+public class PageIndexBuilder {
+
+    public static final float                             DEFAULT_SAMPLE_CHANCE = 0.01f;
+
+    public static final int                               DEFAULT_MAX_KEYS      = 100000;
+
+    /** 每个region至少保留的抽样行键个数 */
+    private static final int                              MIN_REGION_KEYS       = 256;
+
+    private static final Map<String, PageIndex>           cache                 = new ConcurrentHashMap<>();
+
+    private static final Map<String, Future<PageIndex>>   building              = new ConcurrentHashMap<>();
+
+    private static final ExecutorService                  executor              = Executors.newCachedThreadPool(new DaemonThreadFactory(
+                                                                                                                                    "hbase-page-index"));
+
+    private final Connection                              connection;
+    private final TableName                               tableName;
+    private String                                        cacheScope            = "default";
+    private int                                           parallelism           = 8;
+    private float                                         sampleChance          = DEFAULT_SAMPLE_CHANCE;
+    private int                                           maxKeys               = DEFAULT_MAX_KEYS;
+
+    public PageIndexBuilder(Connection connection, TableName tableName){
+        this.connection = connection;
+        this.tableName = tableName;
+    }
+
+    /**
+     * 缓存的作用域，连接多个集群时用集群名区分
+     *
+     * @param cacheScope
+     */
+    public void setCacheScope(String cacheScope) {
+        this.cacheScope = cacheScope;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 行抽样比例，取值(0, 1]，1表示扫描全部行键，估计的行数是精确值
+     *
+     * @param sampleChance
+     */
+    public void setSampleChance(float sampleChance) {
+        this.sampleChance = sampleChance;
+    }
+
+    /**
+     * 索引中最多保留的行键个数
+     *
+     * @param maxKeys
+     */
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 构建索引并更新缓存
+     *
+     * @return
+     * @throws Exception
+     */
+    public PageIndex build() throws Exception {
+        long start = System.currentTimeMillis();
+        final RowKeyCodec codec = RowKeyCodecs.get(connection, tableName);
+        List<Pair<byte[], byte[]>> ranges = HbaseUtil.regionRanges(connection, tableName, new byte[0], new byte[0]);
+        final int regionKeys = Math.max(MIN_REGION_KEYS, maxKeys / Math.max(1, ranges.size()));
+
+        List<Sample> samples = new ArrayList<>();
+        long sampledRows = 0;
+        if (!ranges.isEmpty()) {
+            ExecutorService limiter = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ranges.size())),
+                                                                   new DaemonThreadFactory("hbase-page-index-region"));
+            try {
+                List<Future<RegionSamples>> futures = new ArrayList<>();
+                for (final Pair<byte[], byte[]> range : ranges) {
+                    futures.add(limiter.submit(new Callable<RegionSamples>() {
+
+                        @Override
+                        public RegionSamples call() throws Exception {
+                            return sampleRange(range.getFirst(), range.getSecond(), codec, regionKeys);
+                        }
+                    }));
+                }
+                for (Future<RegionSamples> future : futures) {
+                    RegionSamples region = future.get();
+                    sampledRows += region.seen;
+                    long weight = Math.round(region.stride / sampleChance);
+                    for (byte[] key : region.keys) {
+                        samples.add(new Sample(key, weight));
+                    }
+                }
+            } finally {
+                limiter.shutdownNow();
+            }
+        }
+        if (codec.getBucketCount() == 1) {
+            // region起始行键是精确的定位点，本身不代表任何行
+            for (Pair<byte[], byte[]> range : ranges) {
+                if (range.getFirst().length > 0) {
+                    samples.add(new Sample(range.getFirst(), 0));
+                }
+            }
+        }
+        Collections.sort(samples, new Comparator<Sample>() {
+
+            @Override
+            public int compare(Sample o1, Sample o2) {
+                return Bytes.compareTo(o1.key, o2.key);
+            }
+        });
+
+        int step = Math.max(1, (samples.size() + maxKeys - 1) / Math.max(1, maxKeys));
+        List<byte[]> keys = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        long offset = 0;
+        byte[] last = null;
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            if (i % step == 0 && (last == null || !Bytes.equals(last, sample.key))) {
+                keys.add(sample.key);
+                offsets.add(offset);
+                last = sample.key;
+            }
+            offset += sample.weight;
+        }
+        long[] offsetArray = new long[offsets.size()];
+        for (int i = 0; i < offsetArray.length; i++) {
+            offsetArray[i] = offsets.get(i);
+        }
+
+        PageIndex index = new PageIndex(tableName.getNameAsString(), keys.toArray(new byte[keys.size()][]),
+                                        offsetArray, Math.round(sampledRows / (double) sampleChance), sampleChance,
+                                        ranges.size());
+        index.setElapsedMillis(System.currentTimeMillis() - start);
+        cache.put(cacheKey(cacheScope, tableName.getNameAsString()), index);
+        return index;
+    }
+
+    /**
+     * 在后台构建索引，这张表已经在构建时返回正在进行的任务
+     *
+     * @return
+     */
+    public Future<PageIndex> buildAsync() {
+        final String key = cacheKey(cacheScope, tableName.getNameAsString());
+        synchronized (building) {
+            Future<PageIndex> running = building.get(key);
+            if (running != null && !running.isDone()) {
+                return running;
+            }
+            Future<PageIndex> future = executor.submit(new Callable<PageIndex>() {
+
+                @Override
+                public PageIndex call() throws Exception {
+                    try {
+                        return build();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        throw e;
+                    } finally {
+                        building.remove(key);
+                    }
+                }
+            });
+            building.put(key, future);
+            return future;
+        }
+    }
+
+    /**
+     * 获取缓存的索引，没有时返回null
+     *
+     * @param cacheScope 缓存作用域
+     * @param tableName 表名
+     * @return
+     */
+    public static PageIndex getCached(String cacheScope, String tableName) {
+        return cache.get(cacheKey(cacheScope, tableName));
+    }
+
+    /**
+     * 清除一张表的缓存，tableName为null时清除全部
+     *
+     * @param cacheScope 缓存作用域
+     * @param tableName
+     */
+    public static void invalidate(String cacheScope, String tableName) {
+        if (tableName == null) {
+            cache.clear();
+            return;
+        }
+        cache.remove(cacheKey(cacheScope, tableName));
+    }
+
+    private RegionSamples sampleRange(byte[] from, byte[] to, RowKeyCodec codec, int regionKeys) throws Exception {
+        Scan scan = new Scan(from, to);
+        FilterList filterList = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+        if (sampleChance < 1.0f) {
+            filterList.addFilter(new RandomRowFilter(sampleChance));
+        }
+        filterList.addFilter(new FirstKeyOnlyFilter());
+        filterList.addFilter(new KeyOnlyFilter());
+        scan.setFilter(filterList);
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        RegionSamples samples = new RegionSamples();
+        Table table = connection.getTable(tableName);
+        ThrottledScanner scanner = null;
+        try {
+            scanner = new ThrottledScanner(table.getScanner(scan),
+                                           ThrottleManager.get(Operation.COUNT, tableName.getNameAsString()),
+                                           scan.getCaching());
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                if (samples.seen % samples.stride == 0) {
+                    samples.keys.add(codec.decode(rs.getRow()));
+                    if (samples.keys.size() > regionKeys) {
+                        samples.halve();
+                    }
+                }
+                samples.seen++;
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            table.close();
+        }
+        return samples;
+    }
+
+    private static String cacheKey(String cacheScope, String tableName) {
+        return cacheScope + "/" + tableName;
+    }
+
+    /**
+     * 单个region的抽样：保留第0、stride、2*stride...个抽样行键
+     */
+    private static class RegionSamples {
+
+        private List<byte[]> keys   = new ArrayList<>();
+        private long         stride = 1;
+        private long         seen   = 0;
+
+        void halve() {
+            List<byte[]> kept = new ArrayList<>(keys.size() / 2 + 1);
+            for (int i = 0; i < keys.size(); i += 2) {
+                kept.add(keys.get(i));
+            }
+            keys = kept;
+            stride *= 2;
+        }
+    }
+
+    private static class Sample {
+
+        private final byte[] key;
+        /** 这个行键到同一region下一个抽样行键之间估计的行数 */
+        private final long   weight;
+
+        Sample(byte[] key, long weight){
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+}
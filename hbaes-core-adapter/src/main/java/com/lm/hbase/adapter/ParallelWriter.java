@@ -0,0 +1,577 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+
+/**
+ * 按RegionServer分区的并行写入器。<br>
+ * 根据客户端缓存的region位置把Put分到各个RegionServer的队列，每个队列独立并发提交：<br>
+ * 1.所有队列共享一个在途字节数上限，内存占用有界；<br>
+ * 2.每个RegionServer的并发批次数和单批字节数都有上限，热点RegionServer最多占用一小部分在途额度，不会拖住其他RegionServer；
+ * 超过单批字节上限的行按cell拆成多个Put写入，这样的行不再是原子写入；<br>
+ * 3.写入失败的Put会强制刷新region位置后重新分区，region迁移或者split之后自动路由到新的RegionServer；<br>
+ * 4.提交批次受ThrottleManager中WRITE操作的限速约束，RegionServer繁忙时自动降速；<br>
+ * 5.表上声明了二级索引时，数据写入前先写索引行；加盐的表按RowKeyCodecs的配置转换行键。<br>
+ * 写入线程池只执行批次的RPC，定位region、重试前的等待、在途额度和限速的等待都在调用write的线程中进行。<br>
+ * 写入过程中close()会放弃还没有提交的批次并中断在途的批次，正在等待的write立即返回失败。<br>
+ * 非线程安全，一个写入器同一时间只能由一个线程调用write。
+ *
+ * @version 1.0
+ */
+public class ParallelWriter implements Closeable {
+
+    public static final int                    DEFAULT_THREADS             = 16;
+
+    public static final long                   DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+    public static final int                    DEFAULT_SERVER_CONCURRENCY  = 2;
+
+    public static final int                    DEFAULT_BATCH_SIZE          = 1000;
+
+    public static final int                    DEFAULT_MAX_ATTEMPTS        = 5;
+
+    /** 定位region失败后重试的等待时间，按重试次数递增 */
+    private static final long                  ROUTE_RETRY_PAUSE           = 100;
+
+    private final Connection                   connection;
+    private final TableName                    tableName;
+    private final RegionLocator                locator;
+    private final ExecutorService              executor;
+    private final long                         maxInFlightBytes;
+    private final long                         maxBatchBytes;
+    private final int                          serverConcurrency;
+    private final int                          batchSize;
+    private final Throttle                     throttle;
+    private int                                maxAttempts                 = DEFAULT_MAX_ATTEMPTS;
+    private OperationHandle<?>                 handle                      = null;
+
+    private final ReentrantLock                lock                        = new ReentrantLock();
+    private final Condition                    changed                     = lock.newCondition();
+    private final Map<ServerName, ServerQueue> queues                      = new LinkedHashMap<>();
+    private int                                pendingCount                = 0;
+    private long                               inFlightBytes               = 0;
+    private int                                inFlightBatches             = 0;
+    private long                               written                     = 0;
+    private final List<PendingPut>             retries                     = new ArrayList<>();
+    private final List<Throwable>              errors                      = new ArrayList<>();
+    private boolean                            closed                      = false;
+
+    public ParallelWriter(Connection connection, TableName tableName) throws IOException{
+        this(connection, tableName, DEFAULT_THREADS, DEFAULT_MAX_IN_FLIGHT_BYTES, DEFAULT_SERVER_CONCURRENCY,
+             DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @param threads 写入线程数
+     * @param maxInFlightBytes 所有RegionServer在途数据的字节上限
+     * @param serverConcurrency 单个RegionServer同时在途的批次数
+     * @param batchSize 单批最大行数
+     * @throws IOException
+     */
+    public ParallelWriter(Connection connection, TableName tableName, int threads, long maxInFlightBytes,
+                          int serverConcurrency, int batchSize) throws IOException{
+        this.connection = connection;
+        this.tableName = tableName;
+        this.locator = connection.getRegionLocator(tableName);
+        this.executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("hbase-parallel-writer"));
+        this.maxInFlightBytes = maxInFlightBytes;
+        // 单批最多占用在途额度的1/8，保证热点RegionServer用满并发时其他RegionServer仍有额度
+        this.maxBatchBytes = Math.max(1, maxInFlightBytes / 8);
+        this.serverConcurrency = serverConcurrency;
+        this.batchSize = batchSize;
+        this.throttle = ThrottleManager.get(ThrottleManager.Operation.WRITE, tableName.getNameAsString());
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 写入成功的行数和字节数累加到handle的进度中
+     *
+     * @param handle
+     */
+    void setOperationHandle(OperationHandle<?> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 写入数据，所有数据写完或者重试耗尽后返回
+     *
+     * @param rows
+     * @return 成功写入的行数
+     * @throws Exception 有行在重试耗尽后仍然失败
+     */
+    public long write(Collection<Row> rows) throws Exception {
+        List<Put> puts = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            puts.add(HbaseUtil.toPut(row));
+        }
+        return writePuts(puts);
+    }
+
+    /**
+     * 写入Put，所有数据写完或者重试耗尽后返回
+     *
+     * @param puts
+     * @return 成功写入的行数
+     * @throws Exception 有行在重试耗尽后仍然失败
+     */
+    public long writePuts(Collection<Put> puts) throws Exception {
+        written = 0;
+        errors.clear();
+        retries.clear();
+        puts = RowKeyCodecs.encode(puts, RowKeyCodecs.get(connection, tableName));
+        // 先写索引，索引只会比数据多
+        IndexManager.writeIndexes(connection, tableName, puts);
+        List<PendingPut> pending = new ArrayList<>(puts.size());
+        for (Put put : puts) {
+            split(put, pending);
+        }
+        route(pending);
+        drain();
+        if (closed) {
+            throw new Exception("write to " + tableName + " aborted, " + written + " rows written");
+        }
+        if (!errors.isEmpty()) {
+            throw new Exception(errors.size() + " rows failed to write to " + tableName, errors.get(0));
+        }
+        return written;
+    }
+
+    /**
+     * 关闭写入器。写入还没有结束时放弃排队中的批次、中断在途的批次，已经发到RegionServer的批次可能仍会写入
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ServerQueue queue : queues.values()) {
+                queue.pending.clear();
+            }
+            pendingCount = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdownNow();
+        locator.close();
+    }
+
+    /**
+     * 超过单批字节上限的Put按cell拆成多个同一行的Put，拆开的部分只有第一个计入行数。单个cell超过上限时单独成为一个Put
+     */
+    private void split(Put put, List<PendingPut> result) throws IOException {
+        if (put.heapSize() <= maxBatchBytes) {
+            result.add(new PendingPut(put, 1));
+            return;
+        }
+        Put part = null;
+        long partBytes = 0;
+        int rows = 1;
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                long cellBytes = CellUtil.estimatedHeapSizeOf(cell);
+                if (part != null && partBytes + cellBytes > maxBatchBytes) {
+                    result.add(new PendingPut(part, rows));
+                    rows = 0;
+                    part = null;
+                }
+                if (part == null) {
+                    part = newPart(put);
+                    partBytes = part.heapSize();
+                }
+                part.add(cell);
+                partBytes += cellBytes;
+            }
+        }
+        if (part != null) {
+            result.add(new PendingPut(part, rows));
+        }
+    }
+
+    private static Put newPart(Put put) {
+        Put part = new Put(put.getRow(), put.getTimeStamp());
+        part.setDurability(put.getDurability());
+        for (Map.Entry<String, byte[]> attribute : put.getAttributesMap().entrySet()) {
+            part.setAttribute(attribute.getKey(), attribute.getValue());
+        }
+        return part;
+    }
+
+    /**
+     * 查找每个Put所在的RegionServer并放进对应的队列，在调用write的线程中执行，不持有锁。<br>
+     * 重试过的Put跳过客户端缓存直接查询hbase:meta。定位失败(hbase:meta暂时不可用、region正在迁移)的Put计入重试次数，
+     * 等待一段时间后由drain()重新定位；重试耗尽的记为失败
+     */
+    private void route(List<PendingPut> puts) {
+        Map<ServerName, List<PendingPut>> routed = new LinkedHashMap<>();
+        List<PendingPut> unrouted = new ArrayList<>();
+        List<PendingPut> failed = new ArrayList<>();
+        for (PendingPut pending : puts) {
+            try {
+                HRegionLocation location = locator.getRegionLocation(pending.put.getRow(), pending.attempts > 0);
+                List<PendingPut> list = routed.get(location.getServerName());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    routed.put(location.getServerName(), list);
+                }
+                list.add(pending);
+            } catch (IOException e) {
+                pending.attempts++;
+                pending.lastError = e;
+                if (pending.attempts >= maxAttempts) {
+                    failed.add(pending);
+                } else {
+                    pending.retryAt = System.currentTimeMillis() + ROUTE_RETRY_PAUSE * pending.attempts;
+                    unrouted.add(pending);
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (Map.Entry<ServerName, List<PendingPut>> entry : routed.entrySet()) {
+                ServerQueue queue = queues.get(entry.getKey());
+                if (queue == null) {
+                    queue = new ServerQueue(entry.getKey());
+                    queues.put(entry.getKey(), queue);
+                }
+                queue.pending.addAll(entry.getValue());
+                pendingCount += entry.getValue().size();
+            }
+            retries.addAll(unrouted);
+            for (PendingPut pending : failed) {
+                errors.add(pending.lastError);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 结算一个已完成批次的在途额度，需要重试的Put交给drain()重新定位，由写入线程调用
+     */
+    private void complete(ServerName server, long releaseBytes, int succeeded, long succeededBytes,
+                          List<PendingPut> retry, List<PendingPut> failed) {
+        lock.lock();
+        try {
+            ServerQueue released = queues.get(server);
+            if (released != null) {
+                released.active--;
+            }
+            inFlightBytes -= releaseBytes;
+            inFlightBatches--;
+            written += succeeded;
+            if (handle != null) {
+                handle.addRows(succeeded, succeededBytes);
+            }
+            if (!closed) {// 已经关闭，不再重试
+                retries.addAll(retry);
+                for (PendingPut pending : failed) {
+                    errors.add(pending.lastError);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在调用write的线程中循环：重新定位到期的重试，按在途额度取出批次，等待限速后交给写入线程，直到所有数据写完
+     */
+    private void drain() throws InterruptedException {
+        while (true) {
+            List<PendingPut> due = new ArrayList<>();
+            List<BatchTask> batches;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        return;
+                    }
+                    long wait = takeDueRetries(due);
+                    if (!due.isEmpty()) {
+                        batches = null;
+                        break;
+                    }
+                    batches = admit();
+                    if (!batches.isEmpty()) {
+                        break;
+                    }
+                    if (pendingCount == 0 && inFlightBatches == 0 && retries.isEmpty()) {
+                        return;
+                    }
+                    if (wait > 0) {
+                        changed.await(wait, TimeUnit.MILLISECONDS);
+                    } else {
+                        changed.await();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (!due.isEmpty()) {
+                route(due);
+                continue;
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                BatchTask batch = batches.get(i);
+                try {
+                    throttle.acquireRpc();
+                    throttle.acquireRows(batch.batch.size());
+                    throttle.acquireBytes(batch.bytes);
+                    executor.execute(batch);
+                } catch (RejectedExecutionException e) {
+                    // 写入器已经关闭
+                    return;
+                } catch (InterruptedException e) {
+                    // 还没有提交的批次按失败处理并释放在途额度
+                    for (BatchTask unsent : batches.subList(i, batches.size())) {
+                        for (PendingPut pending : unsent.batch) {
+                            pending.lastError = e;
+                        }
+                        complete(unsent.server, unsent.bytes, 0, 0, new ArrayList<PendingPut>(), unsent.batch);
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出已经到重试时间的Put，返回距离下一个重试时间的毫秒数，没有等待中的重试时返回0
+     */
+    private long takeDueRetries(List<PendingPut> due) {
+        long now = System.currentTimeMillis();
+        long wait = 0;
+        for (Iterator<PendingPut> iterator = retries.iterator(); iterator.hasNext();) {
+            PendingPut pending = iterator.next();
+            if (pending.retryAt <= now) {
+                due.add(pending);
+                iterator.remove();
+            } else if (wait == 0 || pending.retryAt - now < wait) {
+                wait = pending.retryAt - now;
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * 轮流从各个RegionServer的队列取批次并占用在途额度，直到在途额度不够下一批或者各队列都达到并发上限。<br>
+     * 单批不超过maxBatchBytes(只有一个Put的批次除外)，没有在途批次时才允许一批超出在途额度
+     */
+    private List<BatchTask> admit() {
+        List<BatchTask> batches = new ArrayList<>();
+        boolean submitted = true;
+        while (submitted) {
+            submitted = false;
+            for (ServerQueue queue : queues.values()) {
+                if (queue.pending.isEmpty() || queue.active >= serverConcurrency) {
+                    continue;
+                }
+                int count = 0;
+                long bytes = 0;
+                for (PendingPut pending : queue.pending) {
+                    if (count >= batchSize || (count > 0 && bytes + pending.bytes > maxBatchBytes)) {
+                        break;
+                    }
+                    count++;
+                    bytes += pending.bytes;
+                }
+                if (inFlightBatches > 0 && inFlightBytes + bytes > maxInFlightBytes) {
+                    return batches;
+                }
+                List<PendingPut> batch = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    batch.add(queue.pending.poll());
+                }
+                pendingCount -= count;
+                inFlightBytes += bytes;
+                inFlightBatches++;
+                queue.active++;
+                batches.add(new BatchTask(queue.server, batch, bytes));
+                submitted = true;
+            }
+        }
+        return batches;
+    }
+
+    private class BatchTask implements Runnable {
+
+        private final ServerName       server;
+        private final List<PendingPut> batch;
+        private final long             bytes;
+        private final Object[]         results;
+        private final List<PendingPut> retry  = new ArrayList<>();
+        private final List<PendingPut> failed = new ArrayList<>();
+        private int                    succeeded;
+        private long                   succeededBytes;
+
+        BatchTask(ServerName server, List<PendingPut> batch, long bytes){
+            this.server = server;
+            this.batch = batch;
+            this.bytes = bytes;
+            this.results = new Object[batch.size()];
+        }
+
+        @Override
+        public void run() {
+            boolean processed = false;
+            Throwable error = null;
+            try {
+                process();
+                processed = true;
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                if (!processed) {
+                    // 处理结果时出现意外的异常：没有确认成功的行按失败处理，在途额度照常释放，drain()不会一直等待
+                    succeeded = 0;
+                    succeededBytes = 0;
+                    retry.clear();
+                    failed.clear();
+                    for (int i = 0; i < batch.size(); i++) {
+                        PendingPut pending = batch.get(i);
+                        if (isSuccess(i)) {
+                            succeeded += pending.rows;
+                            succeededBytes += pending.bytes;
+                        } else {
+                            pending.lastError = error;
+                            failed.add(pending);
+                        }
+                    }
+                }
+                complete(server, bytes, succeeded, succeededBytes, retry, failed);
+            }
+        }
+
+        private boolean isSuccess(int i) {
+            return results[i] != null && !(results[i] instanceof Throwable);
+        }
+
+        /**
+         * 提交这一批并按结果分组：成功的计数，失败的放进retry等待重新定位，或者重试耗尽放进failed。<br>
+         * RegionServer繁忙时降速，需要重试的Put在退避时间之后才重新提交，写入线程不等待
+         */
+        private void process() {
+            List<Put> puts = new ArrayList<>(batch.size());
+            for (PendingPut pending : batch) {
+                puts.add(pending.put);
+            }
+            Throwable batchError = null;
+            Table table = null;
+            try {
+                table = connection.getTable(tableName);
+                long start = System.currentTimeMillis();
+                table.batch(puts, results);
+                throttle.recordRpc(System.currentTimeMillis() - start);
+            } catch (Throwable e) {
+                batchError = e;
+            } finally {
+                if (table != null) {
+                    try {
+                        table.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            Throwable busyError = null;
+            for (int i = 0; i < results.length; i++) {
+                PendingPut pending = batch.get(i);
+                if (isSuccess(i)) {
+                    succeeded += pending.rows;
+                    succeededBytes += pending.bytes;
+                    continue;
+                }
+                pending.attempts++;
+                pending.lastError = results[i] instanceof Throwable ? (Throwable) results[i] : batchError;
+                if (busyError == null && Throttle.isBusy(pending.lastError)) {
+                    busyError = pending.lastError;
+                }
+                if (pending.attempts >= maxAttempts) {
+                    failed.add(pending);
+                } else {
+                    retry.add(pending);
+                }
+            }
+
+            // 失败的行可能是region迁移或split导致的，由drain()刷新位置后重新分区；RegionServer繁忙时降速并推迟重试
+            long retryAt = System.currentTimeMillis();
+            if (busyError != null) {
+                retryAt += throttle.recordRetry(busyError);
+            } else if (batchError != null) {
+                retryAt += throttle.recordRetry(batchError);
+            }
+            for (PendingPut pending : retry) {
+                pending.retryAt = retryAt;
+            }
+        }
+    }
+
+    private static class ServerQueue {
+
+        private final ServerName            server;
+        private final ArrayDeque<PendingPut> pending = new ArrayDeque<>();
+        private int                         active  = 0;
+
+        ServerQueue(ServerName server){
+            this.server = server;
+        }
+    }
+
+    private static class PendingPut {
+
+        private final Put  put;
+        /** 计入写入行数的行数，按cell拆开的行只有第一部分为1 */
+        private final int  rows;
+        private final long bytes;
+        private int        attempts  = 0;
+        private Throwable  lastError = null;
+        /** 重新定位的最早时间 */
+        private long       retryAt   = 0;
+
+        PendingPut(Put put, int rows){
+            this.put = put;
+            this.rows = rows;
+            this.bytes = put.heapSize();
+        }
+    }
+
+}
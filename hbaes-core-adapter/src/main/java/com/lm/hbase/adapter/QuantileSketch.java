@@ -0,0 +1,232 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 分位数估计(按层压缩的KLL简化版)。<br>
+ * 每一层最多保存k个值，第h层的每个值代表2^h个原始值。一层满了之后排序，随机取奇数位或偶数位的一半晋升到上一层，
+ * 所以内存是O(k·log(n/k))，n为十亿时也只有几万个double。秩误差大约在1/k的量级。<br>
+ * 最小值和最大值精确统计。两个sketch可以合并。非线程安全。
+ *
+ * @version 1.0
+ */
+public class QuantileSketch {
+
+    public static final int      DEFAULT_K = 200;
+
+    private final int            k;
+    private final List<double[]> levels    = new ArrayList<>();
+    private final List<Integer>  sizes     = new ArrayList<>();
+    private final Random         random    = new Random();
+    private long                 count     = 0;
+    private double               min       = Double.NaN;
+    private double               max       = Double.NaN;
+
+    public QuantileSketch(){
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k){
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8: " + k);
+        }
+        this.k = k;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        compact();
+    }
+
+    /**
+     * 合并另一个sketch
+     *
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        for (int h = 0; h < other.levels.size(); h++) {
+            double[] values = other.levels.get(h);
+            int size = other.sizes.get(h);
+            for (int i = 0; i < size; i++) {
+                append(h, values[i]);
+            }
+        }
+        compact();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * 估计q分位数，q取0~1，没有数据时返回NaN
+     *
+     * @param q
+     * @return
+     */
+    public double getQuantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        double[][] sorted = weighted();
+        double total = 0;
+        for (double[] item : sorted) {
+            total += item[1];
+        }
+        double target = q * total;
+        double cumulative = 0;
+        for (double[] item : sorted) {
+            cumulative += item[1];
+            if (cumulative >= target) {
+                return item[0];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 估计小于等于value的值所占的比例
+     *
+     * @param value
+     * @return
+     */
+    public double getRank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double total = 0;
+        double below = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] values = levels.get(h);
+            long weight = 1L << h;
+            for (int i = 0; i < sizes.get(h); i++) {
+                total += weight;
+                if (values[i] <= value) {
+                    below += weight;
+                }
+            }
+        }
+        return total == 0 ? 0 : below / total;
+    }
+
+    /**
+     * 在[min, max]之间等宽分桶，估计每个桶的值个数
+     *
+     * @param buckets 桶数
+     * @return 长度为buckets的计数，没有数据时全为0
+     */
+    public long[] getHistogram(int buckets) {
+        long[] result = new long[buckets];
+        if (count == 0 || buckets <= 0) {
+            return result;
+        }
+        double width = (max - min) / buckets;
+        double previous = 0;
+        for (int i = 0; i < buckets; i++) {
+            double rank = i == buckets - 1 ? 1 : getRank(min + width * (i + 1));
+            result[i] = Math.round((rank - previous) * count);
+            previous = rank;
+        }
+        return result;
+    }
+
+    private void append(int level, double value) {
+        while (levels.size() <= level) {
+            levels.add(new double[k]);
+            sizes.add(0);
+        }
+        int size = sizes.get(level);
+        double[] values = levels.get(level);
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            levels.set(level, values);
+        }
+        values[size] = value;
+        sizes.set(level, size + 1);
+    }
+
+    private void compact() {
+        for (int h = 0; h < levels.size(); h++) {
+            int size = sizes.get(h);
+            if (size < k) {
+                continue;
+            }
+            double[] values = levels.get(h);
+            Arrays.sort(values, 0, size);
+            int offset = random.nextBoolean() ? 1 : 0;
+            int keep = size % 2;// 奇数个时最大的一个留在本层
+            for (int i = offset; i < size - keep; i += 2) {
+                append(h + 1, values[i]);
+            }
+            if (keep == 1) {
+                values[0] = values[size - 1];
+            }
+            sizes.set(h, keep);
+            if (values.length > k) {
+                double[] shrunk = new double[k];
+                System.arraycopy(values, 0, shrunk, 0, keep);
+                levels.set(h, shrunk);
+            }
+        }
+    }
+
+    private double[][] weighted() {
+        List<double[]> items = new ArrayList<>();
+        for (int h = 0; h < levels.size(); h++) {
+            double[] values = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                items.add(new double[] { values[i], 1L << h });
+            }
+        }
+        double[][] result = items.toArray(new double[items.size()][]);
+        Arrays.sort(result, new Comparator<double[]>() {
+
+            @Override
+            public int compare(double[] o1, double[] o2) {
+                return Double.compare(o1[0], o2[0]);
+            }
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLocations;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ClusterConnection;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+
+import com.lm.hbase.adapter.entity.ClusterProfile;
+import com.lm.hbase.adapter.entity.WarmUpStatus;
+
+/**
+ * 连接预热。<br>
+ * 建立连接后在后台把表的region位置加载进客户端的location缓存，并且向每个RegionServer发起一次轻量请求建立RPC连接，
+ * 用户打开的第一页就不需要再去查询hbase:meta。<br>
+ * 预热的表按以下顺序确定：调用方指定的表 &gt; 最近访问过的表 &gt; listTableNames列出的表(最多maxTables张)。
+ *
+ * @version 1.0
+ */
+public class RegionWarmer {
+
+    /** 每个集群记录的最近访问表数量 */
+    private static final int                                RECENT_TABLE_LIMIT = 50;
+
+    /** 没有指定表且没有最近访问记录时，最多预热的表数量 */
+    private static volatile int                             maxTables          = 100;
+
+    private static final Map<String, LinkedHashSet<String>> recentTables       = new ConcurrentHashMap<>();
+
+    private static final Map<String, WarmUpStatus>          statusMap          = new ConcurrentHashMap<>();
+
+    private static final ExecutorService                    executor           = Executors.newCachedThreadPool(new DaemonThreadFactory(
+                                                                                                                                   "hbase-region-warmer"));
+
+    /**
+     * 记录一次表访问，供下次预热使用
+     *
+     * @param profile
+     * @param tableName
+     */
+    public static void touch(ClusterProfile profile, String tableName) {
+        if (tableName == null) {
+            return;
+        }
+        LinkedHashSet<String> tables = recentTables.get(profile.getName());
+        if (tables == null) {
+            recentTables.putIfAbsent(profile.getName(), new LinkedHashSet<String>());
+            tables = recentTables.get(profile.getName());
+        }
+        synchronized (tables) {
+            tables.remove(tableName);
+            tables.add(tableName);
+            if (tables.size() > RECENT_TABLE_LIMIT) {
+                Iterator<String> iterator = tables.iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取最近访问过的表，最近访问的排在前面
+     *
+     * @param profile
+     * @return
+     */
+    public static List<String> getRecentTables(ClusterProfile profile) {
+        LinkedHashSet<String> tables = recentTables.get(profile.getName());
+        if (tables == null) {
+            return new ArrayList<>();
+        }
+        List<String> result;
+        synchronized (tables) {
+            result = new ArrayList<>(tables);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 异步预热
+     *
+     * @param profile 集群
+     * @param tableNames 需要预热的表，为null时使用最近访问的表
+     * @return 预热进度
+     */
+    public static WarmUpStatus warmUp(final ClusterProfile profile, final Collection<String> tableNames) {
+        final WarmUpStatus status = new WarmUpStatus(profile.getName());
+        statusMap.put(profile.getName(), status);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    doWarmUp(profile, tableNames, status);
+                    status.ready();
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    status.failed(e);
+                }
+            }
+        });
+        return status;
+    }
+
+    /**
+     * 获取集群最近一次预热的进度，没有预热过时返回null
+     *
+     * @param profile
+     * @return
+     */
+    public static WarmUpStatus getStatus(ClusterProfile profile) {
+        return statusMap.get(profile.getName());
+    }
+
+    /**
+     * 清除集群的预热状态和访问记录
+     *
+     * @param profile
+     */
+    public static void forget(ClusterProfile profile) {
+        statusMap.remove(profile.getName());
+        recentTables.remove(profile.getName());
+    }
+
+    public static void setMaxTables(int maxTables) {
+        RegionWarmer.maxTables = maxTables;
+    }
+
+    private static void doWarmUp(ClusterProfile profile, Collection<String> tableNames,
+                                 WarmUpStatus status) throws Exception {
+        Connection connection = ConnectionRegistry.getConnection(profile);
+        List<TableName> tables = resolveTables(profile, connection, tableNames);
+        status.setTableCount(tables.size());
+
+        // 每个RegionServer记录一个region，用于建立RPC连接
+        Map<ServerName, HRegionLocation> serverRegions = new LinkedHashMap<>();
+        Map<ServerName, TableName> serverTables = new LinkedHashMap<>();
+        for (TableName tableName : tables) {
+            RegionLocator locator = null;
+            try {
+                locator = connection.getRegionLocator(tableName);
+                List<HRegionLocation> locations = locator.getAllRegionLocations();
+                for (HRegionLocation location : locations) {
+                    // 1.3.1的getAllRegionLocations不会写入客户端缓存，需要手动放进去
+                    if (connection instanceof ClusterConnection) {
+                        ((ClusterConnection) connection).cacheLocation(tableName, new RegionLocations(location));
+                    } else {
+                        locator.getRegionLocation(location.getRegionInfo().getStartKey());
+                    }
+                    if (location.getServerName() != null && !serverRegions.containsKey(location.getServerName())) {
+                        serverRegions.put(location.getServerName(), location);
+                        serverTables.put(location.getServerName(), tableName);
+                    }
+                }
+                status.tableDone(locations.size());
+            } catch (Exception e) {
+                status.addWarning("预热表失败：" + tableName + " " + e.getMessage());
+                status.tableDone(0);
+            } finally {
+                if (locator != null) {
+                    locator.close();
+                }
+            }
+        }
+
+        for (Entry<ServerName, HRegionLocation> entry : serverRegions.entrySet()) {
+            preconnect(connection, serverTables.get(entry.getKey()), entry.getValue(), status);
+        }
+        status.setServerCount(serverRegions.size());
+    }
+
+    private static List<TableName> resolveTables(ClusterProfile profile, Connection connection,
+                                                 Collection<String> tableNames) throws Exception {
+        Collection<String> names = tableNames;
+        if (names == null) {
+            names = getRecentTables(profile);
+        }
+        List<TableName> result = new ArrayList<>();
+        if (!names.isEmpty()) {
+            for (String name : names) {
+                result.add(TableName.valueOf(name));
+            }
+            return result;
+        }
+        Admin admin = null;
+        try {
+            admin = connection.getAdmin();
+            for (TableName tableName : admin.listTableNames()) {
+                if (result.size() >= maxTables) {
+                    break;
+                }
+                result.add(tableName);
+            }
+        } finally {
+            if (admin != null) {
+                admin.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 对region的起始行做一次只检查存在性的Get，让客户端和这台RegionServer建立好RPC连接
+     */
+    private static void preconnect(Connection connection, TableName tableName, HRegionLocation location,
+                                   WarmUpStatus status) {
+        byte[] row = location.getRegionInfo().getStartKey();
+        if (row == null || row.length == 0) {
+            row = new byte[] { 0 };
+        }
+        Table table = null;
+        try {
+            table = connection.getTable(tableName);
+            Get get = new Get(row);
+            get.setCheckExistenceOnly(true);
+            table.get(get);
+        } catch (Exception e) {
+            status.addWarning("预连接RegionServer失败：" + location.getServerName() + " " + e.getMessage());
+        } finally {
+            if (table != null) {
+                try {
+                    table.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.lm.hbase.adapter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * TIMELINE一致性读取的统计，按表记录读取的行数和其中由region副本返回(stale)的行数
+ *
+ * @version 1.0
+ */
+public class ReplicaReadMetrics {
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一行读取结果，STRONG一致性的读取不统计
+     * 
+     * @param tableName
+     * @param consistency
+     * @param rs
+     */
+    static void record(String tableName, Consistency consistency, Result rs) {
+        if (consistency != Consistency.TIMELINE || rs == null) {
+            return;
+        }
+        Counter counter = counters.get(tableName);
+        if (counter == null) {
+            counter = new Counter();
+            Counter old = counters.putIfAbsent(tableName, counter);
+            if (old != null) {
+                counter = old;
+            }
+        }
+        counter.reads.incrementAndGet();
+        if (rs.isStale()) {
+            counter.staleReads.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取一张表的统计，没有记录时返回null
+     * 
+     * @param tableName
+     * @return
+     */
+    public static Counter get(String tableName) {
+        return counters.get(tableName);
+    }
+
+    /**
+     * 所有表的统计，按表名排序
+     * 
+     * @return
+     */
+    public static Map<String, Counter> getAll() {
+        return new TreeMap<>(counters);
+    }
+
+    public static void reset() {
+        counters.clear();
+    }
+
+    public static class Counter {
+
+        private final AtomicLong reads      = new AtomicLong();
+        private final AtomicLong staleReads = new AtomicLong();
+
+        /**
+         * TIMELINE一致性读取的行数
+         * 
+         * @return
+         */
+        public long getReads() {
+            return reads.get();
+        }
+
+        /**
+         * 其中由副本返回的行数
+         * 
+         * @return
+         */
+        public long getStaleReads() {
+            return staleReads.get();
+        }
+
+        /**
+         * 副本返回的比例(0~1)
+         * 
+         * @return
+         */
+        public double getStaleRatio() {
+            long total = reads.get();
+            return total == 0 ? 0 : (double) staleReads.get() / total;
+        }
+
+        @Override
+        public String toString() {
+            return "reads:" + getReads() + " stale:" + getStaleReads();
+        }
+    }
+
+}
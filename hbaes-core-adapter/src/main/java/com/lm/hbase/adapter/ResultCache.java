@@ -0,0 +1,688 @@
+package com.lm.hbase.adapter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.ClusterStatus;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.ColumnarPage;
+import com.lm.hbase.adapter.entity.HBasePageModel;
+
+/**
+ * 分页查询的本地结果缓存。<br>
+ * 查询按【集群/表/起止行/过滤器/版本数/时间范围/页大小/分页位置/一致性】规范化后计算指纹作为key，一页结果以ColumnarPage的形式保存：
+ * 行键和列值的位置信息在前，数据区原样在后，追加写入目录下的segment文件。命中时映射segment文件，数据区直接作为MappedByteArena使用，
+ * 不需要复制也不经过Java堆。<br>
+ * 条目的位置记录在追加写入的日志文件里，工具重启后重放日志恢复缓存。<br>
+ * 失效策略：<br>
+ * 1.超过ttl毫秒的条目失效；<br>
+ * 2.通过HbaseUtil写入、删除、清空、修改表时，这张表的条目全部失效；<br>
+ * 3.checkTableWrites为true时，每个条目记录表的写入戳(表中各region的写请求计数汇总)，查询时写入戳变化即失效，
+ * 其他客户端的写入也能感知到。写请求计数随RegionServer心跳上报，有几秒延迟；bulkload不计入写请求，需要依赖ttl。<br>
+ * segment文件总大小超过maxBytes时按segment淘汰：最久未访问的条目所在的segment整个失效并删除文件。
+ *
+ * @version 1.0
+ */
+public class ResultCache implements Closeable {
+
+    /** 默认segment文件大小上限：64MB */
+    public static final long                                         DEFAULT_SEGMENT_SIZE   = 64L * 1024 * 1024;
+
+    /** 写入戳的刷新间隔 */
+    public static final long                                         STAMP_INTERVAL         = 5000;
+
+    private static final int                                         RECORD_MAGIC           = 0x48524331;
+
+    private static final int                                         RECORD_HEADER          = 12;
+
+    private static final byte                                        JOURNAL_PUT            = 1;
+
+    private static final byte                                        JOURNAL_REMOVE         = 2;
+
+    private static final String                                      JOURNAL_FILE           = "index.journal";
+
+    private static final String                                      SEGMENT_PREFIX         = "segment-";
+
+    private static final String                                      SEGMENT_SUFFIX         = ".dat";
+
+    /** 连接 -&gt; 集群中所有表的写入戳，一次集群状态只有一个条目 */
+    private static final ConnectionCache<String, Map<TableName, Long>> stamps                = new ConnectionCache<>(STAMP_INTERVAL);
+
+    private final File                                               dir;
+    private final long                                               maxBytes;
+    private final long                                               ttl;
+    private long                                                     segmentSize;
+    private boolean                                                  checkTableWrites       = true;
+
+    /** 按访问顺序排列，最久未访问的在前 */
+    private final LinkedHashMap<String, Entry>                       entries                = new LinkedHashMap<>(16,
+                                                                                                                  0.75f,
+                                                                                                                  true);
+    /** segment编号 -&gt; 有效条目数 */
+    private final Map<Integer, Integer>                              liveEntries            = new HashMap<>();
+    /** 不再写入的segment整体映射一次 */
+    private final Map<Integer, MappedByteBuffer>                     sealedMaps             = new HashMap<>();
+    /** 仍被映射、暂时删不掉的segment文件(Windows) */
+    private final List<File>                                         pendingDeletes         = new ArrayList<>();
+
+    private int                                                      activeSegment;
+    private RandomAccessFile                                         activeFile;
+    private DataOutputStream                                         journal;
+    private int                                                      journalRecords         = 0;
+
+    private long                                                     hits                   = 0;
+    private long                                                     misses                 = 0;
+    private long                                                     evictions              = 0;
+
+    /**
+     * 打开缓存目录，目录中已有的缓存继续使用
+     *
+     * @param dir 缓存目录
+     * @param maxBytes segment文件总大小上限
+     * @param ttl 条目有效期(毫秒)，小于等于0时不按时间失效
+     * @throws IOException
+     */
+    public ResultCache(File dir, long maxBytes, long ttl) throws IOException{
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create cache directory " + dir);
+        }
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.segmentSize = Math.max(1024 * 1024, Math.min(DEFAULT_SEGMENT_SIZE, maxBytes / 4));
+        load();
+    }
+
+    /**
+     * segment文件大小上限，超过后写入新的segment
+     *
+     * @param segmentSize
+     */
+    public synchronized void setSegmentSize(long segmentSize) {
+        // segment整体映射成一个MappedByteBuffer，不能超过2GB
+        this.segmentSize = Math.min(segmentSize, Integer.MAX_VALUE);
+    }
+
+    public boolean isCheckTableWrites() {
+        return checkTableWrites;
+    }
+
+    /**
+     * 是否按表的写入戳判断条目失效
+     *
+     * @param checkTableWrites
+     */
+    public void setCheckTableWrites(boolean checkTableWrites) {
+        this.checkTableWrites = checkTableWrites;
+    }
+
+    /**
+     * 读取缓存的一页，没有命中或者已经失效时返回null
+     *
+     * @param key 查询指纹
+     * @param tableStamp 表当前的写入戳，不检查写入时传0
+     * @param typeMapping 列类型映射
+     * @return 数据区为映射文件的只读页
+     */
+    public synchronized ColumnarPage get(String key, long tableStamp, Map<String, String> typeMapping) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if ((ttl > 0 && System.currentTimeMillis() - entry.createTime > ttl) || entry.tableStamp != tableStamp) {
+            remove(entry);
+            misses++;
+            return null;
+        }
+        try {
+            ByteBuffer record = map(entry);
+            if (record.getInt(0) != RECORD_MAGIC) {
+                throw new IOException("corrupt cache record " + key);
+            }
+            byte[] meta = new byte[entry.metaLength];
+            ByteBuffer metaView = record.duplicate();
+            metaView.position(RECORD_HEADER);
+            metaView.get(meta);
+            ByteBuffer data = record.duplicate();
+            data.position(RECORD_HEADER + entry.metaLength);
+            ColumnarPage page = ColumnarPage.readIndex(new DataInputStream(new ByteArrayInputStream(meta)),
+                                                       new MappedByteArena(data), typeMapping);
+            hits++;
+            return page;
+        } catch (IOException e) {
+            e.printStackTrace();
+            remove(entry);
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * 保存一页查询结果
+     *
+     * @param key 查询指纹
+     * @param tableName 表名，用于按表失效
+     * @param tableStamp 查询前表的写入戳，不检查写入时传0
+     * @param page 页数据
+     * @throws IOException
+     */
+    public synchronized void put(String key, String tableName, long tableStamp, ColumnarPage page) throws IOException {
+        ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+        DataOutputStream metaOut = new DataOutputStream(metaBytes);
+        page.writeIndex(metaOut);
+        metaOut.flush();
+        int dataLength = page.getArenaSize();
+        long recordLength = RECORD_HEADER + (long) metaBytes.size() + dataLength;
+        if (recordLength > segmentSize || recordLength > maxBytes / 2) {
+            return;
+        }
+        if (activeFile.length() > 0 && activeFile.length() + recordLength > segmentSize) {
+            rollSegment();
+        }
+
+        byte[] data;
+        if (page.getArena() instanceof HeapByteArena) {
+            data = ((HeapByteArena) page.getArena()).array();
+        } else {
+            data = new byte[dataLength];
+            page.getArena().read(0, data, 0, dataLength);
+        }
+        long offset = activeFile.length();
+        FileChannel channel = activeFile.getChannel();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        header.putInt(RECORD_MAGIC).putInt(metaBytes.size()).putInt(dataLength).flip();
+        writeFully(channel, header, offset);
+        writeFully(channel, ByteBuffer.wrap(metaBytes.toByteArray()), offset + RECORD_HEADER);
+        writeFully(channel, ByteBuffer.wrap(data, 0, dataLength), offset + RECORD_HEADER + metaBytes.size());
+
+        Entry old = entries.get(key);
+        if (old != null) {
+            remove(old);
+        }
+        Entry entry = new Entry(key, tableName, activeSegment, offset, metaBytes.size(), dataLength,
+                                System.currentTimeMillis(), tableStamp);
+        addEntry(entry);
+        writeJournal(entry);
+        evict();
+    }
+
+    /**
+     * 使一张表的所有条目失效
+     *
+     * @param tableName
+     */
+    public synchronized void invalidateTable(String tableName) {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.tableName.equals(tableName)) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            remove(entry);
+        }
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * segment文件的总字节数
+     *
+     * @return
+     */
+    public synchronized long getSize() {
+        long size = 0;
+        for (Integer segment : liveEntries.keySet()) {
+            size += segmentFile(segment).length();
+        }
+        if (!liveEntries.containsKey(activeSegment)) {
+            size += segmentFile(activeSegment).length();
+        }
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * 压缩日志并关闭文件，已经返回的映射页仍然可以读取
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            compactJournal();
+        } finally {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            if (activeFile != null) {
+                activeFile.close();
+                activeFile = null;
+            }
+            sealedMaps.clear();
+        }
+    }
+
+    /**
+     * 计算查询指纹。起始行取分页模型当前的起始行(没有时取startRowKey)，结束行取分页模型的结束行(没有时取endRowKey)
+     *
+     * @param scope 缓存作用域，一般为集群名
+     * @param tableName 表名
+     * @param startRowKey 起始行
+     * @param endRowKey 结束行
+     * @param filters 过滤器
+     * @param maxVersions 版本数，小于等于0表示只取最新版本
+     * @param pageModel 分页模型
+     * @param firstPage 是否第一页
+     * @return
+     * @throws IOException
+     */
+    public static String fingerprint(String scope, String tableName, byte[] startRowKey, byte[] endRowKey,
+                                     List<Filter> filters, int maxVersions, HBasePageModel pageModel,
+                                     boolean firstPage) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(scope);
+        out.writeUTF(tableName);
+        writeNullable(out, pageModel.getPageStartRowKey() != null ? pageModel.getPageStartRowKey() : startRowKey);
+        writeNullable(out, pageModel.getPageEndRowKey() != null ? pageModel.getPageEndRowKey() : endRowKey);
+        out.writeInt(filters == null ? 0 : filters.size());
+        if (filters != null) {
+            for (Filter filter : filters) {
+                out.writeUTF(filter.getClass().getName());
+                writeNullable(out, filter.toByteArray());
+            }
+        }
+        out.writeInt(maxVersions <= 0 ? 0 : maxVersions);
+        boolean timeRange = pageModel.getMinStamp() != 0 && pageModel.getMaxStamp() != 0;
+        out.writeLong(timeRange ? pageModel.getMinStamp() : 0);
+        out.writeLong(timeRange ? pageModel.getMaxStamp() : 0);
+        out.writeInt(pageModel.getPageSize());
+        out.writeBoolean(firstPage);
+        out.writeUTF(pageModel.getConsistency().name());
+        out.flush();
+        try {
+            return Bytes.toHex(MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 表的写入戳：各region的写请求计数和region名称汇总成一个值，有写入、region移动或分裂时都会变化。每个连接缓存STAMP_INTERVAL毫秒
+     *
+     * @param connection
+     * @param tableName
+     * @return 表不存在或者没有region负载信息时返回0
+     * @throws IOException
+     */
+    public static long tableStamp(Connection connection, TableName tableName) throws IOException {
+        Map<TableName, Long> tables = stamps.get(connection, "",
+                                                 new ConnectionCache.Loader<String, Map<TableName, Long>>() {
+
+                                                     @Override
+                                                     public Map<TableName, Long> load(Connection connection,
+                                                                                      String key) throws IOException {
+                                                         Admin admin = connection.getAdmin();
+                                                         try {
+                                                             return loadStamps(admin.getClusterStatus());
+                                                         } finally {
+                                                             admin.close();
+                                                         }
+                                                     }
+                                                 });
+        Long stamp = tables.get(tableName);
+        return stamp == null ? 0 : stamp;
+    }
+
+    /**
+     * 一次集群状态中所有表的写入戳
+     */
+    private static Map<TableName, Long> loadStamps(ClusterStatus status) {
+        Map<TableName, Long> stamps = new HashMap<>();
+        for (ServerName serverName : status.getServers()) {
+            ServerLoad load = status.getLoad(serverName);
+            if (load == null) {
+                continue;
+            }
+            for (RegionLoad region : load.getRegionsLoad().values()) {
+                TableName tableName = HRegionInfo.getTable(region.getName());
+                long h = ((long) Bytes.hashCode(region.getName()) << 32) ^ region.getWriteRequestsCount();
+                // 和region的顺序无关
+                h *= 0x9E3779B97F4A7C15L;
+                h ^= h >>> 29;
+                Long stamp = stamps.get(tableName);
+                stamps.put(tableName, (stamp == null ? 0 : stamp) + h);
+            }
+        }
+        return stamps;
+    }
+
+    private void load() throws IOException {
+        int maxSegment = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int segment = segmentNumber(file);
+                maxSegment = Math.max(maxSegment, segment);
+            }
+        }
+        File journalFile = new File(dir, JOURNAL_FILE);
+        if (journalFile.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == JOURNAL_PUT) {
+                        Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readInt(), in.readLong(),
+                                                in.readInt(), in.readInt(), in.readLong(), in.readLong());
+                        entries.put(entry.key, entry);
+                    } else if (type == JOURNAL_REMOVE) {
+                        entries.remove(in.readUTF());
+                    } else {
+                        break;
+                    }
+                }
+            } catch (EOFException e) {
+                // 日志末尾可能只写了一半
+            } finally {
+                in.close();
+            }
+        }
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            Entry entry = iterator.next();
+            File file = segmentFile(entry.segment);
+            if (!file.exists() || file.length() < entry.offset + entry.length()) {
+                iterator.remove();
+                continue;
+            }
+            Integer live = liveEntries.get(entry.segment);
+            liveEntries.put(entry.segment, live == null ? 1 : live + 1);
+        }
+        if (files != null) {
+            for (File file : files) {
+                int segment = segmentNumber(file);
+                if (segment > 0 && !liveEntries.containsKey(segment)) {
+                    deleteSegment(file);
+                }
+            }
+        }
+        // 每次打开都写入新的segment，已有的segment只读
+        activeSegment = maxSegment + 1;
+        activeFile = new RandomAccessFile(segmentFile(activeSegment), "rw");
+        compactJournal();
+        evict();
+    }
+
+    private void rollSegment() throws IOException {
+        activeFile.close();
+        if (!liveEntries.containsKey(activeSegment)) {
+            deleteSegment(segmentFile(activeSegment));
+        }
+        activeSegment++;
+        activeFile = new RandomAccessFile(segmentFile(activeSegment), "rw");
+    }
+
+    private ByteBuffer map(Entry entry) throws IOException {
+        if (entry.segment == activeSegment) {
+            return activeFile.getChannel().map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length());
+        }
+        MappedByteBuffer segment = sealedMaps.get(entry.segment);
+        if (segment == null) {
+            RandomAccessFile file = new RandomAccessFile(segmentFile(entry.segment), "r");
+            try {
+                segment = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            } finally {
+                // 映射在文件关闭后仍然有效
+                file.close();
+            }
+            sealedMaps.put(entry.segment, segment);
+        }
+        ByteBuffer record = segment.duplicate();
+        record.position((int) entry.offset);
+        record.limit((int) (entry.offset + entry.length()));
+        return record.slice();
+    }
+
+    private void addEntry(Entry entry) {
+        entries.put(entry.key, entry);
+        Integer live = liveEntries.get(entry.segment);
+        liveEntries.put(entry.segment, live == null ? 1 : live + 1);
+    }
+
+    private void remove(Entry entry) {
+        if (entries.get(entry.key) != entry) {
+            return;
+        }
+        entries.remove(entry.key);
+        int live = liveEntries.get(entry.segment) - 1;
+        if (live > 0) {
+            liveEntries.put(entry.segment, live);
+        } else {
+            liveEntries.remove(entry.segment);
+            if (entry.segment != activeSegment) {
+                sealedMaps.remove(entry.segment);
+                deleteSegment(segmentFile(entry.segment));
+            }
+        }
+        try {
+            writeJournalRemove(entry.key);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 按segment淘汰。segment文件要等其中的条目全部失效才能删除，逐条淘汰最久未访问的条目会让很多segment各失效一部分却释放不了空间，
+     * 所以每次找出最久未访问的条目，把它所在的segment整个淘汰。当前写入的segment要等写满后才能删除，不参与淘汰
+     */
+    private void evict() {
+        retryPendingDeletes();
+        long size = getSize();
+        while (size > maxBytes) {
+            int victim = -1;
+            for (Entry entry : entries.values()) {
+                if (entry.segment != activeSegment) {
+                    victim = entry.segment;
+                    break;
+                }
+            }
+            if (victim < 0) {
+                return;
+            }
+            long segmentBytes = segmentFile(victim).length();
+            for (Entry entry : new ArrayList<>(entries.values())) {
+                if (entry.segment == victim) {
+                    remove(entry);
+                    evictions++;
+                }
+            }
+            size -= segmentBytes;
+        }
+    }
+
+    private void writeJournal(Entry entry) throws IOException {
+        journal.writeByte(JOURNAL_PUT);
+        journal.writeUTF(entry.key);
+        journal.writeUTF(entry.tableName);
+        journal.writeInt(entry.segment);
+        journal.writeLong(entry.offset);
+        journal.writeInt(entry.metaLength);
+        journal.writeInt(entry.dataLength);
+        journal.writeLong(entry.createTime);
+        journal.writeLong(entry.tableStamp);
+        journal.flush();
+        journalRecords++;
+    }
+
+    private void writeJournalRemove(String key) throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journal.writeByte(JOURNAL_REMOVE);
+        journal.writeUTF(key);
+        journal.flush();
+        journalRecords++;
+        if (journalRecords > entries.size() * 2 + 1000) {
+            compactJournal();
+        }
+    }
+
+    /**
+     * 只保留有效条目重写日志，按访问顺序写入，重放后仍然是原来的淘汰顺序
+     */
+    private void compactJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        File journalFile = new File(dir, JOURNAL_FILE);
+        File tmp = new File(dir, JOURNAL_FILE + ".tmp");
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        journalRecords = 0;
+        try {
+            for (Entry entry : entries.values()) {
+                writeJournal(entry);
+            }
+        } finally {
+            journal.close();
+            journal = null;
+        }
+        // 先删除再改名时崩溃会丢掉整个日志，原子替换保证日志要么是压缩前的要么是压缩后的
+        HbaseUtil.replaceFile(tmp, journalFile);
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+    }
+
+    private void deleteSegment(File file) {
+        if (file.exists() && !file.delete()) {
+            pendingDeletes.add(file);
+        }
+    }
+
+    private void retryPendingDeletes() {
+        for (Iterator<File> iterator = pendingDeletes.iterator(); iterator.hasNext();) {
+            File file = iterator.next();
+            if (!file.exists() || file.delete()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(dir, SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    private static int segmentNumber(File file) {
+        String name = file.getName();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, byte[] b) throws IOException {
+        if (b == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache[" + dir + " entries:" + entries.size() + " hits:" + hits + " misses:" + misses
+               + " evictions:" + evictions + "]";
+    }
+
+    /**
+     * 一页缓存在segment中的位置：magic、元数据长度、数据区长度、元数据、数据区
+     */
+    private static class Entry {
+
+        private final String key;
+        private final String tableName;
+        private final int    segment;
+        private final long   offset;
+        private final int    metaLength;
+        private final int    dataLength;
+        private final long   createTime;
+        private final long   tableStamp;
+
+        Entry(String key, String tableName, int segment, long offset, int metaLength, int dataLength,
+              long createTime, long tableStamp){
+            this.key = key;
+            this.tableName = tableName;
+            this.segment = segment;
+            this.offset = offset;
+            this.metaLength = metaLength;
+            this.dataLength = dataLength;
+            this.createTime = createTime;
+            this.tableStamp = tableStamp;
+        }
+
+        long length() {
+            return RECORD_HEADER + (long) metaLength + dataLength;
+        }
+    }
+
+}
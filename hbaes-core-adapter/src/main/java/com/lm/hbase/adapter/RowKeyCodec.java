@@ -0,0 +1,51 @@
+package com.lm.hbase.adapter;
+
+/**
+ * 行键编码：逻辑行键(用户看到的)和物理行键(表中实际保存的)之间的转换。<br>
+ * 物理键空间分成getBucketCount()个桶，每个桶内物理键的顺序和逻辑键的顺序一致，逻辑上的范围扫描拆成每个桶一段扫描，再按逻辑键归并。
+ *
+ * @version 1.0
+ */
+public interface RowKeyCodec {
+
+    /**
+     * 逻辑行键转换成物理行键
+     * 
+     * @param rowKey
+     * @return
+     */
+    byte[] encode(byte[] rowKey);
+
+    /**
+     * 物理行键转换成逻辑行键
+     * 
+     * @param physicalRowKey
+     * @return
+     */
+    byte[] decode(byte[] physicalRowKey);
+
+    /**
+     * 桶数，为1时逻辑键和物理键顺序一致，不需要拆分扫描
+     * 
+     * @return
+     */
+    int getBucketCount();
+
+    /**
+     * 逻辑行键(或行键前缀)在第bucket个桶中对应的物理行键
+     * 
+     * @param bucket
+     * @param rowKey
+     * @return
+     */
+    byte[] toBucket(int bucket, byte[] rowKey);
+
+    /**
+     * 第bucket个桶的物理行键终点(不包含)，空数组表示表尾
+     * 
+     * @param bucket
+     * @return
+     */
+    byte[] bucketEnd(int bucket);
+
+}
@@ -0,0 +1,241 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+
+/**
+ * 表的行键编码配置。<br>
+ * 加盐的桶数保存在数据表描述的属性里(gui.rowkey.salt = 桶数)，所有客户端都能看到；每个连接缓存一份，一分钟刷新一次。
+ * 没有配置的表使用IDENTITY，逻辑行键就是物理行键。<br>
+ * 桶数只能在表为空时设置，已有数据不会重新编码。
+ *
+ * @version 1.0
+ */
+public class RowKeyCodecs {
+
+    public static final String                                                 SALT_PROPERTY = "gui.rowkey.salt";
+
+    public static final long                                                   CACHE_TTL     = 60 * 1000;
+
+    /** 不做转换的编码 */
+    public static final RowKeyCodec                                            IDENTITY      = new IdentityCodec();
+
+    private static final ConnectionCache<TableName, RowKeyCodec>               cache         = new ConnectionCache<>(CACHE_TTL);
+
+    /**
+     * 获取表的行键编码
+     * 
+     * @param connection
+     * @param tableName
+     * @return
+     * @throws IOException
+     */
+    public static RowKeyCodec get(Connection connection, TableName tableName) throws IOException {
+        return cache.get(connection, tableName, new ConnectionCache.Loader<TableName, RowKeyCodec>() {
+
+            @Override
+            public RowKeyCodec load(Connection connection, TableName tableName) throws IOException {
+                return RowKeyCodecs.load(connection, tableName);
+            }
+        });
+    }
+
+    /**
+     * 清除缓存的行键编码，表被重建或者修改桶数后调用
+     * 
+     * @param connection
+     * @param tableName
+     */
+    public static void invalidate(Connection connection, TableName tableName) {
+        cache.invalidate(connection, tableName);
+    }
+
+    /**
+     * 设置表的加盐桶数，buckets小于等于1时取消加盐。需要在写入数据之前设置
+     * 
+     * @param connection
+     * @param tableName
+     * @param buckets
+     * @throws Exception
+     */
+    public static void setSaltBuckets(Connection connection, TableName tableName, int buckets) throws Exception {
+        Admin admin = connection.getAdmin();
+        try {
+            HTableDescriptor descriptor = admin.getTableDescriptor(tableName);
+            if (buckets > 1) {
+                new SaltedRowKeyCodec(buckets);// 校验桶数
+                descriptor.setValue(SALT_PROPERTY, String.valueOf(buckets));
+            } else {
+                descriptor.remove(SALT_PROPERTY);
+            }
+            admin.modifyTable(tableName, descriptor);
+        } finally {
+            admin.close();
+        }
+        cache.invalidate(connection, tableName);
+    }
+
+    /**
+     * 把过滤器中按逻辑行键匹配的PrefixFilter换算到第bucket个桶内，其余过滤器不变，没有加盐时原样返回
+     * 
+     * @param filter
+     * @param codec
+     * @param bucket
+     * @return
+     */
+    static Filter toBucket(Filter filter, RowKeyCodec codec, int bucket) {
+        if (codec.getBucketCount() <= 1) {
+            return filter;
+        }
+        if (filter instanceof PrefixFilter) {
+            return new PrefixFilter(codec.toBucket(bucket, ((PrefixFilter) filter).getPrefix()));
+        }
+        if (filter instanceof FilterList) {
+            FilterList list = (FilterList) filter;
+            List<Filter> filters = new ArrayList<>(list.getFilters().size());
+            for (Filter item : list.getFilters()) {
+                filters.add(toBucket(item, codec, bucket));
+            }
+            return new FilterList(list.getOperator(), filters);
+        }
+        return filter;
+    }
+
+    /**
+     * 把Put的行键转换成物理行键，IDENTITY时原样返回
+     * 
+     * @param put
+     * @param codec
+     * @return
+     */
+    public static Put encode(Put put, RowKeyCodec codec) {
+        if (codec.getBucketCount() <= 1) {
+            return put;
+        }
+        Put result = new Put(codec.encode(put.getRow()), put.getTimeStamp());
+        for (Map.Entry<byte[], List<Cell>> entry : put.getFamilyCellMap().entrySet()) {
+            for (Cell c : entry.getValue()) {
+                result.addColumn(CellUtil.cloneFamily(c), CellUtil.cloneQualifier(c), c.getTimestamp(),
+                                 CellUtil.cloneValue(c));
+            }
+        }
+        result.setDurability(put.getDurability());
+        result.setTTL(put.getTTL());
+        for (Map.Entry<String, byte[]> attribute : put.getAttributesMap().entrySet()) {
+            result.setAttribute(attribute.getKey(), attribute.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 批量转换Put的行键
+     * 
+     * @param puts
+     * @param codec
+     * @return
+     */
+    public static List<Put> encode(Collection<Put> puts, RowKeyCodec codec) {
+        List<Put> result = new ArrayList<>(puts.size());
+        for (Put put : puts) {
+            result.add(encode(put, codec));
+        }
+        return result;
+    }
+
+    /**
+     * 把Result中的行键转换成逻辑行键，IDENTITY时原样返回
+     * 
+     * @param rs
+     * @param codec
+     * @return
+     */
+    public static Result decode(Result rs, RowKeyCodec codec) {
+        if (codec.getBucketCount() <= 1 || rs == null || rs.isEmpty()) {
+            return rs;
+        }
+        byte[] row = codec.decode(rs.getRow());
+        Cell[] cells = rs.rawCells();
+        Cell[] decoded = new Cell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            Cell c = cells[i];
+            decoded[i] = new KeyValue(row, 0, row.length, c.getFamilyArray(), c.getFamilyOffset(),
+                                      c.getFamilyLength(), c.getQualifierArray(), c.getQualifierOffset(),
+                                      c.getQualifierLength(), c.getTimestamp(),
+                                      KeyValue.Type.codeToType(c.getTypeByte()), c.getValueArray(), c.getValueOffset(), c.getValueLength());
+        }
+        return Result.create(decoded, rs.getExists(), rs.isStale(), rs.isPartial());
+    }
+
+    /**
+     * 按表描述中的加盐配置取得行键编码，用于快照等不经过连接读取表描述的场景
+     * 
+     * @param descriptor
+     * @return
+     */
+    static RowKeyCodec of(HTableDescriptor descriptor) {
+        String buckets = descriptor.getValue(SALT_PROPERTY);
+        if (buckets == null || Integer.parseInt(buckets.trim()) <= 1) {
+            return IDENTITY;
+        }
+        return new SaltedRowKeyCodec(Integer.parseInt(buckets.trim()));
+    }
+
+    private static RowKeyCodec load(Connection connection, TableName tableName) throws IOException {
+        Admin admin = connection.getAdmin();
+        try {
+            return of(admin.getTableDescriptor(tableName));
+        } finally {
+            admin.close();
+        }
+    }
+
+    private static class IdentityCodec implements RowKeyCodec {
+
+        @Override
+        public byte[] encode(byte[] rowKey) {
+            return rowKey;
+        }
+
+        @Override
+        public byte[] decode(byte[] physicalRowKey) {
+            return physicalRowKey;
+        }
+
+        @Override
+        public int getBucketCount() {
+            return 1;
+        }
+
+        @Override
+        public byte[] toBucket(int bucket, byte[] rowKey) {
+            return rowKey;
+        }
+
+        @Override
+        public byte[] bucketEnd(int bucket) {
+            return new byte[0];
+        }
+
+        @Override
+        public String toString() {
+            return "identity";
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.lm.hbase.adapter;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+
+/**
+ * 分页查询的数据来源，可以是在线表，也可以是快照等离线数据
+ *
+ * @version 1.0
+ */
+interface ScannerSource {
+
+    ResultScanner getScanner(Scan scan) throws IOException;
+
+}
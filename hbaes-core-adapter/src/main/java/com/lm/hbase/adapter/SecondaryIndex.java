@@ -0,0 +1,254 @@
+package com.lm.hbase.adapter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Order;
+import org.apache.hadoop.hbase.util.OrderedBytes;
+import org.apache.hadoop.hbase.util.PositionedByteRange;
+import org.apache.hadoop.hbase.util.SimplePositionedByteRange;
+import org.apache.hadoop.hbase.util.SimplePositionedMutableByteRange;
+
+/**
+ * 二级索引定义和索引行键编码。<br>
+ * 索引表的行键为【保序编码的列值 + 数据行键】，只有一个空值的cell。列值按类型用OrderedBytes编码：编码后的字节序和数值大小一致，
+ * 并且编码是自定界的(任何一个编码都不是另一个编码的前缀)，所以等值查询是一个前缀扫描，范围查询是一段行键区间扫描。<br>
+ * 类型和typeMapping的取值一致；string和未知类型按原始字节编码，字节序即字典序。
+ *
+ * @version 1.0
+ */
+public class SecondaryIndex {
+
+    /** 索引表的列族 */
+    public static final byte[] INDEX_FAMILY    = Bytes.toBytes("i");
+
+    /** 索引表的列名 */
+    public static final byte[] INDEX_QUALIFIER = new byte[0];
+
+    private final TableName    dataTable;
+    private final byte[]       family;
+    private final byte[]       qualifier;
+    private final String       type;
+    private final TableName    indexTable;
+
+    public SecondaryIndex(TableName dataTable, byte[] family, byte[] qualifier, String type){
+        this(dataTable, family, qualifier, type, defaultIndexTable(dataTable, family, qualifier));
+    }
+
+    public SecondaryIndex(TableName dataTable, byte[] family, byte[] qualifier, String type, TableName indexTable){
+        this.dataTable = dataTable;
+        this.family = family;
+        this.qualifier = qualifier;
+        this.type = StringUtils.isEmpty(type) ? "string" : type.trim().toLowerCase();
+        this.indexTable = indexTable;
+    }
+
+    public TableName getDataTable() {
+        return dataTable;
+    }
+
+    public byte[] getFamily() {
+        return family;
+    }
+
+    public byte[] getQualifier() {
+        return qualifier;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public TableName getIndexTable() {
+        return indexTable;
+    }
+
+    /**
+     * 由数据表中的原始值和数据行键生成索引行键
+     *
+     * @param value 数据表中的原始值
+     * @param rowKey 数据行键
+     * @return 原始值不能按类型解码时返回null，这样的值不建索引
+     */
+    public byte[] indexRow(byte[] value, int offset, int length, byte[] rowKey) {
+        byte[] encoded = encodeStored(value, offset, length);
+        if (encoded == null) {
+            return null;
+        }
+        return Bytes.add(encoded, rowKey);
+    }
+
+    /**
+     * 把原始值按类型编码成保序字节
+     *
+     * @param value
+     * @param offset
+     * @param length
+     * @return 不能按类型解码时返回null
+     */
+    public byte[] encodeStored(byte[] value, int offset, int length) {
+        try {
+            switch (type) {
+                case "long":
+                    return encodeLong(Bytes.toLong(value, offset, length));
+                case "int":
+                    return encodeInt(Bytes.toInt(value, offset, length));
+                case "short":
+                    return encodeShort(Bytes.toShort(value, offset, length));
+                case "flout":
+                case "float":
+                    if (length != Bytes.SIZEOF_FLOAT) {
+                        return null;
+                    }
+                    return encodeFloat(Bytes.toFloat(value, offset));
+                case "double":
+                    if (length != Bytes.SIZEOF_DOUBLE) {
+                        return null;
+                    }
+                    return encodeDouble(Bytes.toDouble(value, offset));
+                case "bigdecimal":
+                    return encodeBigDecimal(Bytes.toBigDecimal(value, offset, length));
+                case "boolean":
+                    return encodeShort(value[offset] != (byte) 0 ? (short) 1 : (short) 0);
+                default:
+                    return encodeBytes(value, offset, length);
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把查询条件中的展示值编码成保序字节，和FilterFactory.createSingleColumnValueFilter的fieldValue格式一致
+     *
+     * @param displayValue
+     * @return
+     * @throws Exception 值不能按类型解析
+     */
+    public byte[] encodeDisplay(String displayValue) throws Exception {
+        try {
+            switch (type) {
+                case "long":
+                    return encodeLong(Long.parseLong(displayValue.trim()));
+                case "int":
+                    return encodeInt(Integer.parseInt(displayValue.trim()));
+                case "short":
+                    return encodeShort(Short.parseShort(displayValue.trim()));
+                case "flout":
+                case "float":
+                    return encodeFloat(Float.parseFloat(displayValue.trim()));
+                case "double":
+                    return encodeDouble(Double.parseDouble(displayValue.trim()));
+                case "bigdecimal":
+                    return encodeBigDecimal(new BigDecimal(displayValue.trim()));
+                case "boolean":
+                    return encodeShort(Boolean.parseBoolean(displayValue.trim()) ? (short) 1 : (short) 0);
+                default:
+                    byte[] b = Bytes.toBytes(displayValue);
+                    return encodeBytes(b, 0, b.length);
+            }
+        } catch (NumberFormatException e) {
+            throw new Exception("can not parse " + displayValue + " as " + type, e);
+        }
+    }
+
+    /**
+     * 索引行键中编码值部分的长度
+     *
+     * @param indexRow
+     * @return
+     */
+    public static int encodedLength(byte[] indexRow) {
+        PositionedByteRange range = new SimplePositionedByteRange(indexRow);
+        return OrderedBytes.skip(range);
+    }
+
+    /**
+     * 从索引行键中取出数据行键
+     *
+     * @param indexRow
+     * @return
+     */
+    public static byte[] dataRow(byte[] indexRow) {
+        return Arrays.copyOfRange(indexRow, encodedLength(indexRow), indexRow.length);
+    }
+
+    /**
+     * 大于所有以prefix开头的行键的最小行键，prefix全为0xFF时返回空数组(表尾)
+     *
+     * @param prefix
+     * @return
+     */
+    public static byte[] nextPrefix(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] result = Arrays.copyOf(prefix, i + 1);
+                result[i]++;
+                return result;
+            }
+        }
+        return new byte[0];
+    }
+
+    /**
+     * 默认的索引表名：【数据表名_idx_列族_列名】，和数据表在同一个命名空间
+     */
+    static TableName defaultIndexTable(TableName dataTable, byte[] family, byte[] qualifier) {
+        String name = dataTable.getQualifierAsString() + "_idx_" + Bytes.toString(family) + "_"
+                      + Bytes.toString(qualifier);
+        return TableName.valueOf(dataTable.getNamespaceAsString(), name.replaceAll("[^a-zA-Z0-9_.\\-]", "_"));
+    }
+
+    private static byte[] encodeLong(long value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(9);
+        OrderedBytes.encodeInt64(range, value, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    private static byte[] encodeInt(int value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(5);
+        OrderedBytes.encodeInt32(range, value, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    private static byte[] encodeShort(short value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(3);
+        OrderedBytes.encodeInt16(range, value, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    private static byte[] encodeFloat(float value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(5);
+        OrderedBytes.encodeFloat32(range, value, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    private static byte[] encodeDouble(double value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(9);
+        OrderedBytes.encodeFloat64(range, value, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    private static byte[] encodeBigDecimal(BigDecimal value) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(value.unscaledValue().toString().length()
+                                                                         + 32);
+        int length = OrderedBytes.encodeNumeric(range, value, Order.ASCENDING);
+        return Arrays.copyOf(range.getBytes(), length);
+    }
+
+    private static byte[] encodeBytes(byte[] b, int offset, int length) {
+        PositionedByteRange range = new SimplePositionedMutableByteRange(OrderedBytes.blobVarEncodedLength(length));
+        OrderedBytes.encodeBlobVar(range, b, offset, length, Order.ASCENDING);
+        return range.getBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "SecondaryIndex[" + dataTable + " " + Bytes.toString(family) + ":" + Bytes.toString(qualifier) + " "
+               + type + " -> " + indexTable + "]";
+    }
+
+}
@@ -0,0 +1,357 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ClientSideRegionScanner;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.SnapshotDescription;
+import org.apache.hadoop.hbase.snapshot.RestoreSnapshotHelper;
+
+import com.lm.hbase.adapter.entity.HBasePageModel;
+
+/**
+ * 基于快照的离线读取。<br>
+ * 对表做快照(或者复用已有的快照)，把快照恢复到restoreDir下，然后在客户端直接读取HFile，不经过RegionServer的读路径，
+ * 全表计数、导出、抽样等重量级操作不会影响线上读写。<br>
+ * rootDir为集群的hbase.rootdir(例如hdfs://namenode:8020/hbase，单机或mini-cluster时可以是本地目录)，
+ * restoreDir必须和rootDir在同一个文件系统上，并且不能是rootDir下面的目录。<br>
+ * 提供和HbaseUtil相同的分页接口，另外提供按region并行处理的接口。
+ *
+ * @version 1.0
+ */
+public class SnapshotReader implements Closeable {
+
+    public static final int     DEFAULT_PARALLELISM   = 8;
+
+    private final Configuration conf;
+    private final FileSystem    fs;
+    private final Path          restoreDir;
+    private final String        snapshotName;
+    private final TableName     tableName;
+    private HTableDescriptor    htd;
+    private List<HRegionInfo>   regions;
+    private Admin               admin;
+    private boolean             snapshotCreated       = false;
+    private boolean             deleteSnapshotOnClose = false;
+
+    /**
+     * 打开快照读取器。snapshotName已存在时直接复用，不存在时对表做一次快照
+     *
+     * @param configuration 集群配置，一般用ConnectionRegistry.getConfiguration(profile)
+     * @param connection 用于创建快照
+     * @param tableName 表名
+     * @param snapshotName 快照名称，为null时自动生成
+     * @param rootDir 集群的hbase.rootdir
+     * @param restoreDir 恢复目录的父目录，每次打开会在下面建立独立的子目录
+     * @throws IOException
+     */
+    public SnapshotReader(Configuration configuration, Connection connection, TableName tableName,
+                          String snapshotName, Path rootDir, Path restoreDir) throws IOException{
+        this.conf = new Configuration(configuration);
+        this.conf.set(HConstants.HBASE_DIR, rootDir.toString());
+        this.fs = rootDir.getFileSystem(conf);
+        this.tableName = tableName;
+        this.snapshotName = snapshotName != null ? snapshotName : defaultSnapshotName(tableName);
+        this.restoreDir = new Path(restoreDir, this.snapshotName + "_" + UUID.randomUUID().toString());
+        this.admin = connection.getAdmin();
+        try {
+            ensureSnapshot();
+            RestoreSnapshotHelper.RestoreMetaChanges meta = RestoreSnapshotHelper.copySnapshotForScanner(conf, fs,
+                                                                                                         rootDir,
+                                                                                                         this.restoreDir,
+                                                                                                         this.snapshotName);
+            this.htd = meta.getTableDescriptor();
+            this.regions = new ArrayList<>(meta.getRegionsToAdd());
+            Collections.sort(this.regions);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭时是否删除快照，只对本读取器创建的快照生效
+     *
+     * @param deleteSnapshotOnClose
+     */
+    public void setDeleteSnapshotOnClose(boolean deleteSnapshotOnClose) {
+        this.deleteSnapshotOnClose = deleteSnapshotOnClose;
+    }
+
+    /**
+     * 快照是否由本读取器创建，复用已有快照时为false
+     *
+     * @return
+     */
+    public boolean isSnapshotCreated() {
+        return snapshotCreated;
+    }
+
+    public String getSnapshotName() {
+        return snapshotName;
+    }
+
+    public HTableDescriptor getTableDescriptor() {
+        return htd;
+    }
+
+    /**
+     * 快照中的region，按startKey排序
+     *
+     * @return
+     */
+    public List<HRegionInfo> getRegions() {
+        return Collections.unmodifiableList(regions);
+    }
+
+    /**
+     * 按行键顺序依次读取与scan范围重叠的region。行键和scan范围都是物理行键，加盐的表包含桶前缀
+     *
+     * @param scan
+     * @return
+     */
+    public ResultScanner getScanner(Scan scan) {
+        return new SnapshotResultScanner(scan, regionsInRange(scan.getStartRow(), scan.getStopRow()));
+    }
+
+    /**
+     * 分页查询，参数和返回值与HbaseUtil.scanResultByPageFilter一致。加盐的表按快照中的加盐配置拆分扫描，返回逻辑行键
+     */
+    public HBasePageModel scanResultByPageFilter(byte[] startRowKey, byte[] endRowKey, List<Object> filtersObj,
+                                                 int maxVersions, HBasePageModel pageModel, boolean firstPage,
+                                                 Map<String, String> typeMapping) throws Exception {
+        ScannerSource source = new ScannerSource() {
+
+            @Override
+            public ResultScanner getScanner(Scan scan) throws IOException {
+                return SnapshotReader.this.getScanner(scan);
+            }
+        };
+        return HbaseUtil.scanPage(HbaseUtil.codecSource(source, RowKeyCodecs.of(htd)), tableName.getNameAsString(),
+                                  startRowKey, endRowKey, filtersObj, maxVersions, pageModel, firstPage, typeMapping);
+    }
+
+    /**
+     * 按region并行计算行数
+     *
+     * @param parallelism 并行度
+     * @return
+     * @throws Exception
+     */
+    public long rowCount(int parallelism) throws Exception {
+        final AtomicLong count = new AtomicLong();
+        Scan scan = new Scan();
+        scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        forEachRegion(scan, parallelism, new RegionResultHandler() {
+
+            @Override
+            public void handle(HRegionInfo region, Result result) {
+                count.incrementAndGet();
+            }
+        });
+        return count.get();
+    }
+
+    /**
+     * 按region并行读取快照，每个region在一个线程内按行键顺序回调handler，不同region的回调是并发的
+     *
+     * @param scan 读取范围和过滤器，每个region会复制一份(包括过滤器)
+     * @param parallelism 并行度
+     * @param handler
+     * @throws Exception 任意一个region读取失败
+     */
+    public void forEachRegion(Scan scan, int parallelism, final RegionResultHandler handler) throws Exception {
+        List<HRegionInfo> targets = regionsInRange(scan.getStartRow(), scan.getStopRow());
+        if (targets.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, targets.size())),
+                                                                new DaemonThreadFactory("hbase-snapshot-reader"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final HRegionInfo region : targets) {
+                final Scan regionScan = copyScan(scan);
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        ClientSideRegionScanner scanner = new ClientSideRegionScanner(conf, fs, restoreDir, htd,
+                                                                                      region, regionScan, null);
+                        try {
+                            Result result;
+                            while ((result = scanner.next()) != null) {
+                                handler.handle(region, result);
+                            }
+                        } finally {
+                            scanner.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 删除恢复目录；快照由本读取器创建且设置了deleteSnapshotOnClose时一并删除快照
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (fs.exists(restoreDir)) {
+                fs.delete(restoreDir, true);
+            }
+            if (snapshotCreated && deleteSnapshotOnClose) {
+                admin.deleteSnapshot(snapshotName);
+            }
+        } finally {
+            if (admin != null) {
+                admin.close();
+                admin = null;
+            }
+        }
+    }
+
+    private void ensureSnapshot() throws IOException {
+        List<SnapshotDescription> existing = admin.listSnapshots(Pattern.compile(Pattern.quote(snapshotName)));
+        if (!existing.isEmpty()) {
+            // 同名快照属于其他表时不能复用，否则会按这个表的region读取另一张表的数据
+            TableName snapshotTable = TableName.valueOf(existing.get(0).getTable());
+            if (!snapshotTable.equals(tableName)) {
+                throw new IOException("快照" + snapshotName + "属于表" + snapshotTable + "，不是" + tableName);
+            }
+            return;
+        }
+        admin.snapshot(snapshotName, tableName);
+        snapshotCreated = true;
+    }
+
+    /**
+     * 复制Scan。Scan的复制构造函数共用同一个Filter对象，而过滤器带有扫描状态(例如FirstKeyOnlyFilter)，
+     * 并行扫描多个region时必须各自使用一份，这里按RegionServer收到过滤器的方式序列化再还原
+     */
+    static Scan copyScan(Scan scan) throws IOException {
+        Scan copy = new Scan(scan);
+        if (scan.getFilter() != null) {
+            copy.setFilter(ProtobufUtil.toFilter(ProtobufUtil.toFilter(scan.getFilter())));
+        }
+        return copy;
+    }
+
+    private List<HRegionInfo> regionsInRange(byte[] startRow, byte[] stopRow) {
+        List<HRegionInfo> result = new ArrayList<>();
+        for (HRegionInfo region : regions) {
+            if (region.isOffline() && region.isSplit()) {
+                continue;
+            }
+            if (CellUtil.overlappingKeys(startRow, stopRow, region.getStartKey(), region.getEndKey())) {
+                result.add(region);
+            }
+        }
+        return result;
+    }
+
+    private static String defaultSnapshotName(TableName tableName) {
+        return tableName.getNameAsString().replace(':', '_') + "_gui_" + System.currentTimeMillis();
+    }
+
+    /**
+     * region读取回调
+     */
+    public static interface RegionResultHandler {
+
+        void handle(HRegionInfo region, Result result) throws Exception;
+    }
+
+    /**
+     * 依次读取多个region的扫描器
+     */
+    private class SnapshotResultScanner extends AbstractClientScanner {
+
+        private final Scan              scan;
+        private final List<HRegionInfo> targets;
+        private int                     regionIndex = -1;
+        private ClientSideRegionScanner current     = null;
+        private boolean                 closed      = false;
+
+        SnapshotResultScanner(Scan scan, List<HRegionInfo> targets){
+            this.scan = scan;
+            this.targets = targets;
+        }
+
+        @Override
+        public Result next() throws IOException {
+            while (!closed) {
+                if (current == null) {
+                    regionIndex++;
+                    if (regionIndex >= targets.size()) {
+                        return null;
+                    }
+                    current = new ClientSideRegionScanner(conf, fs, restoreDir, htd, targets.get(regionIndex),
+                                                          copyScan(scan), null);
+                }
+                Result result = current.next();
+                if (result != null) {
+                    return result;
+                }
+                current.close();
+                current = null;
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public boolean renewLease() {
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotReader[" + tableName + "/" + snapshotName + " restoreDir:" + restoreDir + "]";
+    }
+
+}
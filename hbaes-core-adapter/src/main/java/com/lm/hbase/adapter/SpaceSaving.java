@@ -0,0 +1,260 @@
+package com.lm.hbase.adapter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 高频值统计(Space-Saving)。<br>
+ * 最多跟踪capacity个值，新值在满了之后替换当前计数最小的值并继承它的计数，所以计数是上界，error是可能多算的部分。
+ * 真实出现次数超过 总数/capacity 的值一定会被保留。<br>
+ * 计数器放在按计数排序的最小堆里，每次更新O(log capacity)。两个sketch可以合并，合并后仍然只保留capacity个值。非线程安全。
+ *
+ * @version 1.0
+ */
+public class SpaceSaving {
+
+    public static final int              DEFAULT_CAPACITY = 1000;
+
+    private final int                    capacity;
+    private final Map<ByteBuffer, Entry> index;
+    private final Entry[]                heap;
+    private int                          size             = 0;
+    private long                         total            = 0;
+
+    public SpaceSaving(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSaving(int capacity){
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.index = new HashMap<>(capacity * 2);
+        this.heap = new Entry[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 已统计的值总数
+     *
+     * @return
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public void add(byte[] b, int offset, int length) {
+        total++;
+        add(b, offset, length, 1, 0);
+    }
+
+    /**
+     * 合并另一个sketch。<br>
+     * 一方没有跟踪的值，真实次数最多是该方满时的最小计数，合并时按这个上界补齐计数和误差；两边的值合在一起后按计数保留前capacity个。
+     * 合并后的计数仍然是真实次数的上界，真实次数超过 总数/capacity 的值仍然一定会被保留
+     *
+     * @param other
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Map<ByteBuffer, Entry> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            Entry entry = heap[i];
+            merged.put(ByteBuffer.wrap(entry.value),
+                       new Entry(entry.value, entry.count + otherMin, entry.error + otherMin));
+        }
+        for (int i = 0; i < other.size; i++) {
+            Entry entry = other.heap[i];
+            ByteBuffer key = ByteBuffer.wrap(entry.value);
+            Entry mine = merged.get(key);
+            if (mine == null) {
+                byte[] value = Arrays.copyOf(entry.value, entry.value.length);
+                merged.put(ByteBuffer.wrap(value), new Entry(value, entry.count + thisMin, entry.error + thisMin));
+            } else {
+                // 两边都有的值去掉前面补的otherMin
+                mine.count += entry.count - otherMin;
+                mine.error += entry.error - otherMin;
+            }
+        }
+        List<Entry> entries = new ArrayList<>(merged.values());
+        Collections.sort(entries, new Comparator<Entry>() {
+
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return Long.compare(o2.count, o1.count);
+            }
+        });
+        index.clear();
+        Arrays.fill(heap, null);
+        size = 0;
+        for (Entry entry : entries) {
+            if (size == capacity) {
+                break;
+            }
+            entry.position = size;
+            heap[size++] = entry;
+            index.put(ByteBuffer.wrap(entry.value), entry);
+        }
+        // 按计数从大到小排列的数组不满足最小堆，从最后一个非叶子节点开始重新建堆
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        total += other.total;
+    }
+
+    /**
+     * 已满时返回最小计数，即没有跟踪的值出现次数的上界；未满时所有值都被跟踪，返回0
+     *
+     * @return
+     */
+    private long minCount() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    /**
+     * 按计数从大到小返回前n个值
+     *
+     * @param n
+     * @return
+     */
+    public List<Counter> top(int n) {
+        List<Counter> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Counter(heap[i].value, heap[i].count, heap[i].error));
+        }
+        Collections.sort(result, new Comparator<Counter>() {
+
+            @Override
+            public int compare(Counter o1, Counter o2) {
+                return Long.compare(o2.getCount(), o1.getCount());
+            }
+        });
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    private void add(byte[] b, int offset, int length, long count, long error) {
+        ByteBuffer key = ByteBuffer.wrap(b, offset, length);
+        Entry entry = index.get(key);
+        if (entry != null) {
+            entry.count += count;
+            entry.error += error;
+            siftDown(entry.position);
+            return;
+        }
+        byte[] value = Arrays.copyOfRange(b, offset, offset + length);
+        if (size < capacity) {
+            entry = new Entry(value, count, error);
+            entry.position = size;
+            heap[size++] = entry;
+            index.put(ByteBuffer.wrap(value), entry);
+            siftUp(entry.position);
+            return;
+        }
+        // 替换计数最小的值，继承它的计数作为误差
+        Entry min = heap[0];
+        index.remove(ByteBuffer.wrap(min.value));
+        min.error = min.count + error;
+        min.count = min.count + count;
+        min.value = value;
+        index.put(ByteBuffer.wrap(value), min);
+        siftDown(0);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].count <= heap[i].count) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int child = left + 1 < size && heap[left + 1].count < heap[left].count ? left + 1 : left;
+            if (heap[i].count <= heap[child].count) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Entry tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+        heap[i].position = i;
+        heap[j].position = j;
+    }
+
+    private static class Entry {
+
+        private byte[] value;
+        private long   count;
+        private long   error;
+        private int    position;
+
+        Entry(byte[] value, long count, long error){
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 值和计数
+     */
+    public static class Counter {
+
+        private final byte[] value;
+        private final long   count;
+        private final long   error;
+
+        public Counter(byte[] value, long count, long error){
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        /**
+         * 计数上界
+         *
+         * @return
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 可能多算的次数，真实次数在[count - error, count]之间
+         *
+         * @return
+         */
+        public long getError() {
+            return error;
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.lm.hbase.adapter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.RegionStats;
+
+/**
+ * 基于抽样的预分区计算。<br>
+ * 从已有的表、行键文件或者行键生成器中抽样(蓄水池抽样，内存占用不超过maxSamples个行键)，按抽样分布的分位点计算分区点，
+ * 行键分布倾斜时每个region分到的数据量仍然接近，比在startKey~endKey之间均匀切分更准确。<br>
+ * 分区点取相邻两个抽样之间最短的分隔前缀，不会带上完整的行键。
+ *
+ * @version 1.0
+ */
+public class SplitPlanner {
+
+    public static final int    DEFAULT_MAX_SAMPLES = 100000;
+
+    private final List<byte[]> samples;
+    /** 抽样来源的总行数 */
+    private final long         sourceRows;
+    /** 抽样来源的总字节数，未知时为0 */
+    private long               sourceBytes;
+
+    SplitPlanner(List<byte[]> samples, long sourceRows, long sourceBytes){
+        Collections.sort(samples, Bytes.BYTES_COMPARATOR);
+        this.samples = samples;
+        this.sourceRows = sourceRows;
+        this.sourceBytes = sourceBytes;
+    }
+
+    /**
+     * 从已有的表抽样。用RandomRowFilter在服务端按chance概率抽取行键(只传输key)，总字节数取表中各region存储文件大小之和
+     *
+     * @param connection
+     * @param tableName
+     * @param chance 抽样概率(0~1]
+     * @param maxSamples 最多保留的抽样数
+     * @return
+     * @throws IOException
+     */
+    public static SplitPlanner fromTable(Connection connection, TableName tableName, float chance,
+                                         int maxSamples) throws IOException {
+        Reservoir reservoir = new Reservoir(maxSamples);
+        Scan scan = new Scan();
+        if (chance < 1f) {
+            scan.setFilter(new FilterList(new RandomRowFilter(chance), new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        } else {
+            scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        }
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        Table table = connection.getTable(tableName);
+        ResultScanner scanner = null;
+        try {
+            scanner = table.getScanner(scan);
+            for (Result rs : scanner) {
+                reservoir.add(rs.getRow());
+            }
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            table.close();
+        }
+
+        long bytes = 0;
+        Admin admin = connection.getAdmin();
+        try {
+            for (RegionStats region : ClusterStatsSampler.snapshot(admin.getClusterStatus()).getRegions()) {
+                if (tableName.getNameAsString().equals(region.getTableName())) {
+                    bytes += region.getStorefileSizeMB() * 1024L * 1024L;
+                }
+            }
+        } finally {
+            admin.close();
+        }
+        long rows = chance > 0 && chance < 1f ? (long) (reservoir.seen / chance) : reservoir.seen;
+        return new SplitPlanner(reservoir.samples, rows, bytes);
+    }
+
+    /**
+     * 从行键文件抽样，每行一个行键，不可见字符按\x00的形式转义(和Bytes.toStringBinary一致)，空行忽略
+     *
+     * @param file
+     * @param maxSamples 最多保留的抽样数
+     * @return
+     * @throws IOException
+     */
+    public static SplitPlanner fromKeyFile(File file, int maxSamples) throws IOException {
+        Reservoir reservoir = new Reservoir(maxSamples);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) {
+                    reservoir.add(Bytes.toBytesBinary(line));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new SplitPlanner(reservoir.samples, reservoir.seen, 0);
+    }
+
+    /**
+     * 从行键生成器抽样，适用于按业务规则生成行键、表还没有数据的场景
+     *
+     * @param keys 生成器，最多读取limit个
+     * @param limit 读取上限，小于等于0时读完为止
+     * @param maxSamples 最多保留的抽样数
+     * @return
+     */
+    public static SplitPlanner fromGenerator(Iterator<byte[]> keys, long limit, int maxSamples) {
+        Reservoir reservoir = new Reservoir(maxSamples);
+        while (keys.hasNext() && (limit <= 0 || reservoir.seen < limit)) {
+            reservoir.add(keys.next());
+        }
+        return new SplitPlanner(reservoir.samples, reservoir.seen, 0);
+    }
+
+    /**
+     * 设置抽样来源的总字节数，用于按region大小计算分区数。从表抽样时已经按存储大小自动设置
+     *
+     * @param sourceBytes
+     */
+    public void setSourceBytes(long sourceBytes) {
+        this.sourceBytes = sourceBytes;
+    }
+
+    public long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    public long getSourceRows() {
+        return sourceRows;
+    }
+
+    public int getSampleCount() {
+        return samples.size();
+    }
+
+    /**
+     * 按目标region数计算分区点，返回numRegions-1个严格递增的分区点。抽样中不同的行键太少时返回的分区点会少于numRegions-1个
+     *
+     * @param numRegions
+     * @return
+     */
+    public byte[][] splitPoints(int numRegions) {
+        List<byte[]> result = new ArrayList<>();
+        int n = samples.size();
+        if (numRegions <= 1 || n == 0) {
+            return new byte[0][];
+        }
+        byte[] previous = null;
+        for (int i = 1; i < numRegions; i++) {
+            int index = (int) ((long) i * n / numRegions);
+            // 跳过和上一个分区点相同的抽样，重复的行键不能作为两个region的边界
+            while (index < n && previous != null && Bytes.compareTo(samples.get(index), previous) <= 0) {
+                index++;
+            }
+            if (index >= n) {
+                break;
+            }
+            byte[] point = index == 0 ? samples.get(0) : shortestSeparator(samples.get(index - 1), samples.get(index));
+            if (previous != null && Bytes.compareTo(point, previous) <= 0) {
+                point = samples.get(index);
+            }
+            if (point.length == 0) {
+                continue;
+            }
+            result.add(point);
+            previous = point;
+        }
+        return result.toArray(new byte[result.size()][]);
+    }
+
+    /**
+     * 按目标region大小计算分区点，需要知道来源的总字节数
+     *
+     * @param regionSizeBytes 每个region的目标大小
+     * @return
+     * @throws Exception 来源总字节数未知
+     */
+    public byte[][] splitPointsBySize(long regionSizeBytes) throws Exception {
+        return splitPoints(regionsForSize(regionSizeBytes));
+    }
+
+    /**
+     * 按目标region大小计算region数
+     *
+     * @param regionSizeBytes
+     * @return
+     * @throws Exception 来源总字节数未知
+     */
+    public int regionsForSize(long regionSizeBytes) throws Exception {
+        if (sourceBytes <= 0) {
+            throw new Exception("source size is unknown, call setSourceBytes first");
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (sourceBytes + regionSizeBytes - 1) / regionSizeBytes));
+    }
+
+    /**
+     * b的最短前缀，并且大于a。a必须小于b
+     */
+    static byte[] shortestSeparator(byte[] a, byte[] b) {
+        int length = 0;
+        while (length < a.length && length < b.length && a[length] == b[length]) {
+            length++;
+        }
+        return Arrays.copyOf(b, Math.min(b.length, length + 1));
+    }
+
+    /**
+     * 蓄水池抽样
+     */
+    private static class Reservoir {
+
+        private final int          capacity;
+        private final List<byte[]> samples;
+        private final Random       random = new Random();
+        private long               seen   = 0;
+
+        Reservoir(int capacity){
+            this.capacity = Math.max(1, capacity);
+            this.samples = new ArrayList<>(Math.min(this.capacity, 1024));
+        }
+
+        void add(byte[] key) {
+            seen++;
+            if (samples.size() < capacity) {
+                samples.add(key);
+                return;
+            }
+            long index = (long) (random.nextDouble() * seen);
+            if (index < capacity) {
+                samples.set((int) index, key);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,509 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.lm.hbase.adapter.ThrottleManager.Operation;
+import com.lm.hbase.adapter.entity.CopyReport;
+
+/**
+ * 表复制和迁移，源表和目标表可以在不同的集群。<br>
+ * 按源表的region边界切分成多个范围并行复制：每个范围一个读取任务，直接把Result中的Cell(保留时间戳和所有版本)放进Put，
+ * 通过目标连接上的BufferedMutator批量写入，不经过展示字符串的转换。<br>
+ * 所有任务共享一个按字节计的令牌桶限速，同时受ThrottleManager中COPY操作的限速和自适应退避约束，避免压垮线上集群。<br>
+ * 设置了检查点文件时，每个范围每写入checkpointInterval行刷新一次写缓冲并记录进度，中断后用同一个检查点文件重新执行会跳过已完成的范围，
+ * 未完成的范围从最后记录的行继续(这一行会重复写入，时间戳相同所以结果不变)。<br>
+ * 复制结束后可以按范围校验源表和目标表的行数。<br>
+ * copyAsync()在后台执行并返回OperationHandle，进度按范围(region)计算；取消时关闭各范围的扫描器和BufferedMutator，
+ * 写缓冲中已有的数据会随close提交，之后不再读取和写入。
+ *
+ * @version 1.0
+ */
+public class TableCopier {
+
+    public static final int       DEFAULT_PARALLELISM         = 8;
+
+    public static final int       DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+    public static final long      DEFAULT_WRITE_BUFFER_SIZE   = 8L * 1024 * 1024;
+
+    private final Connection      source;
+    private final TableName       sourceTable;
+    private final Connection      target;
+    private final TableName       targetTable;
+
+    private byte[]                startRow                    = new byte[0];
+    private byte[]                stopRow                     = new byte[0];
+    private int                   parallelism                 = DEFAULT_PARALLELISM;
+    private long                  bytesPerSecond              = 0;
+    private long                  minStamp                    = 0;
+    private long                  maxStamp                    = Long.MAX_VALUE;
+    private int                   maxVersions                 = Integer.MAX_VALUE;
+    private int                   caching                     = 500;
+    private int                   batch                       = 1000;
+    private long                  writeBufferSize             = DEFAULT_WRITE_BUFFER_SIZE;
+    private int                   checkpointInterval          = DEFAULT_CHECKPOINT_INTERVAL;
+    private File                  checkpointFile              = null;
+    private boolean               createTargetTable           = true;
+    private boolean               verify                      = true;
+
+    private final AtomicLong      rowsCopied                  = new AtomicLong();
+    private final AtomicLong      cellsCopied                 = new AtomicLong();
+    private final AtomicLong      bytesCopied                 = new AtomicLong();
+    private List<CopyRange>       ranges;
+
+    public TableCopier(Connection source, TableName sourceTable, Connection target, TableName targetTable){
+        this.source = source;
+        this.sourceTable = sourceTable;
+        this.target = target;
+        this.targetTable = targetTable;
+    }
+
+    /**
+     * 复制范围，null表示表头或表尾。加盐的表使用逻辑行键，按桶换算成物理范围，复制时保留物理行键
+     * 
+     * @param startRow
+     * @param stopRow 不包含
+     */
+    public void setRange(byte[] startRow, byte[] stopRow) {
+        this.startRow = startRow == null ? new byte[0] : startRow;
+        this.stopRow = stopRow == null ? new byte[0] : stopRow;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 读取速度上限(字节/秒)，小于等于0时不限速
+     * 
+     * @param bytesPerSecond
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * 只复制时间范围[minStamp, maxStamp)内的版本
+     * 
+     * @param minStamp
+     * @param maxStamp
+     */
+    public void setTimeRange(long minStamp, long maxStamp) {
+        this.minStamp = minStamp;
+        this.maxStamp = maxStamp;
+    }
+
+    /**
+     * 每列复制的版本数，默认复制所有版本
+     * 
+     * @param maxVersions
+     */
+    public void setMaxVersions(int maxVersions) {
+        this.maxVersions = maxVersions;
+    }
+
+    public void setCaching(int caching) {
+        this.caching = caching;
+    }
+
+    /**
+     * 宽行每次读取的最大cell数
+     * 
+     * @param batch
+     */
+    public void setBatch(int batch) {
+        this.batch = batch;
+    }
+
+    public void setWriteBufferSize(long writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * 检查点文件，为null时不记录进度
+     * 
+     * @param checkpointFile
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * 目标表不存在时是否按源表的结构和region边界创建
+     * 
+     * @param createTargetTable
+     */
+    public void setCreateTargetTable(boolean createTargetTable) {
+        this.createTargetTable = createTargetTable;
+    }
+
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    public long getRowsCopied() {
+        return rowsCopied.get();
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied.get();
+    }
+
+    /**
+     * 执行复制，所有范围都完成后返回
+     * 
+     * @return
+     * @throws Exception 任意一个范围复制失败，已完成的进度保留在检查点文件中
+     */
+    public CopyReport copy() throws Exception {
+        return new OperationHandle<CopyReport>(operationName()).execute(copyTask());
+    }
+
+    /**
+     * 在后台执行复制
+     * 
+     * @return
+     */
+    public OperationHandle<CopyReport> copyAsync() {
+        return OperationHandle.submit(operationName(), copyTask());
+    }
+
+    private String operationName() {
+        return "copy " + sourceTable + " -> " + targetTable;
+    }
+
+    private OperationHandle.Task<CopyReport> copyTask() {
+        return new OperationHandle.Task<CopyReport>() {
+
+            @Override
+            public CopyReport run(OperationHandle<CopyReport> handle) throws Exception {
+                return copy(handle);
+            }
+        };
+    }
+
+    /**
+     * 在句柄下执行复制，进度和取消通过handle
+     */
+    CopyReport copy(final OperationHandle<?> handle) throws Exception {
+        long start = System.currentTimeMillis();
+        if (createTargetTable) {
+            ensureTargetTable();
+        }
+        ranges = loadCheckpoint();
+        if (ranges == null) {
+            ranges = new ArrayList<>();
+            RowKeyCodec codec = RowKeyCodecs.get(source, sourceTable);
+            for (Pair<byte[], byte[]> range : HbaseUtil.physicalRanges(source, sourceTable, codec, startRow,
+                                                                       stopRow)) {
+                ranges.add(new CopyRange(range.getFirst(), range.getSecond()));
+            }
+            saveCheckpoint();
+        }
+
+        CopyReport report = new CopyReport();
+        report.setRangeCount(ranges.size());
+        handle.setRegionCount(ranges.size());
+        final TokenBucket throttle = new TokenBucket(bytesPerSecond);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ranges.size())),
+                                                                new DaemonThreadFactory("hbase-table-copier"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final CopyRange range : ranges) {
+                if (range.done) {
+                    report.setResumedRanges(report.getResumedRanges() + 1);
+                    handle.regionDone();
+                    continue;
+                }
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        copyRange(range, throttle, handle);
+                        handle.regionDone();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            if (verify) {
+                verify(executor, report, handle);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report.setRowsCopied(rowsCopied.get());
+        report.setCellsCopied(cellsCopied.get());
+        report.setBytesCopied(bytesCopied.get());
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private void copyRange(CopyRange range, TokenBucket throttle, OperationHandle<?> handle) throws Exception {
+        Scan scan = new Scan(range.position != null ? range.position : range.start, range.end);
+        scan.setMaxVersions(maxVersions);
+        scan.setTimeRange(minStamp, maxStamp);
+        scan.setCaching(caching);
+        scan.setBatch(batch);
+        scan.setCacheBlocks(false);
+        Table table = source.getTable(sourceTable);
+        ThrottledScanner scanner = null;
+        BufferedMutatorParams params = new BufferedMutatorParams(targetTable).writeBufferSize(writeBufferSize);
+        final BufferedMutator mutator = target.getBufferedMutator(params);
+        Closeable abort = new Closeable() {
+
+            @Override
+            public void close() throws IOException {
+                mutator.close();
+            }
+        };
+        handle.register(abort);
+        try {
+            scanner = new ThrottledScanner(handle.track(table.getScanner(scan)),
+                                           ThrottleManager.get(Operation.COPY, sourceTable.getNameAsString()),
+                                           caching);
+            int sinceCheckpoint = 0;
+            byte[] lastRow = null;
+            Result rs;
+            while ((rs = scanner.next()) != null) {
+                if (rs.isEmpty()) {
+                    continue;
+                }
+                Put put = new Put(rs.getRow());
+                long bytes = 0;
+                for (Cell c : rs.rawCells()) {
+                    put.add(c);
+                    bytes += CellUtil.estimatedSerializedSizeOf(c);
+                }
+                throttle.acquire(bytes);
+                mutator.mutate(put);
+                cellsCopied.addAndGet(rs.size());
+                bytesCopied.addAndGet(bytes);
+                // 设置了batch时宽行会分成多个Result返回，行键变化时才算复制了一行
+                if (lastRow != null && Bytes.equals(lastRow, rs.getRow())) {
+                    continue;
+                }
+                lastRow = rs.getRow();
+                rowsCopied.incrementAndGet();
+                if (checkpointFile != null && ++sinceCheckpoint >= checkpointInterval) {
+                    mutator.flush();
+                    range.position = rs.getRow();
+                    saveCheckpoint();
+                    sinceCheckpoint = 0;
+                }
+            }
+            mutator.flush();
+            range.done = true;
+            saveCheckpoint();
+        } finally {
+            if (scanner != null) {
+                scanner.close();
+            }
+            handle.unregister(abort);
+            mutator.close();
+            table.close();
+        }
+    }
+
+    private void verify(ExecutorService executor, CopyReport report, final OperationHandle<?> handle) throws Exception {
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (final CopyRange range : ranges) {
+            futures.add(executor.submit(new Callable<long[]>() {
+
+                @Override
+                public long[] call() throws Exception {
+                    return new long[] { countRows(source, sourceTable, range, handle),
+                                        countRows(target, targetTable, range, handle) };
+                }
+            }));
+        }
+        long sourceRows = 0;
+        long targetRows = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] counts = futures.get(i).get();
+            sourceRows += counts[0];
+            targetRows += counts[1];
+            if (counts[0] != counts[1]) {
+                report.getMismatchedRanges().add(ranges.get(i) + " source:" + counts[0] + " target:" + counts[1]);
+            }
+        }
+        report.setVerified(true);
+        report.setSourceRows(sourceRows);
+        report.setTargetRows(targetRows);
+    }
+
+    private long countRows(Connection connection, TableName tableName, CopyRange range,
+                           OperationHandle<?> handle) throws IOException {
+        Scan scan = new Scan(range.start, range.end);
+        scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        scan.setCaching(1000);
+        scan.setCacheBlocks(false);
+        long count = 0;
+        Table table = connection.getTable(tableName);
+        ResultScanner scanner = null;
+        try {
+            scanner = table.getScanner(scan);
+            // 校验读取的行不计入复制进度，只登记取消时关闭
+            handle.register(scanner);
+            for (Result rs : scanner) {
+                count++;
+            }
+        } finally {
+            if (scanner != null) {
+                handle.unregister(scanner);
+                scanner.close();
+            }
+            table.close();
+        }
+        return count;
+    }
+
+    /**
+     * 目标表不存在时复制源表的结构，按源表当前的region边界预分区
+     */
+    private void ensureTargetTable() throws IOException {
+        Admin admin = target.getAdmin();
+        try {
+            if (admin.tableExists(targetTable)) {
+                return;
+            }
+            HTableDescriptor descriptor;
+            byte[][] startKeys;
+            Admin sourceAdmin = source.getAdmin();
+            RegionLocator locator = source.getRegionLocator(sourceTable);
+            try {
+                descriptor = new HTableDescriptor(targetTable, sourceAdmin.getTableDescriptor(sourceTable));
+                startKeys = locator.getStartKeys();
+            } finally {
+                locator.close();
+                sourceAdmin.close();
+            }
+            if (startKeys.length > 1) {
+                admin.createTable(descriptor, Arrays.copyOfRange(startKeys, 1, startKeys.length));
+            } else {
+                admin.createTable(descriptor);
+            }
+        } finally {
+            admin.close();
+        }
+    }
+
+    private List<CopyRange> loadCheckpoint() throws IOException {
+        if (checkpointFile == null || !checkpointFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(checkpointFile);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        if (!sourceTable.getNameAsString().equals(properties.getProperty("source"))
+            || !targetTable.getNameAsString().equals(properties.getProperty("target"))) {
+            throw new IOException("checkpoint " + checkpointFile + " belongs to another copy: "
+                                  + properties.getProperty("source") + " -> " + properties.getProperty("target"));
+        }
+        List<CopyRange> result = new ArrayList<>();
+        int count = Integer.parseInt(properties.getProperty("ranges"));
+        for (int i = 0; i < count; i++) {
+            CopyRange range = new CopyRange(Bytes.toBytesBinary(properties.getProperty("range." + i + ".start")),
+                                            Bytes.toBytesBinary(properties.getProperty("range." + i + ".end")));
+            String position = properties.getProperty("range." + i + ".position");
+            if (position != null) {
+                range.position = Bytes.toBytesBinary(position);
+            }
+            range.done = Boolean.parseBoolean(properties.getProperty("range." + i + ".done"));
+            result.add(range);
+        }
+        return result;
+    }
+
+    private synchronized void saveCheckpoint() throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("source", sourceTable.getNameAsString());
+        properties.setProperty("target", targetTable.getNameAsString());
+        properties.setProperty("ranges", String.valueOf(ranges.size()));
+        for (int i = 0; i < ranges.size(); i++) {
+            CopyRange range = ranges.get(i);
+            properties.setProperty("range." + i + ".start", Bytes.toStringBinary(range.start));
+            properties.setProperty("range." + i + ".end", Bytes.toStringBinary(range.end));
+            if (range.position != null) {
+                properties.setProperty("range." + i + ".position", Bytes.toStringBinary(range.position));
+            }
+            properties.setProperty("range." + i + ".done", String.valueOf(range.done));
+        }
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            properties.store(out, "table copy checkpoint");
+        } finally {
+            out.close();
+        }
+        HbaseUtil.replaceFile(tmp, checkpointFile);
+    }
+
+    private static class CopyRange {
+
+        private final byte[]     start;
+        private final byte[]     end;
+        /** 已经写入目标表的最后一行 */
+        private volatile byte[]  position;
+        private volatile boolean done;
+
+        CopyRange(byte[] start, byte[] end){
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + Bytes.toStringBinary(start) + ", " + Bytes.toStringBinary(end) + ")";
+        }
+    }
+
+}
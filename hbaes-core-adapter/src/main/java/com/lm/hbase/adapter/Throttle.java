@@ -0,0 +1,249 @@
+package com.lm.hbase.adapter;
+
+import org.apache.hadoop.hbase.CallQueueTooBigException;
+import org.apache.hadoop.hbase.RegionTooBusyException;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+
+/**
+ * 一类操作(可以限定到一张表)的限速器，由ThrottleManager创建。<br>
+ * 行数、字节数、RPC次数各一个令牌桶，配置为0的维度不限速。<br>
+ * 自适应退避：RegionServer返回RegionTooBusyException/CallQueueTooBigException时速率减半，
+ * RPC耗时超过延迟阈值时速率降到80%；之后按时间恢复，每秒恢复配置速率的10%，直到回到配置的速率。
+ * 恢复速度和RPC频率无关，RPC很密集时也不会在几十毫秒内恢复到全速。
+ *
+ * @version 1.0
+ */
+public class Throttle {
+
+    static final Throttle       UNLIMITED         = new Throttle("unlimited", 0, 0, 0);
+
+    private static final double MIN_FACTOR        = 0.05;
+
+    private static final long   MAX_BACKOFF       = 10000;
+
+    /** 每秒恢复的比例 */
+    private static final double RECOVERY_PER_SEC  = 0.1;
+
+    private final String        name;
+    private final TokenBucket   rows;
+    private final TokenBucket   bytes;
+    private final TokenBucket   rpcs;
+    private volatile long       rowsPerSecond;
+    private volatile long       bytesPerSecond;
+    private volatile long       rpcsPerSecond;
+    private volatile long       latencyThreshold  = 1000;
+
+    private double              factor            = 1.0;
+    private int                 busyInRow         = 0;
+    private long                busyErrors        = 0;
+    private long                slowRpcs          = 0;
+    private long                rpcCount          = 0;
+    private long                totalLatency      = 0;
+    /** 上一次降速或恢复的时间 */
+    private long                lastAdjust        = System.currentTimeMillis();
+
+    Throttle(String name, long rowsPerSecond, long bytesPerSecond, long rpcsPerSecond){
+        this.name = name;
+        this.rows = new TokenBucket(rowsPerSecond);
+        this.bytes = new TokenBucket(bytesPerSecond);
+        this.rpcs = new TokenBucket(rpcsPerSecond);
+        this.rowsPerSecond = rowsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.rpcsPerSecond = rpcsPerSecond;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 运行时调整配置的速率，小于等于0表示该维度不限速
+     * 
+     * @param rowsPerSecond
+     * @param bytesPerSecond
+     * @param rpcsPerSecond
+     */
+    public synchronized void setLimit(long rowsPerSecond, long bytesPerSecond, long rpcsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.rpcsPerSecond = rpcsPerSecond;
+        applyFactor();
+    }
+
+    /**
+     * RPC耗时超过此值(毫秒)时降速
+     * 
+     * @param latencyThreshold
+     */
+    public void setLatencyThreshold(long latencyThreshold) {
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    public boolean isUnlimited() {
+        return rowsPerSecond <= 0 && bytesPerSecond <= 0 && rpcsPerSecond <= 0;
+    }
+
+    public void acquireRows(long n) throws InterruptedException {
+        rows.acquire(n);
+    }
+
+    public void acquireBytes(long n) throws InterruptedException {
+        bytes.acquire(n);
+    }
+
+    public void acquireRpc() throws InterruptedException {
+        rpcs.acquire(1);
+    }
+
+    /**
+     * 记录一次成功RPC的耗时
+     * 
+     * @param millis
+     */
+    public void recordRpc(long millis) {
+        if (isUnlimited()) {
+            return;
+        }
+        synchronized (this) {
+            rpcCount++;
+            totalLatency += millis;
+            busyInRow = 0;
+            long now = System.currentTimeMillis();
+            if (millis > latencyThreshold) {
+                slowRpcs++;
+                factor = Math.max(MIN_FACTOR, factor * 0.8);
+            } else if (factor < 1.0 && now > lastAdjust) {
+                factor = Math.min(1.0, factor + RECOVERY_PER_SEC * (now - lastAdjust) / 1000);
+            } else {
+                lastAdjust = Math.max(lastAdjust, now);
+                return;
+            }
+            lastAdjust = Math.max(lastAdjust, now);
+            applyFactor();
+        }
+    }
+
+    /**
+     * 记录一次会重试的失败。RegionServer过载类的异常会降速并按连续失败次数指数退避等待，返回是否是过载异常，
+     * 调用方在返回true后重试
+     * 
+     * @param e
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean recordError(Throwable e) throws InterruptedException {
+        if (!isBusy(e)) {
+            return false;
+        }
+        long backoff = slowDown();
+        if (backoff > 0) {
+            Thread.sleep(backoff);
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次不再重试、直接抛给调用方的失败(例如扫描)。过载类的异常只降速，不等待，返回是否是过载异常
+     * 
+     * @param e
+     * @return
+     */
+    public boolean recordFailure(Throwable e) {
+        if (!isBusy(e)) {
+            return false;
+        }
+        slowDown();
+        return true;
+    }
+
+    /**
+     * 记录一次会重试、由调用方自己安排等待的失败。过载类的异常会降速并返回应当退避的毫秒数，不在当前线程等待；
+     * 不是过载异常时返回0
+     * 
+     * @param e
+     * @return
+     */
+    public long recordRetry(Throwable e) {
+        if (!isBusy(e)) {
+            return 0;
+        }
+        return slowDown();
+    }
+
+    /**
+     * 速率减半，返回按连续失败次数计算的退避时间，退避期间不恢复速率
+     */
+    private long slowDown() {
+        if (isUnlimited()) {
+            return 0;
+        }
+        synchronized (this) {
+            busyErrors++;
+            busyInRow++;
+            factor = Math.max(MIN_FACTOR, factor * 0.5);
+            applyFactor();
+            long backoff = Math.min(MAX_BACKOFF, 100L << Math.min(busyInRow, 10));
+            // 退避等待的时间不算恢复时间
+            lastAdjust = System.currentTimeMillis() + backoff;
+            return backoff;
+        }
+    }
+
+    /**
+     * 当前速率相对配置速率的比例(0~1]
+     * 
+     * @return
+     */
+    public synchronized double getFactor() {
+        return factor;
+    }
+
+    public synchronized long getBusyErrors() {
+        return busyErrors;
+    }
+
+    public synchronized long getSlowRpcs() {
+        return slowRpcs;
+    }
+
+    public synchronized long getAverageLatency() {
+        return rpcCount == 0 ? 0 : totalLatency / rpcCount;
+    }
+
+    private void applyFactor() {
+        rows.setRate(rowsPerSecond * factor);
+        bytes.setRate(bytesPerSecond * factor);
+        rpcs.setRate(rpcsPerSecond * factor);
+    }
+
+    /**
+     * 异常链或批量异常中是否包含RegionServer过载的异常
+     */
+    static boolean isBusy(Throwable e) {
+        while (e != null) {
+            if (e instanceof RegionTooBusyException || e instanceof CallQueueTooBigException) {
+                return true;
+            }
+            if (e instanceof RetriesExhaustedWithDetailsException) {
+                for (Throwable cause : ((RetriesExhaustedWithDetailsException) e).getCauses()) {
+                    if (isBusy(cause)) {
+                        return true;
+                    }
+                }
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "[rows/s:" + rowsPerSecond + " bytes/s:" + bytesPerSecond + " rpcs/s:" + rpcsPerSecond
+               + " factor:" + factor + " busy:" + busyErrors + " slow:" + slowRpcs + " avgLatency:"
+               + getAverageLatency() + "ms]";
+    }
+
+}
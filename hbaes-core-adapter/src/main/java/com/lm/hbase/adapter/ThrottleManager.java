@@ -0,0 +1,93 @@
+package com.lm.hbase.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端限速配置中心。<br>
+ * 按操作类型配置限速，也可以针对某张表单独配置；查找时表级配置优先，没有配置时不限速。<br>
+ * 限速在运行中修改立即生效，正在执行的操作会按新的速率继续。
+ *
+ * @version 1.0
+ */
+public class ThrottleManager {
+
+    /**
+     * 受限速保护的重量级操作
+     */
+    public static enum Operation {
+                                  SCAN, COUNT, EXPORT, COPY, WRITE, DELETE;
+    }
+
+    private static final String                ALL_TABLES = "*";
+
+    private static final Map<String, Throttle> throttles  = new ConcurrentHashMap<>();
+
+    /**
+     * 设置限速，已有配置时在原限速器上修改，保留自适应状态
+     * 
+     * @param operation 操作类型
+     * @param tableName 表名，为null时对该类操作的所有表生效
+     * @param rowsPerSecond 每秒行数，小于等于0时不限制
+     * @param bytesPerSecond 每秒字节数，小于等于0时不限制
+     * @param rpcsPerSecond 每秒RPC次数，小于等于0时不限制
+     * @return
+     */
+    public static synchronized Throttle setLimit(Operation operation, String tableName, long rowsPerSecond,
+                                                 long bytesPerSecond, long rpcsPerSecond) {
+        String key = key(operation, tableName);
+        Throttle throttle = throttles.get(key);
+        if (throttle == null) {
+            throttle = new Throttle(key, rowsPerSecond, bytesPerSecond, rpcsPerSecond);
+            throttles.put(key, throttle);
+        } else {
+            throttle.setLimit(rowsPerSecond, bytesPerSecond, rpcsPerSecond);
+        }
+        return throttle;
+    }
+
+    /**
+     * 移除限速配置，已经获取了限速器的操作不受影响
+     * 
+     * @param operation
+     * @param tableName 表名，为null时移除操作级的配置
+     */
+    public static void removeLimit(Operation operation, String tableName) {
+        throttles.remove(key(operation, tableName));
+    }
+
+    /**
+     * 获取一次操作使用的限速器
+     * 
+     * @param operation
+     * @param tableName
+     * @return
+     */
+    public static Throttle get(Operation operation, String tableName) {
+        Throttle throttle = tableName == null ? null : throttles.get(key(operation, tableName));
+        if (throttle == null) {
+            throttle = throttles.get(key(operation, null));
+        }
+        return throttle == null ? Throttle.UNLIMITED : throttle;
+    }
+
+    /**
+     * 列出所有限速配置和状态
+     * 
+     * @return
+     */
+    public static List<Throttle> listThrottles() {
+        return new ArrayList<>(throttles.values());
+    }
+
+    public static void clear() {
+        throttles.clear();
+    }
+
+    private static String key(Operation operation, String tableName) {
+        return operation.name() + "/" + (tableName == null ? ALL_TABLES : tableName);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.lm.hbase.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+
+/**
+ * 按Throttle限速读取ResultScanner。<br>
+ * 每caching行计一次RPC，RPC耗时按取到这一批第一行的耗时统计，用于自适应降速。<br>
+ * 扫描失败时HBase客户端已经按自己的重试策略重试过，这里不再重试：过载异常只用于降速，立即抛给调用方
+ *
+ * @version 1.0
+ */
+class ThrottledScanner implements Closeable {
+
+    private final ResultScanner scanner;
+    private final Throttle      throttle;
+    private final int           caching;
+    private long                count = 0;
+
+    ThrottledScanner(ResultScanner scanner, Throttle throttle, int caching){
+        this.scanner = scanner;
+        this.throttle = throttle;
+        this.caching = Math.max(1, caching);
+    }
+
+    /**
+     * 读取下一行，没有更多数据时返回null
+     */
+    Result next() throws IOException, InterruptedException {
+        if (throttle.isUnlimited()) {
+            return scanner.next();
+        }
+        boolean rpc = count % caching == 0;
+        if (rpc) {
+            throttle.acquireRpc();
+        }
+        long start = System.currentTimeMillis();
+        Result rs;
+        try {
+            rs = scanner.next();
+        } catch (IOException e) {
+            throttle.recordFailure(e);
+            throw e;
+        }
+        if (rpc) {
+            throttle.recordRpc(System.currentTimeMillis() - start);
+        }
+        if (rs != null) {
+            count++;
+            throttle.acquireRows(1);
+            long bytes = 0;
+            for (Cell c : rs.rawCells()) {
+                bytes += CellUtil.estimatedSerializedSizeOf(c);
+            }
+            throttle.acquireBytes(bytes);
+        }
+        return rs;
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+
+}
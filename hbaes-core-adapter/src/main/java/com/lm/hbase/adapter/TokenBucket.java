@@ -0,0 +1,97 @@
+package com.lm.hbase.adapter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限速器，线程安全。<br>
+ * 每秒补充rate个令牌，桶容量为一秒的量；单次申请可以超过桶容量，超出的部分以欠账的形式由后续申请等待偿还，长期平均速率不超过rate。<br>
+ * rate小于等于0时不限速。
+ *
+ * @version 1.0
+ */
+public class TokenBucket {
+
+    private volatile double rate;
+    private double          tokens;
+    private long            lastRefill = System.nanoTime();
+
+    /**
+     * @param rate 每秒令牌数，小于等于0时不限速
+     */
+    public TokenBucket(double rate){
+        this.rate = rate;
+        this.tokens = Math.max(0, rate);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * 调整速率，立即生效
+     * 
+     * @param rate
+     */
+    public synchronized void setRate(double rate) {
+        refill();
+        this.rate = rate;
+        if (rate > 0) {
+            tokens = Math.min(tokens, rate);
+        }
+    }
+
+    /**
+     * 申请permits个令牌，不足时阻塞等待
+     * 
+     * @param permits
+     * @throws InterruptedException
+     */
+    public void acquire(long permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 尝试申请permits个令牌，不足时立即返回false
+     * 
+     * @param permits
+     * @return
+     */
+    public synchronized boolean tryAcquire(long permits) {
+        if (rate <= 0) {
+            return true;
+        }
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * 扣除令牌并返回需要等待的纳秒数
+     */
+    private synchronized long reserve(long permits) {
+        if (rate <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= permits;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate > 0) {
+            tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefill = now;
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.lm.hbase.adapter.entity;
+
+/**
+ * 聚合结果
+ *
+ * @version 1.0
+ */
+public class AggregateResult {
+
+    private long    rowCount;
+    private long    valueCount;
+    private double  sum;
+    private double  min           = Double.NaN;
+    private double  max           = Double.NaN;
+    private long    invalidValues;
+    private int     regionCount;
+    private boolean coprocessor;
+    private long    elapsedMillis;
+
+    /**
+     * 满足条件的行数
+     * 
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * 参与数值聚合的值个数
+     * 
+     * @return
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public void setValueCount(long valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    /**
+     * 最小值，没有值时为NaN
+     * 
+     * @return
+     */
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    /**
+     * 最大值，没有值时为NaN
+     * 
+     * @return
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    /**
+     * 平均值，没有值时为NaN
+     * 
+     * @return
+     */
+    public double getAvg() {
+        return valueCount == 0 ? Double.NaN : sum / valueCount;
+    }
+
+    /**
+     * 不能按类型解码而被跳过的值个数
+     * 
+     * @return
+     */
+    public long getInvalidValues() {
+        return invalidValues;
+    }
+
+    public void setInvalidValues(long invalidValues) {
+        this.invalidValues = invalidValues;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public void setRegionCount(int regionCount) {
+        this.regionCount = regionCount;
+    }
+
+    /**
+     * 是否由服务端的AggregateImplementation协处理器计算
+     * 
+     * @return
+     */
+    public boolean isCoprocessor() {
+        return coprocessor;
+    }
+
+    public void setCoprocessor(boolean coprocessor) {
+        this.coprocessor = coprocessor;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateResult[rows:" + rowCount + " values:" + valueCount + " sum:" + sum + " min:" + min + " max:"
+               + max + " avg:" + getAvg() + " invalid:" + invalidValues + " elapsed:" + elapsedMillis + "ms]";
+    }
+
+}
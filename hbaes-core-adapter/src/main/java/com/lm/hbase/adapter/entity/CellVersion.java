@@ -0,0 +1,53 @@
+package com.lm.hbase.adapter.entity;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 单元格的一个历史版本
+ *
+ * @version 1.0
+ */
+public class CellVersion {
+
+    private byte[] family;
+
+    private byte[] qualifier;
+
+    private long   timestamp;
+
+    private String displayValue;
+
+    public CellVersion(byte[] family, byte[] qualifier, long timestamp, String displayValue){
+        this.family = family;
+        this.qualifier = qualifier;
+        this.timestamp = timestamp;
+        this.displayValue = displayValue;
+    }
+
+    public byte[] getFamily() {
+        return family;
+    }
+
+    public byte[] getQualifier() {
+        return qualifier;
+    }
+
+    /**
+     * 版本时间戳(毫秒)
+     * 
+     * @return
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getDisplayValue() {
+        return displayValue;
+    }
+
+    @Override
+    public String toString() {
+        return Bytes.toString(family) + "." + Bytes.toString(qualifier) + "@" + timestamp + "=" + displayValue;
+    }
+
+}
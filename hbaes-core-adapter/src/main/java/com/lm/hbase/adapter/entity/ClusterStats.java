@@ -0,0 +1,145 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 集群状态的一次采样
+ *
+ * @version 1.0
+ */
+public class ClusterStats {
+
+    private long              timestamp;
+    /** 距上一次采样的间隔(毫秒)，第一次采样为0 */
+    private long              interval;
+    private String            clusterId;
+    private String            hbaseVersion;
+    private String            master;
+    private List<String>      backupMasters      = new ArrayList<>();
+    private List<String>      deadServers        = new ArrayList<>();
+    private int               regionsInTransition;
+    private double            averageLoad;
+    private boolean           balancerOn;
+    private List<ServerStats> servers            = new ArrayList<>();
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public String getClusterId() {
+        return clusterId;
+    }
+
+    public void setClusterId(String clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    public String getHbaseVersion() {
+        return hbaseVersion;
+    }
+
+    public void setHbaseVersion(String hbaseVersion) {
+        this.hbaseVersion = hbaseVersion;
+    }
+
+    public String getMaster() {
+        return master;
+    }
+
+    public void setMaster(String master) {
+        this.master = master;
+    }
+
+    public List<String> getBackupMasters() {
+        return backupMasters;
+    }
+
+    public List<String> getDeadServers() {
+        return deadServers;
+    }
+
+    public int getRegionsInTransition() {
+        return regionsInTransition;
+    }
+
+    public void setRegionsInTransition(int regionsInTransition) {
+        this.regionsInTransition = regionsInTransition;
+    }
+
+    public double getAverageLoad() {
+        return averageLoad;
+    }
+
+    public void setAverageLoad(double averageLoad) {
+        this.averageLoad = averageLoad;
+    }
+
+    public boolean isBalancerOn() {
+        return balancerOn;
+    }
+
+    public void setBalancerOn(boolean balancerOn) {
+        this.balancerOn = balancerOn;
+    }
+
+    public List<ServerStats> getServers() {
+        return servers;
+    }
+
+    /**
+     * 所有region
+     * 
+     * @return
+     */
+    public List<RegionStats> getRegions() {
+        List<RegionStats> result = new ArrayList<>();
+        for (ServerStats server : servers) {
+            result.addAll(server.getRegions());
+        }
+        return result;
+    }
+
+    public int getRegionCount() {
+        int count = 0;
+        for (ServerStats server : servers) {
+            count += server.getRegionCount();
+        }
+        return count;
+    }
+
+    public double getReadRate() {
+        double rate = 0;
+        for (ServerStats server : servers) {
+            rate += server.getReadRate();
+        }
+        return rate;
+    }
+
+    public double getWriteRate() {
+        double rate = 0;
+        for (ServerStats server : servers) {
+            rate += server.getWriteRate();
+        }
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterStats[" + clusterId + " servers:" + servers.size() + " dead:" + deadServers.size()
+               + " regions:" + getRegionCount() + " read/s:" + getReadRate() + " write/s:" + getWriteRate() + "]";
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列的统计画像。<br>
+ * distinctCount、topValues、quantiles、histogram都是估计值：distinctCount的标准误差为distinctError，
+ * topValues的真实次数在[count - error, count]之间。抽样时各项计数都是样本内的计数，没有按抽样比例放大。
+ *
+ * @version 1.0
+ */
+public class ColumnProfile {
+
+    private String              tableName;
+    private String              family;
+    private String              qualifier;
+    private String              type;
+    private long                timestamp     = System.currentTimeMillis();
+    private float               sampleChance  = 1.0f;
+    private int                 regionCount;
+    private long                valueCount;
+    private long                invalidValues;
+    private long                distinctCount;
+    private double              distinctError;
+    private List<ValueCount>    topValues     = new ArrayList<>();
+    private boolean             numeric;
+    private double              min           = Double.NaN;
+    private double              max           = Double.NaN;
+    private double              avg           = Double.NaN;
+    /** key为分位点(0~1) */
+    private Map<Double, Double> quantiles     = new LinkedHashMap<>();
+    /** histogram第i个桶的范围为[histogramBounds[i], histogramBounds[i+1]) */
+    private double[]            histogramBounds;
+    private long[]              histogram;
+    private long                elapsedMillis;
+
+    public ColumnProfile(String tableName, String family, String qualifier, String type){
+        this.tableName = tableName;
+        this.family = family;
+        this.qualifier = qualifier;
+        this.type = type;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * 统计完成的时间
+     * 
+     * @return
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * 行抽样比例，1表示全表扫描
+     * 
+     * @return
+     */
+    public float getSampleChance() {
+        return sampleChance;
+    }
+
+    public void setSampleChance(float sampleChance) {
+        this.sampleChance = sampleChance;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public void setRegionCount(int regionCount) {
+        this.regionCount = regionCount;
+    }
+
+    /**
+     * 有值的行数
+     * 
+     * @return
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public void setValueCount(long valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * 数值列中不能按类型解码的值个数
+     * 
+     * @return
+     */
+    public long getInvalidValues() {
+        return invalidValues;
+    }
+
+    public void setInvalidValues(long invalidValues) {
+        this.invalidValues = invalidValues;
+    }
+
+    /**
+     * 估计的不同值个数
+     * 
+     * @return
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public void setDistinctCount(long distinctCount) {
+        this.distinctCount = distinctCount;
+    }
+
+    /**
+     * distinctCount的相对标准误差
+     * 
+     * @return
+     */
+    public double getDistinctError() {
+        return distinctError;
+    }
+
+    public void setDistinctError(double distinctError) {
+        this.distinctError = distinctError;
+    }
+
+    /**
+     * 出现次数最多的值，按次数从高到低排序
+     * 
+     * @return
+     */
+    public List<ValueCount> getTopValues() {
+        return topValues;
+    }
+
+    /**
+     * 是否按数值统计了min/max/avg/quantiles/histogram
+     * 
+     * @return
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    public void setNumeric(boolean numeric) {
+        this.numeric = numeric;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public double getAvg() {
+        return avg;
+    }
+
+    public void setAvg(double avg) {
+        this.avg = avg;
+    }
+
+    public Map<Double, Double> getQuantiles() {
+        return quantiles;
+    }
+
+    public double[] getHistogramBounds() {
+        return histogramBounds;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(double[] histogramBounds, long[] histogram) {
+        this.histogramBounds = histogramBounds;
+        this.histogram = histogram;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnProfile[" + tableName + " " + family + ":" + qualifier + " values:" + valueCount + " distinct:"
+               + distinctCount + " top:" + topValues + (numeric ? " min:" + min + " max:" + max + " avg:" + avg
+                                                                  + " quantiles:" + quantiles : "")
+               + "]";
+    }
+
+    /**
+     * 值和出现次数
+     */
+    public static class ValueCount {
+
+        private final String value;
+        private final long   count;
+        private final long   error;
+
+        public ValueCount(String value, long count, long error){
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * 按列类型解码后的展示值
+         * 
+         * @return
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return value + "=" + count;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 表复制结果
+ *
+ * @version 1.0
+ */
+public class CopyReport {
+
+    private int          rangeCount;
+    /** 检查点中已经完成、本次跳过的范围数 */
+    private int          resumedRanges;
+    private long         rowsCopied;
+    private long         cellsCopied;
+    private long         bytesCopied;
+    private long         elapsedMillis;
+    private boolean      verified;
+    private long         sourceRows       = -1;
+    private long         targetRows       = -1;
+    private List<String> mismatchedRanges = new ArrayList<>();
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    public void setRangeCount(int rangeCount) {
+        this.rangeCount = rangeCount;
+    }
+
+    public int getResumedRanges() {
+        return resumedRanges;
+    }
+
+    public void setResumedRanges(int resumedRanges) {
+        this.resumedRanges = resumedRanges;
+    }
+
+    /**
+     * 本次复制的行数。行很宽被分批读取时一行可能计多次
+     * 
+     * @return
+     */
+    public long getRowsCopied() {
+        return rowsCopied;
+    }
+
+    public void setRowsCopied(long rowsCopied) {
+        this.rowsCopied = rowsCopied;
+    }
+
+    public long getCellsCopied() {
+        return cellsCopied;
+    }
+
+    public void setCellsCopied(long cellsCopied) {
+        this.cellsCopied = cellsCopied;
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    public void setBytesCopied(long bytesCopied) {
+        this.bytesCopied = bytesCopied;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 是否做了行数校验
+     * 
+     * @return
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public void setVerified(boolean verified) {
+        this.verified = verified;
+    }
+
+    /**
+     * 校验时源表范围内的行数，没有校验时为-1
+     * 
+     * @return
+     */
+    public long getSourceRows() {
+        return sourceRows;
+    }
+
+    public void setSourceRows(long sourceRows) {
+        this.sourceRows = sourceRows;
+    }
+
+    /**
+     * 校验时目标表范围内的行数，没有校验时为-1
+     * 
+     * @return
+     */
+    public long getTargetRows() {
+        return targetRows;
+    }
+
+    public void setTargetRows(long targetRows) {
+        this.targetRows = targetRows;
+    }
+
+    /**
+     * 行数不一致的范围
+     * 
+     * @return
+     */
+    public List<String> getMismatchedRanges() {
+        return mismatchedRanges;
+    }
+
+    public boolean isConsistent() {
+        return verified && mismatchedRanges.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "CopyReport[ranges:" + rangeCount + " resumed:" + resumedRanges + " rows:" + rowsCopied + " cells:"
+               + cellsCopied + " bytes:" + bytesCopied + " elapsed:" + elapsedMillis + "ms source:" + sourceRows
+               + " target:" + targetRows + " mismatched:" + mismatchedRanges.size() + "]";
+    }
+
+}
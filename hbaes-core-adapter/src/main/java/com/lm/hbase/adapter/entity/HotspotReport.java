@@ -0,0 +1,295 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 表的热点分析结果。<br>
+ * regions按请求速率从高到低排序；hotKeyRanges按估算速率从高到低排序；heatmap按region的行键顺序排列，
+ * 每行是该region键空间等分成buckets段后各段的估算请求速率(次/秒)。
+ *
+ * @version 1.0
+ */
+public class HotspotReport {
+
+    private String              tableName;
+    private long                timestamp    = System.currentTimeMillis();
+    /** 计算速率用的采样间隔(毫秒) */
+    private long                rateWindow;
+    private int                 buckets;
+    private double              totalRate;
+    private List<RegionHeat>    regions      = new ArrayList<>();
+    private List<KeyRangeHeat>  hotKeyRanges = new ArrayList<>();
+    /** heatmap的行，和heatmap一一对应 */
+    private List<RegionHeat>    heatmapRows  = new ArrayList<>();
+    private double[][]          heatmap;
+
+    public HotspotReport(String tableName){
+        this.tableName = tableName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getRateWindow() {
+        return rateWindow;
+    }
+
+    public void setRateWindow(long rateWindow) {
+        this.rateWindow = rateWindow;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * 整张表每秒请求数
+     * 
+     * @return
+     */
+    public double getTotalRate() {
+        return totalRate;
+    }
+
+    public void setTotalRate(double totalRate) {
+        this.totalRate = totalRate;
+    }
+
+    public List<RegionHeat> getRegions() {
+        return regions;
+    }
+
+    public List<KeyRangeHeat> getHotKeyRanges() {
+        return hotKeyRanges;
+    }
+
+    public List<RegionHeat> getHeatmapRows() {
+        return heatmapRows;
+    }
+
+    public double[][] getHeatmap() {
+        return heatmap;
+    }
+
+    public void setHeatmap(double[][] heatmap) {
+        this.heatmap = heatmap;
+    }
+
+    /**
+     * 请求占比最高的region是否超过平均值的threshold倍
+     * 
+     * @param threshold
+     * @return
+     */
+    public boolean hasHotspot(double threshold) {
+        return !regions.isEmpty() && regions.get(0).getSkew() >= threshold;
+    }
+
+    /**
+     * 一个region的热度
+     */
+    public static class RegionHeat {
+
+        private String regionName;
+        private String serverName;
+        private byte[] startKey;
+        private byte[] endKey;
+        private double readRate;
+        private double writeRate;
+        private double share;
+        private double skew;
+        private int    samples;
+
+        public String getRegionName() {
+            return regionName;
+        }
+
+        public void setRegionName(String regionName) {
+            this.regionName = regionName;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public void setServerName(String serverName) {
+            this.serverName = serverName;
+        }
+
+        public byte[] getStartKey() {
+            return startKey;
+        }
+
+        public void setStartKey(byte[] startKey) {
+            this.startKey = startKey;
+        }
+
+        public byte[] getEndKey() {
+            return endKey;
+        }
+
+        public void setEndKey(byte[] endKey) {
+            this.endKey = endKey;
+        }
+
+        public double getReadRate() {
+            return readRate;
+        }
+
+        public void setReadRate(double readRate) {
+            this.readRate = readRate;
+        }
+
+        public double getWriteRate() {
+            return writeRate;
+        }
+
+        public void setWriteRate(double writeRate) {
+            this.writeRate = writeRate;
+        }
+
+        public double getRequestRate() {
+            return readRate + writeRate;
+        }
+
+        /**
+         * 占整张表请求的比例(0~1)
+         * 
+         * @return
+         */
+        public double getShare() {
+            return share;
+        }
+
+        public void setShare(double share) {
+            this.share = share;
+        }
+
+        /**
+         * 请求速率是region平均值的多少倍
+         * 
+         * @return
+         */
+        public double getSkew() {
+            return skew;
+        }
+
+        public void setSkew(double skew) {
+            this.skew = skew;
+        }
+
+        /**
+         * 抽样到的行键数，没有抽样时为0
+         * 
+         * @return
+         */
+        public int getSamples() {
+            return samples;
+        }
+
+        public void setSamples(int samples) {
+            this.samples = samples;
+        }
+
+        @Override
+        public String toString() {
+            return regionName + "@" + serverName + "[read/s:" + readRate + " write/s:" + writeRate + " skew:" + skew
+                   + "]";
+        }
+    }
+
+    /**
+     * region内一段行键范围的热度
+     */
+    public static class KeyRangeHeat {
+
+        private String regionName;
+        private int    bucket;
+        private byte[] firstKey;
+        private byte[] lastKey;
+        private int    samples;
+        private double estimatedRate;
+
+        public String getRegionName() {
+            return regionName;
+        }
+
+        public void setRegionName(String regionName) {
+            this.regionName = regionName;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(int bucket) {
+            this.bucket = bucket;
+        }
+
+        /**
+         * 这一段中抽样到的最小行键
+         * 
+         * @return
+         */
+        public byte[] getFirstKey() {
+            return firstKey;
+        }
+
+        public void setFirstKey(byte[] firstKey) {
+            this.firstKey = firstKey;
+        }
+
+        /**
+         * 这一段中抽样到的最大行键
+         * 
+         * @return
+         */
+        public byte[] getLastKey() {
+            return lastKey;
+        }
+
+        public void setLastKey(byte[] lastKey) {
+            this.lastKey = lastKey;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public void setSamples(int samples) {
+            this.samples = samples;
+        }
+
+        /**
+         * region速率按抽样占比分摊到这一段的估算值
+         * 
+         * @return
+         */
+        public double getEstimatedRate() {
+            return estimatedRate;
+        }
+
+        public void setEstimatedRate(double estimatedRate) {
+            this.estimatedRate = estimatedRate;
+        }
+
+        @Override
+        public String toString() {
+            return regionName + "#" + bucket + "[" + Bytes.toStringBinary(firstKey) + " ~ "
+                   + Bytes.toStringBinary(lastKey) + " samples:" + samples + " rate:" + estimatedRate + "]";
+        }
+    }
+
+}
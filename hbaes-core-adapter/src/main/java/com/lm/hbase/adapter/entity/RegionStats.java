@@ -0,0 +1,192 @@
+package com.lm.hbase.adapter.entity;
+
+/**
+ * region负载统计。计数类指标是region打开以来的累计值，速率类指标由ClusterStatsSampler根据相邻两次采样计算，单次采样时为0
+ *
+ * @version 1.0
+ */
+public class RegionStats {
+
+    private String regionName;
+    private String tableName;
+    private byte[] startKey;
+    private String serverName;
+    private int    stores;
+    private int    storefiles;
+    private int    storefileSizeMB;
+    private int    memstoreSizeMB;
+    private long   readRequests;
+    private long   writeRequests;
+    private long   totalCompactingKVs;
+    private long   currentCompactedKVs;
+    private float  dataLocality;
+    private long   lastMajorCompactionTs;
+    private double readRate;
+    private double writeRate;
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public void setRegionName(String regionName) {
+        this.regionName = regionName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public byte[] getStartKey() {
+        return startKey;
+    }
+
+    public void setStartKey(byte[] startKey) {
+        this.startKey = startKey;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public void setServerName(String serverName) {
+        this.serverName = serverName;
+    }
+
+    public int getStores() {
+        return stores;
+    }
+
+    public void setStores(int stores) {
+        this.stores = stores;
+    }
+
+    public int getStorefiles() {
+        return storefiles;
+    }
+
+    public void setStorefiles(int storefiles) {
+        this.storefiles = storefiles;
+    }
+
+    public int getStorefileSizeMB() {
+        return storefileSizeMB;
+    }
+
+    public void setStorefileSizeMB(int storefileSizeMB) {
+        this.storefileSizeMB = storefileSizeMB;
+    }
+
+    public int getMemstoreSizeMB() {
+        return memstoreSizeMB;
+    }
+
+    public void setMemstoreSizeMB(int memstoreSizeMB) {
+        this.memstoreSizeMB = memstoreSizeMB;
+    }
+
+    public long getReadRequests() {
+        return readRequests;
+    }
+
+    public void setReadRequests(long readRequests) {
+        this.readRequests = readRequests;
+    }
+
+    public long getWriteRequests() {
+        return writeRequests;
+    }
+
+    public void setWriteRequests(long writeRequests) {
+        this.writeRequests = writeRequests;
+    }
+
+    public long getTotalCompactingKVs() {
+        return totalCompactingKVs;
+    }
+
+    public void setTotalCompactingKVs(long totalCompactingKVs) {
+        this.totalCompactingKVs = totalCompactingKVs;
+    }
+
+    public long getCurrentCompactedKVs() {
+        return currentCompactedKVs;
+    }
+
+    public void setCurrentCompactedKVs(long currentCompactedKVs) {
+        this.currentCompactedKVs = currentCompactedKVs;
+    }
+
+    /**
+     * 当前compaction进度(0~1)，没有正在进行的compaction时返回1
+     * 
+     * @return
+     */
+    public float getCompactionProgress() {
+        if (totalCompactingKVs <= 0) {
+            return 1f;
+        }
+        return (float) currentCompactedKVs / totalCompactingKVs;
+    }
+
+    /**
+     * 数据本地化率(0~1)
+     * 
+     * @return
+     */
+    public float getDataLocality() {
+        return dataLocality;
+    }
+
+    public void setDataLocality(float dataLocality) {
+        this.dataLocality = dataLocality;
+    }
+
+    public long getLastMajorCompactionTs() {
+        return lastMajorCompactionTs;
+    }
+
+    public void setLastMajorCompactionTs(long lastMajorCompactionTs) {
+        this.lastMajorCompactionTs = lastMajorCompactionTs;
+    }
+
+    /**
+     * 每秒读请求数
+     * 
+     * @return
+     */
+    public double getReadRate() {
+        return readRate;
+    }
+
+    public void setReadRate(double readRate) {
+        this.readRate = readRate;
+    }
+
+    /**
+     * 每秒写请求数
+     * 
+     * @return
+     */
+    public double getWriteRate() {
+        return writeRate;
+    }
+
+    public void setWriteRate(double writeRate) {
+        this.writeRate = writeRate;
+    }
+
+    public double getRequestRate() {
+        return readRate + writeRate;
+    }
+
+    @Override
+    public String toString() {
+        return regionName + "[read/s:" + readRate + " write/s:" + writeRate + " storefiles:" + storefiles
+               + " memstore:" + memstoreSizeMB + "MB locality:" + dataLocality + "]";
+    }
+
+}
@@ -0,0 +1,261 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RegionServer负载统计。计数类指标是RegionServer启动以来的累计值，速率类指标由ClusterStatsSampler根据相邻两次采样计算，单次采样时为0
+ *
+ * @version 1.0
+ */
+public class ServerStats {
+
+    private String            serverName;
+    private String            hostname;
+    private int               port;
+    private int               infoPort;
+    private long              startCode;
+    private int               regionCount;
+    private double            requestsPerSecond;
+    private long              totalRequests;
+    private long              readRequests;
+    private long              writeRequests;
+    private int               usedHeapMB;
+    private int               maxHeapMB;
+    private int               storefiles;
+    private int               storefileSizeMB;
+    private int               memstoreSizeMB;
+    private long              totalCompactingKVs;
+    private long              currentCompactedKVs;
+    private float             blockCacheHitRatio = -1;
+    private double            readRate;
+    private double            writeRate;
+    private List<RegionStats> regions            = new ArrayList<>();
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public void setServerName(String serverName) {
+        this.serverName = serverName;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public void setHostname(String hostname) {
+        this.hostname = hostname;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * RegionServer的web端口
+     * 
+     * @return
+     */
+    public int getInfoPort() {
+        return infoPort;
+    }
+
+    public void setInfoPort(int infoPort) {
+        this.infoPort = infoPort;
+    }
+
+    public long getStartCode() {
+        return startCode;
+    }
+
+    public void setStartCode(long startCode) {
+        this.startCode = startCode;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public void setRegionCount(int regionCount) {
+        this.regionCount = regionCount;
+    }
+
+    /**
+     * RegionServer自己统计的每秒请求数
+     * 
+     * @return
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public long getTotalRequests() {
+        return totalRequests;
+    }
+
+    public void setTotalRequests(long totalRequests) {
+        this.totalRequests = totalRequests;
+    }
+
+    public long getReadRequests() {
+        return readRequests;
+    }
+
+    public void setReadRequests(long readRequests) {
+        this.readRequests = readRequests;
+    }
+
+    public long getWriteRequests() {
+        return writeRequests;
+    }
+
+    public void setWriteRequests(long writeRequests) {
+        this.writeRequests = writeRequests;
+    }
+
+    public int getUsedHeapMB() {
+        return usedHeapMB;
+    }
+
+    public void setUsedHeapMB(int usedHeapMB) {
+        this.usedHeapMB = usedHeapMB;
+    }
+
+    public int getMaxHeapMB() {
+        return maxHeapMB;
+    }
+
+    public void setMaxHeapMB(int maxHeapMB) {
+        this.maxHeapMB = maxHeapMB;
+    }
+
+    public int getStorefiles() {
+        return storefiles;
+    }
+
+    public void setStorefiles(int storefiles) {
+        this.storefiles = storefiles;
+    }
+
+    public int getStorefileSizeMB() {
+        return storefileSizeMB;
+    }
+
+    public void setStorefileSizeMB(int storefileSizeMB) {
+        this.storefileSizeMB = storefileSizeMB;
+    }
+
+    public int getMemstoreSizeMB() {
+        return memstoreSizeMB;
+    }
+
+    public void setMemstoreSizeMB(int memstoreSizeMB) {
+        this.memstoreSizeMB = memstoreSizeMB;
+    }
+
+    public long getTotalCompactingKVs() {
+        return totalCompactingKVs;
+    }
+
+    public void setTotalCompactingKVs(long totalCompactingKVs) {
+        this.totalCompactingKVs = totalCompactingKVs;
+    }
+
+    public long getCurrentCompactedKVs() {
+        return currentCompactedKVs;
+    }
+
+    public void setCurrentCompactedKVs(long currentCompactedKVs) {
+        this.currentCompactedKVs = currentCompactedKVs;
+    }
+
+    /**
+     * 当前compaction进度(0~1)，没有正在进行的compaction时返回1
+     * 
+     * @return
+     */
+    public float getCompactionProgress() {
+        if (totalCompactingKVs <= 0) {
+            return 1f;
+        }
+        return (float) currentCompactedKVs / totalCompactingKVs;
+    }
+
+    /**
+     * BlockCache命中率(0~1)，来自RegionServer的JMX，获取不到时为-1
+     * 
+     * @return
+     */
+    public float getBlockCacheHitRatio() {
+        return blockCacheHitRatio;
+    }
+
+    public void setBlockCacheHitRatio(float blockCacheHitRatio) {
+        this.blockCacheHitRatio = blockCacheHitRatio;
+    }
+
+    /**
+     * 所有region的数据本地化率，按存储大小加权
+     * 
+     * @return
+     */
+    public float getDataLocality() {
+        long size = 0;
+        double weighted = 0;
+        for (RegionStats region : regions) {
+            size += region.getStorefileSizeMB();
+            weighted += (double) region.getDataLocality() * region.getStorefileSizeMB();
+        }
+        return size == 0 ? 1f : (float) (weighted / size);
+    }
+
+    /**
+     * 每秒读请求数
+     * 
+     * @return
+     */
+    public double getReadRate() {
+        return readRate;
+    }
+
+    public void setReadRate(double readRate) {
+        this.readRate = readRate;
+    }
+
+    /**
+     * 每秒写请求数
+     * 
+     * @return
+     */
+    public double getWriteRate() {
+        return writeRate;
+    }
+
+    public void setWriteRate(double writeRate) {
+        this.writeRate = writeRate;
+    }
+
+    public double getRequestRate() {
+        return readRate + writeRate;
+    }
+
+    public List<RegionStats> getRegions() {
+        return regions;
+    }
+
+    @Override
+    public String toString() {
+        return serverName + "[regions:" + regionCount + " read/s:" + readRate + " write/s:" + writeRate + " heap:"
+               + usedHeapMB + "/" + maxHeapMB + "MB]";
+    }
+
+}
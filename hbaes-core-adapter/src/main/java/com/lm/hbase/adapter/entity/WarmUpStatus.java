@@ -0,0 +1,144 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接预热进度。<br>
+ * 预热在后台执行，调用方可以轮询isReady()或者用await()等待完成。单张表或者单台RegionServer预热失败不影响整体结果，
+ * 失败原因记录在getWarnings()中。
+ *
+ * @version 1.0
+ */
+public class WarmUpStatus {
+
+    public static enum State {
+                              RUNNING, READY, FAILED;
+    }
+
+    private final String         profileName;
+    private volatile State       state        = State.RUNNING;
+    private volatile int         tableCount   = 0;
+    private final AtomicInteger  tablesDone   = new AtomicInteger();
+    private final AtomicInteger  regionCount  = new AtomicInteger();
+    private final AtomicInteger  serverCount  = new AtomicInteger();
+    private volatile Throwable   error        = null;
+    private final long           startTime    = System.currentTimeMillis();
+    private volatile long        endTime      = 0;
+    private final CountDownLatch finishLatch  = new CountDownLatch(1);
+    private final List<String>   warnings     = new CopyOnWriteArrayList<>();
+
+    public WarmUpStatus(String profileName){
+        this.profileName = profileName;
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public boolean isFinished() {
+        return state != State.RUNNING;
+    }
+
+    /**
+     * 等待预热结束
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否在超时前结束
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finishLatch.await(timeout, unit);
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public void setTableCount(int tableCount) {
+        this.tableCount = tableCount;
+    }
+
+    public int getTablesDone() {
+        return tablesDone.get();
+    }
+
+    public void tableDone(int regions) {
+        tablesDone.incrementAndGet();
+        regionCount.addAndGet(regions);
+    }
+
+    public int getRegionCount() {
+        return regionCount.get();
+    }
+
+    public int getServerCount() {
+        return serverCount.get();
+    }
+
+    public void setServerCount(int serverCount) {
+        this.serverCount.set(serverCount);
+    }
+
+    public void addWarning(String warning) {
+        warnings.add(warning);
+    }
+
+    /**
+     * 预热过程中跳过的表和RegionServer
+     *
+     * @return
+     */
+    public List<String> getWarnings() {
+        return new ArrayList<>(warnings);
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * 预热耗时（毫秒），未结束时返回已经耗费的时间
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    public void ready() {
+        finish(State.READY, null);
+    }
+
+    public void failed(Throwable error) {
+        finish(State.FAILED, error);
+    }
+
+    private void finish(State state, Throwable error) {
+        this.error = error;
+        this.endTime = System.currentTimeMillis();
+        this.state = state;
+        finishLatch.countDown();
+    }
+
+    @Override
+    public String toString() {
+        return profileName + " " + state + " tables:" + tablesDone.get() + "/" + tableCount + " regions:"
+               + regionCount.get() + " servers:" + serverCount.get() + " warnings:" + warnings.size() + " "
+               + getElapsedMillis() + "ms";
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.junit.Test;
+
+/**
+ * 检查连接关闭后缓存的条目被清除
+ */
+public class ConnectionCacheTest {
+
+    private final CountingLoader loader = new CountingLoader();
+
+    private static Connection connection(final AtomicBoolean closed) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class<?>[] { Connection.class }, new InvocationHandler() {
+
+                                                       @Override
+                                                       public Object invoke(Object proxy, Method method,
+                                                                            Object[] args) {
+                                                           if (method.getName().equals("isClosed")) {
+                                                               return closed.get();
+                                                           }
+                                                           if (method.getName().equals("hashCode")) {
+                                                               return System.identityHashCode(proxy);
+                                                           }
+                                                           if (method.getName().equals("equals")) {
+                                                               return proxy == args[0];
+                                                           }
+                                                           return null;
+                                                       }
+                                                   });
+    }
+
+    @Test
+    public void cachesUntilInvalidated() throws Exception {
+        ConnectionCache<String, Integer> cache = new ConnectionCache<>(60000);
+        Connection connection = connection(new AtomicBoolean());
+        assertEquals(1, (int) cache.get(connection, "t", loader));
+        assertEquals(1, (int) cache.get(connection, "t", loader));
+        cache.invalidate(connection, "t");
+        assertEquals(2, (int) cache.get(connection, "t", loader));
+    }
+
+    @Test
+    public void purgeDropsClosedConnection() throws Exception {
+        ConnectionCache<String, Integer> cache = new ConnectionCache<>(60000);
+        Connection connection = connection(new AtomicBoolean());
+        cache.get(connection, "t", loader);
+        ConnectionCache.purge(connection);
+        assertEquals(2, (int) cache.get(connection, "t", loader));
+    }
+
+    @Test
+    public void closedConnectionsAreDroppedOnNextMiss() throws Exception {
+        ConnectionCache<String, Integer> cache = new ConnectionCache<>(60000);
+        AtomicBoolean closed = new AtomicBoolean();
+        Connection first = connection(closed);
+        cache.get(first, "t", loader);
+        closed.set(true);
+        // 另一个连接第一次读取时清除已经关闭的连接
+        cache.get(connection(new AtomicBoolean()), "t", loader);
+        closed.set(false);
+        assertEquals(3, (int) cache.get(first, "t", loader));
+    }
+
+    private static class CountingLoader implements ConnectionCache.Loader<String, Integer> {
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        public Integer load(Connection connection, String key) throws IOException {
+            return loads.incrementAndGet();
+        }
+    }
+
+}
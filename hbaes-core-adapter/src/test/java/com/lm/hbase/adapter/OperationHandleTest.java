@@ -0,0 +1,82 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * 取消后句柄立即结束，不等待执行线程退出
+ */
+public class OperationHandleTest {
+
+    @Test
+    public void cancelCompletesImmediately() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean closed = new AtomicBoolean();
+        OperationHandle<String> handle = OperationHandle.submit("test", new OperationHandle.Task<String>() {
+
+            @Override
+            public String run(OperationHandle<String> handle) throws Exception {
+                handle.register(new Closeable() {
+
+                    @Override
+                    public void close() {
+                        closed.set(true);
+                    }
+                });
+                started.countDown();
+                // 忽略中断，模拟不响应取消的操作
+                while (!release.await(10, TimeUnit.MILLISECONDS)) {
+                    Thread.interrupted();
+                }
+                return "done";
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(handle.cancel(false));
+        assertTrue(handle.isDone());
+        assertTrue(handle.isCancelled());
+        assertEquals(OperationHandle.State.CANCELLED, handle.getState());
+        assertTrue(closed.get());
+        try {
+            handle.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException e) {
+            // 期望的结果
+        }
+        assertFalse(handle.cancel());
+
+        // 执行线程之后正常返回也不会改变状态
+        release.countDown();
+        Thread.sleep(50);
+        assertEquals(OperationHandle.State.CANCELLED, handle.getState());
+    }
+
+    @Test
+    public void cancelAfterSuccessReturnsFalse() throws Exception {
+        OperationHandle<String> handle = new OperationHandle<>("test");
+        String value = handle.execute(new OperationHandle.Task<String>() {
+
+            @Override
+            public String run(OperationHandle<String> handle) {
+                return "done";
+            }
+        });
+        assertEquals("done", value);
+        assertFalse(handle.cancel());
+        assertEquals("done", handle.get());
+        assertEquals(OperationHandle.State.SUCCEEDED, handle.getState());
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 在mini-cluster上检查在途额度很小时的并行写入，超过单批上限的行拆开后完整写入
+ */
+public class ParallelWriterTest {
+
+    private static final HBaseTestingUtility UTIL   = new HBaseTestingUtility();
+
+    private static final TableName           TABLE  = TableName.valueOf("parallel_writer_test");
+
+    private static final byte[]              FAMILY = Bytes.toBytes("f");
+
+    private static Connection                connection;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        UTIL.startMiniCluster();
+        connection = UTIL.getConnection();
+        UTIL.createTable(TABLE, new byte[][] { FAMILY }, new byte[][] { Bytes.toBytes("row-0100") });
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        UTIL.shutdownMiniCluster();
+    }
+
+    @Test
+    public void oversizedRowIsSplitIntoBatches() throws Exception {
+        List<Put> puts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Put put = new Put(Bytes.toBytes(String.format("row-%04d", i)));
+            put.addColumn(FAMILY, Bytes.toBytes("a"), Bytes.toBytes(i));
+            puts.add(put);
+        }
+        // 40个1KB的cell，超过8KB的单批上限
+        Put big = new Put(Bytes.toBytes("row-big"));
+        for (int i = 0; i < 40; i++) {
+            big.addColumn(FAMILY, Bytes.toBytes("c" + i), new byte[1024]);
+        }
+        puts.add(big);
+
+        ParallelWriter writer = new ParallelWriter(connection, TABLE, 4, 64 * 1024, 2, 50);
+        try {
+            assertEquals(201, writer.writePuts(puts));
+        } finally {
+            writer.close();
+        }
+
+        Table table = connection.getTable(TABLE);
+        ResultScanner scanner = table.getScanner(new Scan());
+        try {
+            int rows = 0;
+            for (Result rs : scanner) {
+                rows++;
+            }
+            assertEquals(201, rows);
+            assertEquals(40, table.get(new Get(Bytes.toBytes("row-big"))).size());
+        } finally {
+            scanner.close();
+            table.close();
+        }
+    }
+
+}
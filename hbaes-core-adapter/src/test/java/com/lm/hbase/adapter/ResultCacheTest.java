@@ -0,0 +1,108 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.entity.ColumnarPage;
+
+/**
+ * 检查按segment淘汰和日志压缩后重新打开
+ */
+public class ResultCacheTest {
+
+    private static final Map<String, String> TYPES      = Collections.emptyMap();
+
+    private static final int                 VALUE_SIZE = 100 * 1024;
+
+    private File                             dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("result-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static ColumnarPage page(String row) {
+        KeyValue kv = new KeyValue(Bytes.toBytes(row), Bytes.toBytes("f"), Bytes.toBytes("q"), new byte[VALUE_SIZE]);
+        ColumnarPage page = new ColumnarPage();
+        page.add(Result.create(new Cell[] { kv }), TYPES);
+        return page;
+    }
+
+    @Test
+    public void evictsWholeSegments() throws Exception {
+        ResultCache cache = new ResultCache(dir, 5 * VALUE_SIZE, 0);
+        try {
+            // 每个segment放两页
+            cache.setSegmentSize(2 * VALUE_SIZE + 1024);
+            for (int i = 0; i < 4; i++) {
+                cache.put("k" + i, "t", 0, page("r" + i));
+            }
+            // k0最近访问过，最久未访问的是k1，和k0在同一个segment
+            assertNotNull(cache.get("k0", 0, TYPES));
+            assertEquals(0, cache.getEvictions());
+            for (int i = 4; i < 6; i++) {
+                cache.put("k" + i, "t", 0, page("r" + i));
+            }
+            // 逐条淘汰会先淘汰k1、k2，只有k2所在的segment被释放；按segment淘汰只淘汰k0、k1
+            assertEquals(2, cache.getEvictions());
+            assertNull(cache.get("k1", 0, TYPES));
+            assertNull(cache.get("k0", 0, TYPES));
+            assertNotNull(cache.get("k2", 0, TYPES));
+            assertNotNull(cache.get("k3", 0, TYPES));
+            assertTrue(cache.getSize() <= 5 * VALUE_SIZE);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void reopenReplaysCompactedJournal() throws Exception {
+        ResultCache cache = new ResultCache(dir, 10 * VALUE_SIZE, 0);
+        try {
+            cache.put("a", "t", 0, page("r1"));
+            cache.put("b", "t", 0, page("r2"));
+            cache.invalidateTable("other");
+        } finally {
+            cache.close();
+        }
+        assertTrue(new File(dir, "index.journal").exists());
+        assertTrue(!new File(dir, "index.journal.tmp").exists());
+
+        cache = new ResultCache(dir, 10 * VALUE_SIZE, 0);
+        try {
+            assertEquals(2, cache.getEntryCount());
+            ColumnarPage page = cache.get("b", 0, TYPES);
+            assertNotNull(page);
+            assertEquals("r2", Bytes.toString(page.getRowKey(0)));
+        } finally {
+            cache.close();
+        }
+    }
+
+}
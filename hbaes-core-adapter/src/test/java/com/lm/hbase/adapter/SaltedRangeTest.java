@@ -0,0 +1,139 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.entity.AggregateResult;
+import com.lm.hbase.adapter.entity.CopyReport;
+
+/**
+ * 在mini-cluster上检查加盐的表按逻辑行键范围和行键前缀计数、聚合和复制
+ */
+public class SaltedRangeTest {
+
+    private static final HBaseTestingUtility UTIL      = new HBaseTestingUtility();
+
+    private static final TableName           SALTED    = TableName.valueOf("salted_range_test");
+
+    private static final TableName           COPY      = TableName.valueOf("salted_range_copy");
+
+    private static final byte[]              FAMILY    = Bytes.toBytes("f");
+
+    private static final byte[]              QUALIFIER = Bytes.toBytes("a");
+
+    private static final int                 ROW_COUNT = 200;
+
+    private static Connection                connection;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        UTIL.startMiniCluster();
+        connection = UTIL.getConnection();
+        SaltedRowKeyCodec codec = new SaltedRowKeyCodec(4);
+        HTableDescriptor descriptor = new HTableDescriptor(SALTED);
+        descriptor.addFamily(new HColumnDescriptor(FAMILY));
+        descriptor.setValue(RowKeyCodecs.SALT_PROPERTY, "4");
+        descriptor.addCoprocessor(Aggregator.AGGREGATE_COPROCESSOR);
+        UTIL.getHBaseAdmin().createTable(descriptor, codec.getSplitKeys());
+        Table table = connection.getTable(SALTED);
+        try {
+            List<Put> puts = new ArrayList<>();
+            for (int i = 0; i < ROW_COUNT; i++) {
+                Put put = new Put(Bytes.toBytes(String.format("row-%04d", i)));
+                put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes(i));
+                puts.add(put);
+            }
+            table.put(RowKeyCodecs.encode(puts, codec));
+        } finally {
+            table.close();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        UTIL.shutdownMiniCluster();
+    }
+
+    @Test
+    public void countUsesLogicalRange() throws Exception {
+        Aggregator aggregator = new Aggregator(connection, SALTED);
+        AggregateResult result = aggregator.count(Bytes.toBytes("row-0050"), Bytes.toBytes("row-0150"), null);
+        assertEquals(100, result.getRowCount());
+        // 每个桶各一个region
+        assertEquals(4, result.getRegionCount());
+
+        aggregator.setUseCoprocessor(true, UTIL.getConfiguration());
+        result = aggregator.count(Bytes.toBytes("row-0050"), Bytes.toBytes("row-0150"), null);
+        assertTrue(result.isCoprocessor());
+        assertEquals(100, result.getRowCount());
+    }
+
+    @Test
+    public void countTranslatesPrefixFilter() throws Exception {
+        List<Object> filters = Collections.singletonList(FilterFactory.createRowkeyPrefixFilter(Bytes.toBytes("row-01")));
+        Aggregator aggregator = new Aggregator(connection, SALTED);
+        assertEquals(100, aggregator.count(null, null, filters).getRowCount());
+
+        aggregator.setUseCoprocessor(true, UTIL.getConfiguration());
+        assertEquals(100, aggregator.count(null, null, filters).getRowCount());
+    }
+
+    @Test
+    public void aggregateUsesLogicalRange() throws Exception {
+        AggregateResult result = new Aggregator(connection, SALTED).aggregate(Bytes.toBytes("row-0050"),
+                                                                              Bytes.toBytes("row-0060"), null, FAMILY,
+                                                                              QUALIFIER, "int");
+        assertEquals(10, result.getRowCount());
+        assertEquals(545, result.getSum(), 1e-9);
+        assertEquals(50, result.getMin(), 1e-9);
+        assertEquals(59, result.getMax(), 1e-9);
+    }
+
+    @Test
+    public void copyUsesLogicalRange() throws Exception {
+        TableCopier copier = new TableCopier(connection, SALTED, connection, COPY);
+        copier.setRange(Bytes.toBytes("row-0050"), Bytes.toBytes("row-0100"));
+        CopyReport report = copier.copy();
+        assertEquals(50, report.getRowsCopied());
+        assertTrue(report.isConsistent());
+
+        // 目标表按源表结构创建，同样加盐，读出的逻辑行键正好是复制的范围
+        RowKeyCodec codec = RowKeyCodecs.get(connection, COPY);
+        assertEquals(4, codec.getBucketCount());
+        List<String> rows = new ArrayList<>();
+        Table table = connection.getTable(COPY);
+        ResultScanner scanner = table.getScanner(new Scan());
+        try {
+            for (Result rs : scanner) {
+                rows.add(Bytes.toString(codec.decode(rs.getRow())));
+            }
+        } finally {
+            scanner.close();
+            table.close();
+        }
+        Collections.sort(rows);
+        assertEquals(50, rows.size());
+        assertEquals("row-0050", rows.get(0));
+        assertEquals("row-0099", rows.get(49));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+/**
+ * 并行扫描region时每个Scan必须有独立的过滤器状态
+ */
+public class ScanCopyTest {
+
+    private static final KeyValue CELL1 = new KeyValue(Bytes.toBytes("r1"), Bytes.toBytes("f"), Bytes.toBytes("a"),
+                                                       Bytes.toBytes("v"));
+    private static final KeyValue CELL2 = new KeyValue(Bytes.toBytes("r1"), Bytes.toBytes("f"), Bytes.toBytes("b"),
+                                                       Bytes.toBytes("v"));
+
+    @Test
+    public void copyScanDoesNotShareFilterState() throws Exception {
+        Scan scan = new Scan();
+        scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+
+        Scan copy1 = SnapshotReader.copyScan(scan);
+        Scan copy2 = SnapshotReader.copyScan(scan);
+        assertNotSame(copy1.getFilter(), copy2.getFilter());
+
+        // copy1读过一个cell后，FirstKeyOnlyFilter跳过本行剩余的cell
+        assertEquals(ReturnCode.INCLUDE, copy1.getFilter().filterKeyValue(CELL1));
+        assertEquals(ReturnCode.NEXT_ROW, copy1.getFilter().filterKeyValue(CELL2));
+        // copy2不受影响
+        assertEquals(ReturnCode.INCLUDE, copy2.getFilter().filterKeyValue(CELL1));
+    }
+
+    @Test
+    public void copyScanKeepsRange() throws Exception {
+        Scan scan = new Scan(Bytes.toBytes("a"), Bytes.toBytes("z"));
+        scan.setCaching(123);
+        Scan copy = SnapshotReader.copyScan(scan);
+        assertEquals("a", Bytes.toString(copy.getStartRow()));
+        assertEquals("z", Bytes.toString(copy.getStopRow()));
+        assertEquals(123, copy.getCaching());
+        assertEquals(null, copy.getFilter());
+    }
+
+}
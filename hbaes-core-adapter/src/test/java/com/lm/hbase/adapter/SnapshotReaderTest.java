@@ -0,0 +1,164 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.entity.HBasePageModel;
+
+/**
+ * 在mini-cluster上对多region的表做快照，检查并行计数和分页读取
+ */
+public class SnapshotReaderTest {
+
+    private static final HBaseTestingUtility UTIL      = new HBaseTestingUtility();
+
+    private static final TableName           TABLE     = TableName.valueOf("snapshot_reader_test");
+
+    private static final byte[]              FAMILY    = Bytes.toBytes("f");
+
+    private static final int                 ROW_COUNT = 2000;
+
+    private static final TableName           SALTED    = TableName.valueOf("snapshot_reader_salted");
+
+    private static Connection                connection;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        UTIL.startMiniCluster();
+        connection = UTIL.getConnection();
+        byte[][] splitKeys = new byte[][] { Bytes.toBytes("row-0500"), Bytes.toBytes("row-1000"),
+                                            Bytes.toBytes("row-1500") };
+        Table table = UTIL.createTable(TABLE, new byte[][] { FAMILY }, splitKeys);
+        try {
+            List<Put> puts = new ArrayList<>();
+            for (int i = 0; i < ROW_COUNT; i++) {
+                Put put = new Put(Bytes.toBytes(String.format("row-%04d", i)));
+                // 每行多个cell，共用过滤器时FirstKeyOnlyFilter的状态会在region之间串扰
+                put.addColumn(FAMILY, Bytes.toBytes("a"), Bytes.toBytes(i));
+                put.addColumn(FAMILY, Bytes.toBytes("b"), Bytes.toBytes(i));
+                puts.add(put);
+            }
+            table.put(puts);
+        } finally {
+            table.close();
+        }
+        UTIL.getHBaseAdmin().flush(TABLE);
+
+        SaltedRowKeyCodec codec = new SaltedRowKeyCodec(4);
+        HTableDescriptor descriptor = new HTableDescriptor(SALTED);
+        descriptor.addFamily(new HColumnDescriptor(FAMILY));
+        descriptor.setValue(RowKeyCodecs.SALT_PROPERTY, "4");
+        UTIL.getHBaseAdmin().createTable(descriptor, codec.getSplitKeys());
+        Table salted = connection.getTable(SALTED);
+        try {
+            List<Put> puts = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Put put = new Put(Bytes.toBytes(String.format("row-%04d", i)));
+                put.addColumn(FAMILY, Bytes.toBytes("a"), Bytes.toBytes(i));
+                puts.add(put);
+            }
+            salted.put(RowKeyCodecs.encode(puts, codec));
+        } finally {
+            salted.close();
+        }
+        UTIL.getHBaseAdmin().flush(SALTED);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        UTIL.shutdownMiniCluster();
+    }
+
+    private SnapshotReader open(String snapshotName) throws Exception {
+        return open(TABLE, snapshotName);
+    }
+
+    private SnapshotReader open(TableName tableName, String snapshotName) throws Exception {
+        Path rootDir = FSUtils.getRootDir(UTIL.getConfiguration());
+        // 恢复目录不能在hbase.rootdir下面
+        Path restoreDir = new Path(rootDir.getParent(), "snapshot-restore");
+        SnapshotReader reader = new SnapshotReader(UTIL.getConfiguration(), connection, tableName, snapshotName,
+                                                   rootDir, restoreDir);
+        reader.setDeleteSnapshotOnClose(true);
+        return reader;
+    }
+
+    @Test
+    public void parallelRowCountMatchesTable() throws Exception {
+        SnapshotReader reader = open("snapshot_reader_count");
+        try {
+            assertEquals(4, reader.getRegions().size());
+            assertEquals(ROW_COUNT, reader.rowCount(1));
+            assertEquals(ROW_COUNT, reader.rowCount(4));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void pagesCrossRegionBoundaries() throws Exception {
+        SnapshotReader reader = open("snapshot_reader_page");
+        try {
+            HBasePageModel page = new HBasePageModel(300, TABLE.getNameAsString());
+            page = reader.scanResultByPageFilter(Bytes.toBytes("row-0400"), null, null, 0, page, true, null);
+            assertEquals(300, page.getRowList().size());
+            assertEquals("row-0400", page.getRowList().get(0).getRowKey());
+            assertEquals("row-0699", page.getRowList().get(299).getRowKey());
+
+            page.clearRows();
+            page = reader.scanResultByPageFilter(null, null, null, 0, page, false, null);
+            assertEquals(300, page.getRowList().size());
+            assertEquals("row-0700", page.getRowList().get(0).getRowKey());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void saltedPagesReturnLogicalRowKeys() throws Exception {
+        SnapshotReader reader = open(SALTED, "snapshot_reader_salted");
+        try {
+            HBasePageModel page = new HBasePageModel(30, SALTED.getNameAsString());
+            page = reader.scanResultByPageFilter(Bytes.toBytes("row-0010"), null, null, 0, page, true, null);
+            assertEquals(30, page.getRowList().size());
+            // 各个桶归并后按逻辑行键排序，不带桶前缀
+            for (int i = 0; i < 30; i++) {
+                assertEquals(String.format("row-%04d", i + 10), page.getRowList().get(i).getRowKey());
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherTableIsRejected() throws Exception {
+        UTIL.getHBaseAdmin().snapshot("snapshot_reader_other", TABLE);
+        try {
+            open(SALTED, "snapshot_reader_other").close();
+            fail("同名快照属于其他表时不能复用");
+        } catch (IOException e) {
+            // 预期
+        } finally {
+            UTIL.getHBaseAdmin().deleteSnapshot("snapshot_reader_other");
+        }
+    }
+
+}
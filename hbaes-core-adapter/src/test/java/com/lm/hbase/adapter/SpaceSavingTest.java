@@ -0,0 +1,85 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+/**
+ * 检查合并后的计数仍然是上界，高频值不会因为合并丢失
+ */
+public class SpaceSavingTest {
+
+    @Test
+    public void mergeAddsMinCountForUntrackedValues() {
+        SpaceSaving a = sketch(3, "x", 5, "y", 4, "z", 3);
+        SpaceSaving b = sketch(3, "x", 5, "w", 4, "v", 3);
+        a.merge(b);
+
+        assertEquals(24, a.getTotal());
+        List<SpaceSaving.Counter> top = a.top(3);
+        assertEquals(3, top.size());
+        assertEquals("x", Bytes.toString(top.get(0).getValue()));
+        assertEquals(10, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        // y只在a中出现4次，b满时最小计数为3，所以上界是7
+        for (SpaceSaving.Counter counter : top.subList(1, 3)) {
+            assertEquals(7, counter.getCount());
+            assertEquals(3, counter.getError());
+        }
+    }
+
+    @Test
+    public void mergedCountsBoundTrueCounts() {
+        Random random = new Random(42);
+        int capacity = 20;
+        Map<String, Long> truth = new HashMap<>();
+        SpaceSaving merged = new SpaceSaving(capacity);
+        for (int part = 0; part < 8; part++) {
+            SpaceSaving sketch = new SpaceSaving(capacity);
+            for (int i = 0; i < 5000; i++) {
+                // 每个分片的高频值不同，逐个分片看都可能被挤出
+                int v = random.nextInt(4) == 0 ? part * 3 + random.nextInt(3) : random.nextInt(500);
+                String value = String.valueOf(v);
+                byte[] b = Bytes.toBytes(value);
+                sketch.add(b, 0, b.length);
+                Long count = truth.get(value);
+                truth.put(value, count == null ? 1 : count + 1);
+            }
+            merged.merge(sketch);
+        }
+
+        assertEquals(40000, merged.getTotal());
+        Map<String, SpaceSaving.Counter> tracked = new HashMap<>();
+        for (SpaceSaving.Counter counter : merged.top(capacity)) {
+            String value = Bytes.toString(counter.getValue());
+            tracked.put(value, counter);
+            long actual = truth.get(value);
+            assertTrue(value + " count below actual", counter.getCount() >= actual);
+            assertTrue(value + " error too small", counter.getCount() - counter.getError() <= actual);
+        }
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            if (entry.getValue() > merged.getTotal() / capacity) {
+                assertTrue(entry.getKey() + " lost", tracked.containsKey(entry.getKey()));
+            }
+        }
+    }
+
+    private static SpaceSaving sketch(int capacity, Object... valueCounts) {
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        for (int i = 0; i < valueCounts.length; i += 2) {
+            byte[] b = Bytes.toBytes((String) valueCounts[i]);
+            for (int n = 0; n < (Integer) valueCounts[i + 1]; n++) {
+                sketch.add(b, 0, b.length);
+            }
+        }
+        return sketch;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.RegionTooBusyException;
+import org.junit.Test;
+
+/**
+ * 检查降速后按时间恢复，而不是按RPC次数恢复；不重试的失败只降速不等待
+ */
+public class ThrottleTest {
+
+    @Test
+    public void burstOfFastRpcsDoesNotRestoreFullRate() {
+        Throttle throttle = new Throttle("test", 1000, 0, 0);
+        throttle.setLatencyThreshold(100);
+        throttle.recordRpc(500);
+        assertEquals(0.8, throttle.getFactor(), 1e-9);
+        for (int i = 0; i < 100; i++) {
+            throttle.recordRpc(1);
+        }
+        assertTrue("factor " + throttle.getFactor(), throttle.getFactor() < 0.9);
+    }
+
+    @Test
+    public void recoversOverTime() throws Exception {
+        Throttle throttle = new Throttle("test", 1000, 0, 0);
+        throttle.setLatencyThreshold(100);
+        throttle.recordRpc(500);
+        Thread.sleep(500);
+        throttle.recordRpc(1);
+        double factor = throttle.getFactor();
+        assertTrue("factor " + factor, factor > 0.8 && factor < 1.0);
+        Thread.sleep(1500);
+        throttle.recordRpc(1);
+        assertEquals(1.0, throttle.getFactor(), 1e-9);
+    }
+
+    @Test
+    public void unlimitedThrottleIgnoresLatency() {
+        Throttle throttle = new Throttle("test", 0, 0, 0);
+        throttle.recordRpc(5000);
+        assertEquals(1.0, throttle.getFactor(), 1e-9);
+    }
+
+    @Test
+    public void failureSlowsDownWithoutWaiting() {
+        Throttle throttle = new Throttle("test", 1000, 0, 0);
+        long start = System.currentTimeMillis();
+        assertTrue(throttle.recordFailure(new RegionTooBusyException("busy")));
+        assertTrue(throttle.recordFailure(new RegionTooBusyException("busy")));
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertEquals(0.25, throttle.getFactor(), 1e-9);
+        assertEquals(2, throttle.getBusyErrors());
+        // 退避期间不恢复
+        throttle.recordRpc(1);
+        assertEquals(0.25, throttle.getFactor(), 1e-9);
+    }
+
+    @Test
+    public void retryReturnsBackoffWithoutWaiting() {
+        Throttle throttle = new Throttle("test", 1000, 0, 0);
+        long start = System.currentTimeMillis();
+        long first = throttle.recordRetry(new RegionTooBusyException("busy"));
+        long second = throttle.recordRetry(new RegionTooBusyException("busy"));
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertTrue(first > 0 && second > first);
+        assertEquals(0.25, throttle.getFactor(), 1e-9);
+        assertEquals(0, throttle.recordRetry(new IOException("not busy")));
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.lm.hbase.adapter;
+
+/**
+ * 追加写入的字节存储区。写入的数据用逻辑位置(从0开始连续编号)定位
+ *
+ * @version 1.0
+ */
+public interface ByteArena {
+
+    /**
+     * 追加一段数据
+     * 
+     * @param b
+     * @param offset
+     * @param length
+     * @return 数据的起始位置
+     */
+    int append(byte[] b, int offset, int length);
+
+    /**
+     * 读取一段数据到dst
+     * 
+     * @param position 起始位置
+     * @param dst
+     * @param dstOffset
+     * @param length
+     */
+    void read(int position, byte[] dst, int dstOffset, int length);
+
+    /**
+     * 已写入的字节数
+     * 
+     * @return
+     */
+    int size();
+
+    /**
+     * 清空数据，保留已分配的空间
+     */
+    void clear();
+
+    /**
+     * 释放占用的空间，释放后不能再使用
+     */
+    void release();
+
+}
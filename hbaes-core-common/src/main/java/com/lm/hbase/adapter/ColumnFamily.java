@@ -5,6 +5,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import com.lm.hbase.adapter.entity.QualifierValue;
@@ -82,8 +83,7 @@ public class ColumnFamily {
         while (iterator.hasNext()) {
             Map.Entry<byte[], QualifierValue> entry = iterator.next();
             if (index == cursor) {
-                qualifierColumn = new QualifierColumn(entry.getKey() == null ? null : entry.getKey(),
-                                                      entry.getValue() == null ? null : entry.getValue().getQualifier());
+                qualifierColumn = new QualifierColumn(entry.getKey(), valueBytes(entry.getValue()));
                 cursor++;
                 return 1;
             }
@@ -120,6 +120,22 @@ public class ColumnFamily {
         };
     }
 
+    /**
+     * 写入用的值：优先使用原始值，只有展示值时按UTF-8编码
+     * 
+     * @param value
+     * @return
+     */
+    static byte[] valueBytes(QualifierValue value) {
+        if (value == null) {
+            return HConstants.EMPTY_BYTE_ARRAY;
+        }
+        if (value.getValue() != null) {
+            return value.getValue();
+        }
+        return value.getDisplayValue() == null ? HConstants.EMPTY_BYTE_ARRAY : Bytes.toBytes(value.getDisplayValue());
+    }
+
     public Map<byte[], QualifierValue> getColumns() {
         return columns;
     }
@@ -0,0 +1,27 @@
+package com.lm.hbase.adapter;
+
+import java.util.HashMap;
+
+import com.lm.hbase.adapter.ColumnFamilyParam.ColumnFamilyFieldEnum;
+
+public class ColumnFamilyParam extends HashMap<ColumnFamilyFieldEnum, Object> {
+
+    private static final long serialVersionUID = -2899892867939377399L;
+
+    /**
+     * 列族属性。取值可以是对应的类型，也可以是字符串：<br>
+     * COMPRESSION：Compression.Algorithm或NONE/SNAPPY/LZ4/GZ/LZO，不设置时为SNAPPY；<br>
+     * DATA_BLOCK_ENCODING：DataBlockEncoding或NONE/PREFIX/DIFF/FAST_DIFF/PREFIX_TREE；<br>
+     * BLOOM_FILTER：BloomType或NONE/ROW/ROWCOL；<br>
+     * BLOCKSIZE：字节数；<br>
+     * IN_MEMORY、BLOCKCACHE、CACHE_DATA_ON_WRITE：true/false。
+     */
+    public static enum ColumnFamilyFieldEnum {
+
+                                              COLUMN_FAMILY_NAME, TIME_TO_LIVE, MAX_VERSION, COMPRESSION,
+                                              DATA_BLOCK_ENCODING, BLOOM_FILTER, BLOCKSIZE, IN_MEMORY, BLOCKCACHE,
+                                              CACHE_DATA_ON_WRITE;
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.lm.hbase.adapter;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 创建后台守护线程，线程名带有用途前缀，方便在线程dump里区分
+ *
+ * @version 1.0
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+    private final String        prefix;
+
+    private final AtomicInteger index = new AtomicInteger();
+
+    DaemonThreadFactory(String prefix){
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + index.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.lm.hbase.adapter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 基于堆内byte[]的存储区，空间不足时按两倍扩容
+ *
+ * @version 1.0
+ */
+public class HeapByteArena implements ByteArena, Serializable {
+
+    private static final long serialVersionUID = 6413372395937404468L;
+
+    private byte[]            array;
+
+    private int               size             = 0;
+
+    public HeapByteArena(){
+        this(4096);
+    }
+
+    public HeapByteArena(int initialCapacity){
+        this.array = new byte[initialCapacity];
+    }
+
+    @Override
+    public int append(byte[] b, int offset, int length) {
+        if (size + length > array.length) {
+            array = Arrays.copyOf(array, Math.max(array.length * 2, size + length));
+        }
+        System.arraycopy(b, offset, array, size, length);
+        int start = size;
+        size += length;
+        return start;
+    }
+
+    @Override
+    public void read(int position, byte[] dst, int dstOffset, int length) {
+        System.arraycopy(array, position, dst, dstOffset, length);
+    }
+
+    /**
+     * 底层数组，可以直接按位置解码，不需要复制
+     * 
+     * @return
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public void release() {
+        array = new byte[0];
+        size = 0;
+    }
+
+}
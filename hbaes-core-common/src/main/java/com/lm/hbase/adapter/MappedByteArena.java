@@ -0,0 +1,56 @@
+package com.lm.hbase.adapter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 只读的存储区，数据来自内存映射的文件片段(或其他ByteBuffer)。<br>
+ * 读取时由操作系统按页加载文件内容，数据不经过Java堆，也不占用direct内存。不能追加数据；clear()/release()只是放弃对映射的引用，
+ * 映射在ByteBuffer被GC回收时解除。
+ *
+ * @version 1.0
+ */
+public class MappedByteArena implements ByteArena {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private ByteBuffer              buffer;
+
+    /**
+     * @param buffer 数据，从buffer当前position到limit之间的内容
+     */
+    public MappedByteArena(ByteBuffer buffer){
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public int append(byte[] b, int offset, int length) {
+        throw new UnsupportedOperationException("mapped arena is read-only");
+    }
+
+    @Override
+    public void read(int position, byte[] dst, int dstOffset, int length) {
+        if (position < 0 || position + length > buffer.limit()) {
+            throw new IndexOutOfBoundsException("read " + position + "+" + length + " of " + buffer.limit());
+        }
+        // 每次读取使用独立的游标，多个线程可以同时读取
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(dst, dstOffset, length);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void clear() {
+        buffer = EMPTY;
+    }
+
+    @Override
+    public void release() {
+        buffer = EMPTY;
+    }
+
+}
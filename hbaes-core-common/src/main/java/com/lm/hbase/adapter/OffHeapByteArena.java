@@ -0,0 +1,185 @@
+package com.lm.hbase.adapter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于堆外内存(direct ByteBuffer)的存储区。<br>
+ * 空间按固定大小的slab分配，数据按逻辑位置连续写入，一段数据可以跨两个slab。slab来自全局池，release()后归还给池子，
+ * 下一次扫描或导出直接复用，不会反复申请direct内存；池子中空闲slab的总量超过上限时多余的slab交给GC回收。<br>
+ * 数据不经过Java堆，读取大范围数据时堆内只剩行键、偏移量等少量索引，堆内存占用基本不随数据量增长。<br>
+ * 非线程安全；用完必须调用release()，否则slab要等GC回收ByteBuffer时才会释放。
+ *
+ * @version 1.0
+ */
+public class OffHeapByteArena implements ByteArena {
+
+    /** 默认slab大小：1MB */
+    public static final int                           DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> pool         = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicLong                   pooledBytes       = new AtomicLong();
+
+    private static final AtomicLong                   allocatedBytes    = new AtomicLong();
+
+    /** 池子中空闲slab的总字节上限，默认256MB */
+    private static volatile long                      maxPooledBytes    = 256L * 1024 * 1024;
+
+    private final List<ByteBuffer>                    slabs             = new ArrayList<>();
+
+    private int                                       size              = 0;
+
+    private boolean                                   released          = false;
+
+    @Override
+    public int append(byte[] b, int offset, int length) {
+        checkReleased();
+        if ((long) size + length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("off-heap arena is full: " + size);
+        }
+        int start = size;
+        while (length > 0) {
+            int slabOffset = size % DEFAULT_SLAB_SIZE;
+            if (slabOffset == 0 && size / DEFAULT_SLAB_SIZE == slabs.size()) {
+                slabs.add(acquire());
+            }
+            ByteBuffer slab = slabs.get(size / DEFAULT_SLAB_SIZE);
+            int n = Math.min(length, DEFAULT_SLAB_SIZE - slabOffset);
+            slab.position(slabOffset);
+            slab.put(b, offset, n);
+            offset += n;
+            length -= n;
+            size += n;
+        }
+        return start;
+    }
+
+    @Override
+    public void read(int position, byte[] dst, int dstOffset, int length) {
+        checkReleased();
+        if (position < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("read " + position + "+" + length + " of " + size);
+        }
+        while (length > 0) {
+            ByteBuffer slab = slabs.get(position / DEFAULT_SLAB_SIZE);
+            int slabOffset = position % DEFAULT_SLAB_SIZE;
+            int n = Math.min(length, DEFAULT_SLAB_SIZE - slabOffset);
+            slab.position(slabOffset);
+            slab.get(dst, dstOffset, n);
+            dstOffset += n;
+            position += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空数据，只保留第一个slab，其余归还给池子
+     */
+    @Override
+    public void clear() {
+        checkReleased();
+        while (slabs.size() > 1) {
+            recycle(slabs.remove(slabs.size() - 1));
+        }
+        size = 0;
+    }
+
+    @Override
+    public void release() {
+        if (released) {
+            return;
+        }
+        for (ByteBuffer slab : slabs) {
+            recycle(slab);
+        }
+        slabs.clear();
+        size = 0;
+        released = true;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 当前持有的堆外字节数
+     * 
+     * @return
+     */
+    public long getReservedBytes() {
+        return (long) slabs.size() * DEFAULT_SLAB_SIZE;
+    }
+
+    /**
+     * 设置池子中空闲slab的总字节上限，为0时不缓存slab
+     * 
+     * @param bytes
+     */
+    public static void setMaxPooledBytes(long bytes) {
+        maxPooledBytes = bytes;
+        trim();
+    }
+
+    /**
+     * 池子中空闲slab的总字节数
+     * 
+     * @return
+     */
+    public static long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * 累计申请的direct内存字节数，slab复用正常时不会持续增长
+     * 
+     * @return
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer slab = pool.poll();
+        if (slab != null) {
+            pooledBytes.addAndGet(-slab.capacity());
+            slab.clear();
+            return slab;
+        }
+        allocatedBytes.addAndGet(DEFAULT_SLAB_SIZE);
+        return ByteBuffer.allocateDirect(DEFAULT_SLAB_SIZE);
+    }
+
+    private static void recycle(ByteBuffer slab) {
+        if (pooledBytes.get() + slab.capacity() > maxPooledBytes) {
+            return;
+        }
+        pooledBytes.addAndGet(slab.capacity());
+        pool.offer(slab);
+    }
+
+    private static void trim() {
+        while (pooledBytes.get() > maxPooledBytes) {
+            ByteBuffer slab = pool.poll();
+            if (slab == null) {
+                return;
+            }
+            pooledBytes.addAndGet(-slab.capacity());
+        }
+    }
+
+    private void checkReleased() {
+        if (released) {
+            throw new IllegalStateException("off-heap arena has been released");
+        }
+    }
+
+}
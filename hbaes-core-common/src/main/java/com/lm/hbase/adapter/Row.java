@@ -0,0 +1,148 @@
+package com.lm.hbase.adapter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.entity.QualifierValue;
+
+public class Row {
+
+    private LinkedHashMap<byte[], ColumnFamily> columnFamilys = new LinkedHashMap<byte[], ColumnFamily>();
+
+    private final byte[]                        rowKey;
+
+    private String                              rowKeyString;
+
+    private boolean                             stale         = false;
+
+    /**
+     * @param rowKey 行键，按UTF-8编码
+     */
+    public Row(String rowKey){
+        this.rowKey = Bytes.toBytes(rowKey);
+        this.rowKeyString = rowKey;
+    }
+
+    /**
+     * @param rowKey 行键的原始字节，二进制或组合行键不会经过字符集转换
+     */
+    public Row(byte[] rowKey){
+        this.rowKey = rowKey;
+    }
+
+    public void add(byte[] columnFamilyName, byte[] qualifier, QualifierValue value) {
+        ColumnFamily columnFamily = findColumnFamily(columnFamilyName);
+        if (columnFamily != null) {
+            columnFamilyName = columnFamily.getFamilyNameBytes();
+        }
+        if (columnFamily == null) {
+            columnFamily = new ColumnFamily(columnFamilyName);
+            columnFamily.add(qualifier, value);
+            columnFamilys.put(columnFamilyName, columnFamily);
+        } else {
+            columnFamily.add(qualifier, value);
+            columnFamilys.put(columnFamilyName, columnFamily);
+        }
+    }
+
+    /**
+     * 按原始值添加一列，值用ValueCodec.toBytes按类型编码，展示值用ValueCodec.toDisplayValue(Object)
+     * 
+     * @param columnFamilyName 列族
+     * @param qualifier 列名
+     * @param value 值，支持String、Integer、Short、Long、Float、Double、BigDecimal、Boolean、byte[]
+     */
+    public void put(byte[] columnFamilyName, byte[] qualifier, Object value) {
+        add(columnFamilyName, qualifier,
+            new QualifierValue(qualifier, ValueCodec.toBytes(value), ValueCodec.toDisplayValue(value)));
+    }
+
+    /**
+     * 按类型添加一列，展示值用ValueCodec.toBytes(type, value)编码，类型和FilterFactory的类型一致
+     * 
+     * @param columnFamilyName 列族
+     * @param qualifier 列名
+     * @param type 数据类型
+     * @param displayValue 展示值
+     */
+    public void put(byte[] columnFamilyName, byte[] qualifier, String type, String displayValue) {
+        add(columnFamilyName, qualifier,
+            new QualifierValue(qualifier, ValueCodec.toBytes(type, displayValue), displayValue, type));
+    }
+
+    /**
+     * 行键的字符串形式(UTF-8解码)，二进制行键请使用getRowKeyBytes()
+     * 
+     * @return
+     */
+    public String getRowKey() {
+        if (rowKeyString == null) {
+            rowKeyString = Bytes.toString(rowKey);
+        }
+        return rowKeyString;
+    }
+
+    /**
+     * 行键的原始字节
+     * 
+     * @return
+     */
+    public byte[] getRowKeyBytes() {
+        return rowKey;
+    }
+
+    /**
+     * 是否由region副本返回、可能不是最新的数据。只有TIMELINE一致性读取时才可能为true
+     * 
+     * @return
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    public ColumnFamily getColumnFamily(byte[] columnFamilyName) {
+        return findColumnFamily(columnFamilyName);
+    }
+
+    /**
+     * 按列族名的内容查找，先按实例查找，找不到时再逐个比较字节
+     */
+    private ColumnFamily findColumnFamily(byte[] columnFamilyName) {
+        ColumnFamily columnFamily = columnFamilys.get(columnFamilyName);
+        if (columnFamily != null) {
+            return columnFamily;
+        }
+        for (Map.Entry<byte[], ColumnFamily> entry : columnFamilys.entrySet()) {
+            if (Bytes.equals(entry.getKey(), columnFamilyName)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public LinkedHashMap<byte[], ColumnFamily> getColumnFamilys() {
+        return columnFamilys;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder rowString = new StringBuilder("RowKey:" + Bytes.toStringBinary(rowKey) + "\n");
+        Iterator<Entry<byte[], ColumnFamily>> iterator = columnFamilys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<byte[], ColumnFamily> entry = iterator.next();
+            rowString.append("ColumnFamilyName:" + Bytes.toString(entry.getKey()) + ">" + entry.getValue().toString()
+                             + "\n");
+        }
+        rowString.append("<======================================>");
+        return rowString.toString();
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.lm.hbase.adapter;
+
+import java.math.BigDecimal;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 列值和展示字符串之间的转换。<br>
+ * 支持的类型和FilterFactory中的类型一致：string、int、short、long、float、double、bigdecimal、boolean
+ *
+ * @version 1.0
+ */
+public class ValueCodec {
+
+    public static final String CONVERSION_ERROR = "DATA CONVERSION EXCEPTION";
+
+    /**
+     * 按类型把值转换成展示字符串，type为空时按字符串处理
+     * 
+     * @param type
+     * @param b
+     * @return
+     */
+    public static String toDisplayValue(String type, byte[] b) {
+        if (b == null) {
+            return null;
+        }
+        return toDisplayValue(type, b, 0, b.length);
+    }
+
+    /**
+     * 按类型把数组中的一段转换成展示字符串，不需要先复制出来
+     * 
+     * @param type
+     * @param b
+     * @param offset
+     * @param length
+     * @return
+     */
+    public static String toDisplayValue(String type, byte[] b, int offset, int length) {
+        if (isEmpty(type)) {
+            return Bytes.toString(b, offset, length);
+        }
+
+        try {
+            switch (type.trim().toLowerCase()) {
+                case "long":
+                    return String.valueOf(Bytes.toLong(b, offset, length));
+                case "int":
+                    return String.valueOf(Bytes.toInt(b, offset, length));
+                case "short":
+                    return String.valueOf(Bytes.toShort(b, offset, length));
+                case "flout":
+                case "float":
+                    checkLength(length, Bytes.SIZEOF_FLOAT);
+                    return String.valueOf(Bytes.toFloat(b, offset));
+                case "double":
+                    checkLength(length, Bytes.SIZEOF_DOUBLE);
+                    return String.valueOf(Bytes.toDouble(b, offset));
+                case "bigdecimal":
+                    return String.valueOf(Bytes.toBigDecimal(b, offset, length));
+                case "boolean":
+                    checkLength(length, Bytes.SIZEOF_BOOLEAN);
+                    return String.valueOf(b[offset] != (byte) 0);
+
+                default:
+                    return Bytes.toString(b, offset, length);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return CONVERSION_ERROR;
+        }
+    }
+
+    /**
+     * 按类型把值解码成double，用于数值聚合。type为空或string时按数字字符串解析
+     * 
+     * @param type
+     * @param b
+     * @param offset
+     * @param length
+     * @return
+     * @throws IllegalArgumentException 值不能按类型解码，或者类型不是数值
+     */
+    public static double toDouble(String type, byte[] b, int offset, int length) {
+        String t = isEmpty(type) ? "string" : type.trim().toLowerCase();
+        switch (t) {
+            case "long":
+                checkLength(length, Bytes.SIZEOF_LONG);
+                return Bytes.toLong(b, offset, length);
+            case "int":
+                checkLength(length, Bytes.SIZEOF_INT);
+                return Bytes.toInt(b, offset, length);
+            case "short":
+                checkLength(length, Bytes.SIZEOF_SHORT);
+                return Bytes.toShort(b, offset, length);
+            case "flout":
+            case "float":
+                checkLength(length, Bytes.SIZEOF_FLOAT);
+                return Bytes.toFloat(b, offset);
+            case "double":
+                checkLength(length, Bytes.SIZEOF_DOUBLE);
+                return Bytes.toDouble(b, offset);
+            case "bigdecimal":
+                return Bytes.toBigDecimal(b, offset, length).doubleValue();
+            case "string":
+                return Double.parseDouble(Bytes.toString(b, offset, length).trim());
+            default:
+                throw new IllegalArgumentException("not a numeric type: " + type);
+        }
+    }
+
+    /**
+     * 按类型把展示值编码成写入的字节，类型和FilterFactory.createSingleColumnValueFilter的fieldType一致，type为空时按字符串处理
+     * 
+     * @param type
+     * @param displayValue
+     * @return
+     * @throws IllegalArgumentException 值不能按类型解析
+     */
+    public static byte[] toBytes(String type, String displayValue) {
+        if (displayValue == null) {
+            return null;
+        }
+        if (isEmpty(type)) {
+            return Bytes.toBytes(displayValue);
+        }
+        switch (type.trim().toLowerCase()) {
+            case "int":
+                return Bytes.toBytes(Integer.parseInt(displayValue.trim()));
+            case "short":
+                return Bytes.toBytes(Short.parseShort(displayValue.trim()));
+            case "long":
+                return Bytes.toBytes(Long.parseLong(displayValue.trim()));
+            case "flout":
+            case "float":
+                return Bytes.toBytes(Float.parseFloat(displayValue.trim()));
+            case "double":
+                return Bytes.toBytes(Double.parseDouble(displayValue.trim()));
+            case "bigdecimal":
+                return Bytes.toBytes(new BigDecimal(displayValue.trim()));
+            case "boolean":
+                return Bytes.toBytes(Boolean.parseBoolean(displayValue.trim()));
+            default:
+                return Bytes.toBytes(displayValue);
+        }
+    }
+
+    /**
+     * 按Java类型把值编码成写入的字节，和toDisplayValue互逆
+     * 
+     * @param value 支持String、Integer、Short、Long、Float、Double、BigDecimal、Boolean、byte[]
+     * @return
+     * @throws IllegalArgumentException 不支持的类型
+     */
+    public static byte[] toBytes(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof String) {
+            return Bytes.toBytes((String) value);
+        }
+        if (value instanceof Integer) {
+            return Bytes.toBytes((Integer) value);
+        }
+        if (value instanceof Short) {
+            return Bytes.toBytes((Short) value);
+        }
+        if (value instanceof Long) {
+            return Bytes.toBytes((Long) value);
+        }
+        if (value instanceof Float) {
+            return Bytes.toBytes((Float) value);
+        }
+        if (value instanceof Double) {
+            return Bytes.toBytes((Double) value);
+        }
+        if (value instanceof BigDecimal) {
+            return Bytes.toBytes((BigDecimal) value);
+        }
+        if (value instanceof Boolean) {
+            return Bytes.toBytes((Boolean) value);
+        }
+        throw new IllegalArgumentException("unsupported value type: " + value.getClass().getName());
+    }
+
+    /**
+     * 按Java类型得到展示字符串，和toBytes(Object)写入的值按对应类型toDisplayValue的结果一致。byte[]按Bytes.toStringBinary展示
+     * 
+     * @param value
+     * @return
+     */
+    public static String toDisplayValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return Bytes.toStringBinary((byte[]) value);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * 是否为数值类型，数值类型才能用toDouble解码
+     * 
+     * @param type
+     * @return
+     */
+    public static boolean isNumeric(String type) {
+        if (isEmpty(type)) {
+            return false;
+        }
+        switch (type.trim().toLowerCase()) {
+            case "long":
+            case "int":
+            case "short":
+            case "flout":
+            case "float":
+            case "double":
+            case "bigdecimal":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * HBase 1.x和2.x依赖的commons-lang版本不同，这里不依赖commons-lang
+     */
+    private static boolean isEmpty(String type) {
+        return type == null || type.isEmpty();
+    }
+
+    private static void checkLength(int length, int expected) {
+        if (length != expected) {
+            throw new IllegalArgumentException("wrong length " + length + ", expected " + expected);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.lm.hbase.adapter.entity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 集群连接配置。<br>
+ * 以name作为唯一标识，ConnectionRegistry按name缓存对应集群的Connection，多个集群可以同时访问。
+ * 
+ * @version 1.0
+ */
+public class ClusterProfile {
+
+    public static final String  DEFAULT_NAME = "default";
+
+    private String              name;
+    private String              zkPort;
+    private String              zkQuorum;
+    private String              hbaseMaster;
+    private String              znodeParent;
+    /** 额外的hbase客户端配置项，建立连接时覆盖默认值 */
+    private Map<String, String> properties   = new LinkedHashMap<>();
+
+    public ClusterProfile(String name, String zkPort, String zkQuorum, String hbaseMaster, String znodeParent){
+        this.name = name;
+        this.zkPort = zkPort;
+        this.zkQuorum = zkQuorum;
+        this.hbaseMaster = hbaseMaster;
+        this.znodeParent = znodeParent;
+    }
+
+    /**
+     * 只包含名称的profile，用于引用已经注册过的集群
+     * 
+     * @param name
+     * @return
+     */
+    public static ClusterProfile of(String name) {
+        return new ClusterProfile(name, null, null, null, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getZkPort() {
+        return zkPort;
+    }
+
+    public String getZkQuorum() {
+        return zkQuorum;
+    }
+
+    public String getHbaseMaster() {
+        return hbaseMaster;
+    }
+
+    public String getZnodeParent() {
+        return znodeParent;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void setProperty(String key, String value) {
+        this.properties.put(key, value);
+    }
+
+    /**
+     * 设置TIMELINE一致性读取时等待主region的时间，超时后同时向副本发请求，取最先返回的结果
+     * 
+     * @param micros 微秒
+     */
+    public void setPrimaryCallTimeout(long micros) {
+        setProperty("hbase.client.primaryCallTimeout.get", String.valueOf(micros));
+        setProperty("hbase.client.primaryCallTimeout.multiget", String.valueOf(micros));
+        setProperty("hbase.client.replicaCallTimeout.scan", String.valueOf(micros));
+    }
+
+    @Override
+    public int hashCode() {
+        return name == null ? 0 : name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ClusterProfile)) return false;
+        ClusterProfile other = (ClusterProfile) obj;
+        return name == null ? other.name == null : name.equals(other.name);
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + zkQuorum + ")";
+    }
+
+}
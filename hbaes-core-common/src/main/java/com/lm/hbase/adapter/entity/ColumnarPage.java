@@ -0,0 +1,495 @@
+package com.lm.hbase.adapter.entity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.lm.hbase.adapter.ByteArena;
+import com.lm.hbase.adapter.ColumnFamily;
+import com.lm.hbase.adapter.HeapByteArena;
+import com.lm.hbase.adapter.MappedByteArena;
+import com.lm.hbase.adapter.Row;
+import com.lm.hbase.adapter.ValueCodec;
+
+/**
+ * 列式存储的分页数据。<br>
+ * 一页数据共用一个列字典，所有行键和列值依次写入同一个连续的字节数组，每列只保存各行值的偏移量、长度和一个空值位图。<br>
+ * 和每行一个Row(每个Row再嵌套LinkedHashMap)的方式相比，对象数量从【行数×列数】降到【列数】级别，页内存和GC压力都小很多。<br>
+ * 值保存原始字节，展示字符串在读取时按列类型解码；getRow()/asRowList()按需组装Row，兼容原有的Row接口。<br>
+ * 同一列有多个版本时只保存最新的版本。<br>
+ * 数据区默认在堆内；传入OffHeapByteArena时数据区在堆外，这时页不能序列化，用完需要调用release()。<br>
+ * writeIndex()/readIndex()把数据区以外的部分单独读写，数据区可以原样保存到文件，读取时用MappedByteArena直接映射，不需要复制。
+ *
+ * @version 1.0
+ */
+public class ColumnarPage implements Serializable {
+
+    private static final long                  serialVersionUID = -3317905563284621378L;
+
+    private static final int                   INITIAL_ROWS     = 16;
+
+    /** 列字典：key为【列族长度+列族+列名】，反序列化后按families和qualifiers重建 */
+    private transient Map<ByteBuffer, Integer> columnIndex;
+    private final List<byte[]>                 families         = new ArrayList<>();
+    private final List<byte[]>                 qualifiers       = new ArrayList<>();
+    private final List<String>                 types            = new ArrayList<>();
+    /** 每列一组：各行值在arena中的偏移量、长度、是否有值 */
+    private final List<int[]>                  valueOffsets     = new ArrayList<>();
+    private final List<int[]>                  valueLengths     = new ArrayList<>();
+    private final List<BitSet>                 present          = new ArrayList<>();
+
+    private int[]                              rowKeyOffsets    = new int[INITIAL_ROWS];
+    private int[]                              rowKeyLengths    = new int[INITIAL_ROWS];
+    private int                                rowCount         = 0;
+    private final BitSet                       staleRows        = new BitSet();
+
+    private final ByteArena                    arena;
+
+    public ColumnarPage(){
+        this(new HeapByteArena());
+    }
+
+    /**
+     * @param arena 数据区
+     */
+    public ColumnarPage(ByteArena arena){
+        this.arena = arena;
+    }
+
+    /**
+     * 追加一行
+     *
+     * @param rs
+     * @param typeMapping 列类型映射，key为【列族.列名】
+     */
+    public void add(Result rs, Map<String, String> typeMapping) {
+        int row = newRow(rs.getRow(), 0, rs.getRow().length);
+        if (rs.isStale()) {
+            staleRows.set(row);
+        }
+        for (Cell c : rs.rawCells()) {
+            int column = column(c.getFamilyArray(), c.getFamilyOffset(), c.getFamilyLength(),
+                                c.getQualifierArray(), c.getQualifierOffset(), c.getQualifierLength(), typeMapping);
+            if (present.get(column).get(row)) {// 已有更新的版本
+                continue;
+            }
+            setValue(row, column, c.getValueArray(), c.getValueOffset(), c.getValueLength());
+        }
+    }
+
+    /**
+     * 追加一个已经组装好的Row，有原始值时保存原始值，只有展示值时按字符串编码
+     *
+     * @param value
+     */
+    public void addRow(Row value) {
+        byte[] rowKey = value.getRowKeyBytes();
+        int row = newRow(rowKey, 0, rowKey.length);
+        if (value.isStale()) {
+            staleRows.set(row);
+        }
+        for (ColumnFamily columnFamily : value.getColumnFamilys().values()) {
+            byte[] family = columnFamily.getFamilyNameBytes();
+            for (Map.Entry<byte[], QualifierValue> entry : columnFamily.getColumns().entrySet()) {
+                QualifierValue qv = entry.getValue();
+                if (qv == null || (qv.getValue() == null && qv.getDisplayValue() == null)) {
+                    continue;
+                }
+                byte[] qualifier = entry.getKey() == null ? new byte[0] : entry.getKey();
+                int column = column(family, 0, family.length, qualifier, 0, qualifier.length, null);
+                if (types.get(column) == null && qv.getType() != null) {
+                    types.set(column, qv.getType());
+                }
+                byte[] bytes = qv.getValue() != null ? qv.getValue() : Bytes.toBytes(qv.getDisplayValue());
+                setValue(row, column, bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return families.size();
+    }
+
+    public byte[] getFamily(int column) {
+        return families.get(column);
+    }
+
+    public byte[] getQualifier(int column) {
+        return qualifiers.get(column);
+    }
+
+    public String getType(int column) {
+        return types.get(column);
+    }
+
+    /**
+     * 查找列序号，不存在时返回-1
+     *
+     * @param family
+     * @param qualifier
+     * @return
+     */
+    public int getColumnIndex(byte[] family, byte[] qualifier) {
+        Integer index = columnIndex().get(columnKey(family, 0, family.length, qualifier, 0, qualifier.length));
+        return index == null ? -1 : index;
+    }
+
+    public byte[] getRowKey(int row) {
+        return copy(rowKeyOffsets[row], rowKeyLengths[row]);
+    }
+
+    /**
+     * 第row行是否由region副本返回
+     *
+     * @param row
+     * @return
+     */
+    public boolean isStale(int row) {
+        return staleRows.get(row);
+    }
+
+    public boolean isNull(int row, int column) {
+        return !present.get(column).get(row);
+    }
+
+    /**
+     * 获取原始值，没有值时返回null
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    public byte[] getValue(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        return copy(valueOffsets.get(column)[row], valueLengths.get(column)[row]);
+    }
+
+    /**
+     * 按列类型解码展示值，没有值时返回null
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    public String getDisplayValue(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        int offset = valueOffsets.get(column)[row];
+        int length = valueLengths.get(column)[row];
+        if (arena instanceof HeapByteArena) {
+            return ValueCodec.toDisplayValue(types.get(column), ((HeapByteArena) arena).array(), offset, length);
+        }
+        return ValueCodec.toDisplayValue(types.get(column), copy(offset, length));
+    }
+
+    /**
+     * 组装第row行的Row对象，Row不会被缓存
+     *
+     * @param row
+     * @return
+     */
+    public Row getRow(int row) {
+        Row result = new Row(getRowKey(row));
+        result.setStale(isStale(row));
+        for (int column = 0; column < families.size(); column++) {
+            if (isNull(row, column)) {
+                continue;
+            }
+            byte[] qualifier = qualifiers.get(column);
+            result.add(families.get(column), qualifier,
+                       new QualifierValue(qualifier, getValue(row, column), getDisplayValue(row, column),
+                                          types.get(column)));
+        }
+        return result;
+    }
+
+    /**
+     * 以List&lt;Row&gt;的形式访问，get时才组装Row
+     *
+     * @return
+     */
+    public List<Row> asRowList() {
+        return new AbstractList<Row>() {
+
+            @Override
+            public Row get(int index) {
+                if (index < 0 || index >= rowCount) {
+                    throw new IndexOutOfBoundsException("row " + index + " of " + rowCount);
+                }
+                return getRow(index);
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+    }
+
+    /**
+     * 数据区占用的字节数
+     *
+     * @return
+     */
+    public int getArenaSize() {
+        return arena.size();
+    }
+
+    public ByteArena getArena() {
+        return arena;
+    }
+
+    /**
+     * 数据区是否只读(映射的缓存页)，只读的页不能追加数据
+     *
+     * @return
+     */
+    public boolean isReadOnly() {
+        return arena instanceof MappedByteArena;
+    }
+
+    /**
+     * 复制一份页数据，数据区整体复制到arena中
+     *
+     * @param target 新页的数据区
+     * @return
+     */
+    public ColumnarPage copy(ByteArena target) {
+        ColumnarPage result = new ColumnarPage(target);
+        byte[] data = copy(0, arena.size());
+        target.append(data, 0, data.length);
+        result.rowKeyOffsets = Arrays.copyOf(rowKeyOffsets, rowKeyOffsets.length);
+        result.rowKeyLengths = Arrays.copyOf(rowKeyLengths, rowKeyLengths.length);
+        result.rowCount = rowCount;
+        result.staleRows.or(staleRows);
+        result.families.addAll(families);
+        result.qualifiers.addAll(qualifiers);
+        result.types.addAll(types);
+        for (int i = 0; i < families.size(); i++) {
+            result.valueOffsets.add(Arrays.copyOf(valueOffsets.get(i), rowKeyOffsets.length));
+            result.valueLengths.add(Arrays.copyOf(valueLengths.get(i), rowKeyOffsets.length));
+            result.present.add((BitSet) present.get(i).clone());
+        }
+        return result;
+    }
+
+    /**
+     * 写出数据区以外的部分：行键和各列值在数据区中的位置、列字典、空值位图
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeIndex(DataOutput out) throws IOException {
+        out.writeInt(rowCount);
+        writeInts(out, rowKeyOffsets, rowCount);
+        writeInts(out, rowKeyLengths, rowCount);
+        writeLongs(out, staleRows.toLongArray());
+        out.writeInt(families.size());
+        for (int column = 0; column < families.size(); column++) {
+            writeBytes(out, families.get(column));
+            writeBytes(out, qualifiers.get(column));
+            writeInts(out, valueOffsets.get(column), rowCount);
+            writeInts(out, valueLengths.get(column), rowCount);
+            writeLongs(out, present.get(column).toLongArray());
+        }
+    }
+
+    /**
+     * 按writeIndex()写出的内容和对应的数据区还原页
+     *
+     * @param in
+     * @param arena 写出时的数据区内容
+     * @param typeMapping 列类型映射，key为【列族.列名】
+     * @return
+     * @throws IOException
+     */
+    public static ColumnarPage readIndex(DataInput in, ByteArena arena,
+                                         Map<String, String> typeMapping) throws IOException {
+        ColumnarPage page = new ColumnarPage(arena);
+        int rows = in.readInt();
+        int capacity = Math.max(INITIAL_ROWS, rows);
+        page.rowCount = rows;
+        page.rowKeyOffsets = readInts(in, rows, capacity);
+        page.rowKeyLengths = readInts(in, rows, capacity);
+        page.staleRows.or(BitSet.valueOf(readLongs(in)));
+        int columns = in.readInt();
+        for (int column = 0; column < columns; column++) {
+            byte[] family = readBytes(in);
+            byte[] qualifier = readBytes(in);
+            family = page.internFamily(family, 0, family.length);
+            page.families.add(family);
+            page.qualifiers.add(qualifier);
+            page.types.add(typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                                        + Bytes.toString(qualifier)));
+            page.valueOffsets.add(readInts(in, rows, capacity));
+            page.valueLengths.add(readInts(in, rows, capacity));
+            page.present.add(BitSet.valueOf(readLongs(in)));
+        }
+        return page;
+    }
+
+    public void clear() {
+        columnIndex().clear();
+        families.clear();
+        qualifiers.clear();
+        types.clear();
+        valueOffsets.clear();
+        valueLengths.clear();
+        present.clear();
+        staleRows.clear();
+        rowCount = 0;
+        arena.clear();
+    }
+
+    /**
+     * 释放数据区，释放后不能再使用。堆外数据区的slab归还给池子
+     */
+    public void release() {
+        clear();
+        arena.release();
+    }
+
+    private int newRow(byte[] b, int offset, int length) {
+        if (rowCount == rowKeyOffsets.length) {
+            int capacity = rowKeyOffsets.length * 2;
+            rowKeyOffsets = Arrays.copyOf(rowKeyOffsets, capacity);
+            rowKeyLengths = Arrays.copyOf(rowKeyLengths, capacity);
+            for (int i = 0; i < valueOffsets.size(); i++) {
+                valueOffsets.set(i, Arrays.copyOf(valueOffsets.get(i), capacity));
+                valueLengths.set(i, Arrays.copyOf(valueLengths.get(i), capacity));
+            }
+        }
+        rowKeyOffsets[rowCount] = append(b, offset, length);
+        rowKeyLengths[rowCount] = length;
+        return rowCount++;
+    }
+
+    private int column(byte[] fb, int fo, int fl, byte[] qb, int qo, int ql, Map<String, String> typeMapping) {
+        ByteBuffer key = columnKey(fb, fo, fl, qb, qo, ql);
+        Integer index = columnIndex().get(key);
+        if (index != null) {
+            return index;
+        }
+        byte[] family = internFamily(fb, fo, fl);
+        byte[] qualifier = Arrays.copyOfRange(qb, qo, qo + ql);
+        index = families.size();
+        columnIndex().put(key, index);
+        families.add(family);
+        qualifiers.add(qualifier);
+        types.add(typeMapping == null ? null : typeMapping.get(Bytes.toString(family) + "."
+                                                              + Bytes.toString(qualifier)));
+        valueOffsets.add(new int[rowKeyOffsets.length]);
+        valueLengths.add(new int[rowKeyOffsets.length]);
+        present.add(new BitSet());
+        return index;
+    }
+
+    /**
+     * 同一列族的列共用一个byte[]，Row按byte[]实例归并列族
+     */
+    private byte[] internFamily(byte[] b, int offset, int length) {
+        for (byte[] family : families) {
+            if (Bytes.equals(family, 0, family.length, b, offset, length)) {
+                return family;
+            }
+        }
+        return Arrays.copyOfRange(b, offset, offset + length);
+    }
+
+    private Map<ByteBuffer, Integer> columnIndex() {
+        if (columnIndex == null) {
+            columnIndex = new HashMap<>();
+            for (int i = 0; i < families.size(); i++) {
+                byte[] family = families.get(i);
+                byte[] qualifier = qualifiers.get(i);
+                columnIndex.put(columnKey(family, 0, family.length, qualifier, 0, qualifier.length), i);
+            }
+        }
+        return columnIndex;
+    }
+
+    private void setValue(int row, int column, byte[] b, int offset, int length) {
+        valueOffsets.get(column)[row] = append(b, offset, length);
+        valueLengths.get(column)[row] = length;
+        present.get(column).set(row);
+    }
+
+    private int append(byte[] b, int offset, int length) {
+        return arena.append(b, offset, length);
+    }
+
+    private byte[] copy(int offset, int length) {
+        byte[] result = new byte[length];
+        arena.read(offset, result, 0, length);
+        return result;
+    }
+
+    private static void writeInts(DataOutput out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    private static int[] readInts(DataInput in, int count, int capacity) throws IOException {
+        int[] values = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInput in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] b) throws IOException {
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return b;
+    }
+
+    private static ByteBuffer columnKey(byte[] fb, int fo, int fl, byte[] qb, int qo, int ql) {
+        byte[] key = new byte[Bytes.SIZEOF_INT + fl + ql];
+        Bytes.putInt(key, 0, fl);
+        System.arraycopy(fb, fo, key, Bytes.SIZEOF_INT, fl);
+        System.arraycopy(qb, qo, key, Bytes.SIZEOF_INT + fl, ql);
+        return ByteBuffer.wrap(key);
+    }
+
+}
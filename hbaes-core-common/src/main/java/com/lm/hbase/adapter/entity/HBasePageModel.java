@@ -0,0 +1,499 @@
+package com.lm.hbase.adapter.entity;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Consistency;
+
+import com.lm.hbase.adapter.HeapByteArena;
+import com.lm.hbase.adapter.OffHeapByteArena;
+import com.lm.hbase.adapter.Row;
+
+/**
+ * HBase表数据分页模型类。<br>
+ * 列式页的数据区可能在堆外或者映射的缓存文件中，序列化时复制成堆内的页写出，反序列化后的列式页在堆内。
+ * 
+ * @version 1.0
+ */
+public class HBasePageModel implements Serializable {
+
+    private static final long serialVersionUID  = 330410716100946538L;
+    private String            tableName         = null;
+    private int               pageSize          = 100;
+    private int               pageIndex         = 0;
+    private int               prevPageIndex     = 1;
+    private int               nextPageIndex     = 1;
+    private int               pageCount         = 0;
+    private boolean           pageCountEstimated = false;
+    private int               pageFirstRowIndex = 1;
+    private byte[]            pageStartRowKey   = null;
+    private byte[]            pageEndRowKey     = null;
+    private int               queryTotalCount   = 0;
+    private long              startTime         = System.currentTimeMillis();
+    private long              endTime           = System.currentTimeMillis();
+    private List<Row>         rowList           = new ArrayList<Row>();
+    private long              minStamp          = 0;
+    private long              maxStamp          = 0;
+    private int               columnPageSize    = 100;
+    private int               columnPageIndex   = 0;
+    private byte[]            columnCursorFamily;
+    private byte[]            columnCursorQualifier;
+    private boolean           columnEnd         = false;
+    private transient ColumnarPage columnarPage = null;
+    private boolean           offHeap           = false;
+    private Consistency       consistency       = Consistency.STRONG;
+
+    public HBasePageModel(int pageSize, String tableName){
+        this.pageSize = pageSize;
+        this.tableName = tableName;
+    }
+
+    /**
+     * 获取分页记录数量
+     * 
+     * @return
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 设置分页记录数量
+     * 
+     * @param pageSize
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 获取当前页序号
+     * 
+     * @return
+     */
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * 设置当前页序号
+     * 
+     * @param pageIndex
+     */
+    public void setPageIndex(int pageIndex) {
+        this.pageIndex = pageIndex;
+    }
+
+    /**
+     * 获取分页总数
+     * 
+     * @return
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 设置分页总数
+     * 
+     * @param pageCount
+     */
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * 分页总数是否为PageIndex估计的值
+     * 
+     * @return
+     */
+    public boolean isPageCountEstimated() {
+        return pageCountEstimated;
+    }
+
+    public void setPageCountEstimated(boolean pageCountEstimated) {
+        this.pageCountEstimated = pageCountEstimated;
+    }
+
+    /**
+     * 获取每页的第一行序号
+     * 
+     * @return
+     */
+    public int getPageFirstRowIndex() {
+        this.pageFirstRowIndex = (this.getPageIndex() - 1) * this.getPageSize() + 1;
+        return pageFirstRowIndex;
+    }
+
+    /**
+     * 获取每页起始行键
+     * 
+     * @return
+     */
+    public byte[] getPageStartRowKey() {
+        return pageStartRowKey;
+    }
+
+    /**
+     * 设置每页起始行键
+     * 
+     * @param pageStartRowKey
+     */
+    public void setPageStartRowKey(byte[] pageStartRowKey) {
+        this.pageStartRowKey = pageStartRowKey;
+    }
+
+    /**
+     * 获取每页结束行键
+     * 
+     * @return
+     */
+    public byte[] getPageEndRowKey() {
+        return pageEndRowKey;
+    }
+
+    /**
+     * 设置每页结束行键
+     * 
+     * @param pageStartRowKey
+     */
+    public void setPageEndRowKey(byte[] pageEndRowKey) {
+        this.pageEndRowKey = pageEndRowKey;
+    }
+
+    /**
+     * 获取上一页序号
+     * 
+     * @return
+     */
+    public int getPrevPageIndex() {
+        if (this.getPageIndex() > 1) {
+            this.prevPageIndex = this.getPageIndex() - 1;
+        } else {
+            this.prevPageIndex = 1;
+        }
+        return prevPageIndex;
+    }
+
+    /**
+     * 获取下一页序号
+     * 
+     * @return
+     */
+    public int getNextPageIndex() {
+        this.nextPageIndex = this.getPageIndex() + 1;
+        return nextPageIndex;
+    }
+
+    /**
+     * 获取已检索总记录数
+     */
+    public int getQueryTotalCount() {
+        return queryTotalCount;
+    }
+
+    /**
+     * 获取已检索总记录数
+     * 
+     * @param queryTotalCount
+     */
+    public void setQueryTotalCount(int queryTotalCount) {
+        this.queryTotalCount = queryTotalCount;
+    }
+
+    /**
+     * 初始化起始时间（毫秒）
+     */
+    public void initStartTime() {
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 初始化截止时间（毫秒）
+     */
+    public void initEndTime() {
+        this.endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取毫秒格式的耗时信息
+     * 
+     * @return
+     */
+    public String getTimeIntervalByMilli() {
+        return String.valueOf(this.endTime - this.startTime) + "毫秒";
+    }
+
+    /**
+     * 获取秒格式的耗时信息
+     * 
+     * @return
+     */
+    public String getTimeIntervalBySecond() {
+        double interval = (this.endTime - this.startTime) / 1000.0;
+        DecimalFormat df = new DecimalFormat("#.##");
+        return df.format(interval) + "秒";
+    }
+
+    /**
+     * 打印时间信息
+     */
+    public void printTimeInfo() {
+        System.out.println("耗费时间：" + this.getTimeIntervalBySecond());
+    }
+
+    public List<Row> getRowList() {
+        if (columnarPage != null) {
+            return columnarPage.asRowList();
+        }
+        return rowList;
+    }
+
+    public void addRow(Row row) {
+        if (columnarPage != null) {
+            getWritableColumnarPage().addRow(row);
+        } else {
+            this.rowList.add(row);
+        }
+    }
+
+    /**
+     * 清空当前页数据
+     */
+    public void clearRows() {
+        if (columnarPage != null) {
+            if (columnarPage.isReadOnly()) {
+                columnarPage.release();
+                columnarPage = newColumnarPage();
+            } else {
+                columnarPage.clear();
+            }
+        }
+        this.rowList.clear();
+    }
+
+    /**
+     * 是否使用列式存储。列式存储时getRowList()返回只读视图，Row在读取时才组装
+     * 
+     * @return
+     */
+    public boolean isColumnar() {
+        return columnarPage != null;
+    }
+
+    /**
+     * 设置是否使用列式存储，需要在查询前设置
+     * 
+     * @param columnar
+     */
+    public void setColumnar(boolean columnar) {
+        if (columnar && columnarPage == null) {
+            columnarPage = new ColumnarPage();
+        } else if (!columnar) {
+            columnarPage = null;
+        }
+    }
+
+    /**
+     * 设置是否使用列式存储，offHeap为true时数据区使用堆外内存，页数据用完后需要调用release()
+     * 
+     * @param columnar
+     * @param offHeap
+     */
+    public void setColumnar(boolean columnar, boolean offHeap) {
+        release();
+        this.offHeap = offHeap;
+        columnarPage = columnar ? newColumnarPage() : null;
+    }
+
+    /**
+     * 释放当前页数据占用的空间，之后仍然可以继续查询下一页
+     */
+    public void release() {
+        this.rowList.clear();
+        if (columnarPage != null) {
+            columnarPage.release();
+            columnarPage = newColumnarPage();
+        }
+    }
+
+    /**
+     * 获取列式存储的页数据，未启用列式存储时返回null
+     * 
+     * @return
+     */
+    public ColumnarPage getColumnarPage() {
+        return columnarPage;
+    }
+
+    /**
+     * 获取可以追加数据的列式页。当前页是只读的缓存页时先复制一份，未启用列式存储时返回null
+     * 
+     * @return
+     */
+    public ColumnarPage getWritableColumnarPage() {
+        if (columnarPage != null && columnarPage.isReadOnly()) {
+            ColumnarPage copy = columnarPage.copy(newColumnarPage().getArena());
+            columnarPage.release();
+            columnarPage = copy;
+        }
+        return columnarPage;
+    }
+
+    /**
+     * 用已经组装好的列式页(例如结果缓存中映射的只读页)替换当前页数据，只在启用列式存储时使用
+     * 
+     * @param columnarPage
+     */
+    public void setColumnarPage(ColumnarPage columnarPage) {
+        if (this.columnarPage != null && this.columnarPage != columnarPage) {
+            this.columnarPage.release();
+        }
+        this.columnarPage = columnarPage;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        ColumnarPage page = columnarPage;
+        if (page != null && !(page.getArena() instanceof HeapByteArena)) {
+            page = page.copy(new HeapByteArena());
+        }
+        out.writeObject(page);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        columnarPage = (ColumnarPage) in.readObject();
+    }
+
+    private ColumnarPage newColumnarPage() {
+        return new ColumnarPage(offHeap ? new OffHeapByteArena() : new HeapByteArena());
+    }
+
+    /**
+     * 获取读取一致性
+     * 
+     * @return
+     */
+    public Consistency getConsistency() {
+        return consistency;
+    }
+
+    /**
+     * 设置读取一致性。TIMELINE时主region响应慢会由副本返回数据，副本返回的行isStale()为true
+     * 
+     * @param consistency
+     */
+    public void setConsistency(Consistency consistency) {
+        this.consistency = consistency;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getMinStamp() {
+        return minStamp;
+    }
+
+    public void setMinStamp(long minStamp) {
+        this.minStamp = minStamp;
+    }
+
+    public long getMaxStamp() {
+        return maxStamp;
+    }
+
+    public void setMaxStamp(long maxStamp) {
+        this.maxStamp = maxStamp;
+    }
+
+    /**
+     * 获取宽行分页时每页的列数
+     * 
+     * @return
+     */
+    public int getColumnPageSize() {
+        return columnPageSize;
+    }
+
+    /**
+     * 设置宽行分页时每页的列数
+     * 
+     * @param columnPageSize
+     */
+    public void setColumnPageSize(int columnPageSize) {
+        this.columnPageSize = columnPageSize;
+    }
+
+    /**
+     * 获取当前列页序号
+     * 
+     * @return
+     */
+    public int getColumnPageIndex() {
+        return columnPageIndex;
+    }
+
+    public void setColumnPageIndex(int columnPageIndex) {
+        this.columnPageIndex = columnPageIndex;
+    }
+
+    /**
+     * 获取下一列页起始的列族，为null时从第一个列族开始
+     * 
+     * @return
+     */
+    public byte[] getColumnCursorFamily() {
+        return columnCursorFamily;
+    }
+
+    /**
+     * 获取下一列页起始的列名(包含)
+     * 
+     * @return
+     */
+    public byte[] getColumnCursorQualifier() {
+        return columnCursorQualifier;
+    }
+
+    /**
+     * 设置下一列页的起始位置
+     * 
+     * @param family
+     * @param qualifier
+     */
+    public void setColumnCursor(byte[] family, byte[] qualifier) {
+        this.columnCursorFamily = family;
+        this.columnCursorQualifier = qualifier;
+    }
+
+    /**
+     * 宽行的所有列是否已经读完
+     * 
+     * @return
+     */
+    public boolean isColumnEnd() {
+        return columnEnd;
+    }
+
+    public void setColumnEnd(boolean columnEnd) {
+        this.columnEnd = columnEnd;
+    }
+
+    /**
+     * 回到宽行的第一列
+     */
+    public void resetColumnCursor() {
+        this.columnCursorFamily = null;
+        this.columnCursorQualifier = null;
+        this.columnPageIndex = 0;
+        this.columnEnd = false;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.lm.hbase.adapter.entity;
+
+import com.lm.hbase.adapter.ValueCodec;
+
+public class QualifierValue {
+
+    private byte[] qualifier;
+
+    private byte[] value;
+
+    private String displayValue;
+
+    private String type;
+
+    public QualifierValue(byte[] qualifier, String displayValue){
+        this.qualifier = qualifier;
+        this.displayValue = displayValue;
+    }
+
+    /**
+     * @param qualifier 列名
+     * @param value 原始值，写入时直接使用
+     * @param displayValue 展示值
+     */
+    public QualifierValue(byte[] qualifier, byte[] value, String displayValue){
+        this.qualifier = qualifier;
+        this.value = value;
+        this.displayValue = displayValue;
+    }
+
+    /**
+     * @param qualifier 列名
+     * @param value 原始值，写入时直接使用
+     * @param displayValue 展示值
+     * @param type 数据类型，修改展示值时按这个类型重新编码原始值
+     */
+    public QualifierValue(byte[] qualifier, byte[] value, String displayValue, String type){
+        this(qualifier, value, displayValue);
+        this.type = type;
+    }
+
+    public byte[] getQualifier() {
+        return qualifier;
+    }
+
+    public void setQualifier(byte[] qualifier) {
+        this.qualifier = qualifier;
+    }
+
+    /**
+     * 原始值，只有展示值时返回null
+     * 
+     * @return
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    public void setValue(byte[] value) {
+        this.value = value;
+    }
+
+    public String getDisplayValue() {
+        return displayValue;
+    }
+
+    /**
+     * 修改展示值。有类型时按类型重新编码原始值，没有类型时原始值失效，写入时按字符串编码
+     * 
+     * @param displayValue
+     * @throws IllegalArgumentException 展示值不能按类型解析
+     */
+    public void setDisplayValue(String displayValue) {
+        byte[] encoded = type == null ? null : ValueCodec.toBytes(type, displayValue);
+        this.displayValue = displayValue;
+        this.value = encoded;
+    }
+
+    /**
+     * 数据类型，和FilterFactory的类型一致，未知时为null
+     * 
+     * @return
+     */
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+}
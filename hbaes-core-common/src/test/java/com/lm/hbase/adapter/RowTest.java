@@ -0,0 +1,33 @@
+package com.lm.hbase.adapter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+/**
+ * 按原始值添加的列同时带有展示值
+ */
+public class RowTest {
+
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+
+    @Test
+    public void putSetsDisplayValue() {
+        byte[] age = Bytes.toBytes("age");
+        byte[] name = Bytes.toBytes("name");
+        byte[] raw = Bytes.toBytes("raw");
+        Row row = new Row("r1");
+        row.put(FAMILY, age, 18);
+        row.put(FAMILY, name, "tom");
+        row.put(FAMILY, raw, new byte[] { 0x01, 'a' });
+
+        // 列按qualifier实例保存
+        ColumnFamily family = row.getColumnFamily(FAMILY);
+        assertEquals("18", family.get(age).getDisplayValue());
+        assertEquals("tom", family.get(name).getDisplayValue());
+        assertEquals("\\x01a", family.get(raw).getDisplayValue());
+        assertEquals(18, Bytes.toInt(family.get(age).getValue()));
+    }
+
+}
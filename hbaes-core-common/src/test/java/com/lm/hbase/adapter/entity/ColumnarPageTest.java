@@ -0,0 +1,69 @@
+package com.lm.hbase.adapter.entity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.Row;
+
+/**
+ * 列式页保存原始值，修改展示值后原始值随之更新
+ */
+public class ColumnarPageTest {
+
+    private static final byte[]              FAMILY    = Bytes.toBytes("f");
+    private static final byte[]              QUALIFIER = Bytes.toBytes("age");
+    private static final Map<String, String> TYPES     = Collections.singletonMap("f.age", "int");
+
+    private static ColumnarPage pageOf(int age) {
+        KeyValue kv = new KeyValue(Bytes.toBytes("r1"), FAMILY, QUALIFIER, Bytes.toBytes(age));
+        ColumnarPage page = new ColumnarPage();
+        page.add(Result.create(new Cell[] { kv }), TYPES);
+        return page;
+    }
+
+    private static QualifierValue column(Row row) {
+        return row.getColumnFamily(FAMILY).getColumns().values().iterator().next();
+    }
+
+    @Test
+    public void addRowKeepsRawBytesAndType() {
+        Row row = pageOf(30).getRow(0);
+
+        ColumnarPage copy = new ColumnarPage();
+        copy.addRow(row);
+        assertEquals("int", copy.getType(0));
+        assertArrayEquals(Bytes.toBytes(30), copy.getValue(0, 0));
+        assertEquals("30", copy.getDisplayValue(0, 0));
+        assertArrayEquals(Bytes.toBytes(30), column(copy.getRow(0)).getValue());
+    }
+
+    @Test
+    public void setDisplayValueReencodesByType() {
+        Row row = pageOf(30).getRow(0);
+        QualifierValue qv = column(row);
+        qv.setDisplayValue("42");
+        assertArrayEquals(Bytes.toBytes(42), qv.getValue());
+
+        ColumnarPage copy = new ColumnarPage();
+        copy.addRow(row);
+        assertEquals("42", copy.getDisplayValue(0, 0));
+    }
+
+    @Test
+    public void setDisplayValueWithoutTypeFallsBackToString() {
+        QualifierValue qv = new QualifierValue(QUALIFIER, Bytes.toBytes("old"), "old");
+        qv.setDisplayValue("new");
+        assertEquals(null, qv.getValue());
+        assertEquals("new", qv.getDisplayValue());
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.lm.hbase.adapter.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.lm.hbase.adapter.HeapByteArena;
+
+/**
+ * 堆外的列式页序列化后在堆内还原
+ */
+public class HBasePageModelTest {
+
+    @Test
+    public void offHeapColumnarPageSurvivesSerialization() throws Exception {
+        HBasePageModel page = new HBasePageModel(10, "t");
+        page.setColumnar(true, true);
+        for (int i = 0; i < 3; i++) {
+            KeyValue kv = new KeyValue(Bytes.toBytes("r" + i), Bytes.toBytes("f"), Bytes.toBytes("age"),
+                                       Bytes.toBytes(i));
+            page.getWritableColumnarPage().add(Result.create(new Cell[] { kv }),
+                                               Collections.singletonMap("f.age", "int"));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(page);
+        out.close();
+        page.release();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        HBasePageModel copy = (HBasePageModel) in.readObject();
+        in.close();
+        assertTrue(copy.isColumnar());
+        assertTrue(copy.getColumnarPage().getArena() instanceof HeapByteArena);
+        assertEquals(3, copy.getRowList().size());
+        assertEquals("r2", copy.getRowList().get(2).getRowKey());
+        assertEquals("2", copy.getColumnarPage().getDisplayValue(2, 0));
+    }
+
+}